@@ -0,0 +1,45 @@
+package com.chrisrobertsfl.journal.benchmark;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.model.TaskInfo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskConversionBenchmark {
+    @Param({"1", "3", "5"})
+    int depth;
+
+    @Param({"2", "8"})
+    int width;
+
+    Task task;
+    TaskInfo taskInfo;
+
+    @Setup
+    public void setUp() {
+        task = TaskTrees.tree("0", depth, width);
+        taskInfo = task.toTaskInfo();
+    }
+
+    @Benchmark
+    public TaskInfo toTaskInfo() {
+        return task.toTaskInfo();
+    }
+
+    @Benchmark
+    public TaskInfo fromTask() {
+        return TaskInfo.fromTask(task);
+    }
+
+    @Benchmark
+    public Task toTask() {
+        return taskInfo.toTask();
+    }
+}
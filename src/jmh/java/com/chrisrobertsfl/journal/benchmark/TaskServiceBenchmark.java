@@ -0,0 +1,54 @@
+package com.chrisrobertsfl.journal.benchmark;
+
+import com.chrisrobertsfl.journal.task.model.TaskInfo;
+import com.chrisrobertsfl.journal.task.model.TaskListResponse;
+import com.chrisrobertsfl.journal.task.service.TaskService;
+import com.chrisrobertsfl.journal.task.service.TaskServiceImpl;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.chrisrobertsfl.journal.task.model.TaskAggregateRootBuilder.aTaskAggregateRoot;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskServiceBenchmark {
+    @Param({"100", "1000"})
+    int size;
+
+    @Param({"1", "3"})
+    int depth;
+
+    TaskService taskService;
+    ObjectMapper objectMapper;
+    TaskListResponse response;
+
+    @Setup
+    public void setUp() {
+        taskService = new TaskServiceImpl(aTaskAggregateRoot(TaskTrees.repository(TaskTrees.forest(size, depth, 4))).build());
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+        response = TaskListResponse.success(taskService.findAll());
+    }
+
+    @Benchmark
+    public List<TaskInfo> findAll() {
+        return taskService.findAll();
+    }
+
+    @Benchmark
+    public byte[] serializeTaskList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] findAllAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(TaskListResponse.success(taskService.findAll()));
+    }
+}
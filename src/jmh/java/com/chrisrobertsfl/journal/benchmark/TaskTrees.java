@@ -0,0 +1,51 @@
+package com.chrisrobertsfl.journal.benchmark;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.repository.TaskStore;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.MEDIUM;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static java.util.Collections.emptyList;
+
+final class TaskTrees {
+    private static final Instant CREATED_AT = Instant.parse("2023-01-01T00:00:00Z");
+
+    private TaskTrees() {
+    }
+
+    static Task tree(String id, int depth, int width) {
+        List<Task> subtasks = new ArrayList<>(depth > 1 ? width : 0);
+        for (int i = 0; depth > 1 && i < width; i++) {
+            subtasks.add(tree(id + "." + i, depth - 1, width));
+        }
+        return new Task(id, "Task " + id, "Description of task " + id, CREATED_AT, MEDIUM, PENDING,
+                Set.of("work", "benchmark"), subtasks.isEmpty() ? emptyList() : subtasks, 1L);
+    }
+
+    static List<Task> forest(int size, int depth, int width) {
+        List<Task> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tasks.add(tree(String.valueOf(i), depth, width));
+        }
+        return tasks;
+    }
+
+    // Stands in for Mongo: answers findAll from memory and rejects everything else
+    static TaskStore repository(List<Task> tasks) {
+        return (TaskStore) Proxy.newProxyInstance(TaskStore.class.getClassLoader(),
+                new Class<?>[]{TaskStore.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findAll" -> tasks;
+                    case "toString" -> "InMemoryTaskRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,67 @@
+package com.chrisrobertsfl.journal.benchmark;
+
+import com.chrisrobertsfl.journal.task.controller.TaskCborConverter;
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.model.TaskListResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskWireFormatBenchmark {
+    @Param({"100", "1000"})
+    int size;
+
+    @Param({"1", "3"})
+    int depth;
+
+    @Param({"json", "cbor"})
+    String format;
+
+    ObjectMapper objectMapper;
+    TaskListResponse response;
+    byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        // JSON as Spring Boot configures it: ISO-8601 timestamps and enum names
+        objectMapper = format.equals("cbor")
+                ? TaskCborConverter.mapper()
+                : new ObjectMapper().findAndRegisterModules().disable(WRITE_DATES_AS_TIMESTAMPS);
+        response = TaskListResponse.success(TaskTrees.forest(size, depth, 4).stream().map(Task::toTaskInfo).toList());
+        encoded = objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] encode(EncodedSize encodedSize) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(response);
+        encodedSize.bytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public TaskListResponse decode() throws IOException {
+        return objectMapper.readValue(encoded, TaskListResponse.class);
+    }
+
+    @Benchmark
+    public TaskListResponse roundTrip() throws IOException {
+        return objectMapper.readValue(objectMapper.writeValueAsBytes(response), TaskListResponse.class);
+    }
+
+    // Reported next to the timings as encode:bytes; it is set rather than added to, so it reads as the size of one response
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public long bytes;
+    }
+}
@@ -1,16 +1,61 @@
 package com.chrisrobertsfl.journal;
 
+import com.chrisrobertsfl.journal.task.controller.PayloadSizeFilter;
+import com.chrisrobertsfl.journal.task.controller.TaskCborConverter;
+import com.chrisrobertsfl.journal.task.controller.TaskResponseCacheFilter;
+import com.chrisrobertsfl.journal.task.model.ReactiveTaskAggregateRoot;
 import com.chrisrobertsfl.journal.task.model.TaskAggregateRoot;
+import com.chrisrobertsfl.journal.task.repository.InMemoryTaskRepository;
+import com.chrisrobertsfl.journal.task.repository.ReactiveTaskRepository;
+import com.chrisrobertsfl.journal.task.repository.SubtaskRepository;
+import com.chrisrobertsfl.journal.task.repository.TaskCache;
+import com.chrisrobertsfl.journal.task.repository.TaskCounters;
+import com.chrisrobertsfl.journal.task.repository.TaskCountersStore;
+import com.chrisrobertsfl.journal.task.repository.TaskEvents;
+import com.chrisrobertsfl.journal.task.repository.TaskIndexes;
+import com.chrisrobertsfl.journal.task.repository.TaskQueryPlanEndpoint;
 import com.chrisrobertsfl.journal.task.repository.TaskRepository;
+import com.chrisrobertsfl.journal.task.repository.TaskResponseCache;
+import com.chrisrobertsfl.journal.task.repository.TaskStore;
+import com.chrisrobertsfl.journal.task.repository.TaskTree;
+import com.chrisrobertsfl.journal.task.repository.TaskWriteAheadLog;
+import com.chrisrobertsfl.journal.task.repository.TaskWriteBehind;
+import com.chrisrobertsfl.journal.task.repository.TaskWriter;
+import com.chrisrobertsfl.journal.task.service.MeteredTaskService;
+import com.chrisrobertsfl.journal.task.service.ReactiveTaskService;
+import com.chrisrobertsfl.journal.task.service.ReactiveTaskServiceImpl;
 import com.chrisrobertsfl.journal.task.service.TaskService;
 import com.chrisrobertsfl.journal.task.service.TaskServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+
+import static java.util.Objects.isNull;
+import static org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME;
 
 @Configuration
 @EnableMongoRepositories
+@EnableReactiveMongoRepositories
+@EnableScheduling
 public class TaskConfiguration {
 
     @Autowired
@@ -18,12 +63,153 @@ public class TaskConfiguration {
 
 
     @Bean(name = "taskService")
-    public TaskService taskService(TaskAggregateRoot taskAggregateRoot) {
-        return new TaskServiceImpl(taskAggregateRoot);
+    public TaskService taskService(TaskAggregateRoot taskAggregateRoot,
+                                   @Value("${journal.task.bulk.batch-size:1000}") int bulkBatchSize,
+                                   @Value("${journal.task.single-flight.enabled:true}") boolean singleFlight,
+                                   @Value("${journal.task.single-flight.window:PT0S}") Duration singleFlightWindow,
+                                   TaskResponseCache taskResponseCache, MeterRegistry meterRegistry) {
+        return new MeteredTaskService(singleFlight
+                ? new TaskServiceImpl(taskAggregateRoot, bulkBatchSize, singleFlightWindow, taskResponseCache)
+                : new TaskServiceImpl(taskAggregateRoot, bulkBatchSize), meterRegistry);
+    }
+
+    @Bean(name = "taskAggregateRoot")
+    public TaskAggregateRoot taskAggregateRoot(TaskStore taskStore, TaskCache taskCache, TaskCounters taskCounters,
+                                               TaskEvents taskEvents, TaskWriteAheadLog taskWriteAheadLog,
+                                               ObjectProvider<TaskWriteBehind> taskWriteBehind, TaskTree taskTree,
+                                               TaskResponseCache taskResponseCache,
+                                               @Value("${journal.task.storage.engine:mongo}") String engine) {
+        TaskWriter taskWriter = taskWriteBehind.getIfAvailable();
+        if (isNull(taskWriter)) {
+            taskWriter = taskWriteAheadLog;
+        } else if (taskWriteAheadLog.isEnabled()) {
+            throw new IllegalStateException("Enable either the task write-ahead log or task write-behind, not both");
+        } else if ("memory".equals(engine)) {
+            // Write-behind batches straight to Mongo, which the in-memory engine never reads back
+            throw new IllegalStateException("Task write-behind needs the mongo storage engine");
+        }
+        return new TaskAggregateRoot(taskStore, taskCache, taskCounters, taskEvents, Clock.systemUTC(), taskWriter, taskTree, taskResponseCache);
+    }
+
+    @Bean(name = "taskTree")
+    public TaskTree taskTree(SubtaskRepository subtaskRepository,
+                             @Value("${journal.task.storage.engine:mongo}") String engine) {
+        return "memory".equals(engine) ? TaskTree.embedded() : new TaskTree(subtaskRepository);
+    }
+
+    @Bean(name = "taskWriteBehind")
+    @ConditionalOnProperty(name = "journal.task.write-behind.enabled", havingValue = "true")
+    public TaskWriteBehind taskWriteBehind(MongoOperations mongoOperations,
+                                           @Value("${journal.task.write-behind.capacity:10000}") int capacity,
+                                           @Value("${journal.task.write-behind.batch-size:500}") int batchSize,
+                                           @Value("${journal.task.write-behind.flush-interval:PT0.05S}") Duration flushInterval,
+                                           @Value("${journal.task.write-behind.offer-timeout:PT5S}") Duration offerTimeout) {
+        return new TaskWriteBehind(mongoOperations, capacity, batchSize, flushInterval, offerTimeout);
+    }
+
+    @Bean(name = "taskWriteAheadLog")
+    public TaskWriteAheadLog taskWriteAheadLog(TaskStore taskStore,
+                                               @Value("${journal.task.wal.enabled:false}") boolean enabled,
+                                               @Value("${journal.task.wal.directory:wal}") String directory,
+                                               @Value("${journal.task.wal.fsync:ALWAYS}") TaskWriteAheadLog.FsyncPolicy fsyncPolicy,
+                                               @Value("${journal.task.wal.segment-size:16MB}") DataSize segmentSize,
+                                               @Value("${journal.task.wal.compact-after-segments:8}") int compactAfterSegments) {
+        return enabled
+                ? new TaskWriteAheadLog(taskStore, Path.of(directory), fsyncPolicy, Math.toIntExact(segmentSize.toBytes()), compactAfterSegments)
+                : TaskWriteAheadLog.disabled(taskStore);
+    }
+
+    @Bean(name = "reactiveTaskService")
+    public ReactiveTaskService reactiveTaskService(ReactiveTaskAggregateRoot reactiveTaskAggregateRoot) {
+        return new ReactiveTaskServiceImpl(reactiveTaskAggregateRoot);
+    }
+
+    @Bean(name = "reactiveTaskAggregateRoot")
+    public ReactiveTaskAggregateRoot reactiveTaskAggregateRoot(ReactiveTaskRepository reactiveTaskRepository, TaskCache taskCache,
+                                                               TaskCounters taskCounters, TaskEvents taskEvents,
+                                                               TaskResponseCache taskResponseCache) {
+        return new ReactiveTaskAggregateRoot(reactiveTaskRepository, taskCache, taskCounters, taskEvents, Clock.systemUTC(), taskResponseCache);
+    }
+
+    @Bean(name = "taskCache")
+    public TaskCache taskCache(@Value("${journal.task.cache.maximum-size:10000}") long maximumSize,
+                               @Value("${journal.task.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        return new TaskCache(maximumSize, expireAfterWrite);
+    }
+
+    @Bean(name = "taskResponseCache")
+    public TaskResponseCache taskResponseCache(@Value("${journal.task.response-cache.enabled:true}") boolean enabled,
+                                               @Value("${journal.task.response-cache.maximum-size:16MB}") DataSize maximumSize,
+                                               @Value("${journal.task.response-cache.expire-after-write:1m}") Duration expireAfterWrite,
+                                               @Value("${journal.task.response-cache.gzip:true}") boolean gzip) {
+        return enabled ? new TaskResponseCache(maximumSize.toBytes(), expireAfterWrite, gzip) : TaskResponseCache.disabled();
+    }
+
+    @Bean(name = "taskCounters")
+    public TaskCounters taskCounters() {
+        return new TaskCounters();
+    }
+
+    @Bean(name = "taskEvents")
+    public TaskEvents taskEvents(@Value("${journal.task.events.buffer-size:256}") int bufferSize) {
+        return new TaskEvents(bufferSize);
+    }
+
+    // Takes over every TaskStore injection point, so nothing on the blocking path touches Mongo
+    @Bean(name = "inMemoryTaskRepository")
+    @Primary
+    @ConditionalOnProperty(name = "journal.task.storage.engine", havingValue = "memory")
+    public InMemoryTaskRepository inMemoryTaskRepository(@Value("${journal.task.storage.directory:}") String directory,
+                                                         @Value("${journal.task.storage.compact-after:10000}") int compactAfter,
+                                                         ObjectMapper objectMapper) {
+        return directory.isBlank()
+                ? new InMemoryTaskRepository()
+                : new InMemoryTaskRepository(Path.of(directory), objectMapper, compactAfter);
+    }
+
+    @Bean(name = "taskCountersStore")
+    @ConditionalOnProperty(name = "journal.task.storage.engine", havingValue = "mongo", matchIfMissing = true)
+    public TaskCountersStore taskCountersStore(MongoOperations mongoOperations, TaskRepository taskRepository, TaskCounters taskCounters) {
+        return new TaskCountersStore(mongoOperations, taskRepository, taskCounters);
+    }
+
+    @Bean
+    public PayloadSizeFilter payloadSizeFilter(MeterRegistry meterRegistry) {
+        return new PayloadSizeFilter(meterRegistry);
+    }
+
+    @Bean
+    public TaskResponseCacheFilter taskResponseCacheFilter(TaskResponseCache taskResponseCache,
+                                                           @Value("${journal.task.response-cache.maximum-entry-size:1MB}") DataSize maximumEntrySize) {
+        return new TaskResponseCacheFilter(taskResponseCache, (int) maximumEntrySize.toBytes());
+    }
+
+    // Replaces Spring's default CBOR converter, so Accept: application/cbor gets the compact encoding
+    @Bean
+    public TaskCborConverter taskCborConverter() {
+        return new TaskCborConverter();
+    }
+
+    @Bean(name = "taskIndexes")
+    @ConditionalOnExpression("${journal.task.indexes.ensure-on-startup:true} and '${journal.task.storage.engine:mongo}' == 'mongo'")
+    public TaskIndexes taskIndexes(MongoOperations mongoOperations) {
+        return new TaskIndexes(mongoOperations);
+    }
+
+    @Bean
+    public TaskQueryPlanEndpoint taskQueryPlanEndpoint(MongoOperations mongoOperations) {
+        return new TaskQueryPlanEndpoint(mongoOperations);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "journal.virtual-threads.enabled", havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newVirtualThreadPerTaskExecutor());
     }
 
-    @Bean(name = "taskAggregator")
-    public TaskAggregateRoot taskAggregateRoot(TaskRepository taskRepository) {
-        return new TaskAggregateRoot(taskRepository);
+    @Bean(name = APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    @ConditionalOnProperty(name = "journal.virtual-threads.enabled", havingValue = "true")
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(VirtualThreads.newVirtualThreadPerTaskExecutor());
     }
 }
@@ -0,0 +1,24 @@
+package com.chrisrobertsfl.journal;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.lang.invoke.MethodHandles.publicLookup;
+import static java.lang.invoke.MethodType.methodType;
+
+// Resolved at runtime: on the Java 19 target this is a preview API, so it needs --enable-preview there.
+public final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            MethodHandle factory = publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    methodType(ExecutorService.class));
+            return (ExecutorService) factory.invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Virtual threads need Java 21, or Java 19 started with --enable-preview", e);
+        }
+    }
+}
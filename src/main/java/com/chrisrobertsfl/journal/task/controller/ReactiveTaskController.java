@@ -0,0 +1,108 @@
+package com.chrisrobertsfl.journal.task.controller;
+
+import com.chrisrobertsfl.journal.task.model.*;
+import com.chrisrobertsfl.journal.task.service.ReactiveTaskService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * The task API on the reactive Mongo driver. This still runs inside Spring MVC on Tomcat: each Mono or Flux becomes a
+ * servlet async request, and request bodies are read on a Tomcat thread, so it is not an event-loop server.
+ */
+@RestController
+@RequestMapping("/api/reactive/tasks")
+public class ReactiveTaskController {
+    private final ReactiveTaskService taskService;
+    private final Duration heartbeat;
+
+    public ReactiveTaskController(ReactiveTaskService taskService,
+                                  @Value("${journal.task.events.heartbeat:PT15S}") Duration heartbeat) {
+        this.taskService = taskService;
+        this.heartbeat = heartbeat;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<TaskResponse>> addTask(@RequestBody TaskInfo task) {
+        return taskService.addTask(task)
+                .map(added -> ResponseEntity.status(201).body(TaskResponse.success(added)))
+                .onErrorResume(e -> Mono.just(errorResponse(e)));
+    }
+
+    @PutMapping
+    public Mono<ResponseEntity<TaskResponse>> updateTask(@RequestBody TaskInfo task) {
+        return taskService.updateTask(task)
+                .map(updated -> ResponseEntity.ok(TaskResponse.success(updated)))
+                .onErrorResume(e -> Mono.just(errorResponse(e)));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<TaskResponse>> deleteTask(@PathVariable String id) {
+        return taskService.deleteTask(id)
+                .map(deleted -> ResponseEntity.ok(TaskResponse.success(deleted)))
+                .onErrorResume(e -> Mono.just(errorResponse(e)));
+    }
+
+    @GetMapping(produces = "application/x-ndjson")
+    public Flux<TaskInfo> findAll() {
+        return taskService.findAll();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<TaskResponse>> findById(@PathVariable String id) {
+        return taskService.findById(id)
+                .map(found -> ResponseEntity.ok(TaskResponse.success(found)))
+                .defaultIfEmpty(ResponseEntity.status(404).body(TaskResponse.error(format("No Task found for id %s", id))))
+                .onErrorResume(e -> Mono.just(errorResponse(e)));
+    }
+
+    @GetMapping(value = "/label", produces = "application/x-ndjson")
+    public Flux<TaskInfo> findByLabel(@RequestParam Set<String> labels) {
+        return taskService.findByLabel(labels);
+    }
+
+    @GetMapping(value = "/status/{status}", produces = "application/x-ndjson")
+    public Flux<TaskInfo> findByStatus(@PathVariable String status) {
+        return taskService.findByStatus(status);
+    }
+
+    @PutMapping("/{id}/mark-in-progress")
+    public Mono<ResponseEntity<TaskResponse>> markInProgress(@PathVariable String id, @RequestParam(required = false) Long version) {
+        return taskService.markInProgress(id, version)
+                .map(marked -> ResponseEntity.ok(TaskResponse.success(marked)))
+                .onErrorResume(e -> Mono.just(errorResponse(e)));
+    }
+
+    @PutMapping("/{id}/complete")
+    public Mono<ResponseEntity<TaskResponse>> markComplete(@PathVariable String id, @RequestParam(required = false) Long version) {
+        return taskService.markComplete(id, version)
+                .map(marked -> ResponseEntity.ok(TaskResponse.success(marked)))
+                .onErrorResume(e -> Mono.just(errorResponse(e)));
+    }
+
+    @GetMapping(value = "/events", produces = "text/event-stream")
+    public Flux<ServerSentEvent<TaskInfo>> events() {
+        // The heartbeat commits the response straight away and lets a vanished client be noticed while the feed is quiet
+        return Flux.merge(
+                Flux.interval(Duration.ZERO, heartbeat).map(tick -> ServerSentEvent.<TaskInfo>builder().comment("heartbeat").build()),
+                taskService.events().map(event -> ServerSentEvent.builder(event.task())
+                        .event(event.type().name())
+                        .build()));
+    }
+
+    static ResponseEntity<TaskResponse> errorResponse(Throwable e) {
+        int status = e instanceof TaskNotFoundException ? 404
+                : e instanceof TaskVersionConflictException ? 409
+                : e instanceof TaskException ? 400
+                : 500;
+        return ResponseEntity.status(status).body(TaskResponse.error(e.getMessage()));
+    }
+}
@@ -0,0 +1,32 @@
+package com.chrisrobertsfl.journal.task.controller;
+
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+
+import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
+import static com.fasterxml.jackson.databind.DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS;
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS;
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_ENUMS_USING_INDEX;
+
+/**
+ * {@code application/cbor} for the task APIs: the same documents as JSON, with enums as ordinals and timestamps as
+ * epoch milliseconds. Ordinals tie the wire to declaration order, so new {@code Status} or {@code Priority} constants
+ * go at the end.
+ */
+public class TaskCborConverter extends MappingJackson2CborHttpMessageConverter {
+    public TaskCborConverter() {
+        super(mapper());
+    }
+
+    public static CBORMapper mapper() {
+        return CBORMapper.builder()
+                .findAndAddModules()
+                .enable(WRITE_ENUMS_USING_INDEX)
+                .enable(WRITE_DATES_AS_TIMESTAMPS)
+                .disable(WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS)
+                .disable(READ_DATE_TIMESTAMPS_AS_NANOSECONDS)
+                .disable(FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+    }
+}
@@ -2,27 +2,55 @@ package com.chrisrobertsfl.journal.task.controller;
 
 import com.chrisrobertsfl.journal.task.model.*;
 import com.chrisrobertsfl.journal.task.service.TaskService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.google.common.base.Strings;
 import jakarta.annotation.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.stream.Stream;
 
+import static com.fasterxml.jackson.core.JsonGenerator.Feature.AUTO_CLOSE_TARGET;
+import static com.fasterxml.jackson.databind.SerializationFeature.FLUSH_AFTER_WRITE_VALUE;
 import static java.lang.String.format;
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.springframework.http.HttpHeaders.ACCEPT;
+import static org.springframework.http.HttpHeaders.IF_MODIFIED_SINCE;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
 
 @RestController
 @RequestMapping("/api/tasks")
 public class TaskController {
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_SUBTASK_DEPTH = 10;
+    static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     @Resource(name = "taskService")
     private final TaskService taskService;
+    private final ObjectMapper objectMapper;
 
-    public TaskController(TaskService taskService) {
+    public TaskController(TaskService taskService, ObjectMapper objectMapper) {
         this.taskService = taskService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -36,12 +64,26 @@ public class TaskController {
         }
     }
 
+    @PostMapping(value = "/bulk", consumes = {"application/json", "application/x-ndjson"})
+    public ResponseEntity<BulkTaskResponse> addTasks(InputStream body) {
+        try (MappingIterator<TaskInfo> tasks = objectMapper.readerFor(TaskInfo.class).readValues(body)) {
+            BulkTaskResponse response = taskService.addTasks(tasks);
+            return ResponseEntity.status(response.failed() == 0 ? 201 : 207).body(response);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(BulkTaskResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(BulkTaskResponse.error(e.getMessage()));
+        }
+    }
+
     @PutMapping
     public ResponseEntity<TaskResponse> updateTask(@RequestBody TaskInfo task) {
         try {
             return ResponseEntity.ok(TaskResponse.success(taskService.updateTask(task)));
         } catch (TaskNotFoundException e) {
             return ResponseEntity.status(404).body(TaskResponse.error(e.getMessage()));
+        } catch (TaskVersionConflictException e) {
+            return ResponseEntity.status(409).body(TaskResponse.error(e.getMessage()));
         } catch (MissingTaskException e) {
             return ResponseEntity.status(400).body(TaskResponse.error(e.getMessage()));
         } catch (Exception e) {
@@ -59,51 +101,219 @@ public class TaskController {
     }
 
     @GetMapping
-    public ResponseEntity<TaskListResponse> findAll() {
-        List<TaskInfo> allTasks = taskService.findAll();
-        return allTasks.isEmpty()
-                ? ResponseEntity.status(404).body(TaskListResponse.error("No tasks found"))
-                : ResponseEntity.ok(TaskListResponse.success(allTasks));
+    public ResponseEntity<TaskListResponse> findAll(@RequestParam(required = false) String cursor,
+                                                    @RequestParam(defaultValue = "100") int limit,
+                                                    @RequestParam(required = false) String fields,
+                                                    WebRequest request) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body(TaskListResponse.error(format("Limit must be between 1 and %d", MAX_PAGE_SIZE)));
+        }
+        try {
+            TaskVersionSummary version = isConditional(request) ? taskService.summarizePage(cursor, limit) : null;
+            if (nonNull(version) && notModified(request, version, fields)) {
+                return null;
+            }
+            TaskPage page = taskService.findPage(cursor, limit, fields);
+            if (page.tasks().isEmpty()) {
+                return ResponseEntity.status(404).body(TaskListResponse.error("No tasks found"));
+            }
+            if (isNull(version)) {
+                notModified(request, isProjected(fields) ? taskService.summarizePage(cursor, limit) : TaskVersionSummary.of(page.tasks()), fields);
+            }
+            return ResponseEntity.ok(TaskListResponse.success(page));
+        } catch (TaskException e) {
+            return ResponseEntity.badRequest().body(TaskListResponse.error(e.getMessage()));
+        }
+    }
+
+    // Every task straight off the repository cursor, written as it is converted: one per line, or as a single JSON
+    // document when the client accepts JSON and not NDJSON. The status is sent with the first bytes, so a failure part
+    // way through can only cut the body short
+    @GetMapping(value = "/stream", produces = {"application/x-ndjson", "application/json"})
+    public ResponseEntity<StreamingResponseBody> streamAll(@RequestHeader(value = ACCEPT, required = false) String accept) {
+        return acceptsOnlyJson(accept)
+                ? ResponseEntity.ok().contentType(APPLICATION_JSON).body(this::writeJson)
+                : ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(this::writeNdjson);
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<TaskStatisticsResponse> countTasks(@RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) Instant from,
+                                                             @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) Instant to) {
+        try {
+            return ResponseEntity.ok(TaskStatisticsResponse.success(taskService.countTasks(from, to)));
+        } catch (TaskException e) {
+            return ResponseEntity.badRequest().body(TaskStatisticsResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(TaskStatisticsResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<TaskListResponse> search(@RequestParam String q,
+                                                   @RequestParam(required = false) Set<String> labels,
+                                                   @RequestParam(required = false) String status,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body(TaskListResponse.error(format("Limit must be between 1 and %d", MAX_PAGE_SIZE)));
+        }
+        try {
+            TaskPage page = taskService.search(q, labels, status, cursor, limit);
+            return page.tasks().isEmpty()
+                    ? ResponseEntity.status(404).body(TaskListResponse.error(format("No tasks found matching: %s", q)))
+                    : ResponseEntity.ok(TaskListResponse.success(page));
+        } catch (TaskException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(TaskListResponse.error(e.getMessage()));
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<TaskResponse> findById(@PathVariable String id) {
+    public ResponseEntity<TaskResponse> findById(@PathVariable String id, WebRequest request) {
         try {
+            if (isConditional(request)) {
+                Optional<TaskVersionSummary> version = taskService.findVersion(id);
+                if (version.isPresent() && notModified(request, version.get(), null)) {
+                    return null;
+                }
+            }
             Optional<TaskInfo> found = taskService.findById(id);
+            notModified(request, TaskVersionSummary.of(found.get().version(), found.get().updatedAt()), null);
             return ResponseEntity.ok(TaskResponse.success(found.get()));
         } catch (TaskException e) {
             return ResponseEntity.badRequest().body(TaskResponse.error(e.getMessage()));
         }
     }
 
+    @GetMapping("/{id}/tree")
+    public ResponseEntity<TaskResponse> findTree(@PathVariable String id, @RequestParam(defaultValue = "1") int depth) {
+        if (depth < 0 || depth > MAX_SUBTASK_DEPTH) {
+            return ResponseEntity.badRequest().body(TaskResponse.error(format("Depth must be between 0 and %d", MAX_SUBTASK_DEPTH)));
+        }
+        try {
+            return taskService.findTree(id, depth)
+                    .map(tree -> ResponseEntity.ok(TaskResponse.success(tree)))
+                    .orElseGet(() -> ResponseEntity.status(404).body(TaskResponse.error(format("No Task found for id %s", id))));
+        } catch (TaskException e) {
+            return ResponseEntity.badRequest().body(TaskResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}/subtasks")
+    public ResponseEntity<TaskListResponse> findSubtasks(@PathVariable String id,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body(TaskListResponse.error(format("Limit must be between 1 and %d", MAX_PAGE_SIZE)));
+        }
+        try {
+            TaskPage page = taskService.findSubtasks(id, cursor, limit);
+            return page.tasks().isEmpty()
+                    ? ResponseEntity.status(404).body(TaskListResponse.error(format("No subtasks found for id %s", id)))
+                    : ResponseEntity.ok(TaskListResponse.success(page));
+        } catch (TaskNotFoundException e) {
+            return ResponseEntity.status(404).body(TaskListResponse.error(e.getMessage()));
+        } catch (TaskException e) {
+            return ResponseEntity.badRequest().body(TaskListResponse.error(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{id}/subtasks")
+    public ResponseEntity<TaskResponse> addSubtask(@PathVariable String id, @RequestBody TaskInfo subtask) {
+        try {
+            return ResponseEntity.status(201).body(TaskResponse.success(taskService.addSubtask(id, subtask)));
+        } catch (TaskNotFoundException e) {
+            return ResponseEntity.status(404).body(TaskResponse.error(e.getMessage()));
+        } catch (TaskException e) {
+            return ResponseEntity.badRequest().body(TaskResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(TaskResponse.error(e.getMessage()));
+        }
+    }
+
+    @PutMapping("/subtasks")
+    public ResponseEntity<TaskResponse> updateSubtask(@RequestBody TaskInfo subtask) {
+        try {
+            return ResponseEntity.ok(TaskResponse.success(taskService.updateSubtask(subtask)));
+        } catch (TaskNotFoundException e) {
+            return ResponseEntity.status(404).body(TaskResponse.error(e.getMessage()));
+        } catch (TaskVersionConflictException e) {
+            return ResponseEntity.status(409).body(TaskResponse.error(e.getMessage()));
+        } catch (TaskException e) {
+            return ResponseEntity.badRequest().body(TaskResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(TaskResponse.error(e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/subtasks/{id}")
+    public ResponseEntity<TaskResponse> deleteSubtask(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(TaskResponse.success(taskService.deleteSubtask(id)));
+        } catch (TaskNotFoundException e) {
+            return ResponseEntity.status(404).body(TaskResponse.error(e.getMessage()));
+        } catch (TaskException e) {
+            return ResponseEntity.badRequest().body(TaskResponse.error(e.getMessage()));
+        }
+    }
+
     @GetMapping("/label")
-    public ResponseEntity<TaskListResponse> findByLabel(@RequestParam Set<String> labels) {
+    public ResponseEntity<TaskListResponse> findByLabel(@RequestParam Set<String> labels,
+                                                        @RequestParam(required = false) String fields,
+                                                        WebRequest request) {
         if (isNull(labels) || labels.isEmpty()) {
             return ResponseEntity.badRequest().body(TaskListResponse.error("No labels provided"));
         }
-        List<TaskInfo> byLabel = taskService.findByLabel(labels);
-        return byLabel.isEmpty()
-                ? ResponseEntity.status(404).body(TaskListResponse.error(format("No tasks found for label(s):  %s", new TreeSet<>(labels))))
-                : ResponseEntity.ok(TaskListResponse.success(byLabel));
+        try {
+            TaskVersionSummary version = isConditional(request) ? taskService.summarizeByLabel(labels) : null;
+            if (nonNull(version) && notModified(request, version, fields)) {
+                return null;
+            }
+            List<TaskInfo> byLabel = taskService.findByLabel(labels, fields);
+            if (byLabel.isEmpty()) {
+                return ResponseEntity.status(404).body(TaskListResponse.error(format("No tasks found for label(s):  %s", new TreeSet<>(labels))));
+            }
+            if (isNull(version)) {
+                notModified(request, isProjected(fields) ? taskService.summarizeByLabel(labels) : TaskVersionSummary.of(byLabel), fields);
+            }
+            return ResponseEntity.ok(TaskListResponse.success(byLabel));
+        } catch (TaskException e) {
+            return ResponseEntity.badRequest().body(TaskListResponse.error(e.getMessage()));
+        }
     }
 
     @GetMapping("/status/{status}")
-    public ResponseEntity<TaskListResponse> findByStatus(@PathVariable String status) {
+    public ResponseEntity<TaskListResponse> findByStatus(@PathVariable String status,
+                                                         @RequestParam(required = false) String fields,
+                                                         WebRequest request) {
         if (Strings.isNullOrEmpty(status)) {
             return ResponseEntity.badRequest().body(TaskListResponse.error("No status provided"));
         }
-        List<TaskInfo> byStatus = taskService.findByStatus(status);
-        return byStatus.isEmpty()
-                ? ResponseEntity.status(404).body(TaskListResponse.error(format("No tasks found with status: %s", status)))
-                : ResponseEntity.ok(TaskListResponse.success(byStatus));
+        try {
+            TaskVersionSummary version = isConditional(request) ? taskService.summarizeByStatus(status) : null;
+            if (nonNull(version) && notModified(request, version, fields)) {
+                return null;
+            }
+            List<TaskInfo> byStatus = taskService.findByStatus(status, fields);
+            if (byStatus.isEmpty()) {
+                return ResponseEntity.status(404).body(TaskListResponse.error(format("No tasks found with status: %s", status)));
+            }
+            if (isNull(version)) {
+                notModified(request, isProjected(fields) ? taskService.summarizeByStatus(status) : TaskVersionSummary.of(byStatus), fields);
+            }
+            return ResponseEntity.ok(TaskListResponse.success(byStatus));
+        } catch (TaskException e) {
+            return ResponseEntity.badRequest().body(TaskListResponse.error(e.getMessage()));
+        }
     }
 
     @PutMapping("/{id}/mark-in-progress")
-    public ResponseEntity<TaskResponse> markInProgress(@PathVariable String id) {
+    public ResponseEntity<TaskResponse> markInProgress(@PathVariable String id, @RequestParam(required = false) Long version) {
         try {
-            return ResponseEntity.ok(TaskResponse.success(taskService.markInProgress(id)));
+            return ResponseEntity.ok(TaskResponse.success(taskService.markInProgress(id, version)));
         } catch (TaskNotFoundException e) {
             return ResponseEntity.status(404).body(TaskResponse.error(e.getMessage()));
+        } catch (TaskVersionConflictException e) {
+            return ResponseEntity.status(409).body(TaskResponse.error(e.getMessage()));
         } catch (TaskException e) {
             return ResponseEntity.badRequest().body(TaskResponse.error(e.getMessage()));
         } catch (Exception e) {
@@ -112,13 +322,91 @@ public class TaskController {
     }
 
     @PutMapping("/{id}/complete")
-    public ResponseEntity<TaskResponse> markComplete(@PathVariable String id) {
+    public ResponseEntity<TaskResponse> markComplete(@PathVariable String id, @RequestParam(required = false) Long version) {
         try {
-            return ResponseEntity.ok(TaskResponse.success(taskService.markComplete(id)));
+            return ResponseEntity.ok(TaskResponse.success(taskService.markComplete(id, version)));
         } catch (TaskNotFoundException e) {
             return ResponseEntity.status(404).body(TaskResponse.error(e.getMessage()));
+        } catch (TaskVersionConflictException e) {
+            return ResponseEntity.status(409).body(TaskResponse.error(e.getMessage()));
         } catch (TaskException e) {
             return ResponseEntity.badRequest().body(TaskResponse.error(e.getMessage()));
         }
     }
+
+    @PutMapping("/bulk/mark-in-progress")
+    public ResponseEntity<BulkStatusResponse> markAllInProgress(@RequestBody BulkStatusRequest request) {
+        try {
+            return ResponseEntity.ok(taskService.markAllInProgress(request));
+        } catch (TaskException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(BulkStatusResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(BulkStatusResponse.error(e.getMessage()));
+        }
+    }
+
+    @PutMapping("/bulk/complete")
+    public ResponseEntity<BulkStatusResponse> markAllComplete(@RequestBody BulkStatusRequest request) {
+        try {
+            return ResponseEntity.ok(taskService.markAllComplete(request));
+        } catch (TaskException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(BulkStatusResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(BulkStatusResponse.error(e.getMessage()));
+        }
+    }
+
+    private void writeNdjson(OutputStream out) throws IOException {
+        boolean written = false;
+        try (Stream<TaskInfo> tasks = taskService.streamAll();
+             SequenceWriter writer = objectMapper.writerFor(TaskInfo.class)
+                     .without(AUTO_CLOSE_TARGET)
+                     .without(FLUSH_AFTER_WRITE_VALUE)
+                     .withRootValueSeparator("\n")
+                     .writeValues(out)) {
+            for (Iterator<TaskInfo> it = tasks.iterator(); it.hasNext(); written = true) {
+                writer.write(it.next());
+            }
+        }
+        if (written) {
+            out.write('\n');
+        }
+    }
+
+    // Shaped like TaskListResponse, so a client of the list endpoints can read it the same way
+    private void writeJson(OutputStream out) throws IOException {
+        try (Stream<TaskInfo> tasks = taskService.streamAll();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out).disable(AUTO_CLOSE_TARGET)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("tasks");
+            for (Iterator<TaskInfo> it = tasks.iterator(); it.hasNext(); ) {
+                generator.writeObject(it.next());
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    private static boolean acceptsOnlyJson(String accept) {
+        if (Strings.isNullOrEmpty(accept)) {
+            return false;
+        }
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        return accepted.stream().anyMatch(APPLICATION_JSON::equalsTypeAndSubtype)
+                && accepted.stream().noneMatch(APPLICATION_NDJSON::equalsTypeAndSubtype);
+    }
+
+    private static boolean isConditional(WebRequest request) {
+        return nonNull(request.getHeader(IF_NONE_MATCH)) || nonNull(request.getHeader(IF_MODIFIED_SINCE));
+    }
+
+    // Projected tasks may not carry their version, so their tag has to come from the repository summary
+    private static boolean isProjected(String fields) {
+        return !Strings.isNullOrEmpty(fields);
+    }
+
+    // Also sets the ETag and Last-Modified headers for the response that follows when the client's copy is stale
+    private static boolean notModified(WebRequest request, TaskVersionSummary version, String variant) {
+        return version.count() > 0 && request.checkNotModified(version.etag(variant), version.lastModifiedMillis());
+    }
 }
@@ -0,0 +1,235 @@
+package com.chrisrobertsfl.journal.task.controller;
+
+import com.chrisrobertsfl.journal.task.repository.TaskResponseCache;
+import com.chrisrobertsfl.journal.task.repository.TaskResponseCache.Response;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.springframework.http.HttpHeaders.ACCEPT;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.IF_MODIFIED_SINCE;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.HttpHeaders.LAST_MODIFIED;
+import static org.springframework.http.HttpHeaders.VARY;
+
+/**
+ * Serves {@code GET /api/tasks/status/{status}} and {@code GET /api/tasks/label} from the {@link TaskResponseCache},
+ * and fills it from the controller's 200 responses. Conditional requests go to the controller, which answers them from
+ * the version summary alone. A response is copied aside as it streams out, up to {@code maximumEntryBytes}; a larger
+ * one is sent without being kept.
+ */
+public class TaskResponseCacheFilter extends OncePerRequestFilter {
+    static final String BY_STATUS = "/api/tasks/status/";
+    static final String BY_LABEL = "/api/tasks/label";
+    static final int DEFAULT_MAXIMUM_ENTRY_BYTES = 1024 * 1024;
+
+    private final TaskResponseCache taskResponseCache;
+    private final int maximumEntryBytes;
+
+    public TaskResponseCacheFilter(TaskResponseCache taskResponseCache) {
+        this(taskResponseCache, DEFAULT_MAXIMUM_ENTRY_BYTES);
+    }
+
+    public TaskResponseCacheFilter(TaskResponseCache taskResponseCache, int maximumEntryBytes) {
+        this.taskResponseCache = taskResponseCache;
+        this.maximumEntryBytes = maximumEntryBytes;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !taskResponseCache.isEnabled()
+                || !"GET".equals(request.getMethod())
+                || !((uri.startsWith(BY_STATUS) && uri.length() > BY_STATUS.length()) || uri.equals(BY_LABEL))
+                || nonNull(request.getHeader(IF_NONE_MATCH))
+                || nonNull(request.getHeader(IF_MODIFIED_SINCE));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = key(request);
+        Optional<Response> cached = taskResponseCache.get(key);
+        if (cached.isPresent()) {
+            write(cached.get(), acceptsGzip(request), response);
+            return;
+        }
+        long stamp = taskResponseCache.stamp();
+        CapturingResponse capturing = new CapturingResponse(response, maximumEntryBytes);
+        filterChain.doFilter(request, capturing);
+        capturing.flushWriter();
+        if (capturing.getStatus() == HttpServletResponse.SC_OK && !request.isAsyncStarted() && capturing.isCaptured()) {
+            byte[] body = capturing.captured();
+            String eTag = capturing.getHeader(ETAG);
+            String lastModified = capturing.getHeader(LAST_MODIFIED);
+            Set<String> labels = labels(request);
+            taskResponseCache.put(key, request.getRequestURI().equals(BY_LABEL)
+                    ? Response.byLabels(labels, body, capturing.getContentType(), eTag, lastModified)
+                    : Response.byStatus(request.getRequestURI().substring(BY_STATUS.length()), body, capturing.getContentType(), eTag, lastModified), stamp);
+        }
+    }
+
+    // The same query negotiates JSON or CBOR, so the Accept header is part of the key
+    private static String key(HttpServletRequest request) {
+        String key = isNull(request.getQueryString()) ? request.getRequestURI() : request.getRequestURI() + "?" + request.getQueryString();
+        String accept = request.getHeader(ACCEPT);
+        return isNull(accept) ? key : key + " " + accept;
+    }
+
+    private static void write(Response cached, boolean acceptsGzip, HttpServletResponse response) throws IOException {
+        boolean gzip = acceptsGzip && cached.isGzipped();
+        byte[] body = gzip ? cached.gzipped() : cached.body();
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(cached.contentType());
+        if (nonNull(cached.eTag())) {
+            response.setHeader(ETAG, cached.eTag());
+        }
+        if (nonNull(cached.lastModified())) {
+            response.setHeader(LAST_MODIFIED, cached.lastModified());
+        }
+        if (cached.isGzipped()) {
+            response.addHeader(VARY, ACCEPT_ENCODING);
+        }
+        if (gzip) {
+            response.setHeader(CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        return Collections.list(request.getHeaders(ACCEPT_ENCODING)).stream()
+                .flatMap(header -> Arrays.stream(header.split(",")))
+                .map(coding -> coding.split(";")[0].trim())
+                .anyMatch(coding -> coding.equalsIgnoreCase("gzip"));
+    }
+
+    // Read the way the controller binds them: one value is split on commas, several are taken as they are
+    private static Set<String> labels(HttpServletRequest request) {
+        String[] values = request.getParameterValues("labels");
+        if (isNull(values)) {
+            return Set.of();
+        }
+        return (values.length == 1 ? Arrays.stream(StringUtils.commaDelimitedListToStringArray(values[0])).map(String::trim) : Arrays.stream(values))
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    // Writes straight through to the client and keeps a copy of the body until it outgrows the limit
+    static final class CapturingResponse extends HttpServletResponseWrapper {
+        private final int limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        CapturingResponse(HttpServletResponse response, int limit) {
+            super(response);
+            this.limit = limit;
+        }
+
+        boolean isCaptured() {
+            return nonNull(copy);
+        }
+
+        byte[] captured() {
+            return copy.toByteArray();
+        }
+
+        private void capture(int b) {
+            if (nonNull(copy) && copy.size() < limit) {
+                copy.write(b);
+            } else {
+                copy = null;
+            }
+        }
+
+        private void capture(byte[] b, int off, int len) {
+            if (nonNull(copy) && copy.size() + len <= limit) {
+                copy.write(b, off, len);
+            } else {
+                copy = null;
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (isNull(outputStream)) {
+                ServletOutputStream delegate = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        delegate.write(b);
+                        capture(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        delegate.write(b, off, len);
+                        capture(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        delegate.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        delegate.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        delegate.setWriteListener(writeListener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (isNull(writer)) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            flushWriter();
+            super.flushBuffer();
+        }
+
+        void flushWriter() {
+            if (nonNull(writer)) {
+                writer.flush();
+            }
+        }
+    }
+}
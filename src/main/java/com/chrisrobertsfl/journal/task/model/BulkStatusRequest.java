@@ -0,0 +1,17 @@
+package com.chrisrobertsfl.journal.task.model;
+
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Objects.nonNull;
+
+// Either the ids of the tasks to change or a filter on their labels and current status, not both
+public record BulkStatusRequest(List<String> ids, Set<String> labels, String status) {
+    public boolean hasIds() {
+        return nonNull(ids) && !ids.isEmpty();
+    }
+
+    public boolean hasFilter() {
+        return (nonNull(labels) && !labels.isEmpty()) || nonNull(status);
+    }
+}
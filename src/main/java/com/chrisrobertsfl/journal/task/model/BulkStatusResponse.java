@@ -0,0 +1,23 @@
+package com.chrisrobertsfl.journal.task.model;
+
+import java.util.List;
+
+import static com.chrisrobertsfl.journal.task.model.BulkStatusResult.Outcome.CONFLICT;
+import static com.chrisrobertsfl.journal.task.model.BulkStatusResult.Outcome.NOT_FOUND;
+import static com.chrisrobertsfl.journal.task.model.BulkStatusResult.Outcome.UNCHANGED;
+import static com.chrisrobertsfl.journal.task.model.BulkStatusResult.Outcome.UPDATED;
+
+public record BulkStatusResponse(int updated, int unchanged, int notFound, int conflicts, List<BulkStatusResult> results, String error) {
+    public static BulkStatusResponse success(List<BulkStatusResult> results) {
+        return new BulkStatusResponse(count(results, UPDATED), count(results, UNCHANGED), count(results, NOT_FOUND),
+                count(results, CONFLICT), results, null);
+    }
+
+    public static BulkStatusResponse error(String error) {
+        return new BulkStatusResponse(0, 0, 0, 0, null, error);
+    }
+
+    private static int count(List<BulkStatusResult> results, BulkStatusResult.Outcome outcome) {
+        return (int) results.stream().filter(result -> result.outcome() == outcome).count();
+    }
+}
@@ -0,0 +1,24 @@
+package com.chrisrobertsfl.journal.task.model;
+
+public record BulkStatusResult(String id, Outcome outcome) {
+    public enum Outcome {
+        UPDATED, UNCHANGED, NOT_FOUND, CONFLICT
+    }
+
+    public static BulkStatusResult updated(String id) {
+        return new BulkStatusResult(id, Outcome.UPDATED);
+    }
+
+    public static BulkStatusResult unchanged(String id) {
+        return new BulkStatusResult(id, Outcome.UNCHANGED);
+    }
+
+    public static BulkStatusResult notFound(String id) {
+        return new BulkStatusResult(id, Outcome.NOT_FOUND);
+    }
+
+    // Another writer changed the task between reading and updating it
+    public static BulkStatusResult conflict(String id) {
+        return new BulkStatusResult(id, Outcome.CONFLICT);
+    }
+}
@@ -0,0 +1,14 @@
+package com.chrisrobertsfl.journal.task.model;
+
+import java.util.List;
+
+public record BulkTaskResponse(int inserted, int failed, List<BulkTaskResult> results, String error) {
+    public static BulkTaskResponse success(List<BulkTaskResult> results) {
+        int inserted = (int) results.stream().filter(BulkTaskResult::succeeded).count();
+        return new BulkTaskResponse(inserted, results.size() - inserted, results, null);
+    }
+
+    public static BulkTaskResponse error(String error) {
+        return new BulkTaskResponse(0, 0, null, error);
+    }
+}
@@ -0,0 +1,15 @@
+package com.chrisrobertsfl.journal.task.model;
+
+public record BulkTaskResult(int index, String id, String error) {
+    public static BulkTaskResult success(int index, String id) {
+        return new BulkTaskResult(index, id, null);
+    }
+
+    public static BulkTaskResult failure(int index, String error) {
+        return new BulkTaskResult(index, null, error);
+    }
+
+    public boolean succeeded() {
+        return error == null;
+    }
+}
@@ -0,0 +1,7 @@
+package com.chrisrobertsfl.journal.task.model;
+
+public class InvalidCursorException extends TaskException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
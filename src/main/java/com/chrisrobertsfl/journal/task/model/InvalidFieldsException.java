@@ -0,0 +1,7 @@
+package com.chrisrobertsfl.journal.task.model;
+
+public class InvalidFieldsException extends TaskException {
+    public InvalidFieldsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.chrisrobertsfl.journal.task.model;
+
+public class InvalidTaskQueryException extends TaskException {
+    public InvalidTaskQueryException(String message) {
+        super(message);
+    }
+}
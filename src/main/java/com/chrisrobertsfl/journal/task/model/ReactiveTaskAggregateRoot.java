@@ -0,0 +1,158 @@
+package com.chrisrobertsfl.journal.task.model;
+
+import com.chrisrobertsfl.journal.task.repository.ReactiveTaskRepository;
+import com.chrisrobertsfl.journal.task.repository.TaskCache;
+import com.chrisrobertsfl.journal.task.repository.TaskCounters;
+import com.chrisrobertsfl.journal.task.repository.TaskEvents;
+import com.chrisrobertsfl.journal.task.repository.TaskResponseCache;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Set;
+
+import static com.chrisrobertsfl.journal.task.model.Status.COMPLETED;
+import static com.chrisrobertsfl.journal.task.model.Status.IN_PROGRESS;
+import static com.chrisrobertsfl.journal.task.model.TaskEvent.Type.*;
+import static java.lang.String.format;
+import static java.util.Objects.nonNull;
+import static java.util.Optional.ofNullable;
+
+public class ReactiveTaskAggregateRoot {
+    private final ReactiveTaskRepository taskRepository;
+    private final TaskCache taskCache;
+    private final TaskCounters taskCounters;
+    private final TaskEvents taskEvents;
+    private final Clock clock;
+    private final TaskResponseCache taskResponseCache;
+
+    public ReactiveTaskAggregateRoot(ReactiveTaskRepository taskRepository) {
+        this(taskRepository, TaskCache.disabled());
+    }
+
+    public ReactiveTaskAggregateRoot(ReactiveTaskRepository taskRepository, TaskCache taskCache) {
+        this(taskRepository, taskCache, new TaskCounters());
+    }
+
+    public ReactiveTaskAggregateRoot(ReactiveTaskRepository taskRepository, TaskCache taskCache, TaskCounters taskCounters) {
+        this(taskRepository, taskCache, taskCounters, new TaskEvents());
+    }
+
+    public ReactiveTaskAggregateRoot(ReactiveTaskRepository taskRepository, TaskCache taskCache, TaskCounters taskCounters,
+                                     TaskEvents taskEvents) {
+        this(taskRepository, taskCache, taskCounters, taskEvents, Clock.systemUTC());
+    }
+
+    public ReactiveTaskAggregateRoot(ReactiveTaskRepository taskRepository, TaskCache taskCache, TaskCounters taskCounters,
+                                     TaskEvents taskEvents, Clock clock) {
+        this(taskRepository, taskCache, taskCounters, taskEvents, clock, TaskResponseCache.disabled());
+    }
+
+    public ReactiveTaskAggregateRoot(ReactiveTaskRepository taskRepository, TaskCache taskCache, TaskCounters taskCounters,
+                                     TaskEvents taskEvents, Clock clock, TaskResponseCache taskResponseCache) {
+        this.taskRepository = taskRepository;
+        this.taskCache = taskCache;
+        this.taskCounters = taskCounters;
+        this.taskEvents = taskEvents;
+        this.clock = clock;
+        this.taskResponseCache = taskResponseCache;
+    }
+
+    public Flux<Task> findAll() {
+        return taskRepository.findAll();
+    }
+
+    public Mono<Task> addTask(Task task) {
+        return Mono.justOrEmpty(task)
+                .switchIfEmpty(Mono.error(() -> new MissingTaskException("Need task present to add")))
+                .flatMap(present -> taskRepository.save(present.withVersion(0L).withUpdatedAt(clock.instant())))
+                .map(taskCache::put)
+                .map(taskCounters::added)
+                .map(taskResponseCache::added)
+                .map(added -> taskEvents.publish(CREATED, added));
+    }
+
+    public Mono<Task> updateTask(Task task) {
+        return Mono.justOrEmpty(task)
+                .switchIfEmpty(Mono.error(() -> new MissingTaskException("Task is missing")))
+                .flatMap(present -> findById(present.id())
+                        .switchIfEmpty(Mono.error(() -> new TaskNotFoundException(format("No Task found for id %s", present.id()))))
+                        .flatMap(existing -> nonNull(present.version()) && !present.version().equals(existing.version())
+                                ? Mono.error(versionConflict(present.id(), present.version()))
+                                : replace(present.withVersion(nextVersion(existing)).withUpdatedAt(clock.instant()), existing.version())));
+    }
+
+    public Mono<Task> deleteTask(String id) {
+        return findById(id)
+                .switchIfEmpty(Mono.error(() -> new TaskNotFoundException(format("No Task found for id %s", id))))
+                .flatMap(deleted -> taskRepository.deleteById(deleted.id())
+                        .then(Mono.fromRunnable(() -> taskCache.invalidate(deleted.id())))
+                        .then(Mono.fromSupplier(() -> taskEvents.publish(DELETED, taskResponseCache.removed(taskCounters.removed(deleted))))));
+    }
+
+    public Mono<Task> findById(String id) {
+        return Mono.defer(() -> Mono.justOrEmpty(taskCache.getIfPresent(id)))
+                .switchIfEmpty(Mono.defer(() -> taskRepository.findById(id).map(taskCache::put)));
+    }
+
+    public Flux<Task> findByLabel(Set<String> labels) {
+        return taskRepository.findByLabelsIn(labels);
+    }
+
+    public Flux<Task> findByStatus(Status status) {
+        return taskRepository.findByStatus(status);
+    }
+
+    public Mono<Task> markInProgress(String id) {
+        return markInProgress(id, null);
+    }
+
+    public Mono<Task> markInProgress(String id, Long expectedVersion) {
+        return changeStatus(id, IN_PROGRESS, expectedVersion);
+    }
+
+    public Mono<Task> markComplete(String id) {
+        return markComplete(id, null);
+    }
+
+    public Mono<Task> markComplete(String id, Long expectedVersion) {
+        return changeStatus(id, COMPLETED, expectedVersion);
+    }
+
+    public Flux<TaskEvent> events() {
+        return taskEvents.subscribe();
+    }
+
+    private Mono<Task> changeStatus(String id, Status status, Long expectedVersion) {
+        Instant updatedAt = clock.instant();
+        return taskRepository.updateStatus(id, status, expectedVersion, updatedAt)
+                .map(previous -> taskEvents.publish(STATUS_CHANGED, taskResponseCache.replaced(previous, taskCounters.replaced(previous,
+                        taskCache.put(previous.withStatus(status).withVersion(nextVersion(previous)).withUpdatedAt(updatedAt))))))
+                .switchIfEmpty(Mono.defer(() -> (nonNull(expectedVersion) ? taskRepository.existsById(id) : Mono.just(false))
+                        .flatMap(exists -> Mono.error(exists
+                                ? versionConflict(id, expectedVersion)
+                                : new TaskNotFoundException(format("Task with ID '%s' not found", id))))));
+    }
+
+    // The existing task may have come from the cache, so the version check is made again by the replace itself
+    private Mono<Task> replace(Task task, Long expectedVersion) {
+        return taskRepository.replace(task, expectedVersion)
+                .map(previous -> taskEvents.publish(UPDATED, taskResponseCache.replaced(previous, taskCounters.replaced(previous, taskCache.put(task)))))
+                .switchIfEmpty(Mono.defer(() -> {
+                    taskCache.invalidate(task.id());
+                    return taskRepository.existsById(task.id())
+                            .flatMap(exists -> Mono.error(exists
+                                    ? versionConflict(task.id(), expectedVersion)
+                                    : new TaskNotFoundException(format("No Task found for id %s", task.id()))));
+                }));
+    }
+
+    private static long nextVersion(Task task) {
+        return ofNullable(task.version()).orElse(0L) + 1;
+    }
+
+    private static TaskVersionConflictException versionConflict(String id, Long expectedVersion) {
+        return new TaskVersionConflictException(format("Task with ID '%s' is no longer at version %d", id, expectedVersion));
+    }
+}
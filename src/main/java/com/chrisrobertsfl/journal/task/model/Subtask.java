@@ -0,0 +1,44 @@
+package com.chrisrobertsfl.journal.task.model;
+
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A subtask stored as its own document. {@code ancestors} runs from the top-level task down to the parent, so a
+ * subtree is one indexed query, and {@code path} is the chain of sibling positions, so sorting by it gives the subtree
+ * in order with every parent ahead of its children.
+ */
+@Document
+@CompoundIndex(name = "parentId_position", def = "{'parentId': 1, 'position': 1}", unique = true)
+@CompoundIndex(name = "ancestors_path_depth", def = "{'ancestors': 1, 'path': 1, 'depth': 1}")
+public record Subtask(String id, String parentId, List<String> ancestors, String path, int depth, long position,
+                      String name, String description, Instant createdAt, Priority priority, Status status,
+                      Set<String> labels, Long version, Instant updatedAt) {
+
+    public static Subtask of(Task task, String parentId, List<String> ancestors, String path, long position, Instant updatedAt) {
+        return new Subtask(task.id(), parentId, ancestors, path, ancestors.size(), position, task.name(), task.description(),
+                task.createdAt(), task.priority(), task.status(), task.labels(), 0L, updatedAt);
+    }
+
+    public String taskId() {
+        return ancestors.get(0);
+    }
+
+    // Takes the task's own fields and leaves its place in the tree alone
+    public Subtask update(Task task, Long version, Instant updatedAt) {
+        return new Subtask(id, parentId, ancestors, path, depth, position, task.name(), task.description(),
+                task.createdAt(), task.priority(), task.status(), task.labels(), version, updatedAt);
+    }
+
+    public Task toTask() {
+        return toTask(null);
+    }
+
+    public Task toTask(List<Task> subtasks) {
+        return new Task(id, name, description, createdAt, priority, status, labels, subtasks, version, updatedAt);
+    }
+}
@@ -1,25 +1,53 @@
 package com.chrisrobertsfl.journal.task.model;
 
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
 import java.time.Instant;
 import java.util.List;
 import java.util.Set;
 
-import static java.util.Collections.emptyList;
-import static java.util.Optional.ofNullable;
-import static java.util.stream.Collectors.toList;
+@Document
+@CompoundIndex(name = "status_createdAt", def = "{'status': 1, 'createdAt': -1}")
+public record Task(String id, @TextIndexed(weight = 3) String name, @TextIndexed String description, @Indexed Instant createdAt, Priority priority,
+                   Status status, @Indexed Set<String> labels, List<Task> subtasks, Long version, Instant updatedAt) {
+    public Task(String id, String name, String description, Instant createdAt, Priority priority,
+                Status status, Set<String> labels, List<Task> subtasks, Long version) {
+        this(id, name, description, createdAt, priority, status, labels, subtasks, version, null);
+    }
+
+    public Task(String id, String name, String description, Instant createdAt, Priority priority,
+                Status status, Set<String> labels, List<Task> subtasks) {
+        this(id, name, description, createdAt, priority, status, labels, subtasks, null);
+    }
 
-public record Task(String id, String name, String description, Instant createdAt, Priority priority,
-                   Status status, Set<String> labels, List<Task> subtasks) {
     public static Task nullTask() {
         return new Task(null, null, null, null, null, null, null, null);
     }
 
+    public Task withId(String id) {
+        return new Task(id, name, description, createdAt, priority, status, labels, subtasks, version, updatedAt);
+    }
+
+    public Task withStatus(Status status) {
+        return new Task(id, name, description, createdAt, priority, status, labels, subtasks, version, updatedAt);
+    }
+
+    public Task withVersion(Long version) {
+        return new Task(id, name, description, createdAt, priority, status, labels, subtasks, version, updatedAt);
+    }
+
+    public Task withSubtasks(List<Task> subtasks) {
+        return new Task(id, name, description, createdAt, priority, status, labels, subtasks, version, updatedAt);
+    }
+
+    public Task withUpdatedAt(Instant updatedAt) {
+        return new Task(id, name, description, createdAt, priority, status, labels, subtasks, version, updatedAt);
+    }
+
     public TaskInfo toTaskInfo() {
-        List<TaskInfo> subTasks = ofNullable(subtasks)
-                .map(t -> t.stream()
-                        .map(Task::toTaskInfo)
-                        .collect(toList()))
-                .orElse(emptyList());
-        return new TaskInfo(id, name, description, createdAt, priority, status, labels, subTasks);
+        return TaskConverter.toTaskInfo(this);
     }
 }
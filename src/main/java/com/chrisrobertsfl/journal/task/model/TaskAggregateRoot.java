@@ -1,73 +1,424 @@
 package com.chrisrobertsfl.journal.task.model;
 
-import com.chrisrobertsfl.journal.task.repository.TaskRepository;
-import org.springframework.stereotype.Component;
+import com.chrisrobertsfl.journal.task.repository.TaskCache;
+import com.chrisrobertsfl.journal.task.repository.TaskCounters;
+import com.chrisrobertsfl.journal.task.repository.TaskEvents;
+import com.chrisrobertsfl.journal.task.repository.TaskResponseCache;
+import com.chrisrobertsfl.journal.task.repository.TaskStore;
+import com.chrisrobertsfl.journal.task.repository.TaskTree;
+import com.chrisrobertsfl.journal.task.repository.TaskWriter;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
+import static com.chrisrobertsfl.journal.task.model.BulkTaskResult.failure;
+import static com.chrisrobertsfl.journal.task.model.BulkTaskResult.success;
 import static com.chrisrobertsfl.journal.task.model.Status.COMPLETED;
 import static com.chrisrobertsfl.journal.task.model.Status.IN_PROGRESS;
+import static com.chrisrobertsfl.journal.task.model.TaskEvent.Type.*;
 import static java.lang.String.format;
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingInt;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Optional.ofNullable;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.springframework.data.domain.Sort.Direction.ASC;
 
-@Component
 public class TaskAggregateRoot {
-    private final TaskRepository taskRepository;
+    private final TaskStore taskStore;
+    private final TaskCache taskCache;
+    private final TaskCounters taskCounters;
+    private final TaskEvents taskEvents;
+    private final Clock clock;
+    private final TaskWriter taskWriter;
+    private final TaskTree taskTree;
+    private final TaskResponseCache taskResponseCache;
 
-    public TaskAggregateRoot(TaskRepository taskRepository) {
-        this.taskRepository = taskRepository;
+    public TaskAggregateRoot(TaskStore taskStore, TaskCache taskCache, TaskCounters taskCounters, TaskEvents taskEvents,
+                             Clock clock, TaskWriter taskWriter, TaskTree taskTree, TaskResponseCache taskResponseCache) {
+        this.taskStore = taskStore;
+        this.taskCache = taskCache;
+        this.taskCounters = taskCounters;
+        this.taskEvents = taskEvents;
+        this.clock = clock;
+        this.taskWriter = taskWriter;
+        this.taskTree = taskTree;
+        this.taskResponseCache = taskResponseCache;
     }
 
     public List<Task> findAll() {
-        return taskRepository.findAll();
+        return taskWriter.overlay(taskStore.findAll(), task -> true);
+    }
+
+    public List<Task> findPage(String afterId, int limit) {
+        Pageable pageable = PageRequest.of(0, limit, ASC, "id");
+        List<Task> page = isNull(afterId)
+                ? taskStore.findByIdNotNull(pageable)
+                : taskStore.findByIdGreaterThan(afterId, pageable);
+        String lastId = page.size() < limit ? null : page.get(page.size() - 1).id();
+        List<Task> overlaid = taskWriter.overlay(page, task -> (isNull(afterId) || task.id().compareTo(afterId) > 0)
+                && (isNull(lastId) || task.id().compareTo(lastId) <= 0));
+        return overlaid == page ? page : overlaid.stream().sorted(comparing(Task::id)).limit(limit).toList();
+    }
+
+    public List<Task> findPage(String afterId, int limit, Set<String> fields) {
+        return fields.isEmpty()
+                ? findPage(afterId, limit)
+                : taskStore.findProjectedPage(afterId, limit, fields);
+    }
+
+    public Stream<Task> streamAll() {
+        return taskStore.streamAllBy();
     }
 
     public Task addTask(Task task) {
-        return taskRepository.save(ofNullable(task)
-                .orElseThrow(() -> new MissingTaskException("Need task present to add")));
+        Task added = ofNullable(task)
+                .orElseThrow(() -> new MissingTaskException("Need task present to add"))
+                .withVersion(0L)
+                .withUpdatedAt(clock.instant());
+        Task stored = taskWriter.put(taskTree.detach(added));
+        taskCache.put(stored);
+        added(stored);
+        return taskTree.insert(stored, added.subtasks());
+    }
+
+    public List<BulkTaskResult> addTasks(List<Task> tasks) {
+        List<BulkTaskResult> results = new ArrayList<>(tasks.size());
+        List<Task> accepted = new ArrayList<>(tasks.size());
+        List<Task> trees = new ArrayList<>(tasks.size());
+        List<Integer> positions = new ArrayList<>(tasks.size());
+        Instant updatedAt = clock.instant();
+        for (int index = 0; index < tasks.size(); index++) {
+            Task task = tasks.get(index);
+            if (isNull(task)) {
+                results.add(failure(index, "Task is missing"));
+            } else if (isNull(task.name()) || task.name().isBlank()) {
+                results.add(failure(index, "Task name is required"));
+            } else {
+                Task tree = task.withId(ofNullable(task.id()).orElseGet(() -> new ObjectId().toHexString())).withVersion(0L).withUpdatedAt(updatedAt);
+                accepted.add(taskTree.detach(tree));
+                trees.add(tree);
+                positions.add(index);
+            }
+        }
+        if (!accepted.isEmpty()) {
+            Map<Integer, String> failures = taskStore.insertAll(accepted);
+            List<Task> inserted = new ArrayList<>(accepted.size());
+            for (int i = 0; i < accepted.size(); i++) {
+                if (failures.containsKey(i)) {
+                    results.add(failure(positions.get(i), failures.get(i)));
+                } else {
+                    added(accepted.get(i));
+                    results.add(success(positions.get(i), accepted.get(i).id()));
+                    inserted.add(trees.get(i));
+                }
+            }
+            taskTree.insertAll(inserted);
+        }
+        results.sort(comparingInt(BulkTaskResult::index));
+        return results;
     }
 
     public Task updateTask(Task task) {
         ofNullable(task)
                 .orElseThrow(() -> new MissingTaskException("Task is missing"));
-        findById(task.id())
-                .orElseThrow(() -> new TaskNotFoundException(format("No Task found for id %s", task.id())));
-        return taskRepository.save(task);
+        return taskWriter.isDeferred()
+                ? taskWriter.locked(task.id(), () -> replaceTask(task))
+                : replaceTask(task);
     }
 
     public Task deleteTask(String id) {
-        Task deleted = findById(id)
-                .orElseThrow(() -> new TaskNotFoundException(format("No Task found for id %s", id)));
-        taskRepository.deleteById(deleted.id());
-        return deleted;
+        return taskWriter.isDeferred()
+                ? taskWriter.locked(id, () -> removeTask(id))
+                : removeTask(id);
     }
 
     public Optional<Task> findById(String id) {
-        return taskRepository.findById(id);
+        return taskCache.get(id, key -> taskWriter.findById(key, taskStore::findById));
+    }
+
+    public Optional<Task> findTree(String id, int depth) {
+        Optional<Task> task = findById(id);
+        return task.isPresent() || !taskTree.isEnabled()
+                ? task.map(found -> taskTree.load(found, depth))
+                : taskTree.findById(id).map(subtask -> taskTree.load(subtask, depth));
+    }
+
+    public List<Subtask> findSubtasks(String parentId, long afterPosition, int limit) {
+        requireTree();
+        List<Subtask> children = taskTree.findChildren(parentId, afterPosition, limit);
+        if (children.isEmpty() && afterPosition == 0 && findById(parentId).isEmpty() && taskTree.findById(parentId).isEmpty()) {
+            throw new TaskNotFoundException(format("No Task found for id %s", parentId));
+        }
+        return children;
+    }
+
+    public Task addSubtask(String parentId, Task subtask) {
+        requireTree();
+        ofNullable(subtask)
+                .orElseThrow(() -> new MissingTaskException("Need subtask present to add"));
+        Instant updatedAt = clock.instant();
+        Optional<Task> task = findById(parentId);
+        if (task.isPresent()) {
+            return taskTree.add(moveOutEmbedded(task.get()), subtask, updatedAt);
+        }
+        return taskTree.findById(parentId)
+                .map(parent -> taskTree.add(parent, subtask, updatedAt))
+                .orElseThrow(() -> new TaskNotFoundException(format("No Task found for id %s", parentId)));
+    }
+
+    public Task updateSubtask(Task subtask) {
+        requireTree();
+        ofNullable(subtask)
+                .orElseThrow(() -> new MissingTaskException("Subtask is missing"));
+        Subtask existing = taskTree.findById(subtask.id())
+                .orElseThrow(() -> new TaskNotFoundException(format("No Subtask found for id %s", subtask.id())));
+        if (nonNull(subtask.version()) && !subtask.version().equals(existing.version())) {
+            throw versionConflict(subtask.id(), subtask.version());
+        }
+        Subtask updated = existing.update(subtask, ofNullable(existing.version()).orElse(0L) + 1, clock.instant());
+        return taskTree.replace(updated, existing.version())
+                .map(previous -> updated.toTask())
+                .orElseThrow(() -> taskTree.findById(subtask.id()).isPresent()
+                        ? versionConflict(subtask.id(), existing.version())
+                        : new TaskNotFoundException(format("No Subtask found for id %s", subtask.id())));
+    }
+
+    public Task deleteSubtask(String id) {
+        requireTree();
+        Subtask deleted = taskTree.findById(id)
+                .orElseThrow(() -> new TaskNotFoundException(format("No Subtask found for id %s", id)));
+        taskTree.delete(deleted);
+        return deleted.toTask();
+    }
+
+    public List<Task> search(String text, Set<String> labels, Status status, int skip, int limit) {
+        return taskStore.search(text, labels, status, skip, limit);
+    }
+
+    public Optional<TaskVersionSummary> findVersion(String id) {
+        return taskCache.getIfPresent(id)
+                .or(() -> taskWriter.findById(id, taskStore::findVersionById))
+                .map(task -> TaskVersionSummary.of(task.version(), task.updatedAt()));
+    }
+
+    public TaskVersionSummary summarizePage(String afterId, int limit) {
+        return taskStore.summarizePage(afterId, limit);
+    }
+
+    public TaskVersionSummary summarizeByLabel(Set<String> labels) {
+        return taskStore.summarizeByLabels(labels);
+    }
+
+    public TaskVersionSummary summarizeByStatus(Status status) {
+        return taskStore.summarizeByStatus(status);
     }
 
     public List<Task> findByLabel(Set<String> labels) {
-        return taskRepository.findByLabelsIn(labels);
+        return taskWriter.overlay(taskStore.findByLabelsIn(labels),
+                task -> nonNull(task.labels()) && task.labels().stream().anyMatch(labels::contains));
+    }
+
+    public List<Task> findByLabel(Set<String> labels, Set<String> fields) {
+        return fields.isEmpty()
+                ? findByLabel(labels)
+                : taskStore.findProjectedByLabels(labels, fields);
     }
 
     public List<Task> findByStatus(Status status) {
-        return taskRepository.findByStatus(status);
+        return taskWriter.overlay(taskStore.findByStatus(status), task -> status == task.status());
+    }
+
+    public List<Task> findByStatus(Status status, Set<String> fields) {
+        return fields.isEmpty()
+                ? findByStatus(status)
+                : taskStore.findProjectedByStatus(status, fields);
+    }
+
+    public TaskStatistics countTasks(Instant from, Instant to) {
+        return isNull(from) && isNull(to)
+                ? taskCounters.snapshot().orElseGet(() -> taskStore.countTasks(null, null))
+                : taskStore.countTasks(from, to);
     }
 
     public Task markInProgress(String id) {
-        return taskRepository
-                .findById(id)
-                .map(task -> taskRepository.save(new Task(task.id(), task.name(), task.description(), task.createdAt(), task.priority(), IN_PROGRESS, task.labels(), task.subtasks())))
-                .orElseThrow(() -> new TaskNotFoundException(format("Task with ID '%s' not found", id)));
+        return markInProgress(id, null);
+    }
+
+    public Task markInProgress(String id, Long expectedVersion) {
+        return changeStatus(id, IN_PROGRESS, expectedVersion);
     }
 
     public Task markComplete(String id) {
-        return taskRepository
-                .findById(id)
-                .map(task -> taskRepository.save(new Task(task.id(), task.name(), task.description(), task.createdAt(), task.priority(), COMPLETED, task.labels(), task.subtasks())))
-                .orElseThrow(() -> new TaskNotFoundException(format("Task with ID '%s' not found", id)));
+        return markComplete(id, null);
+    }
+
+    public Task markComplete(String id, Long expectedVersion) {
+        return changeStatus(id, COMPLETED, expectedVersion);
+    }
+
+    public List<BulkStatusResult> changeStatuses(List<String> ids, Status status) {
+        Instant updatedAt = clock.instant();
+        if (taskWriter.isDeferred()) {
+            return ids.stream().map(id -> changeDeferredStatus(id, status, updatedAt)).toList();
+        }
+        Map<String, Task> found = taskStore.findAllById(ids).stream()
+                .collect(toMap(Task::id, identity()));
+        List<Task> candidates = found.values().stream()
+                .filter(task -> task.status() != status)
+                .toList();
+        Set<String> updated = candidates.isEmpty() ? Set.of() : taskStore.updateStatuses(candidates, status, updatedAt);
+        List<BulkStatusResult> results = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Task previous = found.get(id);
+            if (isNull(previous)) {
+                results.add(BulkStatusResult.notFound(id));
+            } else if (previous.status() == status) {
+                results.add(BulkStatusResult.unchanged(id));
+            } else if (updated.contains(id)) {
+                statusChanged(previous, status, updatedAt);
+                results.add(BulkStatusResult.updated(id));
+            } else {
+                results.add(BulkStatusResult.conflict(id));
+            }
+        }
+        return results;
+    }
+
+    public List<BulkStatusResult> changeStatuses(Set<String> labels, Status from, Status status, String afterId, int limit) {
+        List<String> ids = taskStore.findStatusChangeCandidates(labels, from, status, afterId, limit).stream()
+                .map(Task::id)
+                .toList();
+        return ids.isEmpty() ? List.of() : changeStatuses(ids, status);
+    }
+
+    private Task changeStatus(String id, Status status, Long expectedVersion) {
+        Instant updatedAt = clock.instant();
+        if (taskWriter.isDeferred()) {
+            return changeDeferredStatus(id, status, expectedVersion, updatedAt);
+        }
+        return taskStore.updateStatus(id, status, expectedVersion, updatedAt)
+                .map(previous -> statusChanged(previous, status, updatedAt))
+                .orElseThrow(() -> nonNull(expectedVersion) && taskStore.existsById(id)
+                        ? versionConflict(id, expectedVersion)
+                        : new TaskNotFoundException(format("Task with ID '%s' not found", id)));
+    }
+
+    // A deferred write is not in the repository yet, so the version is checked here rather than by Mongo
+    private Task changeDeferredStatus(String id, Status status, Long expectedVersion, Instant updatedAt) {
+        return taskWriter.locked(id, () -> {
+            Task previous = findById(id)
+                    .orElseThrow(() -> new TaskNotFoundException(format("Task with ID '%s' not found", id)));
+            if (nonNull(expectedVersion) && !expectedVersion.equals(previous.version())) {
+                throw versionConflict(id, expectedVersion);
+            }
+            Task changed = taskWriter.put(withStatus(previous, status, updatedAt));
+            return replaced(previous, changed, STATUS_CHANGED);
+        });
+    }
+
+    private Task replaceTask(Task task) {
+        Task existing = findById(task.id())
+                .orElseThrow(() -> new TaskNotFoundException(format("No Task found for id %s", task.id())));
+        if (nonNull(task.version()) && !task.version().equals(existing.version())) {
+            throw versionConflict(task.id(), task.version());
+        }
+        Task updated = task.withVersion(nextVersion(existing)).withUpdatedAt(clock.instant());
+        Task detached = taskTree.detach(updated);
+        Task previous = existing;
+        if (taskWriter.isDeferred()) {
+            taskWriter.put(detached);
+        } else {
+            previous = replaceStored(detached, existing.version());
+        }
+        replaced(previous, detached, UPDATED);
+        return taskTree.replace(detached, isNull(updated.subtasks()) ? previous.subtasks() : updated.subtasks());
+    }
+
+    // The existing task may have come from the cache, so the replace checks the version again
+    private Task replaceStored(Task task, Long expectedVersion) {
+        return taskStore.replace(task, expectedVersion)
+                .orElseThrow(() -> {
+                    taskCache.invalidate(task.id());
+                    return taskStore.existsById(task.id())
+                            ? versionConflict(task.id(), expectedVersion)
+                            : new TaskNotFoundException(format("No Task found for id %s", task.id()));
+                });
     }
-}
 
+    private Task removeTask(String id) {
+        Task deleted = findById(id)
+                .orElseThrow(() -> new TaskNotFoundException(format("No Task found for id %s", id)));
+        taskWriter.delete(deleted.id());
+        taskTree.deleteAll(deleted.id());
+        taskCache.invalidate(deleted.id());
+        taskCounters.removed(deleted);
+        taskResponseCache.removed(deleted);
+        taskEvents.publish(DELETED, deleted);
+        return deleted;
+    }
+
+    private void requireTree() {
+        if (!taskTree.isEnabled()) {
+            throw new InvalidTaskQueryException("Subtasks are embedded in their task with this storage engine");
+        }
+    }
+
+    private Task moveOutEmbedded(Task task) {
+        return isNull(task.subtasks()) || task.subtasks().isEmpty() ? task : updateTask(task.withSubtasks(null));
+    }
+
+    private BulkStatusResult changeDeferredStatus(String id, Status status, Instant updatedAt) {
+        return taskWriter.locked(id, () -> findById(id)
+                .map(previous -> {
+                    if (previous.status() == status) {
+                        return BulkStatusResult.unchanged(id);
+                    }
+                    Task changed = taskWriter.put(withStatus(previous, status, updatedAt));
+                    replaced(previous, changed, STATUS_CHANGED);
+                    return BulkStatusResult.updated(id);
+                })
+                .orElseGet(() -> BulkStatusResult.notFound(id)));
+    }
+
+    private Task statusChanged(Task previous, Status status, Instant updatedAt) {
+        return replaced(previous, withStatus(previous, status, updatedAt), STATUS_CHANGED);
+    }
+
+    private void added(Task task) {
+        taskCounters.added(task);
+        taskResponseCache.added(task);
+        taskEvents.publish(CREATED, task);
+    }
+
+    private Task replaced(Task previous, Task current, TaskEvent.Type type) {
+        taskCache.put(current);
+        taskCounters.replaced(previous, current);
+        taskResponseCache.replaced(previous, current);
+        taskEvents.publish(type, current);
+        return current;
+    }
+
+    private static Task withStatus(Task previous, Status status, Instant updatedAt) {
+        return previous.withStatus(status).withVersion(nextVersion(previous)).withUpdatedAt(updatedAt);
+    }
+
+    private static long nextVersion(Task task) {
+        return ofNullable(task.version()).orElse(0L) + 1;
+    }
+
+    private static TaskVersionConflictException versionConflict(String id, Long expectedVersion) {
+        return new TaskVersionConflictException(format("Task with ID '%s' is no longer at version %d", id, expectedVersion));
+    }
+}
@@ -0,0 +1,79 @@
+package com.chrisrobertsfl.journal.task.model;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static java.util.Collections.emptyList;
+import static java.util.Objects.isNull;
+
+final class TaskConverter {
+    private TaskConverter() {
+    }
+
+    static TaskInfo toTaskInfo(Task task) {
+        return convert(task, Task::subtasks, (source, subtasks) -> new TaskInfo(source.id(), source.name(),
+                source.description(), source.createdAt(), source.priority(), source.status(), source.labels(),
+                subtasks, source.version(), source.updatedAt()));
+    }
+
+    static Task toTask(TaskInfo taskInfo) {
+        return convert(taskInfo, TaskInfo::subtasks, (source, subtasks) -> new Task(source.id(), source.name(),
+                source.description(), source.createdAt(), source.priority(), source.status(), source.labels(),
+                subtasks, source.version(), source.updatedAt()));
+    }
+
+    // Post-order walk with an explicit stack, so depth is bounded by the heap rather than the thread stack.
+    // Leaves share the immutable empty list and never get a frame; inner nodes get an exactly sized array.
+    @SuppressWarnings("unchecked")
+    private static <S, T> T convert(S root, Function<S, List<S>> subtasksOf, BiFunction<S, List<T>, T> build) {
+        List<S> rootSubtasks = subtasksOf.apply(root);
+        if (isLeaf(rootSubtasks)) {
+            return build.apply(root, emptyList());
+        }
+        Deque<Frame<S>> stack = new ArrayDeque<>();
+        stack.push(new Frame<>(root, rootSubtasks));
+        while (true) {
+            Frame<S> frame = stack.peek();
+            if (frame.next < frame.converted.length) {
+                S subtask = frame.subtasks.get(frame.next);
+                List<S> subtasks = isNull(subtask) ? null : subtasksOf.apply(subtask);
+                if (isNull(subtask)) {
+                    frame.converted[frame.next++] = null;
+                } else if (isLeaf(subtasks)) {
+                    frame.converted[frame.next++] = build.apply(subtask, emptyList());
+                } else {
+                    stack.push(new Frame<>(subtask, subtasks));
+                }
+            } else {
+                stack.pop();
+                T built = build.apply(frame.source, (List<T>) Arrays.asList(frame.converted));
+                if (stack.isEmpty()) {
+                    return built;
+                }
+                Frame<S> parent = stack.peek();
+                parent.converted[parent.next++] = built;
+            }
+        }
+    }
+
+    private static boolean isLeaf(List<?> subtasks) {
+        return isNull(subtasks) || subtasks.isEmpty();
+    }
+
+    private static final class Frame<S> {
+        final S source;
+        final List<S> subtasks;
+        final Object[] converted;
+        int next;
+
+        Frame(S source, List<S> subtasks) {
+            this.source = source;
+            this.subtasks = subtasks;
+            this.converted = new Object[subtasks.size()];
+        }
+    }
+}
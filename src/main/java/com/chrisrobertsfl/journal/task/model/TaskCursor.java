@@ -0,0 +1,27 @@
+package com.chrisrobertsfl.journal.task.model;
+
+import java.util.Base64;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+
+public final class TaskCursor {
+    private TaskCursor() {
+    }
+
+    public static String encode(String id) {
+        return isNull(id) ? null : Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(UTF_8));
+    }
+
+    public static String decode(String cursor) {
+        if (isNull(cursor) || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(format("Invalid cursor: %s", cursor));
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.chrisrobertsfl.journal.task.model;
+
+public record TaskEvent(Type type, TaskInfo task) {
+    public enum Type {
+        CREATED, UPDATED, DELETED, STATUS_CHANGED
+    }
+}
@@ -0,0 +1,39 @@
+package com.chrisrobertsfl.journal.task.model;
+
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.lang.String.format;
+import static java.util.Collections.emptySet;
+import static java.util.Objects.isNull;
+import static java.util.stream.Collectors.toUnmodifiableSet;
+
+public final class TaskFields {
+    static final Set<String> NAMES = Arrays.stream(TaskInfo.class.getRecordComponents())
+            .map(RecordComponent::getName)
+            .collect(toUnmodifiableSet());
+
+    private TaskFields() {
+    }
+
+    public static Set<String> parse(String fields) {
+        if (isNull(fields) || fields.isBlank()) {
+            return emptySet();
+        }
+        Set<String> parsed = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            if (!field.isBlank()) {
+                parsed.add(field.trim());
+            }
+        }
+        Set<String> unknown = new TreeSet<>(parsed);
+        unknown.removeAll(NAMES);
+        if (!unknown.isEmpty()) {
+            throw new InvalidFieldsException(format("Unknown field(s): %s", unknown));
+        }
+        return parsed;
+    }
+}
@@ -2,12 +2,16 @@ package com.chrisrobertsfl.journal.task.model;
 
 import java.util.List;
 
-public record TaskListResponse(List<TaskInfo> tasks, String error) {
+public record TaskListResponse(List<TaskInfo> tasks, String nextCursor, String error) {
     public static TaskListResponse success(List<TaskInfo> tasks) {
-        return new TaskListResponse(tasks, null);
+        return new TaskListResponse(tasks, null, null);
+    }
+
+    public static TaskListResponse success(TaskPage page) {
+        return new TaskListResponse(page.tasks(), page.nextCursor(), null);
     }
 
     public static TaskListResponse error(String error) {
-        return new TaskListResponse(null, error);
+        return new TaskListResponse(null, null, error);
     }
 }
@@ -0,0 +1,6 @@
+package com.chrisrobertsfl.journal.task.model;
+
+import java.util.List;
+
+public record TaskPage(List<TaskInfo> tasks, String nextCursor) {
+}
@@ -0,0 +1,7 @@
+package com.chrisrobertsfl.journal.task.model;
+
+import java.util.Map;
+
+public record TaskStatistics(long total, Map<Status, Long> byStatus, Map<Priority, Long> byPriority,
+                             Map<String, Long> byLabel) {
+}
@@ -0,0 +1,11 @@
+package com.chrisrobertsfl.journal.task.model;
+
+public record TaskStatisticsResponse(TaskStatistics statistics, String error) {
+    public static TaskStatisticsResponse success(TaskStatistics statistics) {
+        return new TaskStatisticsResponse(statistics, null);
+    }
+
+    public static TaskStatisticsResponse error(String error) {
+        return new TaskStatisticsResponse(null, error);
+    }
+}
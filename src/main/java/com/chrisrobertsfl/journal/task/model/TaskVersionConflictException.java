@@ -0,0 +1,7 @@
+package com.chrisrobertsfl.journal.task.model;
+
+public class TaskVersionConflictException extends TaskException {
+    public TaskVersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,38 @@
+package com.chrisrobertsfl.journal.task.model;
+
+import java.time.Instant;
+import java.util.List;
+
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+
+public record TaskVersionSummary(long count, long versions, Instant lastModified) {
+    public static TaskVersionSummary of(Long version, Instant updatedAt) {
+        return new TaskVersionSummary(1, isNull(version) ? 0 : version, updatedAt);
+    }
+
+    public static TaskVersionSummary of(List<TaskInfo> tasks) {
+        long versions = 0;
+        Instant lastModified = null;
+        for (TaskInfo task : tasks) {
+            versions += isNull(task.version()) ? 0 : task.version();
+            if (isNull(lastModified) || (!isNull(task.updatedAt()) && task.updatedAt().isAfter(lastModified))) {
+                lastModified = task.updatedAt();
+            }
+        }
+        return new TaskVersionSummary(tasks.size(), versions, lastModified);
+    }
+
+    // Versions only grow and every write moves lastModified, so together with the count this changes whenever
+    // any matching task is added, changed or removed; the variant separates projections of the same tasks. The tag is
+    // weak because it stands for the tasks rather than the bytes, which differ between JSON, CBOR and gzip; a strong
+    // tag would also stop Tomcat compressing the response
+    public String etag(String variant) {
+        return format("W/\"%x-%x-%x%s\"", count, versions, isNull(lastModified) ? 0 : lastModified.toEpochMilli(),
+                isNull(variant) || variant.isBlank() ? "" : "-" + Integer.toHexString(variant.hashCode()));
+    }
+
+    public long lastModifiedMillis() {
+        return isNull(lastModified) ? -1 : lastModified.toEpochMilli();
+    }
+}
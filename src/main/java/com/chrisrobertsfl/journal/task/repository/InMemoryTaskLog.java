@@ -0,0 +1,187 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Snapshot plus append-only log of JSON lines backing {@link InMemoryTaskRepository}. Not thread safe; the repository
+ * serialises writes.
+ */
+class InMemoryTaskLog implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryTaskLog.class);
+    static final String SNAPSHOT = "tasks.snapshot";
+    static final String LOG = "tasks.log";
+
+    private final Path snapshot;
+    private final Path appendLog;
+    private final ObjectMapper objectMapper;
+    private final int compactAfter;
+    private BufferedWriter writer;
+    private int entries;
+
+    InMemoryTaskLog(Path directory, ObjectMapper objectMapper, int compactAfter) {
+        this.snapshot = directory.resolve(SNAPSHOT);
+        this.appendLog = directory.resolve(LOG);
+        this.objectMapper = objectMapper;
+        this.compactAfter = compactAfter;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    record Entry(Op op, Task task, String id) {
+        enum Op {PUT, DELETE, CLEAR}
+    }
+
+    void recover(Consumer<Task> put, Consumer<String> delete, Runnable clear) {
+        read(snapshot, line -> put.accept(objectMapper.readValue(line, Task.class)));
+        long readable = read(appendLog, line -> {
+            Entry entry = objectMapper.readValue(line, Entry.class);
+            switch (entry.op()) {
+                case PUT -> put.accept(entry.task());
+                case DELETE -> delete.accept(entry.id());
+                case CLEAR -> clear.run();
+            }
+            entries++;
+        });
+        truncate(appendLog, readable);
+    }
+
+    void put(Task task) {
+        append(new Entry(Entry.Op.PUT, task, null));
+    }
+
+    void delete(String id) {
+        append(new Entry(Entry.Op.DELETE, null, id));
+    }
+
+    void clear() {
+        append(new Entry(Entry.Op.CLEAR, null, null));
+    }
+
+    boolean needsCompaction() {
+        return entries >= compactAfter;
+    }
+
+    // Write the snapshot beside the old one and swap it in, so a crash mid-compaction leaves the previous state intact
+    void compact(Collection<Task> tasks) {
+        Path next = snapshot.resolveSibling(SNAPSHOT + ".tmp");
+        try (BufferedWriter snapshotWriter = Files.newBufferedWriter(next, UTF_8)) {
+            for (Task task : tasks) {
+                snapshotWriter.write(objectMapper.writeValueAsString(task));
+                snapshotWriter.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(next, snapshot, ATOMIC_MOVE, REPLACE_EXISTING);
+            close();
+            writer = Files.newBufferedWriter(appendLog, UTF_8, CREATE, TRUNCATE_EXISTING);
+            entries = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void append(Entry entry) {
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(appendLog, UTF_8, CREATE, APPEND);
+            }
+            writer.write(objectMapper.writeValueAsString(entry));
+            writer.newLine();
+            writer.flush();
+            entries++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface LineReader {
+        void read(String line) throws JsonProcessingException;
+    }
+
+    // A crash can leave the last line half written; everything before it is still applied. Returns the length of the
+    // whole, readable lines read
+    private static long read(Path file, LineReader reader) {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long readable = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String text = line.toString(UTF_8);
+                if (!text.isBlank()) {
+                    try {
+                        reader.read(text);
+                    } catch (JsonProcessingException e) {
+                        log.warn("Stopped reading {} at an unreadable entry: {}", file, e.getOriginalMessage());
+                        return readable;
+                    }
+                }
+                readable += line.size() + 1;
+                line.reset();
+            }
+            if (line.size() > 0) {
+                log.warn("Stopped reading {} at a half-written entry", file);
+            }
+            return readable;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Cut the log back to its readable lines, so the next entry is not appended onto a torn one
+    private static void truncate(Path file, long length) {
+        try {
+            if (Files.exists(file) && Files.size(file) > length) {
+                try (FileChannel channel = FileChannel.open(file, WRITE)) {
+                    channel.truncate(length);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
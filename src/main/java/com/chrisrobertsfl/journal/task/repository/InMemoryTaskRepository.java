@@ -0,0 +1,479 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Priority;
+import com.chrisrobertsfl.journal.task.model.Status;
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.model.TaskStatistics;
+import com.chrisrobertsfl.journal.task.model.TaskVersionSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.lang.String.format;
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsFirst;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Optional.ofNullable;
+import static org.springframework.data.domain.Sort.Direction.ASC;
+
+/**
+ * Mongo-free {@link TaskStore} for embedded and edge deployments. Tasks are kept sorted by id with secondary
+ * indexes of ids by status and by label; reads are lock free and writes are serialised. When a directory is given,
+ * every write is appended to a local log that is folded into a snapshot once it grows past {@code compactAfter}
+ * entries.
+ */
+public class InMemoryTaskRepository implements TaskStore, AutoCloseable {
+    private static final Sort BY_ID = Sort.by(ASC, "id");
+    private static final Map<String, Function<Task, Comparable<?>>> SORTABLE = Map.of(
+            "id", Task::id,
+            "name", Task::name,
+            "createdAt", Task::createdAt,
+            "priority", Task::priority,
+            "status", Task::status,
+            "version", Task::version,
+            "updatedAt", Task::updatedAt);
+
+    private final ConcurrentSkipListMap<String, Task> tasks = new ConcurrentSkipListMap<>();
+    private final Map<Status, Set<String>> byStatus = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byLabel = new ConcurrentHashMap<>();
+    private final InMemoryTaskLog taskLog;
+
+    public InMemoryTaskRepository() {
+        this.taskLog = null;
+    }
+
+    public InMemoryTaskRepository(Path directory, ObjectMapper objectMapper, int compactAfter) {
+        this.taskLog = new InMemoryTaskLog(directory, objectMapper, compactAfter);
+        taskLog.recover(this::index, this::remove, this::clearIndexes);
+    }
+
+    @Override
+    public List<Task> findByLabelsIn(Set<String> labels) {
+        Set<String> ids = new ConcurrentSkipListSet<>();
+        for (String label : labels) {
+            ids.addAll(byLabel.getOrDefault(label, Set.of()));
+        }
+        return lookup(ids, task -> nonNull(task.labels()) && task.labels().stream().anyMatch(labels::contains));
+    }
+
+    @Override
+    public List<Task> findByStatus(Status status) {
+        return isNull(status)
+                ? tasks.values().stream().filter(task -> isNull(task.status())).toList()
+                : lookup(byStatus.getOrDefault(status, Set.of()), task -> status == task.status());
+    }
+
+    @Override
+    public List<Task> findByIdNotNull(Pageable pageable) {
+        return page(tasks.values().stream(), pageable);
+    }
+
+    @Override
+    public List<Task> findByIdGreaterThan(String id, Pageable pageable) {
+        return page(tasks.tailMap(id, false).values().stream(), pageable);
+    }
+
+    @Override
+    public Stream<Task> streamAllBy() {
+        return tasks.values().stream();
+    }
+
+    @Override
+    public synchronized Optional<Task> updateStatus(String id, Status status, Long expectedVersion, Instant updatedAt) {
+        Task previous = tasks.get(id);
+        if (isNull(previous) || (nonNull(expectedVersion) && !expectedVersion.equals(previous.version()))) {
+            return Optional.empty();
+        }
+        write(previous.withStatus(status).withVersion(ofNullable(previous.version()).orElse(0L) + 1).withUpdatedAt(updatedAt));
+        return Optional.of(previous);
+    }
+
+    @Override
+    public synchronized Set<String> updateStatuses(List<Task> batch, Status status, Instant updatedAt) {
+        Set<String> updated = new HashSet<>();
+        for (Task task : batch) {
+            Task current = tasks.get(task.id());
+            if (nonNull(current) && Objects.equals(task.version(), current.version()) && task.status() == current.status()) {
+                write(current.withStatus(status).withVersion(ofNullable(current.version()).orElse(0L) + 1).withUpdatedAt(updatedAt));
+                updated.add(task.id());
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public List<Task> findStatusChangeCandidates(Set<String> labels, Status status, Status target, String afterId, int limit) {
+        Stream<Task> candidates = (isNull(afterId) ? tasks : tasks.tailMap(afterId, false)).values().stream();
+        return candidates
+                .filter(task -> isNull(status) ? task.status() != target : task.status() == status && status != target)
+                .filter(task -> isNull(labels) || labels.isEmpty() || (nonNull(task.labels()) && task.labels().stream().anyMatch(labels::contains)))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public synchronized Optional<Task> replace(Task task, Long expectedVersion) {
+        Task current = tasks.get(task.id());
+        if (isNull(current) || !Objects.equals(current.version(), expectedVersion)) {
+            return Optional.empty();
+        }
+        write(task);
+        return Optional.of(current);
+    }
+
+    @Override
+    public synchronized boolean saveIfNewer(Task task) {
+        Task current = tasks.get(task.id());
+        if (nonNull(current) && nonNull(task.version()) && nonNull(current.version()) && current.version() >= task.version()) {
+            return false;
+        }
+        write(task);
+        return true;
+    }
+
+    @Override
+    public synchronized Map<Integer, String> insertAll(List<Task> batch) {
+        Map<Integer, String> failures = new HashMap<>();
+        for (int index = 0; index < batch.size(); index++) {
+            Task task = withId(batch.get(index));
+            if (tasks.containsKey(task.id())) {
+                failures.put(index, duplicateKey(task.id()));
+            } else {
+                write(task);
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public List<Task> findProjectedPage(String afterId, int limit, Set<String> fields) {
+        Stream<Task> page = (isNull(afterId) ? tasks.values() : tasks.tailMap(afterId, false).values()).stream().limit(limit);
+        return page.map(task -> project(task, fields)).toList();
+    }
+
+    @Override
+    public List<Task> findProjectedByLabels(Set<String> labels, Set<String> fields) {
+        return findByLabelsIn(labels).stream().map(task -> project(task, fields)).toList();
+    }
+
+    @Override
+    public List<Task> findProjectedByStatus(Status status, Set<String> fields) {
+        return findByStatus(status).stream().map(task -> project(task, fields)).toList();
+    }
+
+    @Override
+    public TaskStatistics countTasks(Instant from, Instant to) {
+        long total = 0;
+        Map<Status, Long> statuses = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            statuses.put(status, 0L);
+        }
+        Map<Priority, Long> priorities = new EnumMap<>(Priority.class);
+        for (Priority priority : Priority.values()) {
+            priorities.put(priority, 0L);
+        }
+        Map<String, Long> labels = new TreeMap<>();
+        for (Task task : tasks.values()) {
+            if (!createdBetween(task, from, to)) {
+                continue;
+            }
+            total++;
+            if (nonNull(task.status())) {
+                statuses.merge(task.status(), 1L, Long::sum);
+            }
+            if (nonNull(task.priority())) {
+                priorities.merge(task.priority(), 1L, Long::sum);
+            }
+            if (nonNull(task.labels())) {
+                task.labels().forEach(label -> labels.merge(label, 1L, Long::sum));
+            }
+        }
+        return new TaskStatistics(total, statuses, priorities, labels);
+    }
+
+    // Same weights as the Mongo text index: a term in the name counts three times one in the description
+    @Override
+    public List<Task> search(String text, Set<String> labels, Status status, int skip, int limit) {
+        Set<String> terms = terms(text);
+        record Scored(Task task, int score) {
+        }
+        return tasks.values().stream()
+                .filter(task -> isNull(labels) || labels.isEmpty() || (nonNull(task.labels()) && task.labels().stream().anyMatch(labels::contains)))
+                .filter(task -> isNull(status) || status == task.status())
+                .map(task -> new Scored(task, score(task, terms)))
+                .filter(scored -> scored.score() > 0)
+                .sorted(Comparator.comparingInt(Scored::score).reversed().thenComparing(scored -> scored.task().id()))
+                .skip(skip)
+                .limit(limit)
+                .map(Scored::task)
+                .toList();
+    }
+
+    @Override
+    public Optional<Task> findVersionById(String id) {
+        return findById(id);
+    }
+
+    @Override
+    public TaskVersionSummary summarizePage(String afterId, int limit) {
+        return summarize(findProjectedPage(afterId, limit, Set.of()));
+    }
+
+    @Override
+    public TaskVersionSummary summarizeByLabels(Set<String> labels) {
+        return summarize(findByLabelsIn(labels));
+    }
+
+    @Override
+    public TaskVersionSummary summarizeByStatus(Status status) {
+        return summarize(findByStatus(status));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized <S extends Task> S save(S entity) {
+        return (S) write(withId(entity));
+    }
+
+    public synchronized Task insert(Task entity) {
+        Task task = withId(entity);
+        if (tasks.containsKey(task.id())) {
+            throw new DuplicateKeyException(duplicateKey(task.id()));
+        }
+        return write(task);
+    }
+
+    @Override
+    public Optional<Task> findById(String id) {
+        return ofNullable(tasks.get(id));
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return tasks.containsKey(id);
+    }
+
+    @Override
+    public List<Task> findAll() {
+        return List.copyOf(tasks.values());
+    }
+
+    @Override
+    public List<Task> findAllById(Iterable<String> ids) {
+        return StreamSupport.stream(ids.spliterator(), false)
+                .map(tasks::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public long count() {
+        return tasks.size();
+    }
+
+    @Override
+    public synchronized void deleteById(String id) {
+        if (tasks.containsKey(id)) {
+            remove(id);
+            if (nonNull(taskLog)) {
+                taskLog.delete(id);
+                compactIfNeeded();
+            }
+        }
+    }
+
+    public synchronized void deleteAll() {
+        clearIndexes();
+        if (nonNull(taskLog)) {
+            taskLog.clear();
+            compactIfNeeded();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (nonNull(taskLog)) {
+            taskLog.close();
+        }
+    }
+
+    private Task write(Task task) {
+        index(task);
+        if (nonNull(taskLog)) {
+            taskLog.put(task);
+            compactIfNeeded();
+        }
+        return task;
+    }
+
+    private void compactIfNeeded() {
+        if (taskLog.needsCompaction()) {
+            taskLog.compact(tasks.values());
+        }
+    }
+
+    private void index(Task task) {
+        Task previous = tasks.put(task.id(), task);
+        if (nonNull(previous)) {
+            unindex(previous);
+        }
+        if (nonNull(task.status())) {
+            byStatus.computeIfAbsent(task.status(), status -> new ConcurrentSkipListSet<>()).add(task.id());
+        }
+        if (nonNull(task.labels())) {
+            task.labels().forEach(label -> byLabel.computeIfAbsent(label, key -> new ConcurrentSkipListSet<>()).add(task.id()));
+        }
+    }
+
+    private void remove(String id) {
+        ofNullable(tasks.remove(id)).ifPresent(this::unindex);
+    }
+
+    private void unindex(Task task) {
+        if (nonNull(task.status())) {
+            byStatus.getOrDefault(task.status(), Set.of()).remove(task.id());
+        }
+        if (nonNull(task.labels())) {
+            task.labels().forEach(label -> byLabel.getOrDefault(label, Set.of()).remove(task.id()));
+        }
+    }
+
+    private void clearIndexes() {
+        tasks.clear();
+        byStatus.clear();
+        byLabel.clear();
+    }
+
+    // Index entries can briefly lag the tasks they point to while a write is in flight, so each hit is re-checked
+    private List<Task> lookup(Collection<String> ids, Predicate<Task> matches) {
+        List<Task> found = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Task task = tasks.get(id);
+            if (nonNull(task) && matches.test(task)) {
+                found.add(task);
+            }
+        }
+        return found;
+    }
+
+    private List<Task> page(Stream<Task> ordered, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return ordered.toList();
+        }
+        // The tasks are already in id order, so a page by id stops reading once it is full instead of sorting the rest
+        Sort sort = pageable.getSort();
+        Stream<Task> sorted = sort.isUnsorted() || sort.equals(BY_ID) ? ordered : ordered.sorted(comparator(sort));
+        return sorted.skip(pageable.getOffset()).limit(pageable.getPageSize()).toList();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Task> comparator(Sort sort) {
+        Comparator<Task> comparator = (left, right) -> 0;
+        for (Sort.Order order : sort) {
+            Function<Task, Comparable> property = (Function) ofNullable(SORTABLE.get(order.getProperty()))
+                    .orElseThrow(() -> new IllegalArgumentException(format("Cannot sort tasks by %s", order.getProperty())));
+            Comparator<Task> byProperty = comparing(property, nullsFirst(naturalOrder()));
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator;
+    }
+
+    private static Task withId(Task task) {
+        return isNull(task.id()) ? task.withId(new ObjectId().toHexString()) : task;
+    }
+
+    // Mongo always returns the id with a projection
+    private static Task project(Task task, Set<String> fields) {
+        if (fields.isEmpty()) {
+            return task;
+        }
+        return new Task(task.id(),
+                fields.contains("name") ? task.name() : null,
+                fields.contains("description") ? task.description() : null,
+                fields.contains("createdAt") ? task.createdAt() : null,
+                fields.contains("priority") ? task.priority() : null,
+                fields.contains("status") ? task.status() : null,
+                fields.contains("labels") ? task.labels() : null,
+                fields.contains("subtasks") ? task.subtasks() : null,
+                fields.contains("version") ? task.version() : null,
+                fields.contains("updatedAt") ? task.updatedAt() : null);
+    }
+
+    private static TaskVersionSummary summarize(List<Task> tasks) {
+        return TaskVersionSummary.of(tasks.stream().map(Task::toTaskInfo).toList());
+    }
+
+    private static boolean createdBetween(Task task, Instant from, Instant to) {
+        if (isNull(from) && isNull(to)) {
+            return true;
+        }
+        return nonNull(task.createdAt())
+                && (isNull(from) || !task.createdAt().isBefore(from))
+                && (isNull(to) || task.createdAt().isBefore(to));
+    }
+
+    private static Set<String> terms(String text) {
+        Set<String> terms = new HashSet<>();
+        for (String term : text.toLowerCase(Locale.ROOT).split("\\W+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private static int score(Task task, Set<String> terms) {
+        int score = 3 * matches(task.name(), terms) + matches(task.description(), terms);
+        if (nonNull(task.subtasks())) {
+            for (Task subtask : task.subtasks()) {
+                score += score(subtask, terms);
+            }
+        }
+        return score;
+    }
+
+    private static int matches(String text, Set<String> terms) {
+        if (isNull(text)) {
+            return 0;
+        }
+        int matches = 0;
+        for (String term : text.toLowerCase(Locale.ROOT).split("\\W+")) {
+            if (terms.contains(term)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static String duplicateKey(String id) {
+        return format("Duplicate key: task %s already exists", id);
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Status;
+import com.chrisrobertsfl.journal.task.model.Task;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+import java.util.Set;
+
+public interface ReactiveTaskRepository extends ReactiveMongoRepository<Task, String>, ReactiveTaskRepositoryCustom {
+    Flux<Task> findByLabelsIn(Set<String> labels);
+
+    Flux<Task> findByStatus(Status status);
+}
@@ -0,0 +1,14 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Status;
+import com.chrisrobertsfl.journal.task.model.Task;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public interface ReactiveTaskRepositoryCustom {
+    Mono<Task> updateStatus(String id, Status status, Long expectedVersion, Instant updatedAt);
+
+    // Replaces the task only while the stored copy is still at the expected version; emits the copy it replaced
+    Mono<Task> replace(Task task, Long expectedVersion);
+}
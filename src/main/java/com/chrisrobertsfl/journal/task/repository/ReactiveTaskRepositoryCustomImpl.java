@@ -0,0 +1,40 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Status;
+import com.chrisrobertsfl.journal.task.model.Task;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+import static java.util.Objects.nonNull;
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class ReactiveTaskRepositoryCustomImpl implements ReactiveTaskRepositoryCustom {
+    private final ReactiveMongoOperations mongoOperations;
+
+    public ReactiveTaskRepositoryCustomImpl(ReactiveMongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Override
+    public Mono<Task> updateStatus(String id, Status status, Long expectedVersion, Instant updatedAt) {
+        Criteria criteria = where("id").is(id);
+        if (nonNull(expectedVersion)) {
+            criteria = criteria.and("version").is(expectedVersion);
+        }
+        return mongoOperations.findAndModify(query(criteria),
+                new Update().set("status", status).set("updatedAt", updatedAt).inc("version", 1),
+                options().returnNew(false),
+                Task.class);
+    }
+
+    @Override
+    public Mono<Task> replace(Task task, Long expectedVersion) {
+        return mongoOperations.findAndReplace(query(where("id").is(task.id()).and("version").is(expectedVersion)), task);
+    }
+}
@@ -0,0 +1,21 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Subtask;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface SubtaskRepository extends MongoRepository<Subtask, String>, SubtaskRepositoryCustom {
+    List<Subtask> findByParentIdAndPositionGreaterThan(String parentId, long position, Pageable pageable);
+
+    Optional<Subtask> findFirstByParentIdOrderByPositionDesc(String parentId);
+
+    List<Subtask> findByAncestors(String ancestor);
+
+    List<Subtask> findByAncestorsAndDepthLessThanEqual(String ancestor, int depth, Sort sort);
+
+    long deleteByAncestors(String ancestor);
+}
@@ -0,0 +1,10 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Subtask;
+
+import java.util.Optional;
+
+public interface SubtaskRepositoryCustom {
+    // Replaces the subtask only while the stored copy is still at the expected version; returns the copy it replaced
+    Optional<Subtask> replace(Subtask subtask, Long expectedVersion);
+}
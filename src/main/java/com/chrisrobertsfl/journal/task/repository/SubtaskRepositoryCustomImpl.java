@@ -0,0 +1,23 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Subtask;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.util.Optional;
+
+import static java.util.Optional.ofNullable;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class SubtaskRepositoryCustomImpl implements SubtaskRepositoryCustom {
+    private final MongoOperations mongoOperations;
+
+    public SubtaskRepositoryCustomImpl(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Override
+    public Optional<Subtask> replace(Subtask subtask, Long expectedVersion) {
+        return ofNullable(mongoOperations.findAndReplace(query(where("id").is(subtask.id()).and("version").is(expectedVersion)), subtask));
+    }
+}
@@ -0,0 +1,52 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static java.util.Optional.ofNullable;
+
+public class TaskCache implements MeterBinder {
+    private final Cache<String, Task> tasks;
+
+    public TaskCache(long maximumSize, Duration expireAfterWrite) {
+        this.tasks = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    public static TaskCache disabled() {
+        return new TaskCache(0, Duration.ZERO);
+    }
+
+    public Optional<Task> get(String id, Function<String, Optional<Task>> loader) {
+        return ofNullable(tasks.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    public Optional<Task> getIfPresent(String id) {
+        return ofNullable(tasks.getIfPresent(id));
+    }
+
+    public Task put(Task task) {
+        tasks.put(task.id(), task);
+        return task;
+    }
+
+    public void invalidate(String id) {
+        tasks.invalidate(id);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, tasks, "tasks");
+    }
+}
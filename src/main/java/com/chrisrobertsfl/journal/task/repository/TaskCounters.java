@@ -0,0 +1,148 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Priority;
+import com.chrisrobertsfl.journal.task.model.Status;
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.model.TaskStatistics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import static java.util.Objects.nonNull;
+
+public class TaskCounters {
+    private final LongAdder total = new LongAdder();
+    private final Map<Status, LongAdder> byStatus = new EnumMap<>(Status.class);
+    private final Map<Priority, LongAdder> byPriority = new EnumMap<>(Priority.class);
+    private final Map<String, LongAdder> byLabel = new ConcurrentHashMap<>();
+    private final ReadWriteLock loading = new ReentrantReadWriteLock();
+    private volatile TaskCounters sinceRecount;
+    private volatile boolean loaded;
+
+    public TaskCounters() {
+        for (Status status : Status.values()) {
+            byStatus.put(status, new LongAdder());
+        }
+        for (Priority priority : Priority.values()) {
+            byPriority.put(priority, new LongAdder());
+        }
+    }
+
+    public Task added(Task task) {
+        count(task, 1);
+        return task;
+    }
+
+    public Task removed(Task task) {
+        count(task, -1);
+        return task;
+    }
+
+    public Task replaced(Task previous, Task current) {
+        count(previous, -1);
+        count(current, 1);
+        return current;
+    }
+
+    // Empty until a full count has been loaded, so callers can fall back to counting in Mongo
+    public Optional<TaskStatistics> snapshot() {
+        if (!loaded) {
+            return Optional.empty();
+        }
+        Map<Status, Long> statuses = new EnumMap<>(Status.class);
+        byStatus.forEach((status, count) -> statuses.put(status, count.sum()));
+        Map<Priority, Long> priorities = new EnumMap<>(Priority.class);
+        byPriority.forEach((priority, count) -> priorities.put(priority, count.sum()));
+        Map<String, Long> labels = new TreeMap<>();
+        byLabel.forEach((label, count) -> {
+            long sum = count.sum();
+            if (sum > 0) {
+                labels.put(label, sum);
+            }
+        });
+        return Optional.of(new TaskStatistics(total.sum(), statuses, priorities, labels));
+    }
+
+    // Writes counted while the recount runs are added on top of it, so none is lost to the reset. A write that reached
+    // Mongo just before the recount started but is counted after may be counted twice until the next recount.
+    public synchronized void recount(Supplier<TaskStatistics> count) {
+        sinceRecount = new TaskCounters();
+        try {
+            TaskStatistics statistics = count.get();
+            loading.writeLock().lock();
+            try {
+                reset(statistics);
+                add(sinceRecount);
+            } finally {
+                loading.writeLock().unlock();
+            }
+        } finally {
+            sinceRecount = null;
+        }
+    }
+
+    public synchronized void load(TaskStatistics statistics) {
+        loading.writeLock().lock();
+        try {
+            reset(statistics);
+        } finally {
+            loading.writeLock().unlock();
+        }
+    }
+
+    private void reset(TaskStatistics statistics) {
+        total.reset();
+        total.add(statistics.total());
+        byStatus.forEach((status, count) -> {
+            count.reset();
+            count.add(statistics.byStatus().getOrDefault(status, 0L));
+        });
+        byPriority.forEach((priority, count) -> {
+            count.reset();
+            count.add(statistics.byPriority().getOrDefault(priority, 0L));
+        });
+        byLabel.clear();
+        statistics.byLabel().forEach((label, count) -> byLabel.computeIfAbsent(label, key -> new LongAdder()).add(count));
+        loaded = true;
+    }
+
+    private void add(TaskCounters counted) {
+        total.add(counted.total.sum());
+        byStatus.forEach((status, count) -> count.add(counted.byStatus.get(status).sum()));
+        byPriority.forEach((priority, count) -> count.add(counted.byPriority.get(priority).sum()));
+        counted.byLabel.forEach((label, count) -> byLabel.computeIfAbsent(label, key -> new LongAdder()).add(count.sum()));
+    }
+
+    private void count(Task task, int delta) {
+        loading.readLock().lock();
+        try {
+            TaskCounters recounting = sinceRecount;
+            if (nonNull(recounting)) {
+                recounting.tally(task, delta);
+            }
+            tally(task, delta);
+        } finally {
+            loading.readLock().unlock();
+        }
+    }
+
+    private void tally(Task task, int delta) {
+        total.add(delta);
+        if (nonNull(task.status())) {
+            byStatus.get(task.status()).add(delta);
+        }
+        if (nonNull(task.priority())) {
+            byPriority.get(task.priority()).add(delta);
+        }
+        if (nonNull(task.labels())) {
+            task.labels().forEach(label -> byLabel.computeIfAbsent(label, key -> new LongAdder()).add(delta));
+        }
+    }
+}
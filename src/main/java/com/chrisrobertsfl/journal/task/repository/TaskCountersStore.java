@@ -0,0 +1,95 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Priority;
+import com.chrisrobertsfl.journal.task.model.Status;
+import com.chrisrobertsfl.journal.task.model.TaskStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static java.util.Objects.nonNull;
+import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toMap;
+
+public class TaskCountersStore {
+    private static final Logger log = LoggerFactory.getLogger(TaskCountersStore.class);
+    static final String COLLECTION = "taskCounters";
+    static final String ID = "tasks";
+
+    private final MongoOperations mongoOperations;
+    private final TaskRepository taskRepository;
+    private final TaskCounters taskCounters;
+
+    public TaskCountersStore(MongoOperations mongoOperations, TaskRepository taskRepository, TaskCounters taskCounters) {
+        this.mongoOperations = mongoOperations;
+        this.taskRepository = taskRepository;
+        this.taskCounters = taskCounters;
+    }
+
+    // The persisted counts serve reads straight away; the full recount then corrects any drift
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            load().ifPresent(taskCounters::load);
+        } catch (DataAccessException e) {
+            log.warn("Could not load task counters: {}", e.getMessage());
+        }
+        reconcile();
+    }
+
+    // Each instance only counts its own writes, so the counts are recounted from Mongo rather than trusted; the
+    // recount is what gets persisted, so instances saving the shared document never overwrite it with local drift
+    @Scheduled(fixedDelayString = "${journal.task.counters.reconcile-interval:PT5M}",
+            initialDelayString = "${journal.task.counters.reconcile-interval:PT5M}")
+    public void reconcile() {
+        try {
+            taskCounters.recount(() -> {
+                TaskStatistics statistics = taskRepository.countTasks(null, null);
+                save(statistics);
+                return statistics;
+            });
+        } catch (DataAccessException e) {
+            log.warn("Could not recount tasks: {}", e.getMessage());
+        }
+    }
+
+    void save(TaskStatistics statistics) {
+        mongoOperations.save(StoredCounters.of(statistics, Instant.now()), COLLECTION);
+    }
+
+    Optional<TaskStatistics> load() {
+        // Counters saved before the labels were stored as a list are skipped; the recount replaces them
+        return ofNullable(mongoOperations.findById(ID, StoredCounters.class, COLLECTION))
+                .filter(stored -> nonNull(stored.byLabel()))
+                .map(StoredCounters::statistics);
+    }
+
+    // Labels may hold dots or a leading $, which Mongo does not allow in field names, so they are not stored as map keys
+    record StoredCounters(String id, Long total, Map<Status, Long> byStatus, Map<Priority, Long> byPriority,
+                          List<LabelCount> byLabel, Instant persistedAt) {
+        static StoredCounters of(TaskStatistics statistics, Instant persistedAt) {
+            List<LabelCount> byLabel = statistics.byLabel().entrySet().stream()
+                    .map(entry -> new LabelCount(entry.getKey(), entry.getValue()))
+                    .toList();
+            return new StoredCounters(ID, statistics.total(), statistics.byStatus(), statistics.byPriority(), byLabel, persistedAt);
+        }
+
+        TaskStatistics statistics() {
+            return new TaskStatistics(total, byStatus, byPriority,
+                    byLabel.stream().collect(toMap(LabelCount::label, LabelCount::count, Long::sum, TreeMap::new)));
+        }
+    }
+
+    record LabelCount(String label, long count) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.model.TaskEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class TaskEvents implements MeterBinder {
+    private final Sinks.Many<TaskEvent> sink = Sinks.many().multicast().directBestEffort();
+    private final LongAdder dropped = new LongAdder();
+    private final int bufferSize;
+
+    public TaskEvents() {
+        this(256);
+    }
+
+    public TaskEvents(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public Task publish(TaskEvent.Type type, Task task) {
+        // Skip the conversion entirely while nobody is listening
+        if (sink.currentSubscriberCount() > 0) {
+            emit(new TaskEvent(type, task.toTaskInfo()));
+        }
+        return task;
+    }
+
+    // Each subscriber gets its own bounded buffer; a slow consumer loses its oldest events rather than holding up writers
+    public Flux<TaskEvent> subscribe() {
+        return sink.asFlux()
+                .onBackpressureBuffer(bufferSize, event -> dropped.increment(), BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    private synchronized void emit(TaskEvent event) {
+        sink.tryEmitNext(event);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("journal.task.events.dropped", dropped, LongAdder::sum)
+                .description("Task events dropped for slow subscribers")
+                .register(registry);
+    }
+}
@@ -0,0 +1,53 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Subtask;
+import com.chrisrobertsfl.journal.task.model.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TaskIndexes {
+    private static final Logger log = LoggerFactory.getLogger(TaskIndexes.class);
+
+    private final MongoOperations mongoOperations;
+
+    public TaskIndexes(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    public List<String> ensureIndexes() {
+        IndexResolver resolver = IndexResolver.create(mongoOperations.getConverter().getMappingContext());
+        IndexOperations indexOperations = mongoOperations.indexOps(Task.class);
+        List<String> names = new ArrayList<>();
+        // Tasks written before subtasks moved out embed them, so the resolver repeats every index under subtasks.*; only
+        // the top level is queried. The text index is the exception: it is a single index that also covers the subtasks' text
+        for (IndexDefinition index : resolver.resolveIndexFor(Task.class)) {
+            if (!index.getIndexKeys().keySet().stream().allMatch(key -> key.contains("."))) {
+                names.add(indexOperations.ensureIndex(index));
+            }
+        }
+        IndexOperations subtaskIndexOperations = mongoOperations.indexOps(Subtask.class);
+        for (IndexDefinition index : resolver.resolveIndexFor(Subtask.class)) {
+            names.add(subtaskIndexOperations.ensureIndex(index));
+        }
+        return names;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexesOnStartup() {
+        try {
+            log.info("Ensured task indexes {}", ensureIndexes());
+        } catch (DataAccessException e) {
+            log.warn("Could not ensure task indexes: {}", e.getMessage());
+        }
+    }
+}
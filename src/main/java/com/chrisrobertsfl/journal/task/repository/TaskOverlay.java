@@ -0,0 +1,50 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Reads through writes that have been acknowledged but not yet reached the repository, keyed by task id.
+ */
+final class TaskOverlay {
+    private TaskOverlay() {
+    }
+
+    static Optional<Task> findById(Map<String, TaskWalRecord> pending, String id, Function<String, Optional<Task>> read) {
+        TaskWalRecord write = pending.get(id);
+        return isNull(write) ? read.apply(id) : Optional.ofNullable(write.task());
+    }
+
+    static List<Task> overlay(Map<String, TaskWalRecord> pending, List<Task> found, Predicate<Task> matches) {
+        if (pending.isEmpty()) {
+            return found;
+        }
+        List<Task> merged = new ArrayList<>(found.size());
+        Set<String> seen = new HashSet<>();
+        for (Task task : found) {
+            seen.add(task.id());
+            TaskWalRecord write = pending.get(task.id());
+            if (isNull(write)) {
+                merged.add(task);
+            } else if (write.op() == TaskWalRecord.Op.PUT && matches.test(write.task())) {
+                merged.add(write.task());
+            }
+        }
+        for (TaskWalRecord write : pending.values()) {
+            if (write.op() == TaskWalRecord.Op.PUT && !seen.contains(write.id()) && matches.test(write.task())) {
+                merged.add(write.task());
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,101 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import org.bson.Document;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static com.chrisrobertsfl.journal.task.model.Status.COMPLETED;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static com.chrisrobertsfl.journal.task.repository.TaskRepositoryCustomImpl.createdBetween;
+import static com.chrisrobertsfl.journal.task.repository.TaskRepositoryCustomImpl.idAfter;
+import static com.chrisrobertsfl.journal.task.repository.TaskRepositoryCustomImpl.statusChangeCandidates;
+import static com.chrisrobertsfl.journal.task.repository.TaskRepositoryCustomImpl.textSearch;
+import static com.chrisrobertsfl.journal.task.repository.TaskRepositoryCustomImpl.withId;
+import static com.chrisrobertsfl.journal.task.repository.TaskRepositoryCustomImpl.withLabels;
+import static com.chrisrobertsfl.journal.task.repository.TaskRepositoryCustomImpl.withStatus;
+import static java.util.stream.Collectors.toList;
+import static org.springframework.data.domain.Sort.Direction.ASC;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@Endpoint(id = "taskqueries")
+public class TaskQueryPlanEndpoint {
+    static final String COLLECTION_SCAN = "COLLSCAN";
+    static final Sort BY_ID = Sort.by(ASC, "id");
+    static final Set<String> LABELS = Set.of("label");
+
+    // The TaskRepository reads, built from the repository's own filters with placeholder values; aggregations are
+    // explained by their leading $match
+    static final List<QueryShape> QUERIES = List.of(
+            new QueryShape("findByLabelsIn", query(withLabels(LABELS))),
+            new QueryShape("findByStatus", query(withStatus(PENDING))),
+            new QueryShape("findByIdNotNull", query(where("id").ne(null)).with(BY_ID)),
+            new QueryShape("findByIdGreaterThan", query(idAfter("")).with(BY_ID)),
+            new QueryShape("findStatusChangeCandidates", query(statusChangeCandidates(LABELS, null, COMPLETED, null)).with(BY_ID)),
+            new QueryShape("findProjectedPage", query(idAfter("")).with(BY_ID)),
+            new QueryShape("findProjectedByLabels", query(withLabels(LABELS))),
+            new QueryShape("findProjectedByStatus", query(withStatus(PENDING))),
+            new QueryShape("countTasks", query(createdBetween(Instant.EPOCH, Instant.EPOCH))),
+            new QueryShape("search", textSearch("task", null, null)),
+            new QueryShape("findVersionById", query(withId(""))),
+            new QueryShape("summarizePage", query(idAfter("")).with(BY_ID)),
+            new QueryShape("summarizeByLabels", query(withLabels(LABELS))),
+            new QueryShape("summarizeByStatus", query(withStatus(PENDING)))
+    );
+
+    private final MongoOperations mongoOperations;
+    private final QueryMapper queryMapper;
+    private final MongoPersistentEntity<?> entity;
+
+    public TaskQueryPlanEndpoint(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+        this.queryMapper = new QueryMapper(mongoOperations.getConverter());
+        this.entity = mongoOperations.getConverter().getMappingContext().getRequiredPersistentEntity(Task.class);
+    }
+
+    @ReadOperation
+    public List<QueryPlan> queryPlans() {
+        return QUERIES.stream()
+                .map(this::explain)
+                .collect(toList());
+    }
+
+    QueryPlan explain(QueryShape shape) {
+        Document filter = queryMapper.getMappedObject(shape.query().getQueryObject(), entity);
+        Document explained = mongoOperations.getCollection(mongoOperations.getCollectionName(Task.class))
+                .find(filter)
+                .sort(queryMapper.getMappedSort(shape.query().getSortObject(), entity))
+                .explain();
+        List<String> stages = new ArrayList<>();
+        collectStages(explained.get("queryPlanner", Document.class).get("winningPlan"), stages);
+        return new QueryPlan(shape.name(), filter.toJson(), stages, stages.contains(COLLECTION_SCAN));
+    }
+
+    private static void collectStages(Object plan, List<String> stages) {
+        if (plan instanceof Document document) {
+            if (document.containsKey("stage")) {
+                stages.add(document.getString("stage"));
+            }
+            document.values().forEach(value -> collectStages(value, stages));
+        } else if (plan instanceof List<?> list) {
+            list.forEach(value -> collectStages(value, stages));
+        }
+    }
+
+    record QueryShape(String name, Query query) {
+    }
+
+    public record QueryPlan(String query, String filter, List<String> stages, boolean collectionScan) {
+    }
+}
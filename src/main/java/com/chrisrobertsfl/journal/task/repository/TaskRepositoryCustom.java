@@ -0,0 +1,48 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Status;
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.model.TaskStatistics;
+import com.chrisrobertsfl.journal.task.model.TaskVersionSummary;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public interface TaskRepositoryCustom {
+    Optional<Task> updateStatus(String id, Status status, Long expectedVersion, Instant updatedAt);
+
+    // Changes each task only if it is still at the version and status it was read with; returns the ids changed
+    Set<String> updateStatuses(List<Task> tasks, Status status, Instant updatedAt);
+
+    // A page by id of tasks with the labels and status that are not yet at the target status
+    List<Task> findStatusChangeCandidates(Set<String> labels, Status status, Status target, String afterId, int limit);
+
+    // Replaces the task only while the stored copy is still at the expected version; returns the copy it replaced
+    Optional<Task> replace(Task task, Long expectedVersion);
+
+    // Saves the task unless the stored copy is already at its version or later; returns whether it was saved
+    boolean saveIfNewer(Task task);
+
+    Map<Integer, String> insertAll(List<Task> tasks);
+
+    List<Task> findProjectedPage(String afterId, int limit, Set<String> fields);
+
+    List<Task> findProjectedByLabels(Set<String> labels, Set<String> fields);
+
+    List<Task> findProjectedByStatus(Status status, Set<String> fields);
+
+    TaskStatistics countTasks(Instant from, Instant to);
+
+    List<Task> search(String text, Set<String> labels, Status status, int skip, int limit);
+
+    Optional<Task> findVersionById(String id);
+
+    TaskVersionSummary summarizePage(String afterId, int limit);
+
+    TaskVersionSummary summarizeByLabels(Set<String> labels);
+
+    TaskVersionSummary summarizeByStatus(Status status);
+}
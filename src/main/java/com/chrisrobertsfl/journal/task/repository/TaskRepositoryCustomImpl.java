@@ -0,0 +1,304 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Priority;
+import com.chrisrobertsfl.journal.task.model.Status;
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.model.TaskStatistics;
+import com.chrisrobertsfl.journal.task.model.TaskVersionSummary;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED;
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.count;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.facet;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.limit;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.unwind;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.domain.Sort.Direction.ASC;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class TaskRepositoryCustomImpl implements TaskRepositoryCustom {
+    private final MongoOperations mongoOperations;
+
+    public TaskRepositoryCustomImpl(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Override
+    public Optional<Task> updateStatus(String id, Status status, Long expectedVersion, Instant updatedAt) {
+        Criteria criteria = where("id").is(id);
+        if (nonNull(expectedVersion)) {
+            criteria = criteria.and("version").is(expectedVersion);
+        }
+        return ofNullable(mongoOperations.findAndModify(query(criteria),
+                new Update().set("status", status).set("updatedAt", updatedAt).inc("version", 1),
+                options().returnNew(false),
+                Task.class));
+    }
+
+    @Override
+    public Set<String> updateStatuses(List<Task> tasks, Status status, Instant updatedAt) {
+        BulkOperations operations = mongoOperations.bulkOps(UNORDERED, Task.class);
+        for (Task task : tasks) {
+            operations.updateOne(query(where("id").is(task.id()).and("version").is(task.version()).and("status").is(task.status())),
+                    new Update().set("status", status).set("updatedAt", updatedAt).inc("version", 1));
+        }
+        BulkWriteResult result = operations.execute();
+        Set<String> ids = tasks.stream().map(Task::id).collect(toSet());
+        if (result.getModifiedCount() == tasks.size()) {
+            return ids;
+        }
+        // Another writer got to some of them first; the ones this update changed carry its time
+        Query changed = query(where("id").in(ids).and("status").is(status).and("updatedAt").is(updatedAt));
+        changed.fields().include("id");
+        return mongoOperations.find(changed, Task.class).stream()
+                .map(Task::id)
+                .collect(toSet());
+    }
+
+    @Override
+    public List<Task> findStatusChangeCandidates(Set<String> labels, Status status, Status target, String afterId, int limit) {
+        if (nonNull(status) && status == target) {
+            return List.of();
+        }
+        return mongoOperations.find(query(statusChangeCandidates(labels, status, target, afterId))
+                .with(PageRequest.of(0, limit, ASC, "id")), Task.class);
+    }
+
+    @Override
+    public Optional<Task> replace(Task task, Long expectedVersion) {
+        return ofNullable(mongoOperations.findAndReplace(query(where("id").is(task.id()).and("version").is(expectedVersion)), task));
+    }
+
+    @Override
+    public boolean saveIfNewer(Task task) {
+        if (isNull(task.version())) {
+            mongoOperations.save(task);
+            return true;
+        }
+        try {
+            mongoOperations.findAndReplace(olderThan(task), task, FindAndReplaceOptions.options().upsert());
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Map<Integer, String> insertAll(List<Task> tasks) {
+        try {
+            mongoOperations.bulkOps(UNORDERED, Task.class)
+                    .insert(tasks)
+                    .execute();
+            return emptyMap();
+        } catch (BulkOperationException e) {
+            return e.getErrors().stream()
+                    .collect(toMap(BulkWriteError::getIndex, BulkWriteError::getMessage));
+        }
+    }
+
+    @Override
+    public List<Task> findProjectedPage(String afterId, int limit, Set<String> fields) {
+        Query query = isNull(afterId) ? new Query() : query(idAfter(afterId));
+        return findProjected(query.with(PageRequest.of(0, limit, ASC, "id")), fields);
+    }
+
+    @Override
+    public List<Task> findProjectedByLabels(Set<String> labels, Set<String> fields) {
+        return findProjected(query(withLabels(labels)), fields);
+    }
+
+    @Override
+    public List<Task> findProjectedByStatus(Status status, Set<String> fields) {
+        return findProjected(query(withStatus(status)), fields);
+    }
+
+    private List<Task> findProjected(Query query, Set<String> fields) {
+        query.fields().include(fields.toArray(String[]::new));
+        return mongoOperations.find(query, Task.class);
+    }
+
+    @Override
+    public TaskStatistics countTasks(Instant from, Instant to) {
+        List<AggregationOperation> operations = new ArrayList<>();
+        if (nonNull(from) || nonNull(to)) {
+            operations.add(match(createdBetween(from, to)));
+        }
+        operations.add(facet(count().as("count")).as("total")
+                .and(group("status").count().as("count")).as("byStatus")
+                .and(group("priority").count().as("count")).as("byPriority")
+                .and(unwind("labels"), group("labels").count().as("count")).as("byLabel"));
+        Document counts = ofNullable(mongoOperations.aggregate(newAggregation(Task.class, operations), Document.class)
+                .getUniqueMappedResult())
+                .orElseGet(Document::new);
+        return new TaskStatistics(
+                counts.getList("total", Document.class, List.of()).stream()
+                        .mapToLong(total -> total.get("count", Number.class).longValue())
+                        .sum(),
+                countsBy(counts, "byStatus", Status.class),
+                countsBy(counts, "byPriority", Priority.class),
+                countsByLabel(counts));
+    }
+
+    @Override
+    public List<Task> search(String text, Set<String> labels, Status status, int skip, int limit) {
+        return mongoOperations.find(textSearch(text, labels, status).skip(skip).limit(limit), Task.class);
+    }
+
+    @Override
+    public Optional<Task> findVersionById(String id) {
+        Query query = query(withId(id));
+        query.fields().include("version", "updatedAt");
+        return ofNullable(mongoOperations.findOne(query, Task.class));
+    }
+
+    @Override
+    public TaskVersionSummary summarizePage(String afterId, int limit) {
+        List<AggregationOperation> operations = new ArrayList<>();
+        if (nonNull(afterId)) {
+            operations.add(match(idAfter(afterId)));
+        }
+        operations.add(sort(ASC, "id"));
+        operations.add(limit(limit));
+        return summarize(operations);
+    }
+
+    @Override
+    public TaskVersionSummary summarizeByLabels(Set<String> labels) {
+        return summarize(List.of(match(withLabels(labels))));
+    }
+
+    @Override
+    public TaskVersionSummary summarizeByStatus(Status status) {
+        return summarize(List.of(match(withStatus(status))));
+    }
+
+    private TaskVersionSummary summarize(List<AggregationOperation> operations) {
+        List<AggregationOperation> pipeline = new ArrayList<>(operations);
+        pipeline.add(group().count().as("count").sum("version").as("versions").max("updatedAt").as("lastModified"));
+        return ofNullable(mongoOperations.aggregate(newAggregation(Task.class, pipeline), Document.class)
+                .getUniqueMappedResult())
+                .map(summary -> new TaskVersionSummary(
+                        summary.get("count", Number.class).longValue(),
+                        summary.get("versions", Number.class).longValue(),
+                        ofNullable(summary.getDate("lastModified")).map(Date::toInstant).orElse(null)))
+                .orElseGet(() -> new TaskVersionSummary(0, 0, null));
+    }
+
+    // The filters below are shared with TaskQueryPlanEndpoint, so the plans it reports are the ones these queries get
+    static Criteria withId(String id) {
+        return where("id").is(id);
+    }
+
+    static Criteria idAfter(String afterId) {
+        return where("id").gt(afterId);
+    }
+
+    static Criteria withLabels(Set<String> labels) {
+        return where("labels").in(labels);
+    }
+
+    static Criteria withStatus(Status status) {
+        return where("status").is(status);
+    }
+
+    static Criteria createdBetween(Instant from, Instant to) {
+        Criteria createdAt = where("createdAt");
+        if (nonNull(from)) {
+            createdAt = createdAt.gte(from);
+        }
+        if (nonNull(to)) {
+            createdAt = createdAt.lt(to);
+        }
+        return createdAt;
+    }
+
+    static Criteria statusChangeCandidates(Set<String> labels, Status status, Status target, String afterId) {
+        Criteria criteria = nonNull(status) ? withStatus(status) : where("status").ne(target);
+        if (nonNull(labels) && !labels.isEmpty()) {
+            criteria = criteria.and("labels").in(labels);
+        }
+        if (nonNull(afterId)) {
+            criteria = criteria.and("id").gt(afterId);
+        }
+        return criteria;
+    }
+
+    static Query textSearch(String text, Set<String> labels, Status status) {
+        Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                .sortByScore()
+                .with(Sort.by(ASC, "id"));
+        if (nonNull(labels) && !labels.isEmpty()) {
+            query.addCriteria(withLabels(labels));
+        }
+        if (nonNull(status)) {
+            query.addCriteria(withStatus(status));
+        }
+        return query;
+    }
+
+    // Matches the stored copy only while it is older than the task; upserting through it fails with a duplicate key
+    // when the stored copy is newer
+    static Query olderThan(Task task) {
+        Criteria older = new Criteria().orOperator(where("version").lt(task.version()), where("version").is(null));
+        return query(where("id").is(task.id()).andOperator(older));
+    }
+
+    private static <E extends Enum<E>> Map<E, Long> countsBy(Document counts, String facet, Class<E> type) {
+        Map<E, Long> byValue = new EnumMap<>(type);
+        for (E value : type.getEnumConstants()) {
+            byValue.put(value, 0L);
+        }
+        for (Document group : counts.getList(facet, Document.class, List.of())) {
+            if (group.get("_id") instanceof String value) {
+                byValue.put(Enum.valueOf(type, value), group.get("count", Number.class).longValue());
+            }
+        }
+        return byValue;
+    }
+
+    private static Map<String, Long> countsByLabel(Document counts) {
+        Map<String, Long> byLabel = new TreeMap<>();
+        for (Document group : counts.getList("byLabel", Document.class, List.of())) {
+            if (group.get("_id") instanceof String label) {
+                byLabel.put(label, group.get("count", Number.class).longValue());
+            }
+        }
+        return byLabel;
+    }
+}
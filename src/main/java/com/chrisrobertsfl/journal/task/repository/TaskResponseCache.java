@@ -0,0 +1,155 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Optional.ofNullable;
+
+/**
+ * Encoded list responses by request, so a hot status or label query is served from bytes without touching Mongo,
+ * mapping or Jackson. Every task write drops just the responses for the statuses and labels the task had before and
+ * after it; a response read before a write and stored after it is never kept. Both aggregate roots report every write
+ * here, so {@link #onWrite} is also how other read paths hear about them.
+ */
+public class TaskResponseCache implements MeterBinder {
+    private final Cache<String, Response> responses;
+    private final boolean enabled;
+    private final boolean gzip;
+    private final AtomicLong writes = new AtomicLong();
+    private final List<Runnable> writeListeners = new CopyOnWriteArrayList<>();
+
+    public TaskResponseCache(long maximumBytes, Duration expireAfterWrite, boolean gzip) {
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((String request, Response response) -> response.size())
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.enabled = maximumBytes > 0;
+        this.gzip = gzip;
+    }
+
+    public static TaskResponseCache disabled() {
+        return new TaskResponseCache(0, Duration.ZERO, false);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<Response> get(String request) {
+        return ofNullable(responses.getIfPresent(request));
+    }
+
+    // Taken before the query; a write since then means the response may already be stale
+    public long stamp() {
+        return writes.get();
+    }
+
+    public void put(String request, Response response, long stamp) {
+        if (!enabled) {
+            return;
+        }
+        Response stored = gzip ? response.withGzipped(gzip(response.body())) : response;
+        responses.put(request, stored);
+        // Checked after the put, so a write that lands in between either sees the response or is seen here
+        if (writes.get() != stamp) {
+            responses.asMap().remove(request, stored);
+        }
+    }
+
+    // Runs on every task write before the stamp moves, so nothing stamped after the write can see what the listener dropped
+    public void onWrite(Runnable listener) {
+        writeListeners.add(listener);
+    }
+
+    public Task added(Task task) {
+        invalidate(null, task);
+        return task;
+    }
+
+    public Task removed(Task task) {
+        invalidate(task, null);
+        return task;
+    }
+
+    public Task replaced(Task previous, Task current) {
+        invalidate(previous, current);
+        return current;
+    }
+
+    private void invalidate(Task previous, Task current) {
+        writeListeners.forEach(Runnable::run);
+        writes.incrementAndGet();
+        if (responses.estimatedSize() > 0) {
+            responses.asMap().values().removeIf(response -> response.matches(previous) || response.matches(current));
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, responses, "taskResponses");
+    }
+
+    /**
+     * A 200 response for the tasks with {@code status}, or with any of {@code labels}, and the headers to send with it.
+     */
+    public record Response(String status, Set<String> labels, byte[] body, byte[] gzipped, String contentType,
+                           String eTag, String lastModified) {
+        public static Response byStatus(String status, byte[] body, String contentType, String eTag, String lastModified) {
+            return new Response(status, null, body, null, contentType, eTag, lastModified);
+        }
+
+        public static Response byLabels(Set<String> labels, byte[] body, String contentType, String eTag, String lastModified) {
+            return new Response(null, labels, body, null, contentType, eTag, lastModified);
+        }
+
+        public boolean isGzipped() {
+            return nonNull(gzipped);
+        }
+
+        Response withGzipped(byte[] gzipped) {
+            return new Response(status, labels, body, gzipped, contentType, eTag, lastModified);
+        }
+
+        boolean matches(Task task) {
+            if (isNull(task)) {
+                return false;
+            }
+            return nonNull(status)
+                    ? nonNull(task.status()) && status.equals(task.status().name())
+                    : nonNull(task.labels()) && task.labels().stream().anyMatch(labels::contains);
+        }
+
+        int size() {
+            return body.length + (isGzipped() ? gzipped.length : 0);
+        }
+    }
+}
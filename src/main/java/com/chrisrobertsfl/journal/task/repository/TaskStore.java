@@ -0,0 +1,38 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Status;
+import com.chrisrobertsfl.journal.task.model.Task;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * The task storage the blocking aggregate root and the write-ahead log need, implemented by the Mongo
+ * {@link TaskRepository} and by the {@link InMemoryTaskRepository}.
+ */
+public interface TaskStore extends TaskRepositoryCustom {
+    Optional<Task> findById(String id);
+
+    boolean existsById(String id);
+
+    List<Task> findAll();
+
+    List<Task> findAllById(Iterable<String> ids);
+
+    <S extends Task> S save(S task);
+
+    void deleteById(String id);
+
+    List<Task> findByLabelsIn(Set<String> labels);
+
+    List<Task> findByStatus(Status status);
+
+    List<Task> findByIdNotNull(Pageable pageable);
+
+    List<Task> findByIdGreaterThan(String id, Pageable pageable);
+
+    Stream<Task> streamAllBy();
+}
@@ -0,0 +1,225 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Subtask;
+import com.chrisrobertsfl.journal.task.model.Task;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toSet;
+import static org.springframework.data.domain.Sort.Direction.ASC;
+
+/**
+ * Keeps subtasks out of their task's document, one {@link Subtask} document each, so a task is read and written
+ * without its tree and a subtask is changed without rewriting its task. Trees are loaded on demand to a given depth.
+ */
+public class TaskTree {
+    static final int ADD_ATTEMPTS = 3;
+    private static final Sort PREORDER = Sort.by("path");
+
+    private final SubtaskRepository subtaskRepository;
+
+    public TaskTree(SubtaskRepository subtaskRepository) {
+        this.subtaskRepository = subtaskRepository;
+    }
+
+    // Leaves subtasks embedded in their task, for the in-memory engine where the whole task is on the heap anyway
+    public static TaskTree embedded() {
+        return new TaskTree(null);
+    }
+
+    public boolean isEnabled() {
+        return nonNull(subtaskRepository);
+    }
+
+    // The task as it goes into the task collection
+    public Task detach(Task task) {
+        return isEnabled() ? task.withSubtasks(null) : task;
+    }
+
+    public Task insert(Task task, List<Task> subtasks) {
+        if (!isEnabled() || isLeaf(subtasks)) {
+            return task;
+        }
+        List<Subtask> inserted = subtaskRepository.insert(flatten(task.id(), List.of(task.id()), "", 1, subtasks, task.updatedAt()));
+        return task.withSubtasks(assemble(task.id(), inserted));
+    }
+
+    // Each task still carries the subtasks it arrived with
+    public void insertAll(List<Task> tasks) {
+        if (!isEnabled()) {
+            return;
+        }
+        List<Subtask> flattened = new ArrayList<>();
+        for (Task task : tasks) {
+            flattened.addAll(flatten(task.id(), List.of(task.id()), "", 1, task.subtasks(), task.updatedAt()));
+        }
+        if (!flattened.isEmpty()) {
+            subtaskRepository.insert(flattened);
+        }
+    }
+
+    // Missing subtasks leave the stored tree alone; anything else, even an empty list, replaces it. The new tree is
+    // written before the old one is removed, so a failure part way leaves a tree behind rather than none
+    public Task replace(Task task, List<Task> subtasks) {
+        if (!isEnabled() || isNull(subtasks)) {
+            return task;
+        }
+        List<Subtask> previous = subtaskRepository.findByAncestors(task.id());
+        List<Subtask> saved = List.of();
+        if (!isLeaf(subtasks)) {
+            // Positions past every old one keep the new tree clear of the unique parent and position index
+            long firstPosition = previous.stream().mapToLong(Subtask::position).max().orElse(0L) + 1;
+            saved = subtaskRepository.saveAll(flatten(task.id(), List.of(task.id()), "", firstPosition, firstPosition, subtasks, task.updatedAt()));
+        }
+        Set<String> kept = saved.stream().map(Subtask::id).collect(toSet());
+        List<String> stale = previous.stream().map(Subtask::id).filter(id -> !kept.contains(id)).toList();
+        if (!stale.isEmpty()) {
+            subtaskRepository.deleteAllById(stale);
+        }
+        return saved.isEmpty() ? task : task.withSubtasks(assemble(task.id(), saved));
+    }
+
+    // A task written before subtasks moved out still has them embedded and is returned as it is
+    public Task load(Task task, int depth) {
+        if (!isEnabled() || depth == 0 || !isLeaf(task.subtasks())) {
+            return task;
+        }
+        return task.withSubtasks(assemble(task.id(), subtaskRepository.findByAncestorsAndDepthLessThanEqual(task.id(), depth, PREORDER)));
+    }
+
+    public Task load(Subtask subtask, int depth) {
+        return depth == 0
+                ? subtask.toTask()
+                : subtask.toTask(assemble(subtask.id(), subtaskRepository.findByAncestorsAndDepthLessThanEqual(subtask.id(), subtask.depth() + depth, PREORDER)));
+    }
+
+    public Optional<Subtask> findById(String id) {
+        return isEnabled() ? subtaskRepository.findById(id) : Optional.empty();
+    }
+
+    public List<Subtask> findChildren(String parentId, long afterPosition, int limit) {
+        return subtaskRepository.findByParentIdAndPositionGreaterThan(parentId, afterPosition, PageRequest.of(0, limit, ASC, "position"));
+    }
+
+    public Task add(Task parent, Task subtask, Instant updatedAt) {
+        return add(parent.id(), List.of(parent.id()), "", subtask, updatedAt);
+    }
+
+    public Task add(Subtask parent, Task subtask, Instant updatedAt) {
+        return add(parent.id(), append(parent.ancestors(), parent.id()), parent.path(), subtask, updatedAt);
+    }
+
+    public Optional<Subtask> replace(Subtask subtask, Long expectedVersion) {
+        return subtaskRepository.replace(subtask, expectedVersion);
+    }
+
+    // Children go first, so a failure part way leaves the subtask in place rather than its children orphaned
+    public void delete(Subtask subtask) {
+        subtaskRepository.deleteByAncestors(subtask.id());
+        subtaskRepository.deleteById(subtask.id());
+    }
+
+    public void deleteAll(String taskId) {
+        if (isEnabled()) {
+            subtaskRepository.deleteByAncestors(taskId);
+        }
+    }
+
+    // Two writers adding under the same parent can pick the same position; the unique index turns one away to try the next
+    private Task add(String parentId, List<String> ancestors, String parentPath, Task subtask, Instant updatedAt) {
+        for (int attempt = 1; ; attempt++) {
+            long position = subtaskRepository.findFirstByParentIdOrderByPositionDesc(parentId).map(Subtask::position).orElse(0L) + 1;
+            try {
+                List<Subtask> inserted = subtaskRepository.insert(flatten(parentId, ancestors, parentPath, position, List.of(subtask), updatedAt));
+                return assemble(parentId, inserted).get(0);
+            } catch (DuplicateKeyException e) {
+                if (attempt == ADD_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Walks the tree with a stack rather than recursion, so a deep tree cannot overflow the thread's stack
+    static List<Subtask> flatten(String parentId, List<String> ancestors, String parentPath, long firstPosition,
+                                 List<Task> subtasks, Instant updatedAt) {
+        return flatten(parentId, ancestors, parentPath, firstPosition, 1, subtasks, updatedAt);
+    }
+
+    static List<Subtask> flatten(String parentId, List<String> ancestors, String parentPath, long firstPosition,
+                                 long firstChildPosition, List<Task> subtasks, Instant updatedAt) {
+        List<Subtask> flattened = new ArrayList<>();
+        Deque<Placement> placements = new ArrayDeque<>();
+        place(placements, parentId, ancestors, parentPath, firstPosition, subtasks);
+        while (!placements.isEmpty()) {
+            Placement placement = placements.pop();
+            Task task = isNull(placement.task().id()) ? placement.task().withId(new ObjectId().toHexString()) : placement.task();
+            Subtask subtask = Subtask.of(task, placement.parentId(), placement.ancestors(),
+                    path(placement.parentPath(), placement.position()), placement.position(), updatedAt);
+            flattened.add(subtask);
+            place(placements, subtask.id(), append(subtask.ancestors(), subtask.id()), subtask.path(), firstChildPosition, task.subtasks());
+        }
+        return flattened;
+    }
+
+    // Relies on parents coming before their children, as they do sorted by path
+    static List<Task> assemble(String parentId, List<Subtask> preorder) {
+        List<Task> top = new ArrayList<>();
+        Map<String, List<Task>> children = new HashMap<>();
+        children.put(parentId, top);
+        for (Subtask subtask : preorder) {
+            List<Task> siblings = children.get(subtask.parentId());
+            if (nonNull(siblings)) {
+                List<Task> own = new ArrayList<>();
+                children.put(subtask.id(), own);
+                siblings.add(subtask.toTask(own));
+            }
+        }
+        return top;
+    }
+
+    // Pushed last to first so they come off the stack in order
+    private static void place(Deque<Placement> placements, String parentId, List<String> ancestors, String parentPath,
+                              long firstPosition, List<Task> subtasks) {
+        if (isNull(subtasks)) {
+            return;
+        }
+        for (int index = subtasks.size() - 1; index >= 0; index--) {
+            if (nonNull(subtasks.get(index))) {
+                placements.push(new Placement(subtasks.get(index), parentId, ancestors, parentPath, firstPosition + index));
+            }
+        }
+    }
+
+    // Fixed width positions joined by '/', which sorts below the digits, so a parent's path sorts just ahead of its children's
+    private static String path(String parentPath, long position) {
+        return parentPath.isEmpty() ? format("%010d", position) : format("%s/%010d", parentPath, position);
+    }
+
+    private static List<String> append(List<String> ancestors, String id) {
+        return Stream.concat(ancestors.stream(), Stream.of(id)).toList();
+    }
+
+    private static boolean isLeaf(List<Task> subtasks) {
+        return isNull(subtasks) || subtasks.isEmpty();
+    }
+
+    private record Placement(Task task, String parentId, List<String> ancestors, String parentPath, long position) {
+    }
+}
@@ -0,0 +1,147 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Priority;
+import com.chrisrobertsfl.journal.task.model.Status;
+import com.chrisrobertsfl.journal.task.model.Task;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+
+/**
+ * One write-ahead log entry: the full state a task was written with, or its deletion, so replaying the latest entry
+ * for an id is enough to restore it. Encoded as a compact binary body; framing and checksums belong to the log.
+ */
+record TaskWalRecord(Op op, long sequence, String id, Task task) {
+    enum Op {PUT, DELETE}
+
+    static TaskWalRecord put(long sequence, Task task) {
+        return new TaskWalRecord(Op.PUT, sequence, task.id(), task);
+    }
+
+    static TaskWalRecord delete(long sequence, String id) {
+        return new TaskWalRecord(Op.DELETE, sequence, id, null);
+    }
+
+    TaskWalRecord withSequence(long sequence) {
+        return new TaskWalRecord(op, sequence, id, task);
+    }
+
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(op.ordinal());
+            out.writeLong(sequence);
+            writeString(out, id);
+            if (op == Op.PUT) {
+                writeTask(out, task);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static TaskWalRecord decode(ByteBuffer body) {
+        Op op = Op.values()[body.get()];
+        long sequence = body.getLong();
+        String id = readString(body);
+        return new TaskWalRecord(op, sequence, id, op == Op.PUT ? readTask(body) : null);
+    }
+
+    private static void writeTask(DataOutputStream out, Task task) throws IOException {
+        writeString(out, task.id());
+        writeString(out, task.name());
+        writeString(out, task.description());
+        writeInstant(out, task.createdAt());
+        out.writeByte(isNull(task.priority()) ? -1 : task.priority().ordinal());
+        out.writeByte(isNull(task.status()) ? -1 : task.status().ordinal());
+        if (isNull(task.labels())) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(task.labels().size());
+            for (String label : task.labels()) {
+                writeString(out, label);
+            }
+        }
+        if (isNull(task.subtasks())) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(task.subtasks().size());
+            for (Task subtask : task.subtasks()) {
+                writeTask(out, subtask);
+            }
+        }
+        out.writeBoolean(!isNull(task.version()));
+        if (!isNull(task.version())) {
+            out.writeLong(task.version());
+        }
+        writeInstant(out, task.updatedAt());
+    }
+
+    private static Task readTask(ByteBuffer in) {
+        String id = readString(in);
+        String name = readString(in);
+        String description = readString(in);
+        Instant createdAt = readInstant(in);
+        byte priority = in.get();
+        byte status = in.get();
+        int labelCount = in.getInt();
+        Set<String> labels = labelCount < 0 ? null : new LinkedHashSet<>(labelCount);
+        for (int i = 0; i < labelCount; i++) {
+            labels.add(readString(in));
+        }
+        int subtaskCount = in.getInt();
+        List<Task> subtasks = subtaskCount < 0 ? null : new ArrayList<>(subtaskCount);
+        for (int i = 0; i < subtaskCount; i++) {
+            subtasks.add(readTask(in));
+        }
+        Long version = in.get() != 0 ? in.getLong() : null;
+        return new Task(id, name, description, createdAt,
+                priority < 0 ? null : Priority.values()[priority],
+                status < 0 ? null : Status.values()[status],
+                labels, subtasks, version, readInstant(in));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (isNull(value)) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+        out.writeBoolean(!isNull(instant));
+        if (!isNull(instant)) {
+            out.writeLong(instant.getEpochSecond());
+            out.writeInt(instant.getNano());
+        }
+    }
+
+    private static Instant readInstant(ByteBuffer in) {
+        return in.get() != 0 ? Instant.ofEpochSecond(in.getLong(), in.getInt()) : null;
+    }
+}
@@ -0,0 +1,418 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.lang.String.format;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.isNull;
+
+/**
+ * Local write-ahead log for task mutations. A write is acknowledged once it is appended to a memory-mapped segment
+ * (and forced, by the fsync policy); the scheduled replay applies it to the repository. Records carry the full task,
+ * so only the latest pending record per id needs replaying, a replayed task never replaces a copy at the same or a
+ * later version, and segments are deleted once nothing in them is pending.
+ */
+public class TaskWriteAheadLog implements TaskWriter, MeterBinder, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(TaskWriteAheadLog.class);
+    static final String SUFFIX = ".wal";
+    // Record length and CRC32 of the body
+    static final int HEADER_BYTES = 8;
+    private static final int LOCK_STRIPES = 64;
+
+    public enum FsyncPolicy {
+        /** Force before acknowledging; concurrent writers share one force */
+        ALWAYS,
+        /** Force on the scheduled flush */
+        INTERVAL,
+        /** Leave write-back to the operating system */
+        NEVER
+    }
+
+    private final TaskStore taskStore;
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final int segmentBytes;
+    private final int compactAfterSegments;
+    private final Object[] locks = Stream.generate(Object::new).limit(LOCK_STRIPES).toArray();
+    private final Map<String, TaskWalRecord> pending = new ConcurrentHashMap<>();
+    private final Deque<ClosedSegment> closed = new ArrayDeque<>();
+    private final Object forceLock = new Object();
+    private final LongAdder replayed = new LongAdder();
+    private Segment current;
+    private long nextSequence = 1;
+    private volatile long durableSequence;
+
+    private TaskWriteAheadLog(TaskStore taskStore) {
+        this.taskStore = taskStore;
+        this.directory = null;
+        this.fsyncPolicy = FsyncPolicy.NEVER;
+        this.segmentBytes = 0;
+        this.compactAfterSegments = 0;
+    }
+
+    public TaskWriteAheadLog(TaskStore taskStore, Path directory, FsyncPolicy fsyncPolicy, int segmentBytes,
+                             int compactAfterSegments) {
+        this.taskStore = taskStore;
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.segmentBytes = segmentBytes;
+        this.compactAfterSegments = compactAfterSegments;
+        recover();
+        current = Segment.create(directory, nextSequence, segmentBytes);
+    }
+
+    public static TaskWriteAheadLog disabled(TaskStore taskStore) {
+        return new TaskWriteAheadLog(taskStore);
+    }
+
+    public boolean isEnabled() {
+        return !isNull(directory);
+    }
+
+    @Override
+    public boolean isDeferred() {
+        return isEnabled();
+    }
+
+    @Override
+    public Task put(Task task) {
+        if (!isEnabled()) {
+            return taskStore.save(task);
+        }
+        Task identified = isNull(task.id()) ? task.withId(new ObjectId().toHexString()) : task;
+        synchronized (lockFor(identified.id())) {
+            log(sequence -> TaskWalRecord.put(sequence, identified));
+            return identified;
+        }
+    }
+
+    @Override
+    public void delete(String id) {
+        if (!isEnabled()) {
+            taskStore.deleteById(id);
+            return;
+        }
+        synchronized (lockFor(id)) {
+            log(sequence -> TaskWalRecord.delete(sequence, id));
+        }
+    }
+
+    @Override
+    public <T> T locked(String id, Supplier<T> action) {
+        synchronized (lockFor(id)) {
+            return action.get();
+        }
+    }
+
+    @Override
+    public Optional<Task> findById(String id, Function<String, Optional<Task>> read) {
+        return TaskOverlay.findById(pending, id, read);
+    }
+
+    @Override
+    public List<Task> overlay(List<Task> found, Predicate<Task> matches) {
+        return TaskOverlay.overlay(pending, found, matches);
+    }
+
+    public int pending() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${journal.task.wal.replay-interval:PT0.1S}")
+    public void replay() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            for (TaskWalRecord record : pendingInOrder()) {
+                synchronized (lockFor(record.id())) {
+                    if (pending.get(record.id()) == record) {
+                        apply(record);
+                        pending.remove(record.id(), record);
+                        replayed.increment();
+                    }
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Paused replaying {} task writes: {}", pending.size(), e.getMessage());
+        }
+        compact();
+    }
+
+    @Scheduled(fixedDelayString = "${journal.task.wal.fsync-interval:PT0.1S}")
+    public void flush() {
+        if (isEnabled() && fsyncPolicy == FsyncPolicy.INTERVAL) {
+            force(Long.MAX_VALUE);
+        }
+    }
+
+    // While the repository is down the oldest pending records pin every segment after them; copying them forward
+    // lets those segments go
+    void compact() {
+        if (closedSegments() > compactAfterSegments) {
+            long lastClosed = lastClosedSequence();
+            for (TaskWalRecord record : pendingInOrder()) {
+                if (record.sequence() > lastClosed) {
+                    break;
+                }
+                synchronized (lockFor(record.id())) {
+                    if (pending.get(record.id()) == record) {
+                        pending.put(record.id(), append(record::withSequence));
+                    }
+                }
+            }
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                force(Long.MAX_VALUE);
+            }
+        }
+        long oldestPending = pending.values().stream().mapToLong(TaskWalRecord::sequence).min().orElse(Long.MAX_VALUE);
+        synchronized (this) {
+            while (!closed.isEmpty() && closed.peekFirst().lastSequence() < oldestPending) {
+                delete(closed.pollFirst().path());
+            }
+        }
+    }
+
+    synchronized int closedSegments() {
+        return closed.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("journal.task.wal.pending", pending, Map::size)
+                .description("Task writes logged but not yet applied to the repository")
+                .register(registry);
+        FunctionCounter.builder("journal.task.wal.replayed", replayed, LongAdder::sum)
+                .description("Task writes applied to the repository by replay")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        if (!isEnabled()) {
+            return;
+        }
+        replay();
+        synchronized (this) {
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                current.force();
+            }
+            current.close();
+            if (pending.isEmpty()) {
+                closed.forEach(segment -> delete(segment.path()));
+                closed.clear();
+                delete(current.path);
+            }
+        }
+    }
+
+    private TaskWalRecord log(LongFunction<TaskWalRecord> create) {
+        TaskWalRecord record = append(create);
+        pending.put(record.id(), record);
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            force(record.sequence());
+        }
+        return record;
+    }
+
+    private synchronized TaskWalRecord append(LongFunction<TaskWalRecord> create) {
+        TaskWalRecord record = create.apply(nextSequence);
+        byte[] body = record.encode();
+        int length = HEADER_BYTES + body.length;
+        if (length > segmentBytes) {
+            throw new IllegalArgumentException(format("Task %s needs %d bytes, more than a %d byte segment", record.id(), length, segmentBytes));
+        }
+        if (current.buffer.remaining() < length) {
+            roll();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        current.buffer.putInt(body.length).putInt((int) crc.getValue()).put(body);
+        nextSequence++;
+        return record;
+    }
+
+    private void roll() {
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            current.force();
+        }
+        current.close();
+        closed.addLast(new ClosedSegment(current.path, nextSequence - 1));
+        current = Segment.create(directory, nextSequence, segmentBytes);
+    }
+
+    // Group commit: whoever gets the lock forces everything appended so far, covering the writers queued behind it
+    private void force(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        synchronized (forceLock) {
+            if (durableSequence >= sequence) {
+                return;
+            }
+            Segment segment;
+            long appended;
+            synchronized (this) {
+                segment = current;
+                appended = nextSequence - 1;
+            }
+            if (durableSequence >= appended) {
+                return;
+            }
+            segment.force();
+            durableSequence = appended;
+        }
+    }
+
+    private void apply(TaskWalRecord record) {
+        if (record.op() == TaskWalRecord.Op.PUT) {
+            taskStore.saveIfNewer(record.task());
+        } else {
+            taskStore.deleteById(record.id());
+        }
+    }
+
+    private List<TaskWalRecord> pendingInOrder() {
+        return pending.values().stream().sorted(Comparator.comparingLong(TaskWalRecord::sequence)).toList();
+    }
+
+    private synchronized long lastClosedSequence() {
+        return closed.isEmpty() ? 0 : closed.peekLast().lastSequence();
+    }
+
+    private Object lockFor(String id) {
+        return locks[Math.floorMod(id.hashCode(), LOCK_STRIPES)];
+    }
+
+    private void recover() {
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments;
+            try (Stream<Path> files = Files.list(directory)) {
+                segments = files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+            }
+            for (Path segment : segments) {
+                long lastSequence = recover(segment);
+                if (lastSequence == 0) {
+                    delete(segment);
+                } else {
+                    closed.addLast(new ClosedSegment(segment, lastSequence));
+                    nextSequence = Math.max(nextSequence, lastSequence + 1);
+                }
+            }
+            durableSequence = nextSequence - 1;
+            if (!pending.isEmpty()) {
+                log.info("Recovered {} task writes to replay from {}", pending.size(), directory);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Segments are zero filled, so a zero length marks the end; a bad checksum marks a write torn by a crash
+    private long recover(Path segment) throws IOException {
+        long lastSequence = 0;
+        try (FileChannel channel = FileChannel.open(segment, READ)) {
+            ByteBuffer buffer = channel.map(READ_ONLY, 0, channel.size());
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer body = buffer.slice(buffer.position(), length);
+                CRC32 crc = new CRC32();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Stopped reading {} at a torn record", segment);
+                    break;
+                }
+                TaskWalRecord record = TaskWalRecord.decode(body);
+                pending.put(record.id(), record);
+                lastSequence = record.sequence();
+                buffer.position(buffer.position() + length);
+            }
+        }
+        return lastSequence;
+    }
+
+    private static void delete(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            log.warn("Could not delete write-ahead log segment {}: {}", segment, e.getMessage());
+        }
+    }
+
+    private record ClosedSegment(Path path, long lastSequence) {
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path directory, long firstSequence, int segmentBytes) {
+            Path path = directory.resolve(format("%020d%s", firstSequence, SUFFIX));
+            try {
+                FileChannel channel = FileChannel.open(path, CREATE_NEW, READ, WRITE);
+                return new Segment(path, channel, channel.map(READ_WRITE, 0, segmentBytes));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
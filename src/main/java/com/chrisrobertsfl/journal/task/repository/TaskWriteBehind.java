@@ -0,0 +1,342 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.chrisrobertsfl.journal.task.repository.TaskRepositoryCustomImpl.olderThan;
+import static com.mongodb.ErrorCategory.DUPLICATE_KEY;
+import static java.util.Objects.isNull;
+import static java.util.function.Function.identity;
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Acknowledges task writes straight away and sends them to Mongo in batches from a background thread. Writes to the
+ * same task are coalesced while queued, so a burst of status changes costs one replace. A flush runs once
+ * {@code batchSize} tasks are queued or {@code flushInterval} after the first write, whichever comes first; writers
+ * wait when {@code capacity} tasks are queued. A flushed task replaces the stored copy only while that copy is at an
+ * older version, so a newer write made straight to Mongo is never overwritten. A write Mongo rejects is retried by
+ * later flushes and dropped after its third rejection.
+ */
+public class TaskWriteBehind implements TaskWriter, MeterBinder, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(TaskWriteBehind.class);
+    private static final int LOCK_STRIPES = 64;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final MongoOperations mongoOperations;
+    private final int capacity;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration offerTimeout;
+    private final Object[] locks = Stream.generate(Object::new).limit(LOCK_STRIPES).toArray();
+    // Every write not yet in Mongo, queued or being flushed; reads go through it
+    private final Map<String, TaskWalRecord> pending = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, TaskWalRecord> queued = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition wake = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    // Rejections so far of each write Mongo turned down; only touched while holding the flush lock
+    private final Map<TaskWalRecord, Integer> attempts = new IdentityHashMap<>();
+    private final Thread flusher;
+    private long nextSequence = 1;
+    private boolean closed;
+
+    public TaskWriteBehind(MongoOperations mongoOperations, int capacity, int batchSize, Duration flushInterval, Duration offerTimeout) {
+        this.mongoOperations = mongoOperations;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.offerTimeout = offerTimeout;
+        this.flusher = new Thread(this::run, "task-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public Task put(Task task) {
+        Task identified = isNull(task.id()) ? task.withId(new ObjectId().toHexString()) : task;
+        enqueue(sequence -> TaskWalRecord.put(sequence, identified));
+        return identified;
+    }
+
+    @Override
+    public void delete(String id) {
+        enqueue(sequence -> TaskWalRecord.delete(sequence, id));
+    }
+
+    @Override
+    public boolean isDeferred() {
+        return true;
+    }
+
+    @Override
+    public <T> T locked(String id, Supplier<T> action) {
+        synchronized (locks[Math.floorMod(id.hashCode(), LOCK_STRIPES)]) {
+            return action.get();
+        }
+    }
+
+    @Override
+    public Optional<Task> findById(String id, Function<String, Optional<Task>> read) {
+        return TaskOverlay.findById(pending, id, read);
+    }
+
+    @Override
+    public List<Task> overlay(List<Task> found, Predicate<Task> matches) {
+        return TaskOverlay.overlay(pending, found, matches);
+    }
+
+    public int pending() {
+        return pending.size();
+    }
+
+    // Sends everything queued now; stops early if Mongo rejects a batch
+    public void flush() {
+        while (flushBatch() > 0) {
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("journal.task.write-behind.pending", pending, Map::size)
+                .description("Task writes acknowledged but not yet written to Mongo")
+                .register(registry);
+        FunctionCounter.builder("journal.task.write-behind.flushed", flushed, LongAdder::sum)
+                .description("Task writes sent to Mongo in batches")
+                .register(registry);
+        FunctionCounter.builder("journal.task.write-behind.dropped", dropped, LongAdder::sum)
+                .description("Task writes given up on after Mongo rejected them repeatedly")
+                .register(registry);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            closed = true;
+            wake.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join();
+        if (!pending.isEmpty()) {
+            log.error("Shut down with {} task writes not written to Mongo", pending.size());
+        }
+    }
+
+    private void enqueue(LongFunction<TaskWalRecord> create) {
+        lock.lock();
+        try {
+            TaskWalRecord record = create.apply(nextSequence++);
+            if (closed) {
+                throw new IllegalStateException("Task write-behind is closed");
+            }
+            long remaining = offerTimeout.toNanos();
+            while (!queued.containsKey(record.id()) && queued.size() >= capacity) {
+                if (remaining <= 0) {
+                    throw new TransientDataAccessResourceException("Task write-behind queue is full");
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+            boolean added = isNull(queued.put(record.id(), record));
+            pending.put(record.id(), record);
+            if ((added && queued.size() == 1) || queued.size() >= batchSize) {
+                wake.signal();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransientDataAccessResourceException("Interrupted waiting for the task write-behind queue");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        while (awaitBatch()) {
+            if (flushBatch() == 0 && !isClosed()) {
+                pause();
+            }
+        }
+        flush();
+    }
+
+    // True once there is something to flush; false when closed, leaving the final drain to the caller
+    private boolean awaitBatch() {
+        lock.lock();
+        try {
+            while (queued.isEmpty() && !closed) {
+                wake.await();
+            }
+            if (!closed && queued.size() < batchSize) {
+                wake.awaitNanos(flushInterval.toNanos());
+            }
+            return !closed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int flushBatch() {
+        flushLock.lock();
+        try {
+            List<TaskWalRecord> batch = take();
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            try {
+                write(batch);
+                completed(batch);
+                return batch.size();
+            } catch (BulkOperationException e) {
+                // A duplicate key means the stored copy is newer, written by another path since this one was queued
+                Map<Integer, BulkWriteError> failed = e.getErrors().stream()
+                        .filter(error -> ErrorCategory.fromErrorCode(error.getCode()) != DUPLICATE_KEY)
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, identity()));
+                List<TaskWalRecord> written = new ArrayList<>();
+                List<TaskWalRecord> retry = new ArrayList<>();
+                for (int index = 0; index < batch.size(); index++) {
+                    TaskWalRecord record = batch.get(index);
+                    if (!failed.containsKey(index)) {
+                        written.add(record);
+                    } else if (attempts.merge(record, 1, Integer::sum) < MAX_ATTEMPTS) {
+                        retry.add(record);
+                    } else {
+                        drop(record, failed.get(index));
+                    }
+                }
+                completed(written);
+                requeue(retry);
+                if (!retry.isEmpty()) {
+                    log.warn("Requeued {} of {} task writes Mongo rejected: {}", retry.size(), batch.size(), e.getMessage());
+                }
+                return written.size();
+            } catch (RuntimeException e) {
+                requeue(batch);
+                log.warn("Requeued {} task writes: {}", batch.size(), e.getMessage());
+                return 0;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private List<TaskWalRecord> take() {
+        lock.lock();
+        try {
+            List<TaskWalRecord> batch = new ArrayList<>(Math.min(batchSize, queued.size()));
+            Iterator<TaskWalRecord> records = queued.values().iterator();
+            while (records.hasNext() && batch.size() < batchSize) {
+                batch.add(records.next());
+                records.remove();
+            }
+            notFull.signalAll();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(List<TaskWalRecord> batch) {
+        BulkOperations operations = mongoOperations.bulkOps(UNORDERED, Task.class);
+        for (TaskWalRecord record : batch) {
+            if (record.op() == TaskWalRecord.Op.PUT) {
+                Query stored = isNull(record.task().version()) ? query(where("id").is(record.id())) : olderThan(record.task());
+                operations.replaceOne(stored, record.task(), FindAndReplaceOptions.options().upsert());
+            } else {
+                operations.remove(query(where("id").is(record.id())));
+            }
+        }
+        operations.execute();
+    }
+
+    private void completed(List<TaskWalRecord> batch) {
+        batch.forEach(record -> {
+            pending.remove(record.id(), record);
+            attempts.remove(record);
+        });
+        flushed.add(batch.size());
+    }
+
+    // Mongo rejects the same write every time for a validation failure or an oversized document, so it is given up on
+    private void drop(TaskWalRecord record, BulkWriteError error) {
+        pending.remove(record.id(), record);
+        attempts.remove(record);
+        dropped.increment();
+        log.error("Dropped the write to task {} after Mongo rejected it {} times: {}", record.id(), MAX_ATTEMPTS, error.getMessage());
+    }
+
+    // A newer write queued meanwhile supersedes the failed one
+    private void requeue(List<TaskWalRecord> batch) {
+        lock.lock();
+        try {
+            for (TaskWalRecord record : batch) {
+                if (pending.get(record.id()) == record && !queued.containsKey(record.id())) {
+                    queued.put(record.id(), record);
+                } else {
+                    attempts.remove(record);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void pause() {
+        try {
+            TimeUnit.NANOSECONDS.sleep(flushInterval.toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
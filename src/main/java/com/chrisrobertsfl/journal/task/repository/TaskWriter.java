@@ -0,0 +1,29 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * The path {@code TaskAggregateRoot} writes through. A deferred writer can acknowledge a write before the repository
+ * has it, so reads go through {@link #findById} and {@link #overlay} to see those pending writes.
+ */
+public interface TaskWriter {
+    Task put(Task task);
+
+    void delete(String id);
+
+    boolean isDeferred();
+
+    // Lets a read-check-write sequence run without another write to the same task slipping in between
+    <T> T locked(String id, Supplier<T> action);
+
+    Optional<Task> findById(String id, Function<String, Optional<Task>> read);
+
+    // Replaces or drops found tasks with pending writes, and adds pending tasks the query would now match
+    List<Task> overlay(List<Task> found, Predicate<Task> matches);
+}
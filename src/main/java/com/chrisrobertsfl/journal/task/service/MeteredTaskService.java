@@ -0,0 +1,227 @@
+package com.chrisrobertsfl.journal.task.service;
+
+import com.chrisrobertsfl.journal.task.model.BulkStatusRequest;
+import com.chrisrobertsfl.journal.task.model.BulkStatusResponse;
+import com.chrisrobertsfl.journal.task.model.BulkTaskResponse;
+import com.chrisrobertsfl.journal.task.model.TaskException;
+import com.chrisrobertsfl.journal.task.model.TaskInfo;
+import com.chrisrobertsfl.journal.task.model.TaskPage;
+import com.chrisrobertsfl.journal.task.model.TaskStatistics;
+import com.chrisrobertsfl.journal.task.model.TaskVersionSummary;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+public class MeteredTaskService implements TaskService {
+    static final String TIMER = "journal.task.service";
+    static final String RESULTS = "journal.task.service.results";
+    static final String EXCEPTIONS = "journal.task.exceptions";
+
+    private final TaskService taskService;
+    private final MeterRegistry meterRegistry;
+
+    public MeteredTaskService(TaskService taskService, MeterRegistry meterRegistry) {
+        this.taskService = taskService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public List<TaskInfo> findAll() {
+        return sized("findAll", timed("findAll", taskService::findAll));
+    }
+
+    @Override
+    public TaskPage findPage(String cursor, int limit) {
+        TaskPage page = timed("findPage", () -> taskService.findPage(cursor, limit));
+        sized("findPage", page.tasks());
+        return page;
+    }
+
+    @Override
+    public TaskPage findPage(String cursor, int limit, String fields) {
+        TaskPage page = timed("findPage", () -> taskService.findPage(cursor, limit, fields));
+        sized("findPage", page.tasks());
+        return page;
+    }
+
+    @Override
+    public Stream<TaskInfo> streamAll() {
+        return timed("streamAll", taskService::streamAll);
+    }
+
+    @Override
+    public TaskInfo addTask(TaskInfo task) {
+        return timed("addTask", () -> taskService.addTask(task));
+    }
+
+    @Override
+    public BulkTaskResponse addTasks(Iterator<TaskInfo> tasks) {
+        BulkTaskResponse response = timed("addTasks", () -> taskService.addTasks(tasks));
+        sized("addTasks", response.results());
+        return response;
+    }
+
+    @Override
+    public TaskInfo updateTask(TaskInfo task) {
+        return timed("updateTask", () -> taskService.updateTask(task));
+    }
+
+    @Override
+    public TaskInfo deleteTask(String id) {
+        return timed("deleteTask", () -> taskService.deleteTask(id));
+    }
+
+    @Override
+    public Optional<TaskInfo> findById(String id) {
+        return timed("findById", () -> taskService.findById(id));
+    }
+
+    @Override
+    public Optional<TaskInfo> findTree(String id, int depth) {
+        return timed("findTree", () -> taskService.findTree(id, depth));
+    }
+
+    @Override
+    public TaskPage findSubtasks(String parentId, String cursor, int limit) {
+        TaskPage page = timed("findSubtasks", () -> taskService.findSubtasks(parentId, cursor, limit));
+        sized("findSubtasks", page.tasks());
+        return page;
+    }
+
+    @Override
+    public TaskInfo addSubtask(String parentId, TaskInfo subtask) {
+        return timed("addSubtask", () -> taskService.addSubtask(parentId, subtask));
+    }
+
+    @Override
+    public TaskInfo updateSubtask(TaskInfo subtask) {
+        return timed("updateSubtask", () -> taskService.updateSubtask(subtask));
+    }
+
+    @Override
+    public TaskInfo deleteSubtask(String id) {
+        return timed("deleteSubtask", () -> taskService.deleteSubtask(id));
+    }
+
+    @Override
+    public List<TaskInfo> findByLabel(Set<String> labels) {
+        return sized("findByLabel", timed("findByLabel", () -> taskService.findByLabel(labels)));
+    }
+
+    @Override
+    public List<TaskInfo> findByLabel(Set<String> labels, String fields) {
+        return sized("findByLabel", timed("findByLabel", () -> taskService.findByLabel(labels, fields)));
+    }
+
+    @Override
+    public List<TaskInfo> findByStatus(String status) {
+        return sized("findByStatus", timed("findByStatus", () -> taskService.findByStatus(status)));
+    }
+
+    @Override
+    public List<TaskInfo> findByStatus(String status, String fields) {
+        return sized("findByStatus", timed("findByStatus", () -> taskService.findByStatus(status, fields)));
+    }
+
+    @Override
+    public TaskStatistics countTasks(Instant from, Instant to) {
+        return timed("countTasks", () -> taskService.countTasks(from, to));
+    }
+
+    @Override
+    public TaskPage search(String query, Set<String> labels, String status, String cursor, int limit) {
+        return timed("search", () -> taskService.search(query, labels, status, cursor, limit));
+    }
+
+    @Override
+    public Optional<TaskVersionSummary> findVersion(String id) {
+        return timed("findVersion", () -> taskService.findVersion(id));
+    }
+
+    @Override
+    public TaskVersionSummary summarizePage(String cursor, int limit) {
+        return timed("summarizePage", () -> taskService.summarizePage(cursor, limit));
+    }
+
+    @Override
+    public TaskVersionSummary summarizeByLabel(Set<String> labels) {
+        return timed("summarizeByLabel", () -> taskService.summarizeByLabel(labels));
+    }
+
+    @Override
+    public TaskVersionSummary summarizeByStatus(String status) {
+        return timed("summarizeByStatus", () -> taskService.summarizeByStatus(status));
+    }
+
+    @Override
+    public TaskInfo markInProgress(String id) {
+        return timed("markInProgress", () -> taskService.markInProgress(id));
+    }
+
+    @Override
+    public TaskInfo markInProgress(String id, Long expectedVersion) {
+        return timed("markInProgress", () -> taskService.markInProgress(id, expectedVersion));
+    }
+
+    @Override
+    public TaskInfo markComplete(String id) {
+        return timed("markComplete", () -> taskService.markComplete(id));
+    }
+
+    @Override
+    public TaskInfo markComplete(String id, Long expectedVersion) {
+        return timed("markComplete", () -> taskService.markComplete(id, expectedVersion));
+    }
+
+    @Override
+    public BulkStatusResponse markAllInProgress(BulkStatusRequest request) {
+        BulkStatusResponse response = timed("markAllInProgress", () -> taskService.markAllInProgress(request));
+        sized("markAllInProgress", response.results());
+        return response;
+    }
+
+    @Override
+    public BulkStatusResponse markAllComplete(BulkStatusRequest request) {
+        BulkStatusResponse response = timed("markAllComplete", () -> taskService.markAllComplete(request));
+        sized("markAllComplete", response.results());
+        return response;
+    }
+
+    private <T> T timed(String operation, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        String exception = "none";
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            outcome = "error";
+            exception = e.getClass().getSimpleName();
+            if (e instanceof TaskException) {
+                meterRegistry.counter(EXCEPTIONS, "operation", operation, "exception", exception).increment();
+            }
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(TIMER)
+                    .tags("operation", operation, "outcome", outcome, "exception", exception)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    private <T extends List<?>> T sized(String operation, T results) {
+        DistributionSummary.builder(RESULTS)
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(results.size());
+        return results;
+    }
+}
@@ -0,0 +1,23 @@
+package com.chrisrobertsfl.journal.task.service;
+
+import com.chrisrobertsfl.journal.task.model.TaskEvent;
+import com.chrisrobertsfl.journal.task.model.TaskInfo;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+public interface ReactiveTaskService {
+    Flux<TaskInfo> findAll();
+    Mono<TaskInfo> addTask(TaskInfo task);
+    Mono<TaskInfo> updateTask(TaskInfo task);
+    Mono<TaskInfo> deleteTask(String id);
+    Mono<TaskInfo> findById(String id);
+    Flux<TaskInfo> findByLabel(Set<String> labels);
+    Flux<TaskInfo> findByStatus(String status);
+    Mono<TaskInfo> markInProgress(String id);
+    Mono<TaskInfo> markInProgress(String id, Long expectedVersion);
+    Mono<TaskInfo> markComplete(String id);
+    Mono<TaskInfo> markComplete(String id, Long expectedVersion);
+    Flux<TaskEvent> events();
+}
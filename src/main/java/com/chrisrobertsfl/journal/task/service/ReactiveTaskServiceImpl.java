@@ -0,0 +1,100 @@
+package com.chrisrobertsfl.journal.task.service;
+
+import com.chrisrobertsfl.journal.task.model.MissingTaskException;
+import com.chrisrobertsfl.journal.task.model.ReactiveTaskAggregateRoot;
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.model.TaskEvent;
+import com.chrisrobertsfl.journal.task.model.TaskInfo;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+import static com.chrisrobertsfl.journal.task.model.Status.valueOf;
+
+public class ReactiveTaskServiceImpl implements ReactiveTaskService {
+    private final ReactiveTaskAggregateRoot taskAggregateRoot;
+
+    public ReactiveTaskServiceImpl(ReactiveTaskAggregateRoot taskAggregateRoot) {
+        this.taskAggregateRoot = taskAggregateRoot;
+    }
+
+    @Override
+    public Flux<TaskInfo> findAll() {
+        return taskAggregateRoot.findAll()
+                .map(TaskInfo::fromTask);
+    }
+
+    @Override
+    public Mono<TaskInfo> addTask(TaskInfo taskInfo) {
+        return Mono.justOrEmpty(taskInfo)
+                .map(TaskInfo::toTask)
+                .switchIfEmpty(Mono.error(() -> new MissingTaskException("Task ID cannot be null")))
+                .flatMap(taskAggregateRoot::addTask)
+                .map(Task::toTaskInfo);
+    }
+
+    @Override
+    public Mono<TaskInfo> updateTask(TaskInfo task) {
+        return Mono.justOrEmpty(task)
+                .map(TaskInfo::toTask)
+                .switchIfEmpty(Mono.error(() -> new MissingTaskException("Task is missing")))
+                .flatMap(taskAggregateRoot::updateTask)
+                .map(Task::toTaskInfo);
+    }
+
+    @Override
+    public Mono<TaskInfo> deleteTask(String id) {
+        return Mono.justOrEmpty(id)
+                .switchIfEmpty(Mono.error(() -> new MissingTaskException("Task ID cannot be null")))
+                .flatMap(taskAggregateRoot::deleteTask)
+                .map(Task::toTaskInfo);
+    }
+
+    @Override
+    public Mono<TaskInfo> findById(String id) {
+        return taskAggregateRoot.findById(id)
+                .map(TaskInfo::fromTask);
+    }
+
+    @Override
+    public Flux<TaskInfo> findByLabel(Set<String> labels) {
+        return taskAggregateRoot.findByLabel(labels)
+                .map(TaskInfo::fromTask);
+    }
+
+    @Override
+    public Flux<TaskInfo> findByStatus(String status) {
+        return Flux.defer(() -> taskAggregateRoot.findByStatus(valueOf(status)))
+                .map(TaskInfo::fromTask);
+    }
+
+    @Override
+    public Mono<TaskInfo> markInProgress(String id) {
+        return taskAggregateRoot.markInProgress(id)
+                .map(Task::toTaskInfo);
+    }
+
+    @Override
+    public Mono<TaskInfo> markInProgress(String id, Long expectedVersion) {
+        return taskAggregateRoot.markInProgress(id, expectedVersion)
+                .map(Task::toTaskInfo);
+    }
+
+    @Override
+    public Mono<TaskInfo> markComplete(String id) {
+        return taskAggregateRoot.markComplete(id)
+                .map(Task::toTaskInfo);
+    }
+
+    @Override
+    public Mono<TaskInfo> markComplete(String id, Long expectedVersion) {
+        return taskAggregateRoot.markComplete(id, expectedVersion)
+                .map(Task::toTaskInfo);
+    }
+
+    @Override
+    public Flux<TaskEvent> events() {
+        return taskAggregateRoot.events();
+    }
+}
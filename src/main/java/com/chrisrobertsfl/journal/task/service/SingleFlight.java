@@ -0,0 +1,114 @@
+package com.chrisrobertsfl.journal.task.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static java.util.Objects.isNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Lets concurrent callers asking for the same key share one call to the loader and its result, so a burst of identical
+ * reads costs one query. A result is kept for {@code window} after it completes, zero to share in-flight calls only; a
+ * failure is handed to everyone waiting on it and never kept. {@link #invalidate()} stops later callers joining a call
+ * that started before it, so a read that follows a write never gets a result from before the write.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final boolean enabled;
+    private final long window;
+    private final LongSupplier ticker;
+
+    public SingleFlight(Duration window) {
+        this(true, window, System::nanoTime);
+    }
+
+    SingleFlight(boolean enabled, Duration window, LongSupplier ticker) {
+        this.enabled = enabled;
+        this.window = window.toNanos();
+        this.ticker = ticker;
+    }
+
+    public static <K, V> SingleFlight<K, V> disabled() {
+        return new SingleFlight<>(false, Duration.ZERO, System::nanoTime);
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Flight<V> own = new Flight<>(generation.get());
+        Flight<V> flight = flights.compute(key, (k, current) ->
+                isNull(current) || current.isStale(own.generation, ticker.getAsLong(), window) ? own : current);
+        return flight == own ? load(key, own, loader) : flight.join();
+    }
+
+    public void invalidate() {
+        if (enabled) {
+            generation.incrementAndGet();
+            flights.clear();
+        }
+    }
+
+    private V load(K key, Flight<V> own, Supplier<V> loader) {
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, own);
+            own.fail(e);
+            throw e;
+        }
+        own.complete(value, ticker.getAsLong());
+        if (window == 0) {
+            flights.remove(key, own);
+        } else {
+            CompletableFuture.delayedExecutor(window, NANOSECONDS).execute(() -> flights.remove(key, own));
+        }
+        return value;
+    }
+
+    private static final class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private final long generation;
+        private volatile long completedAt;
+
+        private Flight(long generation) {
+            this.generation = generation;
+        }
+
+        // Written before the result, so a completed flight always has its time
+        private void complete(V value, long now) {
+            completedAt = now;
+            result.complete(value);
+        }
+
+        private void fail(Throwable failure) {
+            result.completeExceptionally(failure);
+        }
+
+        private boolean isStale(long generation, long now, long window) {
+            return this.generation < generation || (result.isDone() && now - completedAt >= window);
+        }
+
+        private V join() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
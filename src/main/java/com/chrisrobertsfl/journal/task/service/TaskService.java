@@ -1,20 +1,50 @@
 package com.chrisrobertsfl.journal.task.service;
 
+import com.chrisrobertsfl.journal.task.model.BulkStatusRequest;
+import com.chrisrobertsfl.journal.task.model.BulkStatusResponse;
+import com.chrisrobertsfl.journal.task.model.BulkTaskResponse;
 import com.chrisrobertsfl.journal.task.model.TaskInfo;
+import com.chrisrobertsfl.journal.task.model.TaskPage;
+import com.chrisrobertsfl.journal.task.model.TaskStatistics;
+import com.chrisrobertsfl.journal.task.model.TaskVersionSummary;
 
+import java.time.Instant;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 public interface TaskService {
     List<TaskInfo> findAll();
+    TaskPage findPage(String cursor, int limit);
+    TaskPage findPage(String cursor, int limit, String fields);
+    Stream<TaskInfo> streamAll();
     TaskInfo addTask(TaskInfo task);
+    BulkTaskResponse addTasks(Iterator<TaskInfo> tasks);
     TaskInfo updateTask(TaskInfo task);
     TaskInfo deleteTask(String id);
     Optional<TaskInfo> findById(String id);
+    Optional<TaskInfo> findTree(String id, int depth);
+    TaskPage findSubtasks(String parentId, String cursor, int limit);
+    TaskInfo addSubtask(String parentId, TaskInfo subtask);
+    TaskInfo updateSubtask(TaskInfo subtask);
+    TaskInfo deleteSubtask(String id);
     List<TaskInfo> findByLabel(Set<String> labels);
+    List<TaskInfo> findByLabel(Set<String> labels, String fields);
     List<TaskInfo> findByStatus(String status);
+    List<TaskInfo> findByStatus(String status, String fields);
+    TaskStatistics countTasks(Instant from, Instant to);
+    TaskPage search(String query, Set<String> labels, String status, String cursor, int limit);
+    Optional<TaskVersionSummary> findVersion(String id);
+    TaskVersionSummary summarizePage(String cursor, int limit);
+    TaskVersionSummary summarizeByLabel(Set<String> labels);
+    TaskVersionSummary summarizeByStatus(String status);
     TaskInfo markInProgress(String id);
+    TaskInfo markInProgress(String id, Long expectedVersion);
     TaskInfo markComplete(String id);
+    TaskInfo markComplete(String id, Long expectedVersion);
+    BulkStatusResponse markAllInProgress(BulkStatusRequest request);
+    BulkStatusResponse markAllComplete(BulkStatusRequest request);
 }
 
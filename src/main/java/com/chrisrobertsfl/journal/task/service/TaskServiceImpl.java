@@ -1,29 +1,82 @@
 package com.chrisrobertsfl.journal.task.service;
 
+import com.chrisrobertsfl.journal.task.model.BulkStatusRequest;
+import com.chrisrobertsfl.journal.task.model.BulkStatusResponse;
+import com.chrisrobertsfl.journal.task.model.BulkStatusResult;
+import com.chrisrobertsfl.journal.task.model.BulkTaskResponse;
+import com.chrisrobertsfl.journal.task.model.BulkTaskResult;
+import com.chrisrobertsfl.journal.task.model.InvalidCursorException;
+import com.chrisrobertsfl.journal.task.model.InvalidTaskQueryException;
 import com.chrisrobertsfl.journal.task.model.MissingTaskException;
+import com.chrisrobertsfl.journal.task.model.Status;
+import com.chrisrobertsfl.journal.task.model.Subtask;
 import com.chrisrobertsfl.journal.task.model.Task;
 import com.chrisrobertsfl.journal.task.model.TaskAggregateRoot;
+import com.chrisrobertsfl.journal.task.model.TaskFields;
 import com.chrisrobertsfl.journal.task.model.TaskInfo;
+import com.chrisrobertsfl.journal.task.model.TaskPage;
+import com.chrisrobertsfl.journal.task.model.TaskStatistics;
+import com.chrisrobertsfl.journal.task.model.TaskVersionSummary;
+import com.chrisrobertsfl.journal.task.repository.TaskResponseCache;
 import jakarta.annotation.Resource;
-import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import static com.chrisrobertsfl.journal.task.model.Status.COMPLETED;
+import static com.chrisrobertsfl.journal.task.model.Status.IN_PROGRESS;
 import static com.chrisrobertsfl.journal.task.model.Status.valueOf;
+import static com.chrisrobertsfl.journal.task.model.TaskCursor.decode;
+import static com.chrisrobertsfl.journal.task.model.TaskCursor.encode;
+import static java.lang.String.format;
+import static java.util.Comparator.comparingInt;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
 
-
-@Service
 public class TaskServiceImpl implements TaskService {
+    static final int DEFAULT_BULK_BATCH_SIZE = 1000;
 
     @Resource(name = "taskAggregateRoot")
     TaskAggregateRoot taskAggregateRoot;
+    private final int bulkBatchSize;
+    private final SingleFlight<String, Optional<TaskInfo>> byId;
+    private final SingleFlight<Read, List<TaskInfo>> byQuery;
 
     public TaskServiceImpl(TaskAggregateRoot taskAggregateRoot) {
+        this(taskAggregateRoot, DEFAULT_BULK_BATCH_SIZE);
+    }
+
+    public TaskServiceImpl(TaskAggregateRoot taskAggregateRoot, int bulkBatchSize) {
+        this(taskAggregateRoot, bulkBatchSize, SingleFlight.disabled(), SingleFlight.disabled());
+    }
+
+    // Concurrent identical reads by id, status or label share one call, and its result for the window after it completes;
+    // a write through either aggregate root ends the sharing before the response cache's stamp moves past it
+    public TaskServiceImpl(TaskAggregateRoot taskAggregateRoot, int bulkBatchSize, Duration singleFlightWindow,
+                           TaskResponseCache taskResponseCache) {
+        this(taskAggregateRoot, bulkBatchSize, new SingleFlight<>(singleFlightWindow), new SingleFlight<>(singleFlightWindow));
+        taskResponseCache.onWrite(() -> {
+            byId.invalidate();
+            byQuery.invalidate();
+        });
+    }
+
+    private TaskServiceImpl(TaskAggregateRoot taskAggregateRoot, int bulkBatchSize,
+                            SingleFlight<String, Optional<TaskInfo>> byId, SingleFlight<Read, List<TaskInfo>> byQuery) {
         this.taskAggregateRoot = taskAggregateRoot;
+        this.bulkBatchSize = bulkBatchSize;
+        this.byId = byId;
+        this.byQuery = byQuery;
     }
 
     @Override
@@ -33,6 +86,34 @@ public class TaskServiceImpl implements TaskService {
                 .collect(toList());
     }
 
+    @Override
+    public TaskPage findPage(String cursor, int limit) {
+        return toPage(taskAggregateRoot.findPage(decode(cursor), limit + 1), limit, TaskInfo::fromTask);
+    }
+
+    @Override
+    public TaskPage findPage(String cursor, int limit, String fields) {
+        Set<String> projection = TaskFields.parse(fields);
+        return projection.isEmpty()
+                ? findPage(cursor, limit)
+                : toPage(taskAggregateRoot.findPage(decode(cursor), limit + 1, projection), limit, TaskInfo::fromProjectedTask);
+    }
+
+    private static TaskPage toPage(List<Task> found, int limit, Function<Task, TaskInfo> toTaskInfo) {
+        List<TaskInfo> tasks = found.stream()
+                .limit(limit)
+                .map(toTaskInfo)
+                .collect(toList());
+        String nextCursor = found.size() > limit ? encode(tasks.get(tasks.size() - 1).id()) : null;
+        return new TaskPage(tasks, nextCursor);
+    }
+
+    @Override
+    public Stream<TaskInfo> streamAll() {
+        return taskAggregateRoot.streamAll()
+                .map(TaskInfo::fromTask);
+    }
+
     @Override
     public TaskInfo addTask(TaskInfo taskInfo) {
         Task task = ofNullable(taskInfo)
@@ -41,6 +122,58 @@ public class TaskServiceImpl implements TaskService {
         return taskAggregateRoot.addTask(task).toTaskInfo();
     }
 
+    @Override
+    public BulkTaskResponse addTasks(Iterator<TaskInfo> tasks) {
+        return insertAll(tasks);
+    }
+
+    private BulkTaskResponse insertAll(Iterator<TaskInfo> tasks) {
+        List<BulkTaskResult> results = new ArrayList<>();
+        List<Task> batch = new ArrayList<>(bulkBatchSize);
+        List<Integer> positions = new ArrayList<>(bulkBatchSize);
+        for (int index = 0; ; index++) {
+            try {
+                if (!tasks.hasNext()) {
+                    break;
+                }
+            } catch (RuntimeException e) {
+                results.add(BulkTaskResult.failure(index, e.getMessage()));
+                break;
+            }
+            try {
+                TaskInfo taskInfo = tasks.next();
+                batch.add(isNull(taskInfo) ? null : taskInfo.toTask());
+                positions.add(index);
+            } catch (RuntimeException e) {
+                results.add(BulkTaskResult.failure(index, e.getMessage()));
+            }
+            if (batch.size() == bulkBatchSize) {
+                results.addAll(insertBatch(batch, positions));
+                batch.clear();
+                positions.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            results.addAll(insertBatch(batch, positions));
+        }
+        results.sort(comparingInt(BulkTaskResult::index));
+        return BulkTaskResponse.success(results);
+    }
+
+    private List<BulkTaskResult> insertBatch(List<Task> batch, List<Integer> positions) {
+        List<BulkTaskResult> results = new ArrayList<>(batch.size());
+        try {
+            for (BulkTaskResult result : taskAggregateRoot.addTasks(batch)) {
+                results.add(new BulkTaskResult(positions.get(result.index()), result.id(), result.error()));
+            }
+        } catch (RuntimeException e) {
+            for (Integer position : positions) {
+                results.add(BulkTaskResult.failure(position, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
     @Override
     public TaskInfo updateTask(TaskInfo task) {
         return taskAggregateRoot.updateTask(task.toTask()).toTaskInfo();
@@ -48,40 +181,213 @@ public class TaskServiceImpl implements TaskService {
 
     @Override
     public TaskInfo deleteTask(String id) {
-        return taskAggregateRoot.deleteTask(ofNullable(id)
-                        .orElseThrow(() -> new MissingTaskException("Task ID cannot be null")))
-                .toTaskInfo();
+        String taskId = ofNullable(id)
+                .orElseThrow(() -> new MissingTaskException("Task ID cannot be null"));
+        return taskAggregateRoot.deleteTask(taskId).toTaskInfo();
     }
 
     @Override
     public Optional<TaskInfo> findById(String id) {
-        return taskAggregateRoot.findById(id)
+        return isNull(id)
+                ? taskAggregateRoot.findById(id).map(TaskInfo::fromTask)
+                : byId.get(id, () -> taskAggregateRoot.findById(id).map(TaskInfo::fromTask));
+    }
+
+    @Override
+    public Optional<TaskInfo> findTree(String id, int depth) {
+        return taskAggregateRoot.findTree(id, depth)
                 .map(TaskInfo::fromTask);
     }
 
+    @Override
+    public TaskPage findSubtasks(String parentId, String cursor, int limit) {
+        List<Subtask> found = taskAggregateRoot.findSubtasks(parentId, subtaskPosition(cursor), limit + 1);
+        // Children are listed without their own subtasks, which stay to be loaded on demand
+        List<TaskInfo> subtasks = found.stream()
+                .limit(limit)
+                .map(Subtask::toTask)
+                .map(TaskInfo::fromProjectedTask)
+                .collect(toList());
+        String nextCursor = found.size() > limit ? encode(String.valueOf(found.get(limit - 1).position())) : null;
+        return new TaskPage(subtasks, nextCursor);
+    }
+
+    private static long subtaskPosition(String cursor) {
+        String position = decode(cursor);
+        try {
+            return isNull(position) ? 0 : Long.parseUnsignedLong(position);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException(format("Invalid cursor: %s", cursor));
+        }
+    }
+
+    @Override
+    public TaskInfo addSubtask(String parentId, TaskInfo subtask) {
+        Task task = ofNullable(subtask)
+                .map(TaskInfo::toTask)
+                .orElseThrow(() -> new MissingTaskException("Subtask is missing"));
+        return taskAggregateRoot.addSubtask(parentId, task).toTaskInfo();
+    }
+
+    @Override
+    public TaskInfo updateSubtask(TaskInfo subtask) {
+        Task task = ofNullable(subtask)
+                .map(TaskInfo::toTask)
+                .orElseThrow(() -> new MissingTaskException("Subtask is missing"));
+        return TaskInfo.fromProjectedTask(taskAggregateRoot.updateSubtask(task));
+    }
+
+    @Override
+    public TaskInfo deleteSubtask(String id) {
+        String subtaskId = ofNullable(id)
+                .orElseThrow(() -> new MissingTaskException("Subtask ID cannot be null"));
+        return TaskInfo.fromProjectedTask(taskAggregateRoot.deleteSubtask(subtaskId));
+    }
+
     @Override
     public List<TaskInfo> findByLabel(Set<String> labels) {
-        return taskAggregateRoot.findByLabel(labels).stream()
+        return findByLabel(labels, null);
+    }
+
+    @Override
+    public List<TaskInfo> findByLabel(Set<String> labels, String fields) {
+        Set<String> projection = TaskFields.parse(fields);
+        Supplier<List<TaskInfo>> find = projection.isEmpty()
+                ? () -> taskAggregateRoot.findByLabel(labels).stream()
                 .map(TaskInfo::fromTask)
-                .collect(toList());
+                .toList()
+                : () -> taskAggregateRoot.findByLabel(labels, projection).stream()
+                .map(TaskInfo::fromProjectedTask)
+                .toList();
+        return isNull(labels) ? find.get() : byQuery.get(new Read(Set.copyOf(labels), projection), find);
     }
 
     @Override
     public List<TaskInfo> findByStatus(String status) {
-        return taskAggregateRoot.findByStatus(valueOf(status)).stream()
+        return findByStatus(status, null);
+    }
+
+    @Override
+    public List<TaskInfo> findByStatus(String status, String fields) {
+        Status byStatus = valueOf(status);
+        Set<String> projection = TaskFields.parse(fields);
+        return byQuery.get(new Read(byStatus, projection), projection.isEmpty()
+                ? () -> taskAggregateRoot.findByStatus(byStatus).stream()
+                .map(TaskInfo::fromTask)
+                .toList()
+                : () -> taskAggregateRoot.findByStatus(byStatus, projection).stream()
+                .map(TaskInfo::fromProjectedTask)
+                .toList());
+    }
+
+    @Override
+    public TaskStatistics countTasks(Instant from, Instant to) {
+        if (nonNull(from) && nonNull(to) && from.isAfter(to)) {
+            throw new InvalidTaskQueryException(format("Range start %s is after range end %s", from, to));
+        }
+        return taskAggregateRoot.countTasks(from, to);
+    }
+
+    @Override
+    public TaskPage search(String query, Set<String> labels, String status, String cursor, int limit) {
+        if (isNull(query) || query.isBlank()) {
+            throw new InvalidTaskQueryException("Search text is required");
+        }
+        int offset = searchOffset(cursor);
+        List<Task> found = taskAggregateRoot.search(query, labels, isNull(status) ? null : valueOf(status), offset, limit + 1);
+        List<TaskInfo> tasks = found.stream()
+                .limit(limit)
                 .map(TaskInfo::fromTask)
                 .collect(toList());
+        // Results are ranked by relevance rather than id, so the cursor carries the offset of the next page
+        String nextCursor = found.size() > limit ? encode(String.valueOf(offset + limit)) : null;
+        return new TaskPage(tasks, nextCursor);
+    }
+
+    private static int searchOffset(String cursor) {
+        String offset = decode(cursor);
+        try {
+            return isNull(offset) ? 0 : Integer.parseUnsignedInt(offset);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException(format("Invalid cursor: %s", cursor));
+        }
+    }
+
+    @Override
+    public Optional<TaskVersionSummary> findVersion(String id) {
+        return taskAggregateRoot.findVersion(id);
+    }
+
+    @Override
+    public TaskVersionSummary summarizePage(String cursor, int limit) {
+        return taskAggregateRoot.summarizePage(decode(cursor), limit);
+    }
+
+    @Override
+    public TaskVersionSummary summarizeByLabel(Set<String> labels) {
+        return taskAggregateRoot.summarizeByLabel(labels);
+    }
+
+    @Override
+    public TaskVersionSummary summarizeByStatus(String status) {
+        return taskAggregateRoot.summarizeByStatus(valueOf(status));
     }
 
     @Override
     public TaskInfo markInProgress(String id) {
-        return taskAggregateRoot.markInProgress(id)
-                .toTaskInfo();
+        return taskAggregateRoot.markInProgress(id).toTaskInfo();
+    }
+
+    @Override
+    public TaskInfo markInProgress(String id, Long expectedVersion) {
+        return taskAggregateRoot.markInProgress(id, expectedVersion).toTaskInfo();
     }
 
     @Override
     public TaskInfo markComplete(String id) {
-        return taskAggregateRoot.markComplete(id)
-                .toTaskInfo();
+        return taskAggregateRoot.markComplete(id).toTaskInfo();
+    }
+
+    @Override
+    public TaskInfo markComplete(String id, Long expectedVersion) {
+        return taskAggregateRoot.markComplete(id, expectedVersion).toTaskInfo();
+    }
+
+    @Override
+    public BulkStatusResponse markAllInProgress(BulkStatusRequest request) {
+        return changeStatuses(request, IN_PROGRESS);
+    }
+
+    @Override
+    public BulkStatusResponse markAllComplete(BulkStatusRequest request) {
+        return changeStatuses(request, COMPLETED);
+    }
+
+    // Works through the ids, or the tasks matching the filter, a bulk batch at a time
+    private BulkStatusResponse changeStatuses(BulkStatusRequest request, Status status) {
+        if (isNull(request) || request.hasIds() == request.hasFilter()) {
+            throw new InvalidTaskQueryException("Give either task ids or a label/status filter");
+        }
+        List<BulkStatusResult> results = new ArrayList<>();
+        if (request.hasIds()) {
+            List<String> ids = request.ids().stream().distinct().toList();
+            for (int from = 0; from < ids.size(); from += bulkBatchSize) {
+                results.addAll(taskAggregateRoot.changeStatuses(ids.subList(from, Math.min(from + bulkBatchSize, ids.size())), status));
+            }
+        } else {
+            Status from = isNull(request.status()) ? null : valueOf(request.status());
+            List<BulkStatusResult> page;
+            String afterId = null;
+            do {
+                page = taskAggregateRoot.changeStatuses(request.labels(), from, status, afterId, bulkBatchSize);
+                results.addAll(page);
+                afterId = page.isEmpty() ? null : page.get(page.size() - 1).id();
+            } while (page.size() == bulkBatchSize);
+        }
+        return BulkStatusResponse.success(results);
+    }
+
+    // A status or set of labels with the fields projected, as the key reads are shared under
+    private record Read(Object criteria, Set<String> fields) {
     }
-}
\ No newline at end of file
+}
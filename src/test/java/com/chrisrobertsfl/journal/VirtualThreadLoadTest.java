@@ -0,0 +1,94 @@
+package com.chrisrobertsfl.journal;
+
+import com.chrisrobertsfl.journal.task.model.TaskInfo;
+import com.chrisrobertsfl.journal.task.service.TaskService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@EnabledIfSystemProperty(named = "journal.load-tests", matches = "true")
+@DisplayName("Given a burst of slow requests")
+class VirtualThreadLoadTest {
+    static final int REQUESTS = 1000;
+    static final int MAX_THREADS = 50;
+    static final Duration LATENCY = Duration.ofMillis(100);
+    static final AtomicInteger inFlight = new AtomicInteger();
+    static final AtomicInteger peak = new AtomicInteger();
+
+    record Result(int peakConcurrency, Duration elapsed) {
+    }
+
+    @Test
+    @DisplayName("virtual threads raise the concurrency ceiling above the Tomcat pool size")
+    void virtualThreadsRaiseConcurrencyCeiling() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+        Duration pooled = LATENCY.multipliedBy(REQUESTS / MAX_THREADS);
+        assertAll(
+                () -> assertTrue(platform.peakConcurrency() <= MAX_THREADS, "Platform threads should be capped by the pool"),
+                () -> assertTrue(virtual.peakConcurrency() > MAX_THREADS, "Virtual threads should not be capped by the pool"),
+                () -> assertTrue(platform.elapsed().compareTo(pooled) >= 0, "Platform threads should take a pool's worth of rounds"),
+                () -> assertTrue(virtual.elapsed().compareTo(platform.elapsed()) < 0, "Virtual threads should finish the burst sooner")
+        );
+    }
+
+    Result run(boolean virtualThreads) throws Exception {
+        inFlight.set(0);
+        peak.set(0);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(JournalApplication.class, SlowTaskService.class)
+                .run("--server.port=0",
+                        "--server.tomcat.threads.max=" + MAX_THREADS,
+                        "--spring.main.allow-bean-definition-overriding=true",
+                        "--journal.virtual-threads.enabled=" + virtualThreads)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/api/tasks/1");
+            HttpClient client = HttpClient.newHttpClient();
+            long start = System.nanoTime();
+            List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(REQUESTS);
+            for (int i = 0; i < REQUESTS; i++) {
+                responses.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding()));
+            }
+            for (CompletableFuture<HttpResponse<Void>> response : responses) {
+                assertEquals(200, response.get().statusCode(), "Incorrect status code");
+            }
+            return new Result(peak.get(), Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    static class SlowTaskService {
+        @Bean(name = "taskService")
+        TaskService taskService() {
+            TaskService taskService = mock(TaskService.class);
+            when(taskService.findById(anyString())).thenAnswer(invocation -> {
+                peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(LATENCY);
+                    return Optional.of(new TaskInfo(invocation.getArgument(0), "Task", null, null, null, null, null, null));
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+            return taskService;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.chrisrobertsfl.journal.task.controller;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static com.chrisrobertsfl.journal.task.controller.PayloadSizeFilter.PAYLOAD_BYTES;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Given Payload Size Filter")
+class PayloadSizeFilterTest {
+    SimpleMeterRegistry meterRegistry;
+    PayloadSizeFilter filter;
+
+    @BeforeEach
+    void createFilter() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new PayloadSizeFilter(meterRegistry);
+    }
+
+    @Test
+    @DisplayName("records the bytes written to the response by route")
+    void recordsBytesWritten() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/tasks/{id}");
+            res.getOutputStream().write("{\"task\":{}}".getBytes(UTF_8));
+            res.getWriter().write("\n");
+        });
+        DistributionSummary summary = meterRegistry.get(PAYLOAD_BYTES).tags("uri", "/api/tasks/{id}", "method", "GET", "status", "200").summary();
+        assertAll(
+                () -> assertEquals(1, summary.count(), "Incorrect count"),
+                () -> assertEquals(12, summary.totalAmount(), "Incorrect bytes"),
+                () -> assertEquals("{\"task\":{}}\n", response.getContentAsString(), "Response should pass through unchanged")
+        );
+    }
+
+    @Test
+    @DisplayName("ignores requests outside the API")
+    void ignoresNonApiRequests() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/prometheus"), new MockHttpServletResponse(),
+                (req, res) -> res.getOutputStream().write(1));
+        assertNull(meterRegistry.find(PAYLOAD_BYTES).summary(), "Non-API requests should not be recorded");
+    }
+}
@@ -0,0 +1,107 @@
+package com.chrisrobertsfl.journal.task.controller;
+
+import com.chrisrobertsfl.journal.task.model.MissingTaskException;
+import com.chrisrobertsfl.journal.task.model.TaskEvent;
+import com.chrisrobertsfl.journal.task.model.TaskInfo;
+import com.chrisrobertsfl.journal.task.model.TaskNotFoundException;
+import com.chrisrobertsfl.journal.task.model.TaskVersionConflictException;
+import com.chrisrobertsfl.journal.task.service.ReactiveTaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static com.chrisrobertsfl.journal.task.model.TaskEvent.Type.STATUS_CHANGED;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Given Reactive Task Controller")
+class ReactiveTaskControllerTest {
+    @Mock
+    ReactiveTaskService taskService;
+    ReactiveTaskController taskController;
+    TaskInfo task = new TaskInfo("1", "Task 1", "Description 1", Instant.now(), HIGH, PENDING, null, null, 0L);
+
+    @BeforeEach
+    void createController() {
+        taskController = new ReactiveTaskController(taskService, Duration.ofHours(1));
+    }
+
+    @Test
+    @DisplayName("should stream all tasks")
+    void testFindAll() {
+        when(taskService.findAll()).thenReturn(Flux.just(task));
+        StepVerifier.create(taskController.findAll())
+                .expectNext(task)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should return 201 when a task is added")
+    void testAddTask() {
+        when(taskService.addTask(task)).thenReturn(Mono.just(task));
+        StepVerifier.create(taskController.addTask(task))
+                .assertNext(response -> assertAll(
+                        () -> assertEquals(201, response.getStatusCode().value(), "Incorrect status code"),
+                        () -> assertEquals(task, response.getBody().task(), "Incorrect task")))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should return 404 when a task is not found")
+    void testFindById_notFound() {
+        when(taskService.findById("1")).thenReturn(Mono.empty());
+        StepVerifier.create(taskController.findById("1"))
+                .assertNext(response -> assertAll(
+                        () -> assertEquals(404, response.getStatusCode().value(), "Incorrect status code"),
+                        () -> assertEquals("No Task found for id 1", response.getBody().error(), "Incorrect error")))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should map task errors to status codes")
+    void testErrorResponse() {
+        assertAll(
+                () -> assertEquals(404, ReactiveTaskController.errorResponse(new TaskNotFoundException("x")).getStatusCode().value(), "Incorrect status for not found"),
+                () -> assertEquals(409, ReactiveTaskController.errorResponse(new TaskVersionConflictException("x")).getStatusCode().value(), "Incorrect status for conflict"),
+                () -> assertEquals(400, ReactiveTaskController.errorResponse(new MissingTaskException("x")).getStatusCode().value(), "Incorrect status for missing task"),
+                () -> assertEquals(500, ReactiveTaskController.errorResponse(new IllegalStateException("x")).getStatusCode().value(), "Incorrect status for other errors")
+        );
+    }
+
+    @Test
+    @DisplayName("should return 409 when marking a stale version complete")
+    void testMarkComplete_conflict() {
+        when(taskService.markComplete("1", 2L)).thenReturn(Mono.error(new TaskVersionConflictException("Task with ID '1' is no longer at version 2")));
+        StepVerifier.create(taskController.markComplete("1", 2L))
+                .assertNext(response -> assertEquals(409, response.getStatusCode().value(), "Incorrect status code"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should name each server-sent event after its type alongside a heartbeat")
+    void testEvents() {
+        when(taskService.events()).thenReturn(Flux.just(new TaskEvent(STATUS_CHANGED, task)));
+        StepVerifier.create(taskController.events())
+                .recordWith(ArrayList::new)
+                .expectNextCount(2)
+                .consumeRecordedWith(events -> assertAll(
+                        () -> assertTrue(events.stream().anyMatch(event -> "heartbeat".equals(event.comment())), "Missing heartbeat"),
+                        () -> assertTrue(events.stream().anyMatch(event -> "STATUS_CHANGED".equals(event.event()) && task.equals(event.data())),
+                                "Missing status change")))
+                .thenCancel()
+                .verify();
+    }
+}
@@ -0,0 +1,71 @@
+package com.chrisrobertsfl.journal.task.controller;
+
+import com.chrisrobertsfl.journal.task.model.TaskInfo;
+import com.chrisrobertsfl.journal.task.model.TaskListResponse;
+import com.chrisrobertsfl.journal.task.model.TaskResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Priority.LOW;
+import static com.chrisrobertsfl.journal.task.model.Status.COMPLETED;
+import static com.chrisrobertsfl.journal.task.model.Status.IN_PROGRESS;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Given Task CBOR Converter")
+class TaskCborConverterTest {
+    static final Instant CREATED_AT = Instant.parse("2023-01-01T10:15:30.123Z");
+
+    CBORMapper mapper = TaskCborConverter.mapper();
+    TaskInfo task = new TaskInfo("1", "Task 1", "Description", CREATED_AT, HIGH, IN_PROGRESS, Set.of("work"),
+            List.of(new TaskInfo("1.1", "Subtask", null, CREATED_AT, LOW, COMPLETED, Set.of(), List.of(), 2L)), 3L, CREATED_AT.plusSeconds(60));
+
+    @Test
+    @DisplayName("writes enums as ordinals and timestamps as epoch milliseconds")
+    void writesCompactValues() throws Exception {
+        JsonNode encoded = new CBORMapper().readTree(mapper.writeValueAsBytes(TaskResponse.success(task))).get("task");
+        assertAll(
+                () -> assertTrue(encoded.get("status").isInt(), "Status should be a number"),
+                () -> assertEquals(IN_PROGRESS.ordinal(), encoded.get("status").intValue(), "Incorrect status"),
+                () -> assertEquals(HIGH.ordinal(), encoded.get("priority").intValue(), "Incorrect priority"),
+                () -> assertTrue(encoded.get("createdAt").isIntegralNumber(), "Created at should be a whole number"),
+                () -> assertEquals(CREATED_AT.toEpochMilli(), encoded.get("createdAt").longValue(), "Incorrect created at"),
+                () -> assertEquals(CREATED_AT.plusSeconds(60).toEpochMilli(), encoded.get("updatedAt").longValue(), "Incorrect updated at")
+        );
+    }
+
+    @Test
+    @DisplayName("reads back what it writes")
+    void roundTrips() throws Exception {
+        TaskListResponse response = new TaskListResponse(List.of(task), "cursor", null);
+        assertEquals(response, mapper.readValue(mapper.writeValueAsBytes(response), TaskListResponse.class), "Incorrect task list");
+    }
+
+    @Test
+    @DisplayName("is smaller than the same response in JSON")
+    void isSmallerThanJson() throws Exception {
+        TaskListResponse response = TaskListResponse.success(List.of(task, task, task));
+        byte[] json = new ObjectMapper().findAndRegisterModules().writeValueAsBytes(response);
+        assertTrue(mapper.writeValueAsBytes(response).length < json.length, "CBOR should be smaller than JSON");
+    }
+
+    @Test
+    @DisplayName("writes application/cbor")
+    void writesCbor() throws Exception {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        new TaskCborConverter().write(TaskResponse.success(task), MediaType.parseMediaType("application/cbor"), message);
+        assertAll(
+                () -> assertEquals(MediaType.parseMediaType("application/cbor"), message.getHeaders().getContentType(), "Incorrect content type"),
+                () -> assertEquals(task, mapper.readValue(message.getBodyAsBytes(), TaskResponse.class).task(), "Incorrect task")
+        );
+    }
+}
@@ -2,6 +2,7 @@ package com.chrisrobertsfl.journal.task.controller;
 
 import com.chrisrobertsfl.journal.task.model.*;
 import com.chrisrobertsfl.journal.task.service.TaskService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -9,14 +10,27 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -24,8 +38,12 @@ import java.util.stream.Stream;
 import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
 import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
 import static com.chrisrobertsfl.journal.task.model.TaskInfo.nullTaskInfo;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.emptySet;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +56,12 @@ class TaskControllerTest {
     @InjectMocks
     TaskController taskController;
 
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/tasks");
+    MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+    WebRequest request = new ServletWebRequest(servletRequest, servletResponse);
+
     @Nested
     @DisplayName("when adding a task")
     class AddTask {
@@ -76,6 +100,58 @@ class TaskControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("when adding tasks in bulk")
+    class AddTasks {
+        List<TaskInfo> read = new ArrayList<>();
+
+        void captureTasks(BulkTaskResponse response) {
+            when(taskService.addTasks(any())).thenAnswer(invocation -> {
+                Iterator<TaskInfo> tasks = invocation.getArgument(0);
+                tasks.forEachRemaining(read::add);
+                return response;
+            });
+        }
+
+        @Test
+        @DisplayName("reads a JSON array of tasks")
+        void readsJsonArray() {
+            TaskController controller = new TaskController(taskService, objectMapper);
+            captureTasks(BulkTaskResponse.success(List.of(BulkTaskResult.success(0, "1"), BulkTaskResult.success(1, "2"))));
+            ResponseEntity<BulkTaskResponse> response = controller.addTasks(body("[{\"name\":\"Task 1\"},{\"name\":\"Task 2\"}]"));
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(201), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals(List.of("Task 1", "Task 2"), read.stream().map(TaskInfo::name).toList(), "Incorrect tasks read"),
+                    () -> assertEquals(2, response.getBody().inserted(), "Incorrect number inserted")
+            );
+        }
+
+        @Test
+        @DisplayName("reads a stream of newline delimited tasks")
+        void readsNdjson() {
+            TaskController controller = new TaskController(taskService, objectMapper);
+            captureTasks(BulkTaskResponse.success(List.of(BulkTaskResult.success(0, "1"), BulkTaskResult.failure(1, "Task name is required"))));
+            ResponseEntity<BulkTaskResponse> response = controller.addTasks(body("{\"name\":\"Task 1\"}\n{\"description\":\"No name\"}\n"));
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(207), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals(2, read.size(), "Incorrect number of tasks read"),
+                    () -> assertEquals(1, response.getBody().failed(), "Incorrect number failed")
+            );
+        }
+
+        @Test
+        @DisplayName("rejects a body that is not JSON")
+        void rejectsBodyThatIsNotJson() {
+            TaskController controller = new TaskController(taskService, objectMapper);
+            ResponseEntity<BulkTaskResponse> response = controller.addTasks(body("not json"));
+            assertEquals(HttpStatusCode.valueOf(400), response.getStatusCode(), "Incorrect status code");
+        }
+
+        InputStream body(String content) {
+            return new ByteArrayInputStream(content.getBytes(UTF_8));
+        }
+    }
+
     @Nested
     @DisplayName("when updating a task")
     class UpdateTask {
@@ -152,14 +228,128 @@ class TaskControllerTest {
                     new TaskInfo("1", "Task 1", "Description", Instant.now(), Priority.HIGH, Status.PENDING, Set.of("label1", "label2"), null),
                     new TaskInfo("2", "Task 2", "Description", Instant.now(), Priority.LOW, Status.IN_PROGRESS, Set.of("label1", "label3"), null)
             );
-            when(taskService.findAll()).thenReturn(tasks);
-            ResponseEntity<TaskListResponse> response = taskController.findAll();
+            when(taskService.findPage(null, 100, null)).thenReturn(new TaskPage(tasks, "Mg"));
+            ResponseEntity<TaskListResponse> response = taskController.findAll(null, 100, null, request);
             assertAll(
                     () -> assertEquals(HttpStatusCode.valueOf(200), response.getStatusCode(), "Incorrect status code"),
                     () -> assertNotNull(response.getBody().tasks(), "Task list should not be null"),
+                    () -> assertEquals(tasks, response.getBody().tasks(), "Incorrect task list returned"),
+                    () -> assertEquals("Mg", response.getBody().nextCursor(), "Incorrect next cursor")
+            );
+        }
+
+        @Test
+        @DisplayName("should return not found when there are no tasks")
+        void returnsNotFoundWhenNoTasks() {
+            when(taskService.findPage(null, 100, null)).thenReturn(new TaskPage(List.of(), null));
+            ResponseEntity<TaskListResponse> response = taskController.findAll(null, 100, null, request);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(404), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals("No tasks found", response.getBody().error(), "Incorrect error message")
+            );
+        }
+
+        @ParameterizedTest(name = "Limit of {0} should be rejected")
+        @ValueSource(ints = {0, -1, 1001})
+        @DisplayName("should reject a limit out of range")
+        void rejectsLimitOutOfRange(int limit) {
+            ResponseEntity<TaskListResponse> response = taskController.findAll(null, limit, null, request);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(400), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals("Limit must be between 1 and 1000", response.getBody().error(), "Incorrect error message")
+            );
+        }
+
+        @Test
+        @DisplayName("should reject an invalid cursor")
+        void rejectsInvalidCursor() {
+            when(taskService.findPage("!!", 100, null)).thenThrow(new InvalidCursorException("Invalid cursor: !!"));
+            ResponseEntity<TaskListResponse> response = taskController.findAll("!!", 100, null, request);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(400), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals("Invalid cursor: !!", response.getBody().error(), "Incorrect error message")
+            );
+        }
+
+        @Test
+        @DisplayName("should pass the requested fields through")
+        void passesFieldsThrough() {
+            List<TaskInfo> tasks = List.of(new TaskInfo("1", "Task 1", null, null, Priority.HIGH, Status.PENDING, null, null));
+            when(taskService.summarizePage(null, 100)).thenReturn(new TaskVersionSummary(1, 0, null));
+            when(taskService.findPage(null, 100, "id,name,status,priority")).thenReturn(new TaskPage(tasks, null));
+            ResponseEntity<TaskListResponse> response = taskController.findAll(null, 100, "id,name,status,priority", request);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(200), response.getStatusCode(), "Incorrect status code"),
                     () -> assertEquals(tasks, response.getBody().tasks(), "Incorrect task list returned")
             );
         }
+
+        @Test
+        @DisplayName("should reject unknown fields")
+        void rejectsUnknownFields() {
+            when(taskService.findByStatus("PENDING", "bogus")).thenThrow(new InvalidFieldsException("Unknown field(s): [bogus]"));
+            ResponseEntity<TaskListResponse> response = taskController.findByStatus("PENDING", "bogus", request);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(400), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals("Unknown field(s): [bogus]", response.getBody().error(), "Incorrect error message")
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("when streaming all tasks")
+    class StreamAllTasks {
+        @Test
+        @DisplayName("should write one task per line")
+        void writesOneTaskPerLine() throws Exception {
+            TaskController controller = new TaskController(taskService, objectMapper);
+            when(taskService.streamAll()).thenReturn(Stream.of(
+                    new TaskInfo("1", "Task 1", null, null, null, null, null, null),
+                    new TaskInfo("2", "Task 2", null, null, null, null, null, null)));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            controller.streamAll(null).getBody().writeTo(out);
+            String[] lines = out.toString(UTF_8).split("\n");
+            assertAll(
+                    () -> assertEquals(2, lines.length, "Incorrect number of lines"),
+                    () -> assertTrue(lines[0].startsWith("{\"id\":\"1\""), "Incorrect first line"),
+                    () -> assertTrue(lines[1].startsWith("{\"id\":\"2\""), "Incorrect second line")
+            );
+        }
+
+        @Test
+        @DisplayName("should write one JSON document when only JSON is accepted")
+        void writesJsonDocument() throws Exception {
+            TaskController controller = new TaskController(taskService, objectMapper);
+            when(taskService.streamAll()).thenReturn(Stream.of(
+                    new TaskInfo("1", "Task 1", null, null, null, null, null, null),
+                    new TaskInfo("2", "Task 2", null, null, null, null, null, null)));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ResponseEntity<StreamingResponseBody> response = controller.streamAll("application/json");
+            response.getBody().writeTo(out);
+            TaskListResponse read = objectMapper.readValue(out.toByteArray(), TaskListResponse.class);
+            assertAll(
+                    () -> assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType(), "Incorrect content type"),
+                    () -> assertEquals(List.of("Task 1", "Task 2"), read.tasks().stream().map(TaskInfo::name).toList(), "Incorrect tasks")
+            );
+        }
+
+        @Test
+        @DisplayName("should keep to one task per line when NDJSON is also accepted")
+        void prefersNdjson() {
+            TaskController controller = new TaskController(taskService, objectMapper);
+            assertEquals(TaskController.APPLICATION_NDJSON, controller.streamAll("application/json, application/x-ndjson").getHeaders().getContentType(),
+                    "Incorrect content type");
+        }
+
+        @Test
+        @DisplayName("should write nothing when there are no tasks")
+        void writesNothingWhenNoTasks() throws Exception {
+            TaskController controller = new TaskController(taskService, objectMapper);
+            when(taskService.streamAll()).thenReturn(Stream.empty());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            controller.streamAll(null).getBody().writeTo(out);
+            assertEquals(0, out.size(), "Expected an empty body");
+        }
     }
 
     @Nested
@@ -171,7 +361,7 @@ class TaskControllerTest {
         void findById() {
             TaskInfo task = new TaskInfo("1", null, null, null, null, null, null, null);
             when(taskService.findById("1")).thenReturn(Optional.of(task));
-            ResponseEntity<TaskResponse> response = taskController.findById("1");
+            ResponseEntity<TaskResponse> response = taskController.findById("1", request);
             assertAll(
                     () -> assertEquals(HttpStatusCode.valueOf(200), response.getStatusCode(), "Incorrect status code")
             );
@@ -181,7 +371,7 @@ class TaskControllerTest {
         @DisplayName("task id is null")
         void findTaskWithIdNull() {
             when(taskService.findById(null)).thenThrow(new MissingTaskException("Task ID cannot be null"));
-            ResponseEntity<TaskResponse> response = taskController.findById(null);
+            ResponseEntity<TaskResponse> response = taskController.findById(null, request);
             assertAll(
                     () -> assertEquals(HttpStatusCode.valueOf(400), response.getStatusCode(), "Incorrect status code"),
                     () -> assertEquals("Task ID cannot be null", response.getBody().error(), "Incorrect error message")
@@ -192,7 +382,7 @@ class TaskControllerTest {
         @DisplayName("task is not found")
         void findTaskWithTaskNotFound() {
             when(taskService.findById("1")).thenThrow(new TaskNotFoundException("Task with ID '1' not found"));
-            ResponseEntity<TaskResponse> response = taskController.findById("1");
+            ResponseEntity<TaskResponse> response = taskController.findById("1", request);
             assertAll(
                     () -> assertEquals(HttpStatusCode.valueOf(400), response.getStatusCode(), "Incorrect status code"),
                     () -> assertEquals("Task with ID '1' not found", response.getBody().error(), "Incorrect error message")
@@ -212,9 +402,9 @@ class TaskControllerTest {
                     new TaskInfo("2", "Task 2", "Description", Instant.now(), HIGH, PENDING, Set.of("label 2"), List.of())
             );
             Set<String> labels = Set.of("label 1", "label 2");
-            when(taskService.findByLabel(labels)).thenReturn(taskList);
-            TaskController taskController = new TaskController(taskService);
-            ResponseEntity<TaskListResponse> response = taskController.findByLabel(labels);
+            when(taskService.findByLabel(labels, null)).thenReturn(taskList);
+            TaskController taskController = new TaskController(taskService, objectMapper);
+            ResponseEntity<TaskListResponse> response = taskController.findByLabel(labels, null, request);
             assertAll(
                     () -> assertEquals(HttpStatusCode.valueOf(200), response.getStatusCode(), "Incorrect status code"),
                     () -> assertEquals(taskList, response.getBody().tasks(), "Incorrect list of tasks")
@@ -225,8 +415,8 @@ class TaskControllerTest {
         @DisplayName("tasks are not found by labels")
         void findByLabelNotFound() {
             Set<String> labels = Set.of("label 1", "label 2");
-            when(taskService.findByLabel(labels)).thenReturn(List.of());
-            ResponseEntity<TaskListResponse> response = taskController.findByLabel(labels);
+            when(taskService.findByLabel(labels, null)).thenReturn(List.of());
+            ResponseEntity<TaskListResponse> response = taskController.findByLabel(labels, null, request);
 
             assertAll(
                     () -> assertEquals(HttpStatusCode.valueOf(404), response.getStatusCode(), "Incorrect status code"),
@@ -237,13 +427,13 @@ class TaskControllerTest {
         @Test
         @DisplayName("labels are null is a bad request")
         void findbyNullLabels() {
-            assertEquals(HttpStatusCode.valueOf(400), taskController.findByLabel(null).getStatusCode(), "Incorrect status code");
+            assertEquals(HttpStatusCode.valueOf(400), taskController.findByLabel(null, null, request).getStatusCode(), "Incorrect status code");
         }
 
         @Test
         @DisplayName("labels are empty is a bad request")
         void findbyEmptyLabels() {
-            assertEquals(HttpStatusCode.valueOf(400), taskController.findByLabel(emptySet()).getStatusCode(), "Incorrect status code");
+            assertEquals(HttpStatusCode.valueOf(400), taskController.findByLabel(emptySet(), null, request).getStatusCode(), "Incorrect status code");
         }
     }
 
@@ -259,11 +449,11 @@ class TaskControllerTest {
                     new TaskInfo("2", "Task 2", "Description", Instant.now(), HIGH, PENDING, Set.of("label 2"), List.of())
             );
             String status = PENDING.toString();
-            when(taskService.findByStatus(status)).thenReturn(taskList);
-            TaskController taskController = new TaskController(taskService);
+            when(taskService.findByStatus(status, null)).thenReturn(taskList);
+            TaskController taskController = new TaskController(taskService, objectMapper);
 
             // act
-            ResponseEntity<TaskListResponse> response = taskController.findByStatus(status);
+            ResponseEntity<TaskListResponse> response = taskController.findByStatus(status, null, request);
 
             // assert
             assertAll(
@@ -277,9 +467,9 @@ class TaskControllerTest {
         void findByStatusNotFound() {
             // arrange
             String status = PENDING.toString();
-            when(taskService.findByStatus(status)).thenReturn(List.of());
+            when(taskService.findByStatus(status, null)).thenReturn(List.of());
             // act
-            ResponseEntity<TaskListResponse> response = taskController.findByStatus(status);
+            ResponseEntity<TaskListResponse> response = taskController.findByStatus(status, null, request);
 
             // assert
             assertAll(
@@ -291,7 +481,7 @@ class TaskControllerTest {
         @Test
         @DisplayName("null or empty status query returns bad request")
         void findByStatusBadRequest() {
-            ResponseEntity<TaskListResponse> response = taskController.findByStatus("");
+            ResponseEntity<TaskListResponse> response = taskController.findByStatus("", null, request);
             assertAll(
                     () -> assertEquals(HttpStatusCode.valueOf(400), response.getStatusCode(), "Incorrect status code"),
                     () -> assertEquals("No status provided", response.getBody().error(), "Incorrect error message")
@@ -299,6 +489,84 @@ class TaskControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("when working with subtasks")
+    class Subtasks {
+        TaskInfo subtask = new TaskInfo("1.1", "Subtask", null, null, null, PENDING, null, null, 0L);
+
+        @ParameterizedTest
+        @ValueSource(ints = {-1, TaskController.MAX_SUBTASK_DEPTH + 1})
+        @DisplayName("should reject a tree depth out of range")
+        void rejectsDepthOutOfRange(int depth) {
+            ResponseEntity<TaskResponse> response = taskController.findTree("1", depth);
+            assertEquals(HttpStatusCode.valueOf(400), response.getStatusCode(), "Incorrect status code");
+            verify(taskService, never()).findTree(any(), any(Integer.class));
+        }
+
+        @Test
+        @DisplayName("should return the tree to the requested depth")
+        void returnsTree() {
+            TaskInfo tree = new TaskInfo("1", "Task 1", null, null, null, PENDING, null, List.of(subtask));
+            when(taskService.findTree("1", 2)).thenReturn(Optional.of(tree));
+            ResponseEntity<TaskResponse> response = taskController.findTree("1", 2);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(200), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals(tree, response.getBody().task(), "Incorrect tree")
+            );
+        }
+
+        @Test
+        @DisplayName("should return a 404 response when there is no such task or subtask")
+        void returns404WhenTreeMissing() {
+            when(taskService.findTree("2", 1)).thenReturn(Optional.empty());
+            assertEquals(HttpStatusCode.valueOf(404), taskController.findTree("2", 1).getStatusCode(), "Incorrect status code");
+        }
+
+        @Test
+        @DisplayName("should return a page of children")
+        void returnsChildren() {
+            TaskPage page = new TaskPage(List.of(subtask), "next");
+            when(taskService.findSubtasks("1", null, 10)).thenReturn(page);
+            ResponseEntity<TaskListResponse> response = taskController.findSubtasks("1", null, 10);
+            assertAll(
+                    () -> assertEquals(List.of(subtask), response.getBody().tasks(), "Incorrect subtasks"),
+                    () -> assertEquals("next", response.getBody().nextCursor(), "Incorrect next cursor")
+            );
+        }
+
+        @Test
+        @DisplayName("should return a 404 response when the parent is missing")
+        void returns404WhenParentMissing() {
+            when(taskService.findSubtasks("2", null, 10)).thenThrow(new TaskNotFoundException("No Task found for id 2"));
+            assertEquals(HttpStatusCode.valueOf(404), taskController.findSubtasks("2", null, 10).getStatusCode(), "Incorrect status code");
+        }
+
+        @Test
+        @DisplayName("should add a subtask under its parent")
+        void addsSubtask() {
+            when(taskService.addSubtask("1", subtask)).thenReturn(subtask);
+            ResponseEntity<TaskResponse> response = taskController.addSubtask("1", subtask);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(201), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals(subtask, response.getBody().task(), "Incorrect subtask")
+            );
+        }
+
+        @Test
+        @DisplayName("should return a 409 response when the subtask is no longer at the expected version")
+        void returns409WhenSubtaskVersionConflicts() {
+            when(taskService.updateSubtask(subtask)).thenThrow(new TaskVersionConflictException("Task with ID '1.1' is no longer at version 0"));
+            assertEquals(HttpStatusCode.valueOf(409), taskController.updateSubtask(subtask).getStatusCode(), "Incorrect status code");
+        }
+
+        @Test
+        @DisplayName("should return a 400 response when subtasks are embedded")
+        void returns400WhenEmbedded() {
+            when(taskService.deleteSubtask("1.1")).thenThrow(new InvalidTaskQueryException("Subtasks are embedded in their task with this storage engine"));
+            assertEquals(HttpStatusCode.valueOf(400), taskController.deleteSubtask("1.1").getStatusCode(), "Incorrect status code");
+        }
+    }
+
     @Nested
     @DisplayName("when marking a task as in progress")
     class MarkInProgress {
@@ -306,8 +574,8 @@ class TaskControllerTest {
         @DisplayName("should return a task response with the updated task")
         void returnsTaskResponse() {
             TaskInfo task = new TaskInfo("1", "Task 1", "Description", null, null, null, null, null);
-            when(taskService.markInProgress(task.id())).thenReturn(task);
-            ResponseEntity<TaskResponse> response = taskController.markInProgress(task.id());
+            when(taskService.markInProgress(task.id(), null)).thenReturn(task);
+            ResponseEntity<TaskResponse> response = taskController.markInProgress(task.id(), null);
             assertAll(
                     () -> assertNotNull(response.getBody().task(), "Task response body should not be null"),
                     () -> assertEquals(task, response.getBody().task(), "Incorrect task in response body")
@@ -317,8 +585,8 @@ class TaskControllerTest {
         @Test
         @DisplayName("should return a 404 response if task is not found")
         void returns404WhenTaskNotFound() {
-            when(taskService.markInProgress("invalid-id")).thenThrow(new TaskNotFoundException("Task not found"));
-            ResponseEntity<TaskResponse> response = taskController.markInProgress("invalid-id");
+            when(taskService.markInProgress("invalid-id", null)).thenThrow(new TaskNotFoundException("Task not found"));
+            ResponseEntity<TaskResponse> response = taskController.markInProgress("invalid-id", null);
             assertAll(
                     () -> assertEquals(HttpStatusCode.valueOf(404), response.getStatusCode(), "Incorrect status code"),
                     () -> assertEquals("Task not found", response.getBody().error(), "Incorrect error message")
@@ -328,14 +596,25 @@ class TaskControllerTest {
         @Test
         @DisplayName("should return a 400 response if task id is null")
         void returns400WhenIdIsNull() {
-            when(taskService.markInProgress(null)).thenThrow(new TaskException("Task ID cannot be null"));
-            ResponseEntity<TaskResponse> response = taskController.markInProgress(null);
+            when(taskService.markInProgress(null, null)).thenThrow(new TaskException("Task ID cannot be null"));
+            ResponseEntity<TaskResponse> response = taskController.markInProgress(null, null);
             assertAll(
                     () -> assertEquals(HttpStatusCode.valueOf(400), response.getStatusCode(), "Incorrect status code"),
                     () -> assertEquals("Task ID cannot be null", response.getBody().error(), "Incorrect error message")
             );
         }
 
+        @Test
+        @DisplayName("should return a 409 response if task is no longer at the expected version")
+        void returns409WhenVersionConflicts() {
+            when(taskService.markInProgress("1", 2L)).thenThrow(new TaskVersionConflictException("Task with ID '1' is no longer at version 2"));
+            ResponseEntity<TaskResponse> response = taskController.markInProgress("1", 2L);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(409), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals("Task with ID '1' is no longer at version 2", response.getBody().error(), "Incorrect error message")
+            );
+        }
+
         @Nested
         @DisplayName("when marking a task as complete")
         class MarkComplete {
@@ -343,8 +622,8 @@ class TaskControllerTest {
             @DisplayName("should return a 200 response with the updated task")
             void returns200WithUpdatedTask() {
                 TaskInfo task = new TaskInfo("1", "Task 1", "Description", null, null, null, null, null);
-                when(taskService.markComplete(task.id())).thenReturn(task);
-                ResponseEntity<TaskResponse> response = taskController.markComplete(task.id());
+                when(taskService.markComplete(task.id(), null)).thenReturn(task);
+                ResponseEntity<TaskResponse> response = taskController.markComplete(task.id(), null);
                 assertAll(
                         () -> assertEquals(HttpStatusCode.valueOf(200), response.getStatusCode(), "Incorrect status code"),
                         () -> assertEquals(task, response.getBody().task(), "Incorrect task in response body")
@@ -354,8 +633,8 @@ class TaskControllerTest {
             @Test
             @DisplayName("should return a 404 response if task is not found")
             void returns404WhenTaskIsNotFound() {
-                when(taskService.markComplete("1")).thenThrow(new TaskNotFoundException("Task not found"));
-                ResponseEntity<TaskResponse> response = taskController.markComplete("1");
+                when(taskService.markComplete("1", null)).thenThrow(new TaskNotFoundException("Task not found"));
+                ResponseEntity<TaskResponse> response = taskController.markComplete("1", null);
                 assertAll(
                         () -> assertEquals(HttpStatusCode.valueOf(404), response.getStatusCode(), "Incorrect status code"),
                         () -> assertEquals("Task not found", response.getBody().error(), "Incorrect error message")
@@ -365,8 +644,8 @@ class TaskControllerTest {
             @Test
             @DisplayName("should return a 400 response if task id is null")
             void returns400WhenIdIsNull() {
-                when(taskService.markComplete(null)).thenThrow(new TaskException("Task ID cannot be null"));
-                ResponseEntity<TaskResponse> response = taskController.markComplete(null);
+                when(taskService.markComplete(null, null)).thenThrow(new TaskException("Task ID cannot be null"));
+                ResponseEntity<TaskResponse> response = taskController.markComplete(null, null);
                 assertAll(
                         () -> assertEquals(HttpStatusCode.valueOf(400), response.getStatusCode(), "Incorrect status code"),
                         () -> assertEquals("Task ID cannot be null", response.getBody().error(), "Incorrect error message")
@@ -374,4 +653,195 @@ class TaskControllerTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("when changing statuses in bulk")
+    class BulkStatus {
+        @Test
+        @DisplayName("should return a 200 response with each task's outcome")
+        void returns200WithOutcomes() {
+            BulkStatusRequest request = new BulkStatusRequest(List.of("1", "2"), null, null);
+            BulkStatusResponse outcomes = BulkStatusResponse.success(List.of(BulkStatusResult.updated("1"), BulkStatusResult.notFound("2")));
+            when(taskService.markAllComplete(request)).thenReturn(outcomes);
+            ResponseEntity<BulkStatusResponse> response = taskController.markAllComplete(request);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(200), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals(1, response.getBody().updated(), "Incorrect number updated"),
+                    () -> assertEquals(1, response.getBody().notFound(), "Incorrect number not found")
+            );
+        }
+
+        @Test
+        @DisplayName("should return a 400 response for a request with both ids and a filter")
+        void returns400ForAmbiguousRequest() {
+            BulkStatusRequest request = new BulkStatusRequest(List.of("1"), Set.of("work"), null);
+            when(taskService.markAllInProgress(request)).thenThrow(new InvalidTaskQueryException("Give either task ids or a label/status filter"));
+            ResponseEntity<BulkStatusResponse> response = taskController.markAllInProgress(request);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(400), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals("Give either task ids or a label/status filter", response.getBody().error(), "Incorrect error message")
+            );
+        }
+
+        @Test
+        @DisplayName("should return a 400 response for an unknown status")
+        void returns400ForUnknownStatus() {
+            BulkStatusRequest request = new BulkStatusRequest(null, null, "DONE");
+            when(taskService.markAllComplete(request)).thenThrow(new IllegalArgumentException("No enum constant DONE"));
+            assertEquals(HttpStatusCode.valueOf(400), taskController.markAllComplete(request).getStatusCode(), "Incorrect status code");
+        }
+    }
+
+    @Nested
+    @DisplayName("when counting tasks")
+    class CountTasks {
+        @Test
+        @DisplayName("should return the counts")
+        void returnsCounts() {
+            TaskStatistics statistics = new TaskStatistics(1, Map.of(Status.PENDING, 1L), Map.of(Priority.HIGH, 1L), Map.of("work", 1L));
+            when(taskService.countTasks(null, null)).thenReturn(statistics);
+            ResponseEntity<TaskStatisticsResponse> response = taskController.countTasks(null, null);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(200), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals(statistics, response.getBody().statistics(), "Incorrect statistics")
+            );
+        }
+
+        @Test
+        @DisplayName("should reject an inverted range")
+        void rejectsInvertedRange() {
+            Instant from = Instant.parse("2023-02-01T00:00:00Z");
+            Instant to = Instant.parse("2023-01-01T00:00:00Z");
+            when(taskService.countTasks(from, to)).thenThrow(new InvalidTaskQueryException("Range start is after range end"));
+            ResponseEntity<TaskStatisticsResponse> response = taskController.countTasks(from, to);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(400), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals("Range start is after range end", response.getBody().error(), "Incorrect error message")
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("when searching tasks")
+    class Search {
+        @Test
+        @DisplayName("should return the matching page")
+        void returnsMatchingPage() {
+            List<TaskInfo> tasks = List.of(new TaskInfo("1", "Write report", null, null, HIGH, PENDING, null, null));
+            when(taskService.search("report", null, null, null, 20)).thenReturn(new TaskPage(tasks, "Mg"));
+            ResponseEntity<TaskListResponse> response = taskController.search("report", null, null, null, 20);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(200), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals(tasks, response.getBody().tasks(), "Incorrect tasks"),
+                    () -> assertEquals("Mg", response.getBody().nextCursor(), "Incorrect next cursor")
+            );
+        }
+
+        @Test
+        @DisplayName("should return 404 when nothing matches")
+        void returnsNotFound() {
+            when(taskService.search("nothing", null, null, null, 20)).thenReturn(new TaskPage(List.of(), null));
+            ResponseEntity<TaskListResponse> response = taskController.search("nothing", null, null, null, 20);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(404), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals("No tasks found matching: nothing", response.getBody().error(), "Incorrect error message")
+            );
+        }
+
+        @Test
+        @DisplayName("should return 400 for a blank search")
+        void returnsBadRequestForBlankSearch() {
+            when(taskService.search("", null, null, null, 20)).thenThrow(new InvalidTaskQueryException("Search text is required"));
+            assertEquals(HttpStatusCode.valueOf(400), taskController.search("", null, null, null, 20).getStatusCode(), "Incorrect status code");
+        }
+
+        @Test
+        @DisplayName("should return 400 for an unknown status")
+        void returnsBadRequestForUnknownStatus() {
+            when(taskService.search("report", null, "DONE", null, 20)).thenThrow(new IllegalArgumentException("No enum constant DONE"));
+            assertEquals(HttpStatusCode.valueOf(400), taskController.search("report", null, "DONE", null, 20).getStatusCode(), "Incorrect status code");
+        }
+    }
+
+    @Nested
+    @DisplayName("when making conditional requests")
+    class ConditionalRequests {
+        Instant updatedAt = Instant.parse("2024-01-01T00:00:00Z");
+        TaskInfo task = new TaskInfo("1", "Task 1", "Description 1", null, HIGH, PENDING, null, null, 3L, updatedAt);
+        TaskInfo other = new TaskInfo("2", "Task 2", "Description 2", null, HIGH, PENDING, null, null, 3L, updatedAt.minusSeconds(60));
+
+        @Test
+        @DisplayName("should tag a task with its version and update time")
+        void tagsTask() {
+            when(taskService.findById("1")).thenReturn(Optional.of(task));
+            ResponseEntity<TaskResponse> response = taskController.findById("1", request);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(200), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals(TaskVersionSummary.of(3L, updatedAt).etag(null), servletResponse.getHeader("ETag"), "Incorrect ETag"),
+                    () -> assertEquals(updatedAt.toEpochMilli(), servletResponse.getDateHeader("Last-Modified"), "Incorrect Last-Modified")
+            );
+        }
+
+        @Test
+        @DisplayName("should answer 304 for a current task without reading it")
+        void answersNotModifiedForCurrentTask() {
+            servletRequest.addHeader("If-None-Match", TaskVersionSummary.of(3L, updatedAt).etag(null));
+            when(taskService.findVersion("1")).thenReturn(Optional.of(TaskVersionSummary.of(3L, updatedAt)));
+            assertAll(
+                    () -> assertNull(taskController.findById("1", request), "Response should be left to the 304"),
+                    () -> assertEquals(304, servletResponse.getStatus(), "Incorrect status code")
+            );
+            verify(taskService, never()).findById(any());
+        }
+
+        @Test
+        @DisplayName("should return a changed task in full")
+        void returnsChangedTask() {
+            servletRequest.addHeader("If-None-Match", TaskVersionSummary.of(2L, updatedAt).etag(null));
+            when(taskService.findVersion("1")).thenReturn(Optional.of(TaskVersionSummary.of(3L, updatedAt)));
+            when(taskService.findById("1")).thenReturn(Optional.of(task));
+            ResponseEntity<TaskResponse> response = taskController.findById("1", request);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(200), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals(task, response.getBody().task(), "Incorrect task"),
+                    () -> assertEquals(TaskVersionSummary.of(3L, updatedAt).etag(null), servletResponse.getHeader("ETag"), "Incorrect ETag")
+            );
+        }
+
+        @Test
+        @DisplayName("should answer 304 for a current list without reading it")
+        void answersNotModifiedForCurrentList() {
+            TaskVersionSummary version = TaskVersionSummary.of(List.of(task, other));
+            servletRequest.addHeader("If-None-Match", version.etag(null));
+            when(taskService.summarizeByStatus("PENDING")).thenReturn(version);
+            assertAll(
+                    () -> assertNull(taskController.findByStatus("PENDING", null, request), "Response should be left to the 304"),
+                    () -> assertEquals(304, servletResponse.getStatus(), "Incorrect status code")
+            );
+            verify(taskService, never()).findByStatus(any(), any());
+        }
+
+        @Test
+        @DisplayName("should tag a list the same way whether it was summarized or read")
+        void tagsListConsistently() {
+            List<TaskInfo> tasks = List.of(task, other);
+            when(taskService.findByLabel(Set.of("work"), null)).thenReturn(tasks);
+            taskController.findByLabel(Set.of("work"), null, request);
+            assertEquals(new TaskVersionSummary(2, 6, updatedAt).etag(null), servletResponse.getHeader("ETag"), "Incorrect ETag");
+        }
+
+        @Test
+        @DisplayName("should tag a projection separately from the full list")
+        void tagsProjectionSeparately() {
+            TaskVersionSummary version = new TaskVersionSummary(1, 3, updatedAt);
+            servletRequest.addHeader("If-None-Match", version.etag(null));
+            when(taskService.summarizePage(null, 100)).thenReturn(version);
+            when(taskService.findPage(null, 100, "id,name")).thenReturn(new TaskPage(List.of(task), null));
+            ResponseEntity<TaskListResponse> response = taskController.findAll(null, 100, "id,name", request);
+            assertAll(
+                    () -> assertEquals(HttpStatusCode.valueOf(200), response.getStatusCode(), "Incorrect status code"),
+                    () -> assertEquals(version.etag("id,name"), servletResponse.getHeader("ETag"), "Incorrect ETag")
+            );
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.chrisrobertsfl.journal.task.controller;
+
+import com.chrisrobertsfl.journal.task.model.Status;
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.repository.TaskResponseCache;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Status.COMPLETED;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.nonNull;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Given Task Response Cache Filter")
+class TaskResponseCacheFilterTest {
+    static final String BODY = "{\"tasks\":[{\"id\":\"1\"}]}";
+
+    TaskResponseCache taskResponseCache = new TaskResponseCache(1024 * 1024, Duration.ofMinutes(1), true);
+    TaskResponseCacheFilter filter = new TaskResponseCacheFilter(taskResponseCache);
+    AtomicInteger calls = new AtomicInteger();
+    FilterChain controller = (request, response) -> {
+        calls.incrementAndGet();
+        ((HttpServletResponse) response).setHeader("ETag", "\"v1\"");
+        response.setContentType("application/json");
+        response.getOutputStream().write(BODY.getBytes(UTF_8));
+    };
+
+    @Test
+    @DisplayName("serves a repeated query from the cached bytes")
+    void servesFromCache() throws Exception {
+        MockHttpServletResponse first = get("/api/tasks/status/PENDING", null);
+        MockHttpServletResponse second = get("/api/tasks/status/PENDING", null);
+        assertAll(
+                () -> assertEquals(1, calls.get(), "Controller should be called once"),
+                () -> assertEquals(BODY, first.getContentAsString(), "First response should pass through"),
+                () -> assertEquals(BODY, second.getContentAsString(), "Incorrect cached body"),
+                () -> assertEquals("application/json", second.getContentType(), "Incorrect content type"),
+                () -> assertEquals("\"v1\"", second.getHeader("ETag"), "Cached response should keep its ETag")
+        );
+    }
+
+    @Test
+    @DisplayName("sends the gzipped bytes to a client that accepts them")
+    void servesGzipped() throws Exception {
+        get("/api/tasks/label", "work,home");
+        MockHttpServletResponse response = get("/api/tasks/label", "work,home", "deflate, gzip;q=0.8");
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertAll(
+                    () -> assertEquals("gzip", response.getHeader("Content-Encoding"), "Incorrect encoding"),
+                    () -> assertEquals(BODY, new String(in.readAllBytes(), UTF_8), "Incorrect body")
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("queries again once a write touches one of the labels")
+    void queriesAgainAfterWrite() throws Exception {
+        get("/api/tasks/label", "work,home");
+        taskResponseCache.replaced(task(PENDING, Set.of("home")), task(COMPLETED, Set.of("home")));
+        get("/api/tasks/label", "work,home");
+        assertEquals(2, calls.get(), "Controller should be called again");
+    }
+
+    @Test
+    @DisplayName("keeps a response for each Accept header")
+    void keysByAccept() throws Exception {
+        get("/api/tasks/status/PENDING", null);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/status/PENDING");
+        request.addHeader("Accept", "application/cbor");
+        filter.doFilter(request, new MockHttpServletResponse(), controller);
+        assertEquals(2, calls.get(), "CBOR request should not be served the JSON response");
+    }
+
+    @Test
+    @DisplayName("leaves conditional requests to the controller")
+    void passesConditionalRequests() throws Exception {
+        get("/api/tasks/status/PENDING", null);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/status/PENDING");
+        request.addHeader("If-None-Match", "\"v1\"");
+        filter.doFilter(request, new MockHttpServletResponse(), controller);
+        assertEquals(2, calls.get(), "Conditional request should reach the controller");
+    }
+
+    @Test
+    @DisplayName("sends the body on as the controller writes it")
+    void streamsBody() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicInteger sentBeforeReturn = new AtomicInteger();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/tasks/status/PENDING"), response, (req, res) -> {
+            res.getOutputStream().write(BODY.getBytes(UTF_8));
+            sentBeforeReturn.set(response.getContentAsByteArray().length);
+        });
+        assertEquals(BODY.length(), sentBeforeReturn.get(), "Body should reach the client before the controller returns");
+    }
+
+    @Test
+    @DisplayName("sends a response larger than the entry limit without keeping it")
+    void skipsLargeResponses() throws Exception {
+        TaskResponseCacheFilter limited = new TaskResponseCacheFilter(taskResponseCache, BODY.length() - 1);
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        limited.doFilter(new MockHttpServletRequest("GET", "/api/tasks/status/PENDING"), first, controller);
+        limited.doFilter(new MockHttpServletRequest("GET", "/api/tasks/status/PENDING"), new MockHttpServletResponse(), controller);
+        assertAll(
+                () -> assertEquals(BODY, first.getContentAsString(), "Large response should still be sent"),
+                () -> assertEquals(2, calls.get(), "Large response should not be cached")
+        );
+    }
+
+    @Test
+    @DisplayName("does not keep an error response")
+    void skipsErrors() throws Exception {
+        FilterChain notFound = (request, response) -> {
+            calls.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(404);
+        };
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/tasks/status/COMPLETED"), new MockHttpServletResponse(), notFound);
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/tasks/status/COMPLETED"), new MockHttpServletResponse(), notFound);
+        assertEquals(2, calls.get(), "Error response should not be cached");
+    }
+
+    MockHttpServletResponse get(String uri, String labels, String... acceptEncoding) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (nonNull(labels)) {
+            request.setParameter("labels", labels);
+            request.setQueryString("labels=" + labels);
+        }
+        for (String encoding : acceptEncoding) {
+            request.addHeader("Accept-Encoding", encoding);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, controller);
+        return response;
+    }
+
+    static Task task(Status status, Set<String> labels) {
+        return new Task("1", "Task 1", "Description", null, HIGH, status, labels, null);
+    }
+}
@@ -0,0 +1,238 @@
+package com.chrisrobertsfl.journal.task.model;
+
+import com.chrisrobertsfl.journal.task.repository.ReactiveTaskRepository;
+import com.chrisrobertsfl.journal.task.repository.TaskCache;
+import com.chrisrobertsfl.journal.task.repository.TaskCounters;
+import com.chrisrobertsfl.journal.task.repository.TaskEvents;
+import com.chrisrobertsfl.journal.task.repository.TaskStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Status.*;
+import static com.chrisrobertsfl.journal.task.model.TaskAggregateRootBuilder.aTaskAggregateRoot;
+import static com.chrisrobertsfl.journal.task.model.TaskEvent.Type.CREATED;
+import static com.chrisrobertsfl.journal.task.model.TaskEvent.Type.STATUS_CHANGED;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Given Reactive Task Aggregate Root")
+public class ReactiveTaskAggregateRootTest {
+    static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+    static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+    @Mock
+    ReactiveTaskRepository taskRepository;
+    ReactiveTaskAggregateRoot taskAggregateRoot;
+    Task task = new Task("1", "Task 1", "Description 1", Instant.now(), HIGH, PENDING, null, null, 3L);
+
+    @BeforeEach
+    void createAggregateRoot() {
+        taskAggregateRoot = new ReactiveTaskAggregateRoot(taskRepository, TaskCache.disabled(), new TaskCounters(), new TaskEvents(), CLOCK);
+    }
+
+    @Test
+    @DisplayName("should stream all tasks")
+    public void testFindAll() {
+        when(taskRepository.findAll()).thenReturn(Flux.just(task, task.withId("2")));
+        StepVerifier.create(taskAggregateRoot.findAll())
+                .expectNext(task, task.withId("2"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should stream tasks by label")
+    public void testFindByLabel() {
+        when(taskRepository.findByLabelsIn(Set.of("work"))).thenReturn(Flux.just(task));
+        StepVerifier.create(taskAggregateRoot.findByLabel(Set.of("work")))
+                .expectNext(task)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should publish mutations made through either aggregate root")
+    public void testEvents() {
+        TaskEvents taskEvents = new TaskEvents();
+        TaskStore blockingRepository = mock(TaskStore.class);
+        TaskAggregateRoot blockingAggregateRoot = aTaskAggregateRoot(blockingRepository).clock(CLOCK).taskEvents(taskEvents).build();
+        taskAggregateRoot = new ReactiveTaskAggregateRoot(taskRepository, TaskCache.disabled(), new TaskCounters(), taskEvents, CLOCK);
+        Task completed = task.withStatus(COMPLETED).withVersion(4L).withUpdatedAt(NOW);
+        when(taskRepository.save(task.withVersion(0L).withUpdatedAt(NOW))).thenReturn(Mono.just(task.withVersion(0L)));
+        when(blockingRepository.updateStatus("1", COMPLETED, null, NOW)).thenReturn(Optional.of(task));
+        StepVerifier.create(taskAggregateRoot.events())
+                .then(() -> taskAggregateRoot.addTask(task).subscribe())
+                .then(() -> blockingAggregateRoot.markComplete("1"))
+                .expectNext(new TaskEvent(CREATED, task.withVersion(0L).toTaskInfo()), new TaskEvent(STATUS_CHANGED, completed.toTaskInfo()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Nested
+    @DisplayName("when adding a task")
+    class AddTask {
+
+        @Test
+        @DisplayName("should save the task at version 0")
+        public void testAddTask() {
+            when(taskRepository.save(task.withVersion(0L).withUpdatedAt(NOW))).thenReturn(Mono.just(task.withVersion(0L)));
+            StepVerifier.create(taskAggregateRoot.addTask(task))
+                    .expectNext(task.withVersion(0L))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("should signal an error when the task is missing")
+        public void testAddTask_missing() {
+            StepVerifier.create(taskAggregateRoot.addTask(null))
+                    .expectErrorMatches(e -> e instanceof MissingTaskException && e.getMessage().equals("Need task present to add"))
+                    .verify();
+        }
+    }
+
+    @Nested
+    @DisplayName("when updating a task")
+    class UpdateTask {
+
+        @Test
+        @DisplayName("should save the next version")
+        public void testUpdateTask() {
+            when(taskRepository.findById("1")).thenReturn(Mono.just(task));
+            when(taskRepository.replace(task.withVersion(4L).withUpdatedAt(NOW), 3L)).thenReturn(Mono.just(task));
+            StepVerifier.create(taskAggregateRoot.updateTask(task))
+                    .expectNext(task.withVersion(4L).withUpdatedAt(NOW))
+                    .verifyComplete();
+            verify(taskRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("should signal a conflict when the task moved on after it was read")
+        public void testUpdateTask_staleRead() {
+            when(taskRepository.findById("1")).thenReturn(Mono.just(task));
+            when(taskRepository.replace(task.withVersion(4L).withUpdatedAt(NOW), 3L)).thenReturn(Mono.empty());
+            when(taskRepository.existsById("1")).thenReturn(Mono.just(true));
+            StepVerifier.create(taskAggregateRoot.updateTask(task))
+                    .expectErrorMatches(e -> e instanceof TaskVersionConflictException
+                            && e.getMessage().equals("Task with ID '1' is no longer at version 3"))
+                    .verify();
+        }
+
+        @Test
+        @DisplayName("should signal a conflict when the version is stale")
+        public void testUpdateTask_conflict() {
+            when(taskRepository.findById("1")).thenReturn(Mono.just(task));
+            StepVerifier.create(taskAggregateRoot.updateTask(task.withVersion(2L)))
+                    .expectErrorMatches(e -> e instanceof TaskVersionConflictException
+                            && e.getMessage().equals("Task with ID '1' is no longer at version 2"))
+                    .verify();
+            verify(taskRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("should signal not found when the task does not exist")
+        public void testUpdateTask_notFound() {
+            when(taskRepository.findById("1")).thenReturn(Mono.empty());
+            StepVerifier.create(taskAggregateRoot.updateTask(task))
+                    .expectErrorMatches(e -> e instanceof TaskNotFoundException && e.getMessage().equals("No Task found for id 1"))
+                    .verify();
+        }
+    }
+
+    @Nested
+    @DisplayName("when deleting a task")
+    class DeleteTask {
+
+        @Test
+        @DisplayName("should delete and return the task")
+        public void testDeleteTask() {
+            when(taskRepository.findById("1")).thenReturn(Mono.just(task));
+            when(taskRepository.deleteById("1")).thenReturn(Mono.empty());
+            StepVerifier.create(taskAggregateRoot.deleteTask("1"))
+                    .expectNext(task)
+                    .verifyComplete();
+            verify(taskRepository).deleteById("1");
+        }
+
+        @Test
+        @DisplayName("should signal not found when the task does not exist")
+        public void testDeleteTask_notFound() {
+            when(taskRepository.findById("1")).thenReturn(Mono.empty());
+            StepVerifier.create(taskAggregateRoot.deleteTask("1"))
+                    .expectError(TaskNotFoundException.class)
+                    .verify();
+        }
+    }
+
+    @Nested
+    @DisplayName("when changing status")
+    class ChangeStatus {
+
+        @Test
+        @DisplayName("should return the updated task")
+        public void testMarkComplete() {
+            Task completed = new Task("1", "Task 1", "Description 1", task.createdAt(), HIGH, COMPLETED, null, null, 4L, NOW);
+            when(taskRepository.updateStatus("1", COMPLETED, null, NOW)).thenReturn(Mono.just(task));
+            StepVerifier.create(taskAggregateRoot.markComplete("1"))
+                    .expectNext(completed)
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("should signal not found when no task matches")
+        public void testMarkInProgress_notFound() {
+            when(taskRepository.updateStatus("1", IN_PROGRESS, null, NOW)).thenReturn(Mono.empty());
+            StepVerifier.create(taskAggregateRoot.markInProgress("1"))
+                    .expectErrorMatches(e -> e instanceof TaskNotFoundException && e.getMessage().equals("Task with ID '1' not found"))
+                    .verify();
+            verify(taskRepository, never()).existsById("1");
+        }
+
+        @Test
+        @DisplayName("should signal a conflict when the task exists at another version")
+        public void testMarkInProgress_conflict() {
+            when(taskRepository.updateStatus("1", IN_PROGRESS, 2L, NOW)).thenReturn(Mono.empty());
+            when(taskRepository.existsById("1")).thenReturn(Mono.just(true));
+            StepVerifier.create(taskAggregateRoot.markInProgress("1", 2L))
+                    .expectError(TaskVersionConflictException.class)
+                    .verify();
+        }
+    }
+
+    @Nested
+    @DisplayName("when caching")
+    class Caching {
+
+        @BeforeEach
+        public void setUp() {
+            taskAggregateRoot = new ReactiveTaskAggregateRoot(taskRepository, new TaskCache(100, Duration.ofMinutes(1)), new TaskCounters(), new TaskEvents(), CLOCK);
+        }
+
+        @Test
+        @DisplayName("should read a task from the repository only once")
+        public void testFindById_cached() {
+            when(taskRepository.findById("1")).thenReturn(Mono.just(task));
+            StepVerifier.create(taskAggregateRoot.findById("1")).expectNext(task).verifyComplete();
+            StepVerifier.create(taskAggregateRoot.findById("1")).expectNext(task).verifyComplete();
+            verify(taskRepository, times(1)).findById("1");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.chrisrobertsfl.journal.task.model;
+
+import com.chrisrobertsfl.journal.task.repository.TaskCache;
+import com.chrisrobertsfl.journal.task.repository.TaskCounters;
+import com.chrisrobertsfl.journal.task.repository.TaskEvents;
+import com.chrisrobertsfl.journal.task.repository.TaskResponseCache;
+import com.chrisrobertsfl.journal.task.repository.TaskStore;
+import com.chrisrobertsfl.journal.task.repository.TaskTree;
+import com.chrisrobertsfl.journal.task.repository.TaskWriteAheadLog;
+import com.chrisrobertsfl.journal.task.repository.TaskWriter;
+
+import java.time.Clock;
+
+import static java.util.Objects.isNull;
+
+public class TaskAggregateRootBuilder {
+    private final TaskStore taskStore;
+    private TaskCache taskCache = TaskCache.disabled();
+    private TaskCounters taskCounters = new TaskCounters();
+    private TaskEvents taskEvents = new TaskEvents();
+    private Clock clock = Clock.systemUTC();
+    private TaskWriter taskWriter;
+    private TaskTree taskTree = TaskTree.embedded();
+    private TaskResponseCache taskResponseCache = TaskResponseCache.disabled();
+
+    private TaskAggregateRootBuilder(TaskStore taskStore) {
+        this.taskStore = taskStore;
+    }
+
+    public static TaskAggregateRootBuilder aTaskAggregateRoot(TaskStore taskStore) {
+        return new TaskAggregateRootBuilder(taskStore);
+    }
+
+    public TaskAggregateRootBuilder taskCache(TaskCache taskCache) {
+        this.taskCache = taskCache;
+        return this;
+    }
+
+    public TaskAggregateRootBuilder taskCounters(TaskCounters taskCounters) {
+        this.taskCounters = taskCounters;
+        return this;
+    }
+
+    public TaskAggregateRootBuilder taskEvents(TaskEvents taskEvents) {
+        this.taskEvents = taskEvents;
+        return this;
+    }
+
+    public TaskAggregateRootBuilder clock(Clock clock) {
+        this.clock = clock;
+        return this;
+    }
+
+    public TaskAggregateRootBuilder taskWriter(TaskWriter taskWriter) {
+        this.taskWriter = taskWriter;
+        return this;
+    }
+
+    public TaskAggregateRootBuilder taskTree(TaskTree taskTree) {
+        this.taskTree = taskTree;
+        return this;
+    }
+
+    public TaskAggregateRootBuilder taskResponseCache(TaskResponseCache taskResponseCache) {
+        this.taskResponseCache = taskResponseCache;
+        return this;
+    }
+
+    public TaskAggregateRoot build() {
+        return new TaskAggregateRoot(taskStore, taskCache, taskCounters, taskEvents, clock,
+                isNull(taskWriter) ? TaskWriteAheadLog.disabled(taskStore) : taskWriter, taskTree, taskResponseCache);
+    }
+}
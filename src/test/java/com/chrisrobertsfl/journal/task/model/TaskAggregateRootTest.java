@@ -1,39 +1,72 @@
 package com.chrisrobertsfl.journal.task.model;
 
-import com.chrisrobertsfl.journal.task.repository.TaskRepository;
+import com.chrisrobertsfl.journal.task.repository.TaskCache;
+import com.chrisrobertsfl.journal.task.repository.TaskCounters;
+import com.chrisrobertsfl.journal.task.repository.TaskResponseCache;
+import com.chrisrobertsfl.journal.task.repository.TaskStore;
+import com.chrisrobertsfl.journal.task.repository.TaskTree;
+import com.chrisrobertsfl.journal.task.repository.TaskWriteAheadLog;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageRequest;
 
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
 
 import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
 import static com.chrisrobertsfl.journal.task.model.Priority.LOW;
 import static com.chrisrobertsfl.journal.task.model.Status.*;
+import static com.chrisrobertsfl.journal.task.model.TaskAggregateRootBuilder.aTaskAggregateRoot;
+import static com.chrisrobertsfl.journal.task.repository.TaskWriteAheadLog.FsyncPolicy.ALWAYS;
 import static java.lang.String.format;
 import static java.util.Collections.emptyList;
 import static java.util.Optional.empty;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.data.domain.Sort.Direction.ASC;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 @DisplayName("Given Task Aggregate Root")
 public class TaskAggregateRootTest {
+    static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+    static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
     @Mock
-    TaskRepository taskRepository;
-    @InjectMocks
+    TaskStore taskRepository;
     TaskAggregateRoot taskAggregateRoot;
 
+    @BeforeEach
+    void createAggregateRoot() {
+        taskAggregateRoot = aTaskAggregateRoot(taskRepository).clock(CLOCK).build();
+    }
 
     @Test
     @DisplayName("should return an empty list when no tasks are found")
@@ -54,7 +87,7 @@ public class TaskAggregateRootTest {
         @BeforeEach
         public void setUp() {
             when(taskRepository.findAll()).thenReturn(tasks);
-            taskAggregateRoot = new TaskAggregateRoot(taskRepository);
+            taskAggregateRoot = aTaskAggregateRoot(taskRepository).clock(CLOCK).build();
         }
 
         @Test
@@ -70,13 +103,33 @@ public class TaskAggregateRootTest {
         }
     }
 
+    @Nested
+    @DisplayName("when finding a page of tasks")
+    class FindPage {
+        List<Task> tasks = List.of(new Task("2", "Task 2", "Description 2", Instant.now(), LOW, IN_PROGRESS, null, null));
+
+        @Test
+        @DisplayName("should start from the beginning without a cursor")
+        public void testFindPage_first() {
+            when(taskRepository.findByIdNotNull(PageRequest.of(0, 10, ASC, "id"))).thenReturn(tasks);
+            assertEquals(tasks, taskAggregateRoot.findPage(null, 10), "Incorrect tasks");
+        }
+
+        @Test
+        @DisplayName("should continue after the given id")
+        public void testFindPage_after() {
+            when(taskRepository.findByIdGreaterThan("1", PageRequest.of(0, 10, ASC, "id"))).thenReturn(tasks);
+            assertEquals(tasks, taskAggregateRoot.findPage("1", 10), "Incorrect tasks");
+        }
+    }
+
     @Nested
     @DisplayName("when finding a task by id")
     class FindById {
 
         @BeforeEach
         public void setUp() {
-            taskAggregateRoot = new TaskAggregateRoot(taskRepository);
+            taskAggregateRoot = aTaskAggregateRoot(taskRepository).clock(CLOCK).build();
         }
 
         @Test
@@ -101,6 +154,123 @@ public class TaskAggregateRootTest {
         }
     }
 
+    @Nested
+    @DisplayName("when caching tasks")
+    class Caching {
+        Task task;
+
+        @BeforeEach
+        void setUp() {
+            task = new Task("1", "Task 1", "Description", null, HIGH, PENDING, Set.of("label1"), emptyList());
+            taskAggregateRoot = aTaskAggregateRoot(taskRepository).clock(CLOCK).taskCache(new TaskCache(100, Duration.ofMinutes(1))).build();
+        }
+
+        @Test
+        @DisplayName("reads a task from the repository only once")
+        void readsTaskOnce() {
+            when(taskRepository.findById("1")).thenReturn(Optional.of(task));
+            taskAggregateRoot.findById("1");
+            assertEquals(Optional.of(task), taskAggregateRoot.findById("1"), "Incorrect task");
+            verify(taskRepository, times(1)).findById("1");
+        }
+
+        @Test
+        @DisplayName("does not cache a missing task")
+        void doesNotCacheMissingTask() {
+            when(taskRepository.findById("2")).thenReturn(empty());
+            taskAggregateRoot.findById("2");
+            taskAggregateRoot.findById("2");
+            verify(taskRepository, times(2)).findById("2");
+        }
+
+        @Test
+        @DisplayName("serves a saved task without reading it back")
+        void servesSavedTask() {
+            when(taskRepository.save(task.withVersion(0L).withUpdatedAt(NOW))).thenReturn(task);
+            taskAggregateRoot.addTask(task);
+            assertEquals(Optional.of(task), taskAggregateRoot.findById("1"), "Incorrect task");
+            verify(taskRepository, never()).findById("1");
+        }
+
+        @Test
+        @DisplayName("keeps a status change in sync")
+        void keepsStatusChangeInSync() {
+            Task previous = new Task("1", "Task 1", "Description", null, HIGH, PENDING, Set.of("label1"), emptyList(), 0L);
+            Task updated = new Task("1", "Task 1", "Description", null, HIGH, IN_PROGRESS, Set.of("label1"), emptyList(), 1L, NOW);
+            when(taskRepository.updateStatus("1", IN_PROGRESS, null, NOW)).thenReturn(Optional.of(previous));
+            taskAggregateRoot.markInProgress("1");
+            assertEquals(Optional.of(updated), taskAggregateRoot.findById("1"), "Incorrect task");
+            verify(taskRepository, never()).findById("1");
+        }
+
+        @Test
+        @DisplayName("answers a version lookup for a cached task without reading it")
+        void answersVersionFromCache() {
+            when(taskRepository.save(task.withVersion(0L).withUpdatedAt(NOW))).thenReturn(task.withVersion(0L).withUpdatedAt(NOW));
+            taskAggregateRoot.addTask(task);
+            assertEquals(Optional.of(TaskVersionSummary.of(0L, NOW)), taskAggregateRoot.findVersion("1"), "Incorrect version");
+            verify(taskRepository, never()).findVersionById("1");
+        }
+
+        @Test
+        @DisplayName("evicts a deleted task")
+        void evictsDeletedTask() {
+            when(taskRepository.findById("1")).thenReturn(Optional.of(task), empty());
+            taskAggregateRoot.deleteTask("1");
+            assertFalse(taskAggregateRoot.findById("1").isPresent(), "Task should not be present");
+            verify(taskRepository).deleteById("1");
+        }
+    }
+
+    @Nested
+    @DisplayName("when counting tasks")
+    class CountTasks {
+        TaskCounters taskCounters;
+
+        @BeforeEach
+        void setUp() {
+            taskCounters = new TaskCounters();
+            taskAggregateRoot = aTaskAggregateRoot(taskRepository).clock(CLOCK).taskCache(new TaskCache(100, Duration.ofMinutes(1))).taskCounters(taskCounters).build();
+        }
+
+        @Test
+        @DisplayName("counts in the repository until the counters are loaded")
+        void countsInRepositoryUntilLoaded() {
+            TaskStatistics statistics = new TaskStatistics(0, Map.of(), Map.of(), Map.of());
+            when(taskRepository.countTasks(null, null)).thenReturn(statistics);
+            assertEquals(statistics, taskAggregateRoot.countTasks(null, null), "Incorrect statistics");
+        }
+
+        @Test
+        @DisplayName("serves unbounded counts from the counters once loaded")
+        void servesCountsFromCounters() {
+            Task task = new Task("1", "Task 1", "Description", null, HIGH, PENDING, Set.of("label1"), emptyList());
+            taskCounters.load(new TaskStatistics(0, Map.of(), Map.of(), Map.of()));
+            when(taskRepository.save(task.withVersion(0L).withUpdatedAt(NOW))).thenReturn(task);
+            when(taskRepository.updateStatus("1", COMPLETED, null, NOW)).thenReturn(Optional.of(task));
+            taskAggregateRoot.addTask(task);
+            taskAggregateRoot.markComplete("1");
+            TaskStatistics statistics = taskAggregateRoot.countTasks(null, null);
+            assertAll(
+                    () -> assertEquals(1, statistics.total(), "Incorrect total"),
+                    () -> assertEquals(0L, statistics.byStatus().get(PENDING), "Incorrect pending count"),
+                    () -> assertEquals(1L, statistics.byStatus().get(COMPLETED), "Incorrect completed count"),
+                    () -> assertEquals(Map.of("label1", 1L), statistics.byLabel(), "Incorrect labels")
+            );
+            verify(taskRepository, never()).countTasks(any(), any());
+        }
+
+        @Test
+        @DisplayName("counts a date range in the repository")
+        void countsRangeInRepository() {
+            Instant from = Instant.parse("2024-01-01T00:00:00Z");
+            TaskStatistics statistics = new TaskStatistics(0, Map.of(), Map.of(), Map.of());
+            taskCounters.load(statistics);
+            when(taskRepository.countTasks(from, null)).thenReturn(statistics);
+            assertEquals(statistics, taskAggregateRoot.countTasks(from, null), "Incorrect statistics");
+        }
+    }
+
     @Nested
     @DisplayName("when adding a task")
     class AddTask {
@@ -110,9 +280,9 @@ public class TaskAggregateRootTest {
         public void testAddTask() {
             TaskInfo taskInfo = new TaskInfo(null, "Task 1", "Description", null, HIGH, PENDING, null, null);
             Task task = new Task("1", "Task 1", "Description", null, HIGH, PENDING, null, null);
-            when(taskRepository.save(taskInfo.toTask())).thenReturn(task);
+            when(taskRepository.save(taskInfo.toTask().withVersion(0L).withUpdatedAt(NOW))).thenReturn(task);
             assertEquals(task, taskAggregateRoot.addTask(taskInfo.toTask()), "Expected the added task to match the original task");
-            verify(taskRepository).save(taskInfo.toTask());
+            verify(taskRepository).save(taskInfo.toTask().withVersion(0L).withUpdatedAt(NOW));
         }
 
         @Test
@@ -122,6 +292,42 @@ public class TaskAggregateRootTest {
         }
     }
 
+    @Nested
+    @DisplayName("when adding tasks in bulk")
+    class AddTasks {
+
+        @Test
+        @DisplayName("inserts valid tasks with an id and initial version")
+        void insertsValidTasks() {
+            Task task = new Task("1", "Task 1", "Description", null, HIGH, PENDING, null, null);
+            when(taskRepository.insertAll(List.of(task.withVersion(0L).withUpdatedAt(NOW)))).thenReturn(Map.of());
+            assertEquals(List.of(BulkTaskResult.success(0, "1")), taskAggregateRoot.addTasks(List.of(task)), "Incorrect results");
+        }
+
+        @Test
+        @DisplayName("assigns an id to new tasks")
+        void assignsIdToNewTasks() {
+            when(taskRepository.insertAll(any())).thenReturn(Map.of());
+            List<BulkTaskResult> results = taskAggregateRoot.addTasks(List.of(new Task(null, "Task 1", null, null, null, null, null, null)));
+            assertTrue(ObjectId.isValid(results.get(0).id()), "Expected a generated id");
+        }
+
+        @Test
+        @DisplayName("reports invalid and rejected tasks by position")
+        void reportsInvalidAndRejectedTasks() {
+            Task duplicate = new Task("1", "Task 1", null, null, null, null, null, null);
+            Task accepted = new Task("2", "Task 2", null, null, null, null, null, null);
+            Task unnamed = new Task("3", " ", null, null, null, null, null, null);
+            when(taskRepository.insertAll(List.of(duplicate.withVersion(0L).withUpdatedAt(NOW), accepted.withVersion(0L).withUpdatedAt(NOW)))).thenReturn(Map.of(0, "E11000 duplicate key"));
+            List<BulkTaskResult> results = taskAggregateRoot.addTasks(Arrays.asList(duplicate, null, accepted, unnamed));
+            assertEquals(List.of(
+                    BulkTaskResult.failure(0, "E11000 duplicate key"),
+                    BulkTaskResult.failure(1, "Task is missing"),
+                    BulkTaskResult.success(2, "2"),
+                    BulkTaskResult.failure(3, "Task name is required")), results, "Incorrect results");
+        }
+    }
+
     @Nested
     @DisplayName("when updating a task")
     class UpdateTask {
@@ -152,9 +358,48 @@ public class TaskAggregateRootTest {
         @DisplayName("should update the task in the repository")
         public void testUpdateTask() {
             when(taskRepository.findById("1")).thenReturn(Optional.of(task));
-            when(taskRepository.save(updatedTask)).thenReturn(updatedTask);
-            assertEquals(updatedTask, taskAggregateRoot.updateTask(updatedTask));
-            verify(taskRepository).save(updatedTask);
+            when(taskRepository.replace(updatedTask.withVersion(1L).withUpdatedAt(NOW), null)).thenReturn(Optional.of(task));
+            assertEquals(updatedTask.withVersion(1L).withUpdatedAt(NOW), taskAggregateRoot.updateTask(updatedTask));
+            verify(taskRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("should advance the version of the task")
+        void advancesVersion() {
+            when(taskRepository.findById("1")).thenReturn(Optional.of(task.withVersion(4L)));
+            when(taskRepository.replace(updatedTask.withVersion(5L).withUpdatedAt(NOW), 4L)).thenReturn(Optional.of(task.withVersion(4L)));
+            assertEquals(5L, taskAggregateRoot.updateTask(updatedTask.withVersion(4L)).version(), "Incorrect version");
+        }
+
+        @Test
+        @DisplayName("throws exception when the task is no longer at the given version")
+        void throwsExceptionWhenVersionConflicts() {
+            when(taskRepository.findById("1")).thenReturn(Optional.of(task.withVersion(4L)));
+            assertThrows(TaskVersionConflictException.class, () -> taskAggregateRoot.updateTask(updatedTask.withVersion(3L)), "Expected a version conflict");
+            verify(taskRepository, never()).replace(any(), any());
+        }
+
+        @Test
+        @DisplayName("throws exception when the task moved on after it was read")
+        void throwsExceptionWhenReadIsStale() {
+            TaskCache taskCache = new TaskCache(10, Duration.ofMinutes(1));
+            taskAggregateRoot = aTaskAggregateRoot(taskRepository).clock(CLOCK).taskCache(taskCache).build();
+            taskCache.put(task.withVersion(4L));
+            when(taskRepository.replace(updatedTask.withVersion(5L).withUpdatedAt(NOW), 4L)).thenReturn(empty());
+            when(taskRepository.existsById("1")).thenReturn(true);
+            assertAll(
+                    () -> assertThrows(TaskVersionConflictException.class, () -> taskAggregateRoot.updateTask(updatedTask.withVersion(4L)), "Expected a version conflict"),
+                    () -> assertEquals(empty(), taskCache.getIfPresent("1"), "Stale task should be dropped from the cache")
+            );
+        }
+
+        @Test
+        @DisplayName("throws exception when the task was deleted after it was read")
+        void throwsExceptionWhenDeletedMeanwhile() {
+            when(taskRepository.findById("1")).thenReturn(Optional.of(task));
+            when(taskRepository.replace(updatedTask.withVersion(1L).withUpdatedAt(NOW), null)).thenReturn(empty());
+            when(taskRepository.existsById("1")).thenReturn(false);
+            assertThrows(TaskNotFoundException.class, () -> taskAggregateRoot.updateTask(updatedTask), "Expected the task to be gone");
         }
     }
 
@@ -171,26 +416,45 @@ public class TaskAggregateRootTest {
         @Test
         @DisplayName("throws exception when task not found")
         void throwsExceptionWhenTaskNotFound() {
-            when(taskRepository.findById("2")).thenReturn(empty());
+            when(taskRepository.updateStatus("2", IN_PROGRESS, null, NOW)).thenReturn(empty());
             assertThrows(TaskNotFoundException.class, () -> taskAggregateRoot.markInProgress("2"), format("Task with id %s not found", "2"));
         }
 
 
+        @Test
+        @DisplayName("drops the cached responses for the status it leaves")
+        void dropsCachedResponses() {
+            TaskResponseCache taskResponseCache = new TaskResponseCache(1024, Duration.ofMinutes(1), false);
+            taskResponseCache.put("/api/tasks/status/PENDING",
+                    TaskResponseCache.Response.byStatus("PENDING", new byte[1], "application/json", null, null), taskResponseCache.stamp());
+            taskAggregateRoot = aTaskAggregateRoot(taskRepository).clock(CLOCK).taskResponseCache(taskResponseCache).build();
+            when(taskRepository.updateStatus(task.id(), IN_PROGRESS, null, NOW)).thenReturn(Optional.of(task));
+            taskAggregateRoot.markInProgress(task.id());
+            assertTrue(taskResponseCache.get("/api/tasks/status/PENDING").isEmpty(), "Cached response should be dropped");
+        }
+
         @Test
         @DisplayName("does not update status of different task")
         void doesNotUpdateStatusOfDifferentTask() {
-            when(taskRepository.findById("2")).thenReturn(empty());
+            when(taskRepository.updateStatus("2", IN_PROGRESS, null, NOW)).thenReturn(empty());
             assertThrows(TaskNotFoundException.class, () -> taskAggregateRoot.markInProgress("2"), format("Task with id %s not found", "2"));
         }
 
         @Test
         @DisplayName("updates status to IN_PROGRESS")
         void updatesStatusToInProgress() {
-            when(taskRepository.findById(task.id())).thenReturn(Optional.of(task));
-            Task updated = new Task(task.id(), "Task 1", "Description", null, HIGH, IN_PROGRESS, Set.of("label1"), emptyList());
-            when(taskRepository.save(updated)).thenReturn(updated);
-            taskAggregateRoot.markInProgress(task.id());
-            verify(taskRepository).save(updated);
+            Task updated = new Task(task.id(), "Task 1", "Description", null, HIGH, IN_PROGRESS, Set.of("label1"), emptyList(), 1L, NOW);
+            when(taskRepository.updateStatus(task.id(), IN_PROGRESS, null, NOW)).thenReturn(Optional.of(task));
+            assertEquals(updated, taskAggregateRoot.markInProgress(task.id()), "Incorrect task");
+            verify(taskRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("throws exception when task is no longer at the expected version")
+        void throwsExceptionWhenVersionConflicts() {
+            when(taskRepository.updateStatus(task.id(), IN_PROGRESS, 3L, NOW)).thenReturn(empty());
+            when(taskRepository.existsById(task.id())).thenReturn(true);
+            assertThrows(TaskVersionConflictException.class, () -> taskAggregateRoot.markInProgress(task.id(), 3L), "Expected a version conflict");
         }
     }
 
@@ -202,32 +466,282 @@ public class TaskAggregateRootTest {
         @BeforeEach
         void setUp() {
             task = new Task("1", "Task 1", "Description", null, HIGH, IN_PROGRESS, Set.of("label1"), emptyList());
-            taskAggregateRoot = new TaskAggregateRoot(taskRepository);
+            taskAggregateRoot = aTaskAggregateRoot(taskRepository).clock(CLOCK).build();
         }
 
         @Test
         @DisplayName("throws exception when task not found")
         void throwsExceptionWhenTaskNotFound() {
-            when(taskRepository.findById("2")).thenReturn(empty());
+            when(taskRepository.updateStatus("2", COMPLETED, null, NOW)).thenReturn(empty());
             assertThrows(TaskNotFoundException.class, () -> taskAggregateRoot.markComplete("2"), format("Task with id %s not found", "2"));
         }
 
         @Test
         @DisplayName("updates status to COMPLETED")
         void updatesStatusToCompleted() {
-            when(taskRepository.findById(task.id())).thenReturn(Optional.of(task));
-            Task updated = new Task(task.id(), "Task 1", "Description", null, HIGH, COMPLETED, Set.of("label1"), emptyList());
-            when(taskRepository.save(updated)).thenReturn(updated);
-            taskAggregateRoot.markComplete(task.id());
-            verify(taskRepository).save(updated);
+            Task updated = new Task(task.id(), "Task 1", "Description", null, HIGH, COMPLETED, Set.of("label1"), emptyList(), 1L, NOW);
+            when(taskRepository.updateStatus(task.id(), COMPLETED, null, NOW)).thenReturn(Optional.of(task));
+            assertEquals(updated, taskAggregateRoot.markComplete(task.id()), "Incorrect task");
+            verify(taskRepository, never()).save(any());
         }
 
         @Test
         @DisplayName("does not update status of different task")
         void doesNotUpdateStatusOfDifferentTask() {
-            when(taskRepository.findById("2")).thenReturn(empty());
+            when(taskRepository.updateStatus("2", COMPLETED, null, NOW)).thenReturn(empty());
             assertThrows(TaskNotFoundException.class, () -> taskAggregateRoot.markComplete("2"), "Expected TaskNotFoundException to be thrown when marking a task as complete but task was not found");
         }
     }
 
-}
\ No newline at end of file
+    @Nested
+    @DisplayName("when writing through the write-ahead log")
+    class WriteAheadLog {
+        @TempDir
+        Path directory;
+        Task task = new Task("1", "Task 1", "Description", null, HIGH, IN_PROGRESS, Set.of("label1"), emptyList(), 3L);
+        TaskWriteAheadLog taskLog;
+
+        @BeforeEach
+        void setUp() {
+            taskLog = new TaskWriteAheadLog(taskRepository, directory, ALWAYS, 4096, 8);
+            taskAggregateRoot = aTaskAggregateRoot(taskRepository).clock(CLOCK).taskWriter(taskLog).build();
+        }
+
+        @AfterEach
+        void tearDown() {
+            taskLog.close();
+        }
+
+        @Test
+        @DisplayName("acknowledges a status change while the repository is down")
+        void acknowledgesWhileDown() {
+            Task completed = task.withStatus(COMPLETED).withVersion(4L).withUpdatedAt(NOW);
+            when(taskRepository.findById("1")).thenReturn(Optional.of(task));
+            when(taskRepository.saveIfNewer(completed)).thenThrow(new DataAccessResourceFailureException("Mongo is down")).thenReturn(true);
+            assertAll(
+                    () -> assertEquals(completed, taskAggregateRoot.markComplete("1", 3L), "Incorrect task"),
+                    () -> assertEquals(1, taskLog.pending(), "Status change should be pending")
+            );
+            taskLog.replay();
+            assertEquals(1, taskLog.pending(), "Status change should wait for the repository");
+            taskLog.replay();
+            assertEquals(0, taskLog.pending(), "Status change should be replayed");
+        }
+
+        @Test
+        @DisplayName("checks the expected version before logging a status change")
+        void checksVersion() {
+            when(taskRepository.findById("1")).thenReturn(Optional.of(task));
+            assertThrows(TaskVersionConflictException.class, () -> taskAggregateRoot.markComplete("1", 2L), "Expected a version conflict");
+            assertEquals(0, taskLog.pending(), "Nothing should be logged");
+            verify(taskRepository, never()).updateStatus(any(), any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("waits for the task's lock before deleting it")
+        void deletesUnderLock() throws Exception {
+            when(taskRepository.findById("1")).thenReturn(Optional.of(task));
+            CountDownLatch held = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Thread holder = new Thread(() -> taskLog.locked("1", () -> {
+                held.countDown();
+                return awaitQuietly(release);
+            }));
+            holder.start();
+            held.await();
+            CompletableFuture<Task> deleted = CompletableFuture.supplyAsync(() -> taskAggregateRoot.deleteTask("1"));
+            assertThrows(TimeoutException.class, () -> deleted.get(100, MILLISECONDS), "Delete should wait for the lock");
+            release.countDown();
+            assertEquals(task, deleted.get(5, SECONDS), "Incorrect task");
+            holder.join();
+        }
+
+        @Test
+        @DisplayName("does not bring back a task deleted while its update waited")
+        void doesNotResurrectDeletedTask() {
+            when(taskRepository.findById("1")).thenReturn(Optional.of(task));
+            taskAggregateRoot.deleteTask("1");
+            assertThrows(TaskNotFoundException.class, () -> taskAggregateRoot.updateTask(task.withStatus(COMPLETED)), "Expected the task to be gone");
+            assertEquals(1, taskLog.pending(), "Only the delete should be pending");
+        }
+
+        @Test
+        @DisplayName("logs a bulk status change a task at a time")
+        void logsBulkStatusChange() {
+            when(taskRepository.findById("1")).thenReturn(Optional.of(task));
+            when(taskRepository.findById("2")).thenReturn(empty());
+            assertEquals(List.of(BulkStatusResult.updated("1"), BulkStatusResult.notFound("2")),
+                    taskAggregateRoot.changeStatuses(List.of("1", "2"), COMPLETED), "Incorrect results");
+            taskLog.replay();
+            verify(taskRepository).saveIfNewer(task.withStatus(COMPLETED).withVersion(4L).withUpdatedAt(NOW));
+            verify(taskRepository, never()).updateStatuses(any(), any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("when changing statuses in bulk")
+    class BulkStatus {
+        Task pending = new Task("1", "Task 1", "Description", null, HIGH, PENDING, Set.of("label1"), emptyList(), 0L);
+        Task completed = new Task("2", "Task 2", "Description", null, HIGH, COMPLETED, Set.of("label1"), emptyList(), 2L);
+        Task raced = new Task("4", "Task 4", "Description", null, LOW, PENDING, Set.of("label1"), emptyList(), 1L);
+
+        @Test
+        @DisplayName("reports each task as updated, unchanged, not found or in conflict")
+        void reportsOutcomes() {
+            when(taskRepository.findAllById(List.of("1", "2", "3", "4"))).thenReturn(List.of(pending, completed, raced));
+            when(taskRepository.updateStatuses(anyList(), eq(COMPLETED), eq(NOW))).thenReturn(Set.of("1"));
+            assertEquals(List.of(BulkStatusResult.updated("1"), BulkStatusResult.unchanged("2"), BulkStatusResult.notFound("3"), BulkStatusResult.conflict("4")),
+                    taskAggregateRoot.changeStatuses(List.of("1", "2", "3", "4"), COMPLETED), "Incorrect results");
+        }
+
+        @Test
+        @DisplayName("sends only the tasks not yet at the status in one update")
+        void updatesOnlyCandidates() {
+            when(taskRepository.findAllById(List.of("1", "2"))).thenReturn(List.of(pending, completed));
+            when(taskRepository.updateStatuses(List.of(pending), COMPLETED, NOW)).thenReturn(Set.of("1"));
+            taskAggregateRoot.changeStatuses(List.of("1", "2"), COMPLETED);
+            verify(taskRepository).updateStatuses(List.of(pending), COMPLETED, NOW);
+            verify(taskRepository, never()).updateStatus(any(), any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("skips the update when every task already has the status")
+        void skipsUpdateWhenUnchanged() {
+            when(taskRepository.findAllById(List.of("2"))).thenReturn(List.of(completed));
+            assertEquals(List.of(BulkStatusResult.unchanged("2")), taskAggregateRoot.changeStatuses(List.of("2"), COMPLETED), "Incorrect results");
+            verify(taskRepository, never()).updateStatuses(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("changes the next page of tasks matching a filter")
+        void changesFilteredPage() {
+            when(taskRepository.findStatusChangeCandidates(Set.of("label1"), PENDING, IN_PROGRESS, "0", 10)).thenReturn(List.of(pending));
+            when(taskRepository.findAllById(List.of("1"))).thenReturn(List.of(pending));
+            when(taskRepository.updateStatuses(List.of(pending), IN_PROGRESS, NOW)).thenReturn(Set.of("1"));
+            assertEquals(List.of(BulkStatusResult.updated("1")),
+                    taskAggregateRoot.changeStatuses(Set.of("label1"), PENDING, IN_PROGRESS, "0", 10), "Incorrect results");
+        }
+
+        @Test
+        @DisplayName("reads nothing more when no task matches the filter")
+        void stopsWhenNothingMatches() {
+            when(taskRepository.findStatusChangeCandidates(null, null, COMPLETED, null, 10)).thenReturn(emptyList());
+            assertEquals(emptyList(), taskAggregateRoot.changeStatuses(null, null, COMPLETED, null, 10), "Incorrect results");
+            verify(taskRepository, never()).findAllById(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("when subtasks are stored as their own documents")
+    class Subtasks {
+        @Mock
+        TaskTree taskTree;
+        List<Task> subtasks = List.of(new Task("1.1", "Subtask", null, null, null, PENDING, null, null));
+        Task task = new Task("1", "Task 1", "Description", null, HIGH, PENDING, Set.of("label1"), null, 3L);
+        Subtask subtask = Subtask.of(subtasks.get(0), "1", List.of("1"), "0000000001", 1, NOW);
+
+        @BeforeEach
+        void setUp() {
+            taskAggregateRoot = aTaskAggregateRoot(taskRepository).clock(CLOCK).taskTree(taskTree).build();
+        }
+
+        @Test
+        @DisplayName("stores a new task without its subtasks and the subtasks apart")
+        void storesSubtasksApart() {
+            Task added = task.withSubtasks(subtasks).withVersion(0L).withUpdatedAt(NOW);
+            when(taskTree.detach(added)).thenReturn(added.withSubtasks(null));
+            when(taskRepository.save(added.withSubtasks(null))).thenReturn(added.withSubtasks(null));
+            when(taskTree.insert(added.withSubtasks(null), subtasks)).thenReturn(added);
+            assertEquals(added, taskAggregateRoot.addTask(task.withSubtasks(subtasks)), "Incorrect task");
+        }
+
+        @Test
+        @DisplayName("moves embedded subtasks out when an update leaves them out")
+        void movesEmbeddedSubtasksOut() {
+            Task updated = task.withVersion(4L).withUpdatedAt(NOW);
+            when(taskRepository.findById("1")).thenReturn(Optional.of(task.withSubtasks(subtasks)));
+            when(taskTree.detach(updated)).thenReturn(updated);
+            when(taskRepository.replace(updated, 3L)).thenReturn(Optional.of(task.withSubtasks(subtasks)));
+            when(taskTree.replace(updated, subtasks)).thenReturn(updated.withSubtasks(subtasks));
+            assertEquals(updated.withSubtasks(subtasks), taskAggregateRoot.updateTask(task), "Incorrect task");
+        }
+
+        @Test
+        @DisplayName("deletes a task's subtasks with it")
+        void deletesSubtasks() {
+            when(taskRepository.findById("1")).thenReturn(Optional.of(task));
+            taskAggregateRoot.deleteTask("1");
+            verify(taskTree).deleteAll("1");
+        }
+
+        @Test
+        @DisplayName("loads the tree below a subtask when the id is not a task's")
+        void loadsSubtaskTree() {
+            when(taskRepository.findById("1.1")).thenReturn(empty());
+            when(taskTree.isEnabled()).thenReturn(true);
+            when(taskTree.findById("1.1")).thenReturn(Optional.of(subtask));
+            when(taskTree.load(subtask, 2)).thenReturn(subtask.toTask(emptyList()));
+            assertEquals(Optional.of(subtask.toTask(emptyList())), taskAggregateRoot.findTree("1.1", 2), "Incorrect tree");
+        }
+
+        @Test
+        @DisplayName("updates a subtask on its own and advances its version")
+        void updatesSubtask() {
+            Task changed = subtasks.get(0).withStatus(COMPLETED).withVersion(0L);
+            when(taskTree.isEnabled()).thenReturn(true);
+            when(taskTree.findById("1.1")).thenReturn(Optional.of(subtask));
+            when(taskTree.replace(subtask.update(changed, 1L, NOW), 0L)).thenReturn(Optional.of(subtask));
+            Task updated = taskAggregateRoot.updateSubtask(changed);
+            assertAll(
+                    () -> assertEquals(COMPLETED, updated.status(), "Incorrect status"),
+                    () -> assertEquals(1L, updated.version(), "Incorrect version")
+            );
+            verify(taskRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("throws exception when the subtask is no longer at the given version")
+        void checksSubtaskVersion() {
+            when(taskTree.isEnabled()).thenReturn(true);
+            when(taskTree.findById("1.1")).thenReturn(Optional.of(subtask));
+            assertThrows(TaskVersionConflictException.class, () -> taskAggregateRoot.updateSubtask(subtasks.get(0).withVersion(5L)), "Expected a version conflict");
+            verify(taskTree, never()).replace(any(Subtask.class), any());
+        }
+
+        @Test
+        @DisplayName("throws exception when the subtask moved on after it was read")
+        void checksSubtaskVersionOnReplace() {
+            Task changed = subtasks.get(0).withStatus(COMPLETED);
+            when(taskTree.isEnabled()).thenReturn(true);
+            when(taskTree.findById("1.1")).thenReturn(Optional.of(subtask));
+            when(taskTree.replace(subtask.update(changed, 1L, NOW), 0L)).thenReturn(empty());
+            assertThrows(TaskVersionConflictException.class, () -> taskAggregateRoot.updateSubtask(changed), "Expected a version conflict");
+        }
+
+        @Test
+        @DisplayName("throws exception when listing the children of a missing task")
+        void throwsExceptionWhenParentMissing() {
+            when(taskTree.isEnabled()).thenReturn(true);
+            when(taskTree.findChildren("2", 0, 10)).thenReturn(emptyList());
+            when(taskRepository.findById("2")).thenReturn(empty());
+            when(taskTree.findById("2")).thenReturn(empty());
+            assertThrows(TaskNotFoundException.class, () -> taskAggregateRoot.findSubtasks("2", 0, 10), "Expected a missing parent");
+        }
+
+        @Test
+        @DisplayName("refuses subtask operations while subtasks are embedded")
+        void refusesWhenEmbedded() {
+            when(taskTree.isEnabled()).thenReturn(false);
+            assertThrows(InvalidTaskQueryException.class, () -> taskAggregateRoot.addSubtask("1", subtasks.get(0)), "Expected subtasks to be embedded");
+        }
+    }
+
+    static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(5, SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.chrisrobertsfl.journal.task.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Given Task Converter")
+class TaskConverterTest {
+    Instant createdAt = Instant.now();
+
+    @Test
+    @DisplayName("should convert a task tree in both directions")
+    void testRoundTrip() {
+        Task task = task("1", List.of(task("1.1", List.of(task("1.1.1", null))), task("1.2", emptyList())));
+        TaskInfo taskInfo = task.toTaskInfo();
+        assertAll(
+                () -> assertEquals(2, taskInfo.subtasks().size(), "Incorrect number of subtasks"),
+                () -> assertEquals("1.1.1", taskInfo.subtasks().get(0).subtasks().get(0).id(), "Incorrect nested subtask"),
+                () -> assertEquals(task.labels(), taskInfo.labels(), "Incorrect labels"),
+                () -> assertEquals(3L, taskInfo.version(), "Incorrect version"),
+                () -> assertEquals(taskInfo, TaskInfo.fromTask(task), "fromTask should match toTaskInfo"),
+                () -> assertEquals(task("1", List.of(task("1.1", List.of(task("1.1.1", emptyList()))), task("1.2", emptyList()))),
+                        taskInfo.toTask(), "Incorrect round trip")
+        );
+    }
+
+    @Test
+    @DisplayName("should share the immutable empty list for leaves")
+    void testLeaves() {
+        TaskInfo taskInfo = task("1", List.of(task("1.1", null), task("1.2", emptyList()))).toTaskInfo();
+        assertAll(
+                () -> assertSame(Collections.<TaskInfo>emptyList(), taskInfo.subtasks().get(0).subtasks(), "Null subtasks should become the empty list"),
+                () -> assertSame(Collections.<TaskInfo>emptyList(), taskInfo.subtasks().get(1).subtasks(), "Empty subtasks should become the empty list"),
+                () -> assertSame(Collections.<Task>emptyList(), new TaskInfo("2", "Task 2", null, null, null, null, null, null).toTask().subtasks(), "Leaf should use the empty list")
+        );
+    }
+
+    @Test
+    @DisplayName("should keep missing subtasks in place")
+    void testNullSubtask() {
+        TaskInfo taskInfo = task("1", Arrays.asList(task("1.1", null), null)).toTaskInfo();
+        assertAll(
+                () -> assertEquals(2, taskInfo.subtasks().size(), "Incorrect number of subtasks"),
+                () -> assertNull(taskInfo.subtasks().get(1), "Missing subtask should stay missing")
+        );
+    }
+
+    @Test
+    @DisplayName("should convert trees deeper than the thread stack allows recursion")
+    void testDeepTree() {
+        int depth = 100_000;
+        Task task = task(String.valueOf(depth), null);
+        for (int i = depth - 1; i > 0; i--) {
+            task = task(String.valueOf(i), List.of(task));
+        }
+        TaskInfo converted = task.toTaskInfo();
+        int levels = 1;
+        while (!converted.subtasks().isEmpty()) {
+            converted = converted.subtasks().get(0);
+            levels++;
+        }
+        assertEquals(depth, levels, "Incorrect depth");
+        assertEquals(String.valueOf(depth), converted.id(), "Incorrect deepest subtask");
+    }
+
+    Task task(String id, List<Task> subtasks) {
+        return new Task(id, "Task " + id, "Description " + id, createdAt, HIGH, PENDING, Set.of("work"), subtasks, 3L);
+    }
+}
@@ -0,0 +1,298 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.model.TaskAggregateRoot;
+import com.chrisrobertsfl.journal.task.model.TaskVersionConflictException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Priority.LOW;
+import static com.chrisrobertsfl.journal.task.model.Status.COMPLETED;
+import static com.chrisrobertsfl.journal.task.model.Status.IN_PROGRESS;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static com.chrisrobertsfl.journal.task.model.TaskAggregateRootBuilder.aTaskAggregateRoot;
+import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.data.domain.Sort.Direction.ASC;
+
+@DisplayName("Given In-Memory Task Repository")
+class InMemoryTaskRepositoryTest {
+    static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+    static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder().findAndAddModules().build();
+
+    Task work = new Task("1", "Write report", "Quarterly numbers", NOW, HIGH, PENDING, Set.of("work"), null, 0L, NOW);
+    Task home = new Task("2", "Paint fence", "Needs a report on paint", NOW.plusSeconds(60), LOW, PENDING, Set.of("home"), null, 0L, NOW);
+    InMemoryTaskRepository taskRepository;
+
+    @BeforeEach
+    void setUp() {
+        taskRepository = new InMemoryTaskRepository();
+        taskRepository.save(work);
+        taskRepository.save(home);
+    }
+
+    @Test
+    @DisplayName("finds tasks through the status and label indexes")
+    void findsByIndexes() {
+        assertAll(
+                () -> assertEquals(List.of(work, home), taskRepository.findByStatus(PENDING), "Incorrect pending tasks"),
+                () -> assertEquals(List.of(), taskRepository.findByStatus(COMPLETED), "Incorrect completed tasks"),
+                () -> assertEquals(List.of(home), taskRepository.findByLabelsIn(Set.of("home")), "Incorrect home tasks"),
+                () -> assertEquals(List.of(work, home), taskRepository.findByLabelsIn(Set.of("home", "work", "other")), "Incorrect tasks for any label")
+        );
+    }
+
+    @Test
+    @DisplayName("moves a saved task between index entries")
+    void reindexesOnSave() {
+        taskRepository.save(work.withStatus(COMPLETED));
+        taskRepository.deleteById("2");
+        assertAll(
+                () -> assertEquals(List.of(), taskRepository.findByStatus(PENDING), "Incorrect pending tasks"),
+                () -> assertEquals(List.of(work.withStatus(COMPLETED)), taskRepository.findByStatus(COMPLETED), "Incorrect completed tasks"),
+                () -> assertEquals(List.of(), taskRepository.findByLabelsIn(Set.of("home")), "Deleted task should leave the label index"),
+                () -> assertEquals(1, taskRepository.count(), "Incorrect count")
+        );
+    }
+
+    @Test
+    @DisplayName("assigns an id to a task saved without one")
+    void assignsId() {
+        Task saved = taskRepository.save(work.withId(null));
+        assertAll(
+                () -> assertNotNull(saved.id(), "Missing id"),
+                () -> assertEquals(saved, taskRepository.findById(saved.id()).orElseThrow(), "Task should be stored under its new id")
+        );
+    }
+
+    @Test
+    @DisplayName("pages tasks in id order")
+    void pagesById() {
+        taskRepository.save(work.withId("3"));
+        assertAll(
+                () -> assertEquals(List.of(work, home), taskRepository.findByIdNotNull(PageRequest.of(0, 2, ASC, "id")), "Incorrect first page"),
+                () -> assertEquals(List.of(work.withId("3")), taskRepository.findByIdGreaterThan("2", PageRequest.of(0, 2, ASC, "id")), "Incorrect next page")
+        );
+    }
+
+    @Test
+    @DisplayName("pages through a large store by cursor")
+    void pagesThroughLargeStore() {
+        for (int i = 3; i <= 10_000; i++) {
+            taskRepository.save(work.withId(format("%05d", i)));
+        }
+        List<String> ids = new ArrayList<>();
+        List<Task> page = taskRepository.findByIdNotNull(PageRequest.of(0, 100, ASC, "id"));
+        while (!page.isEmpty()) {
+            page.forEach(task -> ids.add(task.id()));
+            page = taskRepository.findByIdGreaterThan(ids.get(ids.size() - 1), PageRequest.of(0, 100, ASC, "id"));
+        }
+        assertAll(
+                () -> assertEquals(10_000, ids.size(), "Every task should be paged once"),
+                () -> assertEquals(ids.stream().sorted().toList(), ids, "Pages should follow id order")
+        );
+    }
+
+    @Test
+    @DisplayName("changes status only at the expected version and returns the previous task")
+    void updatesStatus() {
+        assertAll(
+                () -> assertTrue(taskRepository.updateStatus("1", COMPLETED, 5L, NOW).isEmpty(), "Stale version should not match"),
+                () -> assertEquals(work, taskRepository.updateStatus("1", COMPLETED, 0L, NOW.plusSeconds(1)).orElseThrow(), "Incorrect previous task"),
+                () -> assertEquals(work.withStatus(COMPLETED).withVersion(1L).withUpdatedAt(NOW.plusSeconds(1)),
+                        taskRepository.findById("1").orElseThrow(), "Incorrect updated task"),
+                () -> assertTrue(taskRepository.updateStatus("9", COMPLETED, null, NOW).isEmpty(), "Unknown task should not match")
+        );
+    }
+
+    @Test
+    @DisplayName("changes statuses in bulk only for tasks still at the version and status they were read with")
+    void updatesStatuses() {
+        Set<String> updated = taskRepository.updateStatuses(List.of(work, home.withVersion(5L), work.withId("9")), COMPLETED, NOW.plusSeconds(1));
+        assertAll(
+                () -> assertEquals(Set.of("1"), updated, "Incorrect updated ids"),
+                () -> assertEquals(work.withStatus(COMPLETED).withVersion(1L).withUpdatedAt(NOW.plusSeconds(1)),
+                        taskRepository.findById("1").orElseThrow(), "Incorrect updated task"),
+                () -> assertEquals(home, taskRepository.findById("2").orElseThrow(), "Stale task should be left alone")
+        );
+    }
+
+    @Test
+    @DisplayName("pages status change candidates by id, skipping tasks already at the target")
+    void findsStatusChangeCandidates() {
+        taskRepository.save(work.withId("3").withStatus(COMPLETED));
+        assertAll(
+                () -> assertEquals(List.of(work, home), taskRepository.findStatusChangeCandidates(null, null, COMPLETED, null, 10), "Incorrect candidates"),
+                () -> assertEquals(List.of(home), taskRepository.findStatusChangeCandidates(null, PENDING, COMPLETED, "1", 10), "Incorrect next page"),
+                () -> assertEquals(List.of(work), taskRepository.findStatusChangeCandidates(Set.of("work"), null, COMPLETED, null, 10), "Incorrect labelled candidates"),
+                () -> assertEquals(List.of(work), taskRepository.findStatusChangeCandidates(null, PENDING, IN_PROGRESS, null, 1), "Incorrect limited page"),
+                () -> assertEquals(List.of(), taskRepository.findStatusChangeCandidates(null, COMPLETED, COMPLETED, null, 10), "Nothing moves to the status it has")
+        );
+    }
+
+    @Test
+    @DisplayName("reports duplicate ids from a bulk insert by position")
+    void insertsAll() {
+        Map<Integer, String> failures = taskRepository.insertAll(List.of(work.withId("3"), home));
+        assertAll(
+                () -> assertEquals(Set.of(1), failures.keySet(), "Incorrect failures"),
+                () -> assertTrue(taskRepository.existsById("3"), "New task should be inserted"),
+                () -> assertThrows(DuplicateKeyException.class, () -> taskRepository.insert(work), "Duplicate insert should fail")
+        );
+    }
+
+    @Test
+    @DisplayName("keeps only the requested fields and the id when projecting")
+    void projects() {
+        assertEquals(List.of(new Task("1", "Write report", null, null, null, PENDING, null, null, null, null)),
+                taskRepository.findProjectedByLabels(Set.of("work"), Set.of("name", "status")), "Incorrect projection");
+    }
+
+    @Test
+    @DisplayName("counts tasks created in a window")
+    void countsTasks() {
+        assertAll(
+                () -> assertEquals(2, taskRepository.countTasks(null, null).total(), "Incorrect total"),
+                () -> assertEquals(Map.of("home", 1L), taskRepository.countTasks(NOW.plusSeconds(1), null).byLabel(), "Incorrect labels in window"),
+                () -> assertEquals(1L, taskRepository.countTasks(null, NOW.plusSeconds(1)).byPriority().get(HIGH), "Incorrect priority in window")
+        );
+    }
+
+    @Test
+    @DisplayName("ranks name matches above description matches when searching")
+    void searches() {
+        assertAll(
+                () -> assertEquals(List.of(work, home), taskRepository.search("Report", null, null, 0, 10), "Incorrect ranking"),
+                () -> assertEquals(List.of(home), taskRepository.search("report", Set.of("home"), null, 0, 10), "Incorrect label filter"),
+                () -> assertEquals(List.of(home), taskRepository.search("report", null, null, 1, 10), "Incorrect skip"),
+                () -> assertEquals(List.of(), taskRepository.search("report", null, IN_PROGRESS, 0, 10), "Incorrect status filter")
+        );
+    }
+
+    @Test
+    @DisplayName("serves the aggregate root without Mongo")
+    void servesAggregateRoot() {
+        TaskAggregateRoot taskAggregateRoot = aTaskAggregateRoot(taskRepository).build();
+        Task added = taskAggregateRoot.addTask(work.withId(null));
+        taskAggregateRoot.markInProgress(added.id(), 0L);
+        assertAll(
+                () -> assertEquals(IN_PROGRESS, taskAggregateRoot.findById(added.id()).orElseThrow().status(), "Incorrect status"),
+                () -> assertThrows(TaskVersionConflictException.class, () -> taskAggregateRoot.markComplete(added.id(), 0L), "Stale version should conflict"),
+                () -> assertEquals(1, taskAggregateRoot.findByStatus(IN_PROGRESS).size(), "Incorrect in-progress tasks")
+        );
+    }
+
+    @Test
+    @DisplayName("replaces a task only at the expected version")
+    void replacesAtVersion() {
+        Task completed = work.withStatus(COMPLETED).withVersion(1L);
+        assertAll(
+                () -> assertEquals(Optional.of(work), taskRepository.replace(completed, 0L), "Expected the replaced task"),
+                () -> assertEquals(Optional.empty(), taskRepository.replace(completed.withVersion(2L), 0L), "Expected a version miss"),
+                () -> assertEquals(Optional.empty(), taskRepository.replace(completed.withId("9"), null), "Expected a missing task"),
+                () -> assertEquals(completed, taskRepository.findById("1").orElseThrow(), "Replaced task should be kept")
+        );
+    }
+
+    @Test
+    @DisplayName("saves a task only over an older copy")
+    void savesIfNewer() {
+        Task completed = work.withStatus(COMPLETED).withVersion(1L);
+        assertAll(
+                () -> assertTrue(taskRepository.saveIfNewer(completed), "Newer task should be saved"),
+                () -> assertFalse(taskRepository.saveIfNewer(work), "Older task should not be saved"),
+                () -> assertEquals(completed, taskRepository.findById("1").orElseThrow(), "Newer task should be kept")
+        );
+    }
+
+    @Nested
+    @DisplayName("when persisting to disk")
+    class Persistence {
+        @TempDir
+        Path directory;
+
+        @Test
+        @DisplayName("recovers writes from the log")
+        void recoversFromLog() throws IOException {
+            try (InMemoryTaskRepository persistent = new InMemoryTaskRepository(directory, OBJECT_MAPPER, 100)) {
+                persistent.save(work);
+                persistent.save(home);
+                persistent.updateStatus("1", COMPLETED, 0L, NOW);
+                persistent.deleteById("2");
+            }
+            try (InMemoryTaskRepository recovered = new InMemoryTaskRepository(directory, OBJECT_MAPPER, 100)) {
+                assertAll(
+                        () -> assertEquals(List.of("1"), recovered.findAll().stream().map(Task::id).toList(), "Incorrect tasks"),
+                        () -> assertEquals(1, recovered.findByStatus(COMPLETED).size(), "Status index should be rebuilt"),
+                        () -> assertEquals(List.of(), recovered.findByLabelsIn(Set.of("home")), "Label index should be rebuilt")
+                );
+            }
+        }
+
+        @Test
+        @DisplayName("folds the log into a snapshot once it grows past the limit")
+        void compacts() throws IOException {
+            try (InMemoryTaskRepository persistent = new InMemoryTaskRepository(directory, OBJECT_MAPPER, 2)) {
+                persistent.save(work);
+                persistent.save(home);
+                persistent.save(work.withId("3"));
+            }
+            try (InMemoryTaskRepository recovered = new InMemoryTaskRepository(directory, OBJECT_MAPPER, 2)) {
+                assertAll(
+                        () -> assertEquals(2, Files.readAllLines(directory.resolve(InMemoryTaskLog.SNAPSHOT)).size(), "Incorrect snapshot"),
+                        () -> assertEquals(1, Files.readAllLines(directory.resolve(InMemoryTaskLog.LOG)).size(), "Log should restart after the snapshot"),
+                        () -> assertEquals(3, recovered.count(), "Incorrect recovered tasks")
+                );
+            }
+        }
+
+        @Test
+        @DisplayName("ignores a half-written last entry")
+        void ignoresTornWrite() throws IOException {
+            try (InMemoryTaskRepository persistent = new InMemoryTaskRepository(directory, OBJECT_MAPPER, 100)) {
+                persistent.save(work);
+            }
+            Files.writeString(directory.resolve(InMemoryTaskLog.LOG), "{\"op\":\"PUT\",\"task\":{\"id\":", APPEND);
+            try (InMemoryTaskRepository recovered = new InMemoryTaskRepository(directory, OBJECT_MAPPER, 100)) {
+                assertEquals(List.of(work), recovered.findAll(), "Incorrect recovered tasks");
+            }
+        }
+
+        @Test
+        @DisplayName("keeps writes made after recovering from a half-written entry")
+        void appendsAfterTornWrite() throws IOException {
+            try (InMemoryTaskRepository persistent = new InMemoryTaskRepository(directory, OBJECT_MAPPER, 100)) {
+                persistent.save(work);
+            }
+            Files.writeString(directory.resolve(InMemoryTaskLog.LOG), "{\"op\":\"PUT\",\"task\":{\"id\":", APPEND);
+            try (InMemoryTaskRepository recovered = new InMemoryTaskRepository(directory, OBJECT_MAPPER, 100)) {
+                recovered.save(home);
+            }
+            try (InMemoryTaskRepository recovered = new InMemoryTaskRepository(directory, OBJECT_MAPPER, 100)) {
+                recovered.save(work.withId("3"));
+            }
+            try (InMemoryTaskRepository recovered = new InMemoryTaskRepository(directory, OBJECT_MAPPER, 100)) {
+                assertEquals(List.of("1", "2", "3"), recovered.findAll().stream().map(Task::id).sorted().toList(), "Writes after the torn entry should survive restarts");
+            }
+        }
+    }
+}
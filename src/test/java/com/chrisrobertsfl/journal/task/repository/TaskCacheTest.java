@@ -0,0 +1,56 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static java.util.Optional.empty;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Given Task Cache")
+class TaskCacheTest {
+    Task task = new Task("1", "Task 1", "Description", null, HIGH, PENDING, null, null);
+    TaskCache taskCache;
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        taskCache = new TaskCache(100, Duration.ofMinutes(1));
+        registry = new SimpleMeterRegistry();
+        taskCache.bindTo(registry);
+    }
+
+    @Test
+    @DisplayName("records hits and misses")
+    void recordsHitsAndMisses() {
+        taskCache.get("1", id -> Optional.of(task));
+        taskCache.get("1", id -> Optional.of(task));
+        taskCache.get("2", id -> empty());
+        assertAll(
+                () -> assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count(), "Incorrect hit count"),
+                () -> assertEquals(2.0, registry.get("cache.gets").tag("result", "miss").functionCounter().count(), "Incorrect miss count")
+        );
+    }
+
+    @Test
+    @DisplayName("returns a put task without loading it")
+    void returnsPutTask() {
+        taskCache.put(task);
+        assertEquals(Optional.of(task), taskCache.get("1", id -> fail("Should not load a cached task")), "Incorrect task");
+    }
+
+    @Test
+    @DisplayName("loads an invalidated task again")
+    void loadsInvalidatedTask() {
+        taskCache.put(task);
+        taskCache.invalidate("1");
+        assertEquals(empty(), taskCache.get("1", id -> empty()), "Task should not be present");
+    }
+}
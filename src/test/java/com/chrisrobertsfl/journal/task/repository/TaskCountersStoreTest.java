@@ -0,0 +1,75 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.TaskStatistics;
+import com.chrisrobertsfl.journal.task.repository.TaskCountersStore.StoredCounters;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.Map;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static com.chrisrobertsfl.journal.task.repository.TaskCountersStore.COLLECTION;
+import static com.chrisrobertsfl.journal.task.repository.TaskCountersStore.ID;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Given Task Counters Store")
+class TaskCountersStoreTest {
+    static final TaskStatistics STATISTICS = new TaskStatistics(3, Map.of(PENDING, 3L), Map.of(HIGH, 3L),
+            Map.of("v1.2", 3L, "$release", 1L));
+
+    @Mock
+    MongoOperations mongoOperations;
+    @Mock
+    TaskRepository taskRepository;
+    MappingMongoConverter converter;
+    TaskCountersStore taskCountersStore;
+
+    @BeforeEach
+    void setUp() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(emptyList()).getSimpleTypeHolder());
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        taskCountersStore = new TaskCountersStore(mongoOperations, taskRepository, new TaskCounters());
+    }
+
+    @Test
+    @DisplayName("saves and loads label counts whose labels are not valid field names")
+    void roundTripsDottedLabels() {
+        when(taskRepository.countTasks(null, null)).thenReturn(STATISTICS);
+        taskCountersStore.reconcile();
+        ArgumentCaptor<StoredCounters> saved = ArgumentCaptor.forClass(StoredCounters.class);
+        verify(mongoOperations).save(saved.capture(), eq(COLLECTION));
+        Document document = new Document();
+        converter.write(saved.getValue(), document);
+        StoredCounters stored = converter.read(StoredCounters.class, document);
+        when(mongoOperations.findById(ID, StoredCounters.class, COLLECTION)).thenReturn(stored);
+        assertEquals(STATISTICS, taskCountersStore.load().orElseThrow(), "Incorrect loaded statistics");
+    }
+
+    @Test
+    @DisplayName("skips counters saved with the labels as a map")
+    void skipsOldShape() {
+        Document document = new Document("_id", ID).append("statistics", new Document("total", 3L));
+        StoredCounters stored = converter.read(StoredCounters.class, document);
+        when(mongoOperations.findById(ID, StoredCounters.class, COLLECTION)).thenReturn(stored);
+        assertTrue(taskCountersStore.load().isEmpty(), "Old counters should be skipped");
+    }
+}
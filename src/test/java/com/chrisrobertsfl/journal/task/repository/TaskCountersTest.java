@@ -0,0 +1,114 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.model.TaskStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Priority.LOW;
+import static com.chrisrobertsfl.journal.task.model.Status.COMPLETED;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static java.util.Collections.emptyMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Given Task Counters")
+class TaskCountersTest {
+    Task task = new Task("1", "Task 1", "Description", null, HIGH, PENDING, Set.of("work"), null);
+    TaskCounters taskCounters;
+
+    @BeforeEach
+    void setUp() {
+        taskCounters = new TaskCounters();
+    }
+
+    @Test
+    @DisplayName("has no snapshot until loaded")
+    void hasNoSnapshotUntilLoaded() {
+        taskCounters.added(task);
+        assertTrue(taskCounters.snapshot().isEmpty(), "Snapshot should be empty");
+    }
+
+    @Test
+    @DisplayName("counts added tasks on top of the loaded statistics")
+    void countsAddedTasks() {
+        taskCounters.load(new TaskStatistics(1, Map.of(PENDING, 1L), Map.of(LOW, 1L), Map.of("home", 1L)));
+        taskCounters.added(task);
+        TaskStatistics statistics = taskCounters.snapshot().orElseThrow();
+        assertAll(
+                () -> assertEquals(2, statistics.total(), "Incorrect total"),
+                () -> assertEquals(2L, statistics.byStatus().get(PENDING), "Incorrect pending count"),
+                () -> assertEquals(0L, statistics.byStatus().get(COMPLETED), "Incorrect completed count"),
+                () -> assertEquals(1L, statistics.byPriority().get(HIGH), "Incorrect high count"),
+                () -> assertEquals(1L, statistics.byPriority().get(LOW), "Incorrect low count"),
+                () -> assertEquals(Map.of("home", 1L, "work", 1L), statistics.byLabel(), "Incorrect labels")
+        );
+    }
+
+    @Test
+    @DisplayName("moves a replaced task between statuses")
+    void movesReplacedTask() {
+        taskCounters.load(new TaskStatistics(1, Map.of(PENDING, 1L), Map.of(HIGH, 1L), Map.of("work", 1L)));
+        taskCounters.replaced(task, task.withStatus(COMPLETED));
+        TaskStatistics statistics = taskCounters.snapshot().orElseThrow();
+        assertAll(
+                () -> assertEquals(1, statistics.total(), "Incorrect total"),
+                () -> assertEquals(0L, statistics.byStatus().get(PENDING), "Incorrect pending count"),
+                () -> assertEquals(1L, statistics.byStatus().get(COMPLETED), "Incorrect completed count")
+        );
+    }
+
+    @Test
+    @DisplayName("drops labels that are no longer used")
+    void dropsUnusedLabels() {
+        taskCounters.load(new TaskStatistics(1, Map.of(PENDING, 1L), Map.of(HIGH, 1L), Map.of("work", 1L)));
+        taskCounters.removed(task);
+        TaskStatistics statistics = taskCounters.snapshot().orElseThrow();
+        assertAll(
+                () -> assertEquals(0, statistics.total(), "Incorrect total"),
+                () -> assertEquals(emptyMap(), statistics.byLabel(), "Incorrect labels")
+        );
+    }
+
+    @Test
+    @DisplayName("replaces counts when loaded again")
+    void replacesCountsWhenLoaded() {
+        taskCounters.load(new TaskStatistics(1, Map.of(PENDING, 1L), Map.of(HIGH, 1L), Map.of("work", 1L)));
+        taskCounters.added(task);
+        taskCounters.load(new TaskStatistics(1, Map.of(COMPLETED, 1L), Map.of(LOW, 1L), Map.of("home", 1L)));
+        TaskStatistics statistics = taskCounters.snapshot().orElseThrow();
+        assertAll(
+                () -> assertEquals(1, statistics.total(), "Incorrect total"),
+                () -> assertEquals(0L, statistics.byStatus().get(PENDING), "Incorrect pending count"),
+                () -> assertEquals(Map.of("home", 1L), statistics.byLabel(), "Incorrect labels")
+        );
+    }
+
+    @Test
+    @DisplayName("keeps writes counted while a recount runs")
+    void keepsWritesDuringRecount() {
+        taskCounters.load(new TaskStatistics(1, Map.of(PENDING, 1L), Map.of(HIGH, 1L), Map.of("work", 1L)));
+        taskCounters.recount(() -> {
+            taskCounters.added(task.withId("2"));
+            return new TaskStatistics(3, Map.of(PENDING, 3L), Map.of(HIGH, 3L), Map.of("work", 3L));
+        });
+        TaskStatistics statistics = taskCounters.snapshot().orElseThrow();
+        assertAll(
+                () -> assertEquals(4, statistics.total(), "Write during the recount should be kept"),
+                () -> assertEquals(4L, statistics.byStatus().get(PENDING), "Incorrect pending count"),
+                () -> assertEquals(Map.of("work", 4L), statistics.byLabel(), "Incorrect labels")
+        );
+    }
+
+    @Test
+    @DisplayName("counts on from the recount once it finishes")
+    void countsAfterRecount() {
+        taskCounters.recount(() -> new TaskStatistics(1, Map.of(PENDING, 1L), Map.of(HIGH, 1L), Map.of("work", 1L)));
+        taskCounters.removed(task);
+        assertEquals(0, taskCounters.snapshot().orElseThrow().total(), "Incorrect total");
+    }
+}
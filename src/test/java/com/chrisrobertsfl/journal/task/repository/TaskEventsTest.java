@@ -0,0 +1,78 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.model.TaskEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.test.StepVerifier;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static com.chrisrobertsfl.journal.task.model.TaskEvent.Type.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Given Task Events")
+class TaskEventsTest {
+    Task task = new Task("1", "Task 1", "Description", null, HIGH, PENDING, null, null);
+    TaskEvents taskEvents;
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        taskEvents = new TaskEvents(2);
+        registry = new SimpleMeterRegistry();
+        taskEvents.bindTo(registry);
+    }
+
+    @Test
+    @DisplayName("returns the published task")
+    void returnsPublishedTask() {
+        assertSame(task, taskEvents.publish(CREATED, task), "Incorrect task");
+    }
+
+    @Test
+    @DisplayName("delivers events published after subscribing")
+    void deliversEvents() {
+        StepVerifier.create(taskEvents.subscribe())
+                .then(() -> taskEvents.publish(CREATED, task))
+                .then(() -> taskEvents.publish(DELETED, task))
+                .expectNext(new TaskEvent(CREATED, task.toTaskInfo()), new TaskEvent(DELETED, task.toTaskInfo()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("drops the oldest events for a slow subscriber")
+    void dropsOldestEventsForSlowSubscriber() {
+        StepVerifier.create(taskEvents.subscribe(), 0)
+                .then(() -> taskEvents.publish(CREATED, task))
+                .then(() -> taskEvents.publish(UPDATED, task))
+                .then(() -> taskEvents.publish(DELETED, task))
+                .thenRequest(2)
+                .expectNext(new TaskEvent(UPDATED, task.toTaskInfo()), new TaskEvent(DELETED, task.toTaskInfo()))
+                .thenCancel()
+                .verify();
+        assertEquals(1.0, registry.get("journal.task.events.dropped").functionCounter().count(), "Incorrect dropped count");
+    }
+
+    @Test
+    @DisplayName("keeps a fast subscriber up to date while another falls behind")
+    void keepsFastSubscriberUpToDate() {
+        taskEvents.subscribe().subscribe(new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+            }
+        });
+        StepVerifier.create(taskEvents.subscribe())
+                .then(() -> taskEvents.publish(CREATED, task))
+                .then(() -> taskEvents.publish(UPDATED, task))
+                .then(() -> taskEvents.publish(DELETED, task))
+                .expectNextCount(3)
+                .thenCancel()
+                .verify();
+    }
+}
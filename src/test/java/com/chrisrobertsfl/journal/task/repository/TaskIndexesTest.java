@@ -0,0 +1,91 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Subtask;
+import com.chrisrobertsfl.journal.task.model.Task;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Given Task Indexes")
+class TaskIndexesTest {
+    @Mock
+    MongoOperations mongoOperations;
+    @Mock
+    IndexOperations indexOperations;
+    @Mock
+    IndexOperations subtaskIndexOperations;
+    @InjectMocks
+    TaskIndexes taskIndexes;
+
+    @BeforeEach
+    void setUp() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(emptyList()).getSimpleTypeHolder());
+        when(mongoOperations.getConverter()).thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext));
+        when(mongoOperations.indexOps(Task.class)).thenReturn(indexOperations);
+        when(mongoOperations.indexOps(Subtask.class)).thenReturn(subtaskIndexOperations);
+        when(indexOperations.ensureIndex(any())).thenAnswer(invocation -> invocation.<IndexDefinition>getArgument(0).getIndexOptions().getString("name"));
+        when(subtaskIndexOperations.ensureIndex(any())).thenAnswer(invocation -> invocation.<IndexDefinition>getArgument(0).getIndexOptions().getString("name"));
+    }
+
+    @Test
+    @DisplayName("ensures the label, createdAt, status+createdAt and text indexes declared on Task")
+    void ensuresDeclaredIndexes() {
+        ArgumentCaptor<IndexDefinition> indexes = ArgumentCaptor.forClass(IndexDefinition.class);
+
+        List<String> names = taskIndexes.ensureIndexes();
+
+        verify(indexOperations, times(4)).ensureIndex(indexes.capture());
+        List<Document> keys = indexes.getAllValues().stream().map(IndexDefinition::getIndexKeys).toList();
+        assertAll(
+                () -> assertTrue(names.contains("status_createdAt"), "Compound index should be named"),
+                () -> assertTrue(keys.contains(new Document("labels", 1)), "Missing labels index"),
+                () -> assertTrue(keys.contains(new Document("createdAt", 1)), "Missing createdAt index"),
+                () -> assertTrue(keys.contains(new Document("status", 1).append("createdAt", -1)), "Missing status+createdAt index"),
+                () -> assertTrue(keys.stream().anyMatch(key -> "text".equals(key.get("name")) && "text".equals(key.get("description"))),
+                        "Missing name+description text index")
+        );
+    }
+
+    @Test
+    @DisplayName("ensures the unique child order and subtree indexes declared on Subtask")
+    void ensuresSubtaskIndexes() {
+        ArgumentCaptor<IndexDefinition> indexes = ArgumentCaptor.forClass(IndexDefinition.class);
+
+        List<String> names = taskIndexes.ensureIndexes();
+
+        verify(subtaskIndexOperations, times(2)).ensureIndex(indexes.capture());
+        List<Document> keys = indexes.getAllValues().stream().map(IndexDefinition::getIndexKeys).toList();
+        assertAll(
+                () -> assertTrue(names.containsAll(List.of("parentId_position", "ancestors_path_depth")), "Subtask indexes should be named"),
+                () -> assertTrue(keys.contains(new Document("parentId", 1).append("position", 1)), "Missing parentId+position index"),
+                () -> assertTrue(keys.contains(new Document("ancestors", 1).append("path", 1).append("depth", 1)), "Missing ancestors+path+depth index"),
+                () -> assertTrue(indexes.getAllValues().stream()
+                        .filter(index -> index.getIndexKeys().containsKey("parentId"))
+                        .allMatch(index -> index.getIndexOptions().getBoolean("unique", false)), "Child order should be unique")
+        );
+    }
+}
@@ -0,0 +1,122 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.repository.TaskQueryPlanEndpoint.QueryPlan;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+
+import static com.chrisrobertsfl.journal.task.repository.TaskQueryPlanEndpoint.QUERIES;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Given Task Query Plan Endpoint")
+class TaskQueryPlanEndpointTest {
+    // Custom queries that only ever address a task by id, or write without a filter
+    static final Set<String> KEYED_WRITES = Set.of("updateStatus", "updateStatuses", "replace", "saveIfNewer", "insertAll");
+
+    @Mock
+    MongoOperations mongoOperations;
+    @Mock
+    MongoCollection<Document> collection;
+    @Mock
+    FindIterable<Document> found;
+    TaskQueryPlanEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(emptyList()).getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        when(mongoOperations.getConverter()).thenReturn(converter);
+        endpoint = new TaskQueryPlanEndpoint(mongoOperations);
+    }
+
+    @Test
+    @DisplayName("has a shape for every custom query that filters by more than the id")
+    void coversCustomQueries() {
+        Set<String> shapes = QUERIES.stream().map(TaskQueryPlanEndpoint.QueryShape::name).collect(toSet());
+        Set<String> missing = Set.of(TaskRepositoryCustom.class.getDeclaredMethods()).stream()
+                .map(Method::getName)
+                .filter(name -> !KEYED_WRITES.contains(name) && !shapes.contains(name))
+                .collect(toSet());
+        assertEquals(Set.of(), missing, "Custom queries without a shape");
+    }
+
+    @Test
+    @DisplayName("flags queries whose winning plan scans the collection")
+    void flagsCollectionScans() {
+        when(mongoOperations.getCollectionName(Task.class)).thenReturn("task");
+        when(mongoOperations.getCollection("task")).thenReturn(collection);
+        when(collection.find(any(Bson.class))).thenReturn(found);
+        when(found.sort(any())).thenReturn(found);
+        when(found.explain()).thenReturn(
+                plan(new Document("stage", "FETCH").append("inputStage", new Document("stage", "IXSCAN"))),
+                plan(new Document("stage", "COLLSCAN")),
+                plan(new Document("stage", "FETCH").append("inputStage", new Document("stage", "IXSCAN"))),
+                plan(new Document("stage", "FETCH").append("inputStage", new Document("stage", "IXSCAN"))));
+
+        List<QueryPlan> plans = endpoint.queryPlans();
+
+        assertAll(
+                () -> assertEquals(QUERIES.size(), plans.size(), "Incorrect number of plans"),
+                () -> assertEquals("findByLabelsIn", plans.get(0).query(), "Incorrect query"),
+                () -> assertEquals(List.of("FETCH", "IXSCAN"), plans.get(0).stages(), "Incorrect stages"),
+                () -> assertFalse(plans.get(0).collectionScan(), "Index scan should not be flagged"),
+                () -> assertEquals("findByStatus", plans.get(1).query(), "Incorrect query"),
+                () -> assertTrue(plans.get(1).collectionScan(), "Collection scan should be flagged")
+        );
+    }
+
+    @Test
+    @DisplayName("explains the filters as they are stored")
+    void mapsFilters() {
+        when(mongoOperations.getCollectionName(Task.class)).thenReturn("task");
+        when(mongoOperations.getCollection("task")).thenReturn(collection);
+        when(collection.find(any(Bson.class))).thenReturn(found);
+        when(found.sort(any())).thenReturn(found);
+        when(found.explain()).thenReturn(plan(new Document("stage", "COLLSCAN")));
+
+        List<QueryPlan> plans = endpoint.queryPlans();
+
+        assertAll(
+                () -> assertEquals(new Document("status", new Document("$ne", "COMPLETED")).append("labels", new Document("$in", List.of("label"))).toJson(),
+                        filterOf(plans, "findStatusChangeCandidates"), "Incorrect status change filter"),
+                () -> assertEquals(new Document("_id", new Document("$gt", "")).toJson(),
+                        filterOf(plans, "summarizePage"), "Incorrect page filter")
+        );
+    }
+
+    static String filterOf(List<QueryPlan> plans, String query) {
+        return plans.stream()
+                .filter(plan -> plan.query().equals(query))
+                .findFirst()
+                .orElseThrow()
+                .filter();
+    }
+
+    static Document plan(Document winningPlan) {
+        return new Document("queryPlanner", new Document("winningPlan", winningPlan));
+    }
+}
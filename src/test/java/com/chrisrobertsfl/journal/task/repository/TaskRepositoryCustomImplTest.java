@@ -0,0 +1,292 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.model.TaskStatistics;
+import com.chrisrobertsfl.journal.task.model.TaskVersionSummary;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Priority.LOW;
+import static com.chrisrobertsfl.journal.task.model.Priority.MEDIUM;
+import static com.chrisrobertsfl.journal.task.model.Status.COMPLETED;
+import static com.chrisrobertsfl.journal.task.model.Status.IN_PROGRESS;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Given Task Repository Custom Implementation")
+class TaskRepositoryCustomImplTest {
+    @Mock
+    MongoOperations mongoOperations;
+    @InjectMocks
+    TaskRepositoryCustomImpl taskRepository;
+
+    @Test
+    @DisplayName("replaces a task only while it is still at the expected version")
+    void replacesAtVersion() {
+        Task task = new Task("1", "Task 1", "Description", null, HIGH, PENDING, Set.of(), null, 4L);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoOperations.findAndReplace(query.capture(), eq(task)))
+                .thenReturn(task.withVersion(3L))
+                .thenReturn(null);
+        assertAll(
+                () -> assertEquals(Optional.of(task.withVersion(3L)), taskRepository.replace(task, 3L), "Expected the replaced copy"),
+                () -> assertEquals(Optional.empty(), taskRepository.replace(task, 3L), "Expected a miss once the version moved on"),
+                () -> assertEquals(Document.parse("{\"id\": \"1\", \"version\": {\"$numberLong\": \"3\"}}"),
+                        query.getValue().getQueryObject(), "Incorrect query")
+        );
+    }
+
+    @Test
+    @DisplayName("replaces only an older copy of a task and reports a newer one as not saved")
+    void savesIfNewer() {
+        Task task = new Task("1", "Task 1", "Description", null, HIGH, PENDING, Set.of(), null, 3L);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoOperations.findAndReplace(query.capture(), eq(task), any(FindAndReplaceOptions.class)))
+                .thenReturn(null)
+                .thenThrow(new DuplicateKeyException("E11000"));
+        assertAll(
+                () -> assertTrue(taskRepository.saveIfNewer(task), "Older copy should be replaced"),
+                () -> assertFalse(taskRepository.saveIfNewer(task), "Newer copy should be kept"),
+                () -> assertEquals(Document.parse("{\"id\": \"1\", \"$and\": [{\"$or\": [{\"version\": {\"$lt\": {\"$numberLong\": \"3\"}}}, {\"version\": null}]}]}"),
+                        query.getValue().getQueryObject(), "Incorrect query")
+        );
+    }
+
+    @Test
+    @DisplayName("sets the status and update time and advances the version in one update")
+    void setsStatusAndAdvancesVersion() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        Instant updatedAt = Instant.parse("2024-01-01T00:00:00Z");
+        taskRepository.updateStatus("1", COMPLETED, null, updatedAt);
+        verify(mongoOperations).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(Task.class));
+        assertAll(
+                () -> assertEquals(new Document("id", "1"), query.getValue().getQueryObject(), "Incorrect query"),
+                () -> assertEquals(new Document("$set", new Document("status", COMPLETED).append("updatedAt", updatedAt)).append("$inc", new Document("version", 1)),
+                        update.getValue().getUpdateObject(), "Incorrect update")
+        );
+    }
+
+    @Test
+    @DisplayName("only matches the expected version when one is given")
+    void matchesExpectedVersion() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        taskRepository.updateStatus("1", COMPLETED, 3L, Instant.now());
+        verify(mongoOperations).findAndModify(query.capture(), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(Task.class));
+        assertEquals(new Document("id", "1").append("version", 3L), query.getValue().getQueryObject(), "Incorrect query");
+    }
+
+    @Test
+    @DisplayName("reports the position of each document the bulk insert rejects")
+    void reportsRejectedDocuments() {
+        BulkOperations bulkOperations = mock(BulkOperations.class);
+        when(mongoOperations.bulkOps(UNORDERED, Task.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(new BulkOperationException("Bulk write failed",
+                new MongoBulkWriteException(BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()),
+                        List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)),
+                        null, new ServerAddress(), Set.of())));
+        List<Task> tasks = List.of(new Task("1", "Task 1", null, null, null, null, null, null),
+                new Task("1", "Task 1", null, null, null, null, null, null));
+        assertEquals(Map.of(1, "E11000 duplicate key"), taskRepository.insertAll(tasks), "Incorrect failures");
+    }
+
+    @Test
+    @DisplayName("guards each bulk status change on the version and status the task was read with")
+    void guardsBulkStatusChanges() {
+        BulkOperations bulkOperations = mock(BulkOperations.class);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        Instant updatedAt = Instant.parse("2024-01-01T00:00:00Z");
+        when(mongoOperations.bulkOps(UNORDERED, Task.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(0, 2, 0, 2, List.of(), List.of()));
+        List<Task> tasks = List.of(new Task("1", "Task 1", null, null, null, PENDING, null, null, 2L),
+                new Task("2", "Task 2", null, null, null, IN_PROGRESS, null, null, 0L));
+        assertEquals(Set.of("1", "2"), taskRepository.updateStatuses(tasks, COMPLETED, updatedAt), "Incorrect updated ids");
+        verify(bulkOperations, times(2)).updateOne(query.capture(), update.capture());
+        assertAll(
+                () -> assertEquals(new Document("id", "1").append("version", 2L).append("status", PENDING),
+                        query.getAllValues().get(0).getQueryObject(), "Incorrect query"),
+                () -> assertEquals(new Document("$set", new Document("status", COMPLETED).append("updatedAt", updatedAt)).append("$inc", new Document("version", 1)),
+                        update.getAllValues().get(1).getUpdateObject(), "Incorrect update")
+        );
+        verify(mongoOperations, never()).find(any(Query.class), eq(Task.class));
+    }
+
+    @Test
+    @DisplayName("reads back which tasks the bulk status change reached when another writer got to some first")
+    void readsBackPartialBulkStatusChange() {
+        BulkOperations bulkOperations = mock(BulkOperations.class);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        Instant updatedAt = Instant.parse("2024-01-01T00:00:00Z");
+        when(mongoOperations.bulkOps(UNORDERED, Task.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of()));
+        when(mongoOperations.find(query.capture(), eq(Task.class))).thenReturn(List.of(new Task("2", null, null, null, null, null, null, null)));
+        List<Task> tasks = List.of(new Task("1", "Task 1", null, null, null, PENDING, null, null, 2L),
+                new Task("2", "Task 2", null, null, null, PENDING, null, null, 0L));
+        assertAll(
+                () -> assertEquals(Set.of("2"), taskRepository.updateStatuses(tasks, COMPLETED, updatedAt), "Incorrect updated ids"),
+                () -> assertEquals(COMPLETED, query.getValue().getQueryObject().get("status"), "Incorrect status"),
+                () -> assertEquals(updatedAt, query.getValue().getQueryObject().get("updatedAt"), "Should match this update's time"),
+                () -> assertEquals(new Document("id", 1), query.getValue().getFieldsObject(), "Incorrect projection")
+        );
+    }
+
+    @Test
+    @DisplayName("pages status change candidates by id within the filter")
+    void findsStatusChangeCandidates() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoOperations.find(query.capture(), eq(Task.class))).thenReturn(List.of());
+        taskRepository.findStatusChangeCandidates(Set.of("work"), null, COMPLETED, "5", 100);
+        assertAll(
+                () -> assertEquals(new Document("status", new Document("$ne", COMPLETED)).append("labels", new Document("$in", Set.of("work")))
+                        .append("id", new Document("$gt", "5")), query.getValue().getQueryObject(), "Incorrect query"),
+                () -> assertEquals(new Document("id", 1), query.getValue().getSortObject(), "Incorrect sort"),
+                () -> assertEquals(100, query.getValue().getLimit(), "Incorrect limit"),
+                () -> assertEquals(List.of(), taskRepository.findStatusChangeCandidates(null, COMPLETED, COMPLETED, null, 100),
+                        "Nothing moves to the status it has")
+        );
+    }
+
+    @Test
+    @DisplayName("pushes the requested fields down as a projection")
+    void projectsRequestedFields() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoOperations.find(query.capture(), eq(Task.class))).thenReturn(List.of());
+        taskRepository.findProjectedPage("1", 10, new LinkedHashSet<>(List.of("id", "name", "status")));
+        assertAll(
+                () -> assertEquals(new Document("id", new Document("$gt", "1")), query.getValue().getQueryObject(), "Incorrect query"),
+                () -> assertEquals(new Document("id", 1).append("name", 1).append("status", 1), query.getValue().getFieldsObject(), "Incorrect projection"),
+                () -> assertEquals(new Document("id", 1), query.getValue().getSortObject(), "Incorrect sort"),
+                () -> assertEquals(10, query.getValue().getLimit(), "Incorrect limit")
+        );
+    }
+
+    @Test
+    @DisplayName("counts tasks by status, priority and label in one aggregation")
+    void countsTasksInOneAggregation() {
+        ArgumentCaptor<TypedAggregation<Task>> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+        Document counts = new Document("total", List.of(new Document("count", 3)))
+                .append("byStatus", List.of(new Document("_id", "PENDING").append("count", 2), new Document("_id", "COMPLETED").append("count", 1)))
+                .append("byPriority", List.of(new Document("_id", "HIGH").append("count", 3)))
+                .append("byLabel", List.of(new Document("_id", "work").append("count", 2), new Document("_id", "home").append("count", 1)));
+        when(mongoOperations.aggregate(aggregation.capture(), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(counts), new Document()));
+        Instant from = Instant.parse("2023-01-01T00:00:00Z");
+
+        TaskStatistics statistics = taskRepository.countTasks(from, null);
+
+        List<Document> pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertAll(
+                () -> assertEquals(3, statistics.total(), "Incorrect total"),
+                () -> assertEquals(Map.of(PENDING, 2L, IN_PROGRESS, 0L, COMPLETED, 1L), statistics.byStatus(), "Incorrect status counts"),
+                () -> assertEquals(Map.of(LOW, 0L, MEDIUM, 0L, HIGH, 3L), statistics.byPriority(), "Incorrect priority counts"),
+                () -> assertEquals(List.of("home", "work"), List.copyOf(statistics.byLabel().keySet()), "Labels should be sorted"),
+                () -> assertEquals(2, pipeline.size(), "Incorrect number of stages"),
+                () -> assertEquals(new Document("$match", new Document("createdAt", new Document("$gte", from))), pipeline.get(0), "Incorrect match stage"),
+                () -> assertTrue(pipeline.get(1).containsKey("$facet"), "Counts should come from a single facet stage")
+        );
+    }
+
+    @Test
+    @DisplayName("counts every task when no range is given")
+    void countsEveryTaskWithoutRange() {
+        ArgumentCaptor<TypedAggregation<Task>> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+        when(mongoOperations.aggregate(aggregation.capture(), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+        TaskStatistics statistics = taskRepository.countTasks(null, null);
+        assertAll(
+                () -> assertEquals(0, statistics.total(), "Incorrect total"),
+                () -> assertEquals(0L, statistics.byStatus().get(PENDING), "Missing statuses should count zero"),
+                () -> assertEquals(1, aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).size(), "Unfiltered count should not match")
+        );
+    }
+
+    @Test
+    @DisplayName("summarizes the versions of a page in one aggregation")
+    void summarizesPage() {
+        ArgumentCaptor<TypedAggregation<Task>> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+        Instant lastModified = Instant.parse("2024-01-01T00:00:00Z");
+        when(mongoOperations.aggregate(aggregation.capture(), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(new Document("count", 2).append("versions", 5L)
+                        .append("lastModified", Date.from(lastModified))), new Document()));
+
+        TaskVersionSummary summary = taskRepository.summarizePage("1", 10);
+
+        List<Document> pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertAll(
+                () -> assertEquals(new TaskVersionSummary(2, 5, lastModified), summary, "Incorrect summary"),
+                () -> assertEquals(new Document("$match", new Document("id", new Document("$gt", "1"))), pipeline.get(0), "Incorrect match stage"),
+                () -> assertEquals(new Document("$limit", 10L), pipeline.get(2), "Incorrect limit stage"),
+                () -> assertTrue(pipeline.get(3).containsKey("$group"), "Versions should be grouped")
+        );
+    }
+
+    @Test
+    @DisplayName("summarizes no matching tasks as empty")
+    void summarizesNoTasks() {
+        when(mongoOperations.aggregate(any(TypedAggregation.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+        assertEquals(new TaskVersionSummary(0, 0, null), taskRepository.summarizeByStatus(COMPLETED), "Incorrect summary");
+    }
+
+    @Test
+    @DisplayName("searches the text index ranked by score with the label and status filters")
+    void searchesTextIndex() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoOperations.find(query.capture(), eq(Task.class))).thenReturn(List.of());
+        taskRepository.search("report", Set.of("work"), COMPLETED, 20, 11);
+        assertAll(
+                () -> assertEquals(new Document("$text", new Document("$search", "report"))
+                                .append("labels", new Document("$in", Set.of("work")))
+                                .append("status", COMPLETED),
+                        query.getValue().getQueryObject(), "Incorrect query"),
+                () -> assertEquals(new Document("score", new Document("$meta", "textScore")).append("id", 1),
+                        query.getValue().getSortObject(), "Results should be ranked by score"),
+                () -> assertEquals(20, query.getValue().getSkip(), "Incorrect skip"),
+                () -> assertEquals(11, query.getValue().getLimit(), "Incorrect limit")
+        );
+    }
+}
@@ -0,0 +1,123 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Status;
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.chrisrobertsfl.journal.task.repository.TaskResponseCache.Response;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Status.COMPLETED;
+import static com.chrisrobertsfl.journal.task.model.Status.IN_PROGRESS;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Given Task Response Cache")
+class TaskResponseCacheTest {
+    static final String PENDING_TASKS = "/api/tasks/status/PENDING";
+    static final String COMPLETED_TASKS = "/api/tasks/status/COMPLETED";
+    static final String WORK_TASKS = "/api/tasks/label?labels=work";
+    static final String HOME_TASKS = "/api/tasks/label?labels=home";
+
+    TaskResponseCache taskResponseCache = new TaskResponseCache(1024 * 1024, Duration.ofMinutes(1), false);
+    Task task = task(PENDING, Set.of("work"));
+
+    @Test
+    @DisplayName("drops only the responses for the statuses and labels a write touches")
+    void dropsAffectedResponses() {
+        cacheAll();
+        taskResponseCache.replaced(task, task.withStatus(IN_PROGRESS));
+        assertAll(
+                () -> assertTrue(taskResponseCache.get(PENDING_TASKS).isEmpty(), "Response for the previous status should be dropped"),
+                () -> assertTrue(taskResponseCache.get(WORK_TASKS).isEmpty(), "Response for the task's label should be dropped"),
+                () -> assertTrue(taskResponseCache.get(COMPLETED_TASKS).isPresent(), "Response for another status should be kept"),
+                () -> assertTrue(taskResponseCache.get(HOME_TASKS).isPresent(), "Response for another label should be kept")
+        );
+    }
+
+    @Test
+    @DisplayName("drops the responses for a status a task moves into")
+    void dropsResponsesForNewStatus() {
+        cacheAll();
+        taskResponseCache.replaced(task, task.withStatus(COMPLETED).withVersion(1L));
+        assertTrue(taskResponseCache.get(COMPLETED_TASKS).isEmpty(), "Response for the new status should be dropped");
+    }
+
+    @Test
+    @DisplayName("drops the responses for an added or removed task")
+    void dropsResponsesForAddedAndRemoved() {
+        cacheAll();
+        taskResponseCache.added(task(PENDING, Set.of("home")));
+        taskResponseCache.removed(task(COMPLETED, Set.of()));
+        assertAll(
+                () -> assertTrue(taskResponseCache.get(HOME_TASKS).isEmpty(), "Response for the added task's label should be dropped"),
+                () -> assertTrue(taskResponseCache.get(COMPLETED_TASKS).isEmpty(), "Response for the removed task's status should be dropped"),
+                () -> assertTrue(taskResponseCache.get(WORK_TASKS).isPresent(), "Response for another label should be kept")
+        );
+    }
+
+    @Test
+    @DisplayName("does not keep a response read before a write")
+    void discardsStaleResponse() {
+        long stamp = taskResponseCache.stamp();
+        taskResponseCache.added(task(COMPLETED, Set.of("other")));
+        taskResponseCache.put(PENDING_TASKS, Response.byStatus("PENDING", "[]".getBytes(UTF_8), "application/json", null, null), stamp);
+        assertTrue(taskResponseCache.get(PENDING_TASKS).isEmpty(), "Stale response should not be kept");
+    }
+
+    @Test
+    @DisplayName("tells write listeners before the stamp moves, even when disabled")
+    void notifiesBeforeStamp() {
+        TaskResponseCache disabled = TaskResponseCache.disabled();
+        List<Long> stamps = new ArrayList<>();
+        disabled.onWrite(() -> stamps.add(disabled.stamp()));
+        long stamp = disabled.stamp();
+        disabled.added(task);
+        disabled.replaced(task, task.withStatus(COMPLETED));
+        disabled.removed(task);
+        assertEquals(List.of(stamp, stamp + 1, stamp + 2), stamps, "Listeners should run on every write ahead of the stamp");
+    }
+
+    @Test
+    @DisplayName("keeps a gzipped copy of each response when asked")
+    void gzipsResponses() throws Exception {
+        TaskResponseCache gzipping = new TaskResponseCache(1024 * 1024, Duration.ofMinutes(1), true);
+        byte[] body = "{\"tasks\":[]}".getBytes(UTF_8);
+        gzipping.put(PENDING_TASKS, Response.byStatus("PENDING", body, "application/json", null, null), gzipping.stamp());
+        Response cached = gzipping.get(PENDING_TASKS).orElseThrow();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(cached.gzipped()))) {
+            assertArrayEquals(body, in.readAllBytes(), "Gzipped copy should decompress to the body");
+        }
+    }
+
+    @Test
+    @DisplayName("keeps nothing when disabled")
+    void disabled() {
+        TaskResponseCache disabled = TaskResponseCache.disabled();
+        disabled.put(PENDING_TASKS, Response.byStatus("PENDING", new byte[0], "application/json", null, null), disabled.stamp());
+        assertAll(
+                () -> assertFalse(disabled.isEnabled(), "Cache should be disabled"),
+                () -> assertTrue(disabled.get(PENDING_TASKS).isEmpty(), "Nothing should be kept")
+        );
+    }
+
+    void cacheAll() {
+        long stamp = taskResponseCache.stamp();
+        taskResponseCache.put(PENDING_TASKS, Response.byStatus("PENDING", new byte[1], "application/json", null, null), stamp);
+        taskResponseCache.put(COMPLETED_TASKS, Response.byStatus("COMPLETED", new byte[1], "application/json", null, null), stamp);
+        taskResponseCache.put(WORK_TASKS, Response.byLabels(Set.of("work"), new byte[1], "application/json", null, null), stamp);
+        taskResponseCache.put(HOME_TASKS, Response.byLabels(Set.of("home"), new byte[1], "application/json", null, null), stamp);
+    }
+
+    static Task task(Status status, Set<String> labels) {
+        return new Task("1", "Task 1", "Description", null, HIGH, status, labels, null);
+    }
+}
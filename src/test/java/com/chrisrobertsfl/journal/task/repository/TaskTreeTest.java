@@ -0,0 +1,251 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Subtask;
+import com.chrisrobertsfl.journal.task.model.Task;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Status.COMPLETED;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.data.domain.Sort.Direction.ASC;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Given Task Tree")
+class TaskTreeTest {
+    static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Mock
+    SubtaskRepository subtaskRepository;
+    @InjectMocks
+    TaskTree taskTree;
+    Task task = task("1", List.of(
+            task("1.1", List.of(task("1.1.1", null), task("1.1.2", null))),
+            task("1.2", emptyList())));
+
+    @Test
+    @DisplayName("flattens a tree parent first with ancestors, depth and a path that sorts in order")
+    void flattensTree() {
+        List<Subtask> flattened = TaskTree.flatten("1", List.of("1"), "", 1, task.subtasks(), NOW);
+        assertAll(
+                () -> assertEquals(List.of("1.1", "1.1.1", "1.1.2", "1.2"), flattened.stream().map(Subtask::id).toList(), "Incorrect order"),
+                () -> assertEquals(List.of("1", "1.1"), flattened.get(2).ancestors(), "Incorrect ancestors"),
+                () -> assertEquals("1.1", flattened.get(2).parentId(), "Incorrect parent"),
+                () -> assertEquals(2, flattened.get(2).depth(), "Incorrect depth"),
+                () -> assertEquals(2L, flattened.get(2).position(), "Incorrect position"),
+                () -> assertEquals("0000000001/0000000002", flattened.get(2).path(), "Incorrect path"),
+                () -> assertEquals(flattened.stream().map(Subtask::path).sorted().toList(), flattened.stream().map(Subtask::path).toList(),
+                        "Sorting by path should keep parents ahead of their children"),
+                () -> assertEquals(0L, flattened.get(0).version(), "Subtasks should start at version 0"),
+                () -> assertEquals(NOW, flattened.get(0).updatedAt(), "Incorrect updatedAt")
+        );
+    }
+
+    @Test
+    @DisplayName("assigns an id to new subtasks")
+    void assignsIds() {
+        List<Subtask> flattened = TaskTree.flatten("1", List.of("1"), "", 1, List.of(task(null, List.of(task(null, null)))), NOW);
+        assertAll(
+                () -> assertTrue(ObjectId.isValid(flattened.get(0).id()), "Expected a generated id"),
+                () -> assertEquals(flattened.get(0).id(), flattened.get(1).parentId(), "Child should point at the generated id")
+        );
+    }
+
+    @Test
+    @DisplayName("flattens a deep tree without overflowing the stack")
+    void flattensDeepTree() {
+        Task deepest = task("0", null);
+        for (int depth = 1; depth <= 10_000; depth++) {
+            deepest = task(String.valueOf(depth), List.of(deepest));
+        }
+        List<Subtask> flattened = TaskTree.flatten("root", List.of("root"), "", 1, List.of(deepest), NOW);
+        assertEquals(10_001, flattened.get(flattened.size() - 1).depth(), "Incorrect deepest subtask");
+    }
+
+    @Test
+    @DisplayName("assembles flattened subtasks back into the tree")
+    void assemblesTree() {
+        List<Task> assembled = TaskTree.assemble("1", TaskTree.flatten("1", List.of("1"), "", 1, task.subtasks(), NOW));
+        assertAll(
+                () -> assertEquals(List.of("1.1", "1.2"), assembled.stream().map(Task::id).toList(), "Incorrect subtasks"),
+                () -> assertEquals(List.of("1.1.1", "1.1.2"), assembled.get(0).subtasks().stream().map(Task::id).toList(), "Incorrect nested subtasks"),
+                () -> assertEquals(task.subtasks().get(0).subtasks().get(0).withVersion(0L).withUpdatedAt(NOW).withSubtasks(emptyList()),
+                        assembled.get(0).subtasks().get(0), "Incorrect nested subtask")
+        );
+    }
+
+    @Test
+    @DisplayName("stores a new task's subtasks as documents")
+    void insertsSubtasks() {
+        Task added = task.withUpdatedAt(NOW);
+        when(subtaskRepository.insert(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        Task inserted = taskTree.insert(taskTree.detach(added), added.subtasks());
+        assertAll(
+                () -> assertNull(taskTree.detach(added).subtasks(), "Task should be stored without its subtasks"),
+                () -> assertEquals(List.of("1.1", "1.2"), inserted.subtasks().stream().map(Task::id).toList(), "Incorrect subtasks")
+        );
+        verify(subtaskRepository).insert(anyList());
+    }
+
+    @Test
+    @DisplayName("keeps the stored tree when an update leaves the subtasks out")
+    void keepsTreeWithoutSubtasks() {
+        Task updated = task.withSubtasks(null);
+        assertSame(updated, taskTree.replace(updated, null), "Task should be returned as is");
+        verify(subtaskRepository, never()).deleteByAncestors(any());
+    }
+
+    @Test
+    @DisplayName("removes the stored tree when an update carries no subtasks")
+    void replacesTree() {
+        List<Subtask> stored = TaskTree.flatten("1", List.of("1"), "", 1, task.subtasks(), NOW);
+        when(subtaskRepository.findByAncestors("1")).thenReturn(stored);
+        taskTree.replace(task.withSubtasks(null), emptyList());
+        verify(subtaskRepository).deleteAllById(List.of("1.1", "1.1.1", "1.1.2", "1.2"));
+        verify(subtaskRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("writes the new tree past the old positions before removing what it no longer has")
+    void writesNewTreeFirst() {
+        List<Subtask> stored = TaskTree.flatten("1", List.of("1"), "", 1, task.subtasks(), NOW);
+        when(subtaskRepository.findByAncestors("1")).thenReturn(stored);
+        when(subtaskRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        Task replaced = taskTree.replace(task.withSubtasks(null).withUpdatedAt(NOW), List.of(task("1.1", List.of(task("1.1.3", null)))));
+        ArgumentCaptor<List<Subtask>> saved = ArgumentCaptor.forClass(List.class);
+        InOrder order = inOrder(subtaskRepository);
+        order.verify(subtaskRepository).saveAll(saved.capture());
+        order.verify(subtaskRepository).deleteAllById(List.of("1.1.1", "1.1.2", "1.2"));
+        assertAll(
+                () -> assertEquals(List.of(3L, 3L), saved.getValue().stream().map(Subtask::position).toList(), "New positions should follow the old ones"),
+                () -> assertEquals(List.of("1.1"), replaced.subtasks().stream().map(Task::id).toList(), "Incorrect subtasks"),
+                () -> assertEquals(List.of("1.1.3"), replaced.subtasks().get(0).subtasks().stream().map(Task::id).toList(), "Incorrect nested subtasks")
+        );
+    }
+
+    @Test
+    @DisplayName("loads a subtree to the given depth in path order")
+    void loadsToDepth() {
+        List<Subtask> stored = TaskTree.flatten("1", List.of("1"), "", 1, task.subtasks(), NOW);
+        when(subtaskRepository.findByAncestorsAndDepthLessThanEqual("1", 1, Sort.by("path")))
+                .thenReturn(List.of(stored.get(0), stored.get(3)));
+        Task loaded = taskTree.load(task.withSubtasks(null), 1);
+        assertEquals(List.of("1.1", "1.2"), loaded.subtasks().stream().map(Task::id).toList(), "Incorrect subtasks");
+    }
+
+    @Test
+    @DisplayName("loads below a subtask relative to its own depth")
+    void loadsBelowSubtask() {
+        List<Subtask> stored = TaskTree.flatten("1", List.of("1"), "", 1, task.subtasks(), NOW);
+        when(subtaskRepository.findByAncestorsAndDepthLessThanEqual("1.1", 2, Sort.by("path"))).thenReturn(stored.subList(1, 3));
+        Task loaded = taskTree.load(stored.get(0), 1);
+        assertEquals(List.of("1.1.1", "1.1.2"), loaded.subtasks().stream().map(Task::id).toList(), "Incorrect subtasks");
+    }
+
+    @Test
+    @DisplayName("returns a task that still embeds its subtasks as it is")
+    void loadsEmbeddedTask() {
+        assertSame(task, taskTree.load(task, 3), "Embedded subtasks should be returned as they are");
+        verify(subtaskRepository, never()).findByAncestorsAndDepthLessThanEqual(any(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("lists children by position")
+    void listsChildren() {
+        taskTree.findChildren("1", 5, 10);
+        verify(subtaskRepository).findByParentIdAndPositionGreaterThan("1", 5, PageRequest.of(0, 10, ASC, "position"));
+    }
+
+    @Test
+    @DisplayName("adds a subtask after its last sibling and tries the next position when another writer took it")
+    void addsAfterLastSibling() {
+        Subtask parent = TaskTree.flatten("1", List.of("1"), "", 1, task.subtasks(), NOW).get(0);
+        Subtask lastChild = TaskTree.flatten("1.1", List.of("1", "1.1"), parent.path(), 2, List.of(task("1.1.2", null)), NOW).get(0);
+        List<List<Subtask>> attempts = new ArrayList<>();
+        when(subtaskRepository.findFirstByParentIdOrderByPositionDesc("1.1")).thenReturn(Optional.of(lastChild));
+        when(subtaskRepository.insert(anyList())).thenAnswer(invocation -> {
+            attempts.add(invocation.getArgument(0));
+            if (attempts.size() == 1) {
+                throw new DuplicateKeyException("E11000 duplicate key");
+            }
+            return invocation.getArgument(0);
+        });
+        Task added = taskTree.add(parent, task("1.1.3", null), NOW);
+        Subtask stored = attempts.get(1).get(0);
+        assertAll(
+                () -> assertEquals("1.1.3", added.id(), "Incorrect subtask"),
+                () -> assertEquals(3L, stored.position(), "Incorrect position"),
+                () -> assertEquals("0000000001/0000000003", stored.path(), "Incorrect path"),
+                () -> assertEquals(List.of("1", "1.1"), stored.ancestors(), "Incorrect ancestors")
+        );
+        verify(subtaskRepository, times(2)).insert(anyList());
+    }
+
+    @Test
+    @DisplayName("deletes a subtask's children before the subtask")
+    void deletesChildrenFirst() {
+        Subtask subtask = TaskTree.flatten("1", List.of("1"), "", 1, task.subtasks(), NOW).get(0);
+        taskTree.delete(subtask);
+        InOrder order = inOrder(subtaskRepository);
+        order.verify(subtaskRepository).deleteByAncestors("1.1");
+        order.verify(subtaskRepository).deleteById("1.1");
+    }
+
+    @Test
+    @DisplayName("keeps subtasks embedded and touches nothing when embedded")
+    void embedded() {
+        TaskTree embedded = TaskTree.embedded();
+        assertAll(
+                () -> assertFalse(embedded.isEnabled(), "Tree should be embedded"),
+                () -> assertSame(task, embedded.detach(task), "Task should keep its subtasks"),
+                () -> assertSame(task, embedded.insert(task, task.subtasks()), "Nothing should be inserted"),
+                () -> assertSame(task, embedded.replace(task, task.subtasks()), "Nothing should be replaced"),
+                () -> assertEquals(Optional.empty(), embedded.findById("1.1"), "No subtask documents")
+        );
+    }
+
+    @Test
+    @DisplayName("copies a subtask's fields on update but keeps its place in the tree")
+    void updatesFieldsOnly() {
+        Subtask subtask = TaskTree.flatten("1", List.of("1"), "", 1, task.subtasks(), NOW).get(2);
+        Subtask updated = subtask.update(task("other", null).withStatus(COMPLETED), 1L, NOW);
+        assertAll(
+                () -> assertEquals(subtask.id(), updated.id(), "Id should not change"),
+                () -> assertEquals(subtask.path(), updated.path(), "Path should not change"),
+                () -> assertEquals(subtask.ancestors(), updated.ancestors(), "Ancestors should not change"),
+                () -> assertEquals(COMPLETED, updated.status(), "Incorrect status"),
+                () -> assertEquals(1L, updated.version(), "Incorrect version"),
+                () -> assertEquals("1", updated.taskId(), "Incorrect task")
+        );
+    }
+
+    static Task task(String id, List<Task> subtasks) {
+        return new Task(id, "Task " + id, "Description " + id, null, HIGH, PENDING, Set.of("work"), subtasks);
+    }
+}
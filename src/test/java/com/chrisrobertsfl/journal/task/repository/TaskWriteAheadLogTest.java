@@ -0,0 +1,210 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Status.COMPLETED;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static com.chrisrobertsfl.journal.task.repository.TaskWriteAheadLog.FsyncPolicy.ALWAYS;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Given Task Write-Ahead Log")
+class TaskWriteAheadLogTest {
+    static final Instant NOW = Instant.parse("2024-01-01T00:00:00.123456789Z");
+    static final DataAccessResourceFailureException DOWN = new DataAccessResourceFailureException("Mongo is down");
+
+    @TempDir
+    Path directory;
+    @Mock
+    TaskStore taskRepository;
+    TaskWriteAheadLog taskLog;
+    Task task = new Task("1", "Task 1", "Description", NOW, HIGH, PENDING, Set.of("work", "home"),
+            List.of(new Task("1.1", "Subtask", null, null, null, null, null, null)), 3L, NOW);
+
+    @BeforeEach
+    void setUp() {
+        taskLog = new TaskWriteAheadLog(taskRepository, directory, ALWAYS, 1024, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskLog.close();
+    }
+
+    @Test
+    @DisplayName("acknowledges a write once it is logged and applies it on replay")
+    void appliesWriteOnReplay() {
+        when(taskRepository.saveIfNewer(task)).thenReturn(true);
+        assertAll(
+                () -> assertEquals(task, taskLog.put(task), "Incorrect task"),
+                () -> assertEquals(1, taskLog.pending(), "Write should be pending until replayed")
+        );
+        verify(taskRepository, never()).saveIfNewer(any());
+        taskLog.replay();
+        assertEquals(0, taskLog.pending(), "Nothing should be pending");
+        verify(taskRepository).saveIfNewer(task);
+    }
+
+    @Test
+    @DisplayName("keeps a write pending while the repository is down")
+    void replaysRejectedWrite() {
+        when(taskRepository.saveIfNewer(task)).thenThrow(DOWN).thenReturn(true);
+        taskLog.put(task);
+        taskLog.replay();
+        assertEquals(1, taskLog.pending(), "Write should still be pending");
+        taskLog.replay();
+        assertEquals(0, taskLog.pending(), "Write should be replayed");
+        verify(taskRepository, times(2)).saveIfNewer(task);
+    }
+
+    @Test
+    @DisplayName("replays only the latest write for a task")
+    void replaysLatestWrite() {
+        Task completed = task.withStatus(COMPLETED).withVersion(4L);
+        taskLog.put(task);
+        taskLog.put(completed);
+        taskLog.replay();
+        verify(taskRepository).saveIfNewer(completed);
+        verify(taskRepository, never()).saveIfNewer(task);
+    }
+
+    @Test
+    @DisplayName("drops a write the repository already has a newer copy of")
+    void dropsStaleWrite() {
+        when(taskRepository.saveIfNewer(task)).thenReturn(false);
+        taskLog.put(task);
+        taskLog.replay();
+        assertEquals(0, taskLog.pending(), "Stale write should not stay pending");
+        verify(taskRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("replays a deferred delete")
+    void replaysDelete() {
+        doThrow(DOWN).doNothing().when(taskRepository).deleteById("1");
+        taskLog.delete("1");
+        taskLog.replay();
+        assertEquals(1, taskLog.pending(), "Delete should be pending");
+        taskLog.replay();
+        assertEquals(0, taskLog.pending(), "Delete should be replayed");
+        verify(taskRepository, times(2)).deleteById("1");
+    }
+
+    @Test
+    @DisplayName("recovers pending writes after a restart")
+    void recoversAfterRestart() {
+        when(taskRepository.saveIfNewer(task)).thenThrow(DOWN);
+        taskLog.put(task);
+        taskLog.close();
+        reset(taskRepository);
+        taskLog = new TaskWriteAheadLog(taskRepository, directory, ALWAYS, 1024, 8);
+        assertEquals(1, taskLog.pending(), "Write should be recovered");
+        taskLog.replay();
+        verify(taskRepository).saveIfNewer(task);
+    }
+
+    @Test
+    @DisplayName("stops recovering at a torn record")
+    void stopsAtTornRecord() throws IOException {
+        Task other = task.withId("2");
+        when(taskRepository.saveIfNewer(any())).thenThrow(DOWN);
+        taskLog.put(task);
+        taskLog.put(other);
+        taskLog.close();
+        Path segment = segments().get(0);
+        int firstRecord = TaskWriteAheadLog.HEADER_BYTES + TaskWalRecord.put(1, task).encode().length;
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(firstRecord + TaskWriteAheadLog.HEADER_BYTES + 20);
+            file.write(0x7f);
+        }
+        reset(taskRepository);
+        taskLog = new TaskWriteAheadLog(taskRepository, directory, ALWAYS, 1024, 8);
+        taskLog.replay();
+        verify(taskRepository).saveIfNewer(task);
+        verify(taskRepository, never()).saveIfNewer(other);
+    }
+
+    @Test
+    @DisplayName("rolls segments and deletes them once applied")
+    void rollsAndDeletesSegments() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            taskLog.put(task.withId(String.valueOf(i)));
+        }
+        assertTrue(taskLog.closedSegments() > 1, "Segments should roll");
+        reset(taskRepository);
+        taskLog.replay();
+        assertAll(
+                () -> assertEquals(0, taskLog.closedSegments(), "Applied segments should be deleted"),
+                () -> assertEquals(1, segments().size(), "Only the open segment should remain")
+        );
+    }
+
+    @Test
+    @DisplayName("copies pending writes forward so old segments can go while the repository is down")
+    void compactsWhileDown() throws IOException {
+        taskLog.close();
+        taskLog = new TaskWriteAheadLog(taskRepository, directory, ALWAYS, 1024, 0);
+        Task other = task.withId("2");
+        when(taskRepository.saveIfNewer(any())).thenThrow(DOWN);
+        taskLog.put(other);
+        for (int i = 0; i < 10; i++) {
+            taskLog.put(task.withVersion((long) i));
+        }
+        Path first = segments().get(0);
+        taskLog.replay();
+        assertAll(
+                () -> assertEquals(2, taskLog.pending(), "Only the latest write per task should be pending"),
+                () -> assertFalse(Files.exists(first), "The oldest segment should be deleted")
+        );
+        taskLog.close();
+        reset(taskRepository);
+        taskLog = new TaskWriteAheadLog(taskRepository, directory, ALWAYS, 1024, 0);
+        taskLog.replay();
+        verify(taskRepository).saveIfNewer(other);
+        verify(taskRepository).saveIfNewer(task.withVersion(9L));
+    }
+
+    @Test
+    @DisplayName("passes writes straight through when disabled")
+    void passesThroughWhenDisabled() {
+        TaskWriteAheadLog disabled = TaskWriteAheadLog.disabled(taskRepository);
+        when(taskRepository.save(task)).thenReturn(task);
+        disabled.put(task);
+        disabled.delete("1");
+        assertFalse(disabled.isEnabled(), "Log should be disabled");
+        verify(taskRepository).save(task);
+        verify(taskRepository).deleteById("1");
+    }
+
+    List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.chrisrobertsfl.journal.task.repository;
+
+import com.chrisrobertsfl.journal.task.model.Task;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
+import static com.chrisrobertsfl.journal.task.model.Status.COMPLETED;
+import static com.chrisrobertsfl.journal.task.model.Status.IN_PROGRESS;
+import static com.chrisrobertsfl.journal.task.model.Status.PENDING;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Given Task Write-Behind")
+class TaskWriteBehindTest {
+    static final Duration NEVER = Duration.ofHours(1);
+
+    @Mock
+    MongoOperations mongoOperations;
+    BulkOperations bulkOperations = mock(BulkOperations.class, RETURNS_SELF);
+    TaskWriteBehind taskWriteBehind;
+    Task task = new Task("1", "Task 1", "Description", null, HIGH, PENDING, Set.of("work"), null, 0L);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (taskWriteBehind != null) {
+            taskWriteBehind.close();
+        }
+    }
+
+    @Test
+    @DisplayName("acknowledges a write and reads it back before it is flushed")
+    void readsPendingWrite() {
+        taskWriteBehind = new TaskWriteBehind(mongoOperations, 10, 10, NEVER, NEVER);
+        taskWriteBehind.put(task.withStatus(COMPLETED));
+        taskWriteBehind.delete("2");
+        assertAll(
+                () -> assertEquals(Optional.of(task.withStatus(COMPLETED)), taskWriteBehind.findById("1", id -> Optional.of(task)), "Pending write should win"),
+                () -> assertEquals(Optional.empty(), taskWriteBehind.findById("2", id -> Optional.of(task.withId("2"))), "Pending delete should hide the task"),
+                () -> assertEquals(Optional.of(task.withId("3")), taskWriteBehind.findById("3", id -> Optional.of(task.withId("3"))), "Other tasks should be read"),
+                () -> assertEquals(2, taskWriteBehind.pending(), "Incorrect pending writes")
+        );
+        verify(mongoOperations, never()).bulkOps(any(), any(Class.class));
+    }
+
+    @Test
+    @DisplayName("moves pending writes in and out of query results")
+    void overlaysQueryResults() {
+        taskWriteBehind = new TaskWriteBehind(mongoOperations, 10, 10, NEVER, NEVER);
+        Task other = task.withId("2");
+        taskWriteBehind.put(task.withStatus(IN_PROGRESS));
+        taskWriteBehind.put(task.withId("3"));
+        assertEquals(List.of(other, task.withId("3")),
+                taskWriteBehind.overlay(List.of(task, other), found -> found.status() == PENDING), "Incorrect pending tasks");
+    }
+
+    @Test
+    @DisplayName("coalesces writes to the same task into one replace")
+    void coalescesWrites() {
+        when(mongoOperations.bulkOps(UNORDERED, Task.class)).thenReturn(bulkOperations);
+        taskWriteBehind = new TaskWriteBehind(mongoOperations, 10, 10, NEVER, NEVER);
+        taskWriteBehind.put(task.withStatus(IN_PROGRESS));
+        taskWriteBehind.put(task.withStatus(COMPLETED));
+        taskWriteBehind.flush();
+        verify(bulkOperations, times(1)).replaceOne(any(Query.class), any(), any(FindAndReplaceOptions.class));
+        verify(bulkOperations).replaceOne(eq(TaskRepositoryCustomImpl.olderThan(task.withStatus(COMPLETED))), eq(task.withStatus(COMPLETED)), any(FindAndReplaceOptions.class));
+        verify(bulkOperations).execute();
+        assertEquals(0, taskWriteBehind.pending(), "Nothing should be pending");
+    }
+
+    @Test
+    @DisplayName("flushes once a batch fills up")
+    void flushesFullBatch() {
+        when(mongoOperations.bulkOps(UNORDERED, Task.class)).thenReturn(bulkOperations);
+        taskWriteBehind = new TaskWriteBehind(mongoOperations, 10, 2, NEVER, NEVER);
+        taskWriteBehind.put(task);
+        taskWriteBehind.delete("2");
+        verify(bulkOperations, timeout(1000)).execute();
+        verify(bulkOperations).remove(query(where("id").is("2")));
+    }
+
+    @Test
+    @DisplayName("flushes a partial batch after the flush interval")
+    void flushesAfterInterval() {
+        when(mongoOperations.bulkOps(UNORDERED, Task.class)).thenReturn(bulkOperations);
+        taskWriteBehind = new TaskWriteBehind(mongoOperations, 10, 100, Duration.ofMillis(20), NEVER);
+        taskWriteBehind.put(task);
+        verify(bulkOperations, timeout(1000)).execute();
+    }
+
+    @Test
+    @DisplayName("keeps writes Mongo rejects pending for the next flush")
+    void requeuesFailedFlush() {
+        when(mongoOperations.bulkOps(UNORDERED, Task.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(new DataAccessResourceFailureException("Mongo is down")).thenReturn(null);
+        taskWriteBehind = new TaskWriteBehind(mongoOperations, 10, 10, NEVER, NEVER);
+        taskWriteBehind.put(task);
+        taskWriteBehind.flush();
+        assertEquals(1, taskWriteBehind.pending(), "Write should stay pending");
+        taskWriteBehind.flush();
+        assertEquals(0, taskWriteBehind.pending(), "Write should be flushed");
+        verify(bulkOperations, times(2)).execute();
+    }
+
+    @Test
+    @DisplayName("drops a write whose stored copy is newer")
+    void dropsStaleWrite() {
+        when(mongoOperations.bulkOps(UNORDERED, Task.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(rejected(11000, "E11000 duplicate key"));
+        taskWriteBehind = new TaskWriteBehind(mongoOperations, 10, 10, NEVER, NEVER);
+        taskWriteBehind.put(task);
+        taskWriteBehind.put(task.withId("2"));
+        taskWriteBehind.flush();
+        taskWriteBehind.flush();
+        assertEquals(0, taskWriteBehind.pending(), "Nothing should be pending");
+        verify(bulkOperations, times(1)).execute();
+    }
+
+    @Test
+    @DisplayName("drops a write Mongo keeps rejecting")
+    void dropsRejectedWrite() {
+        when(mongoOperations.bulkOps(UNORDERED, Task.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(rejected(121, "Document failed validation"));
+        taskWriteBehind = new TaskWriteBehind(mongoOperations, 10, 10, NEVER, NEVER);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        taskWriteBehind.bindTo(registry);
+        taskWriteBehind.put(task);
+        taskWriteBehind.flush();
+        taskWriteBehind.flush();
+        assertEquals(1, taskWriteBehind.pending(), "Write should be retried");
+        taskWriteBehind.flush();
+        taskWriteBehind.flush();
+        assertAll(
+                () -> assertEquals(0, taskWriteBehind.pending(), "Write should be dropped"),
+                () -> assertEquals(1.0, registry.get("journal.task.write-behind.dropped").functionCounter().count(), "Incorrect dropped count")
+        );
+        verify(bulkOperations, times(3)).execute();
+    }
+
+    @Test
+    @DisplayName("pushes back on writers when the queue is full")
+    void appliesBackpressure() {
+        taskWriteBehind = new TaskWriteBehind(mongoOperations, 1, 10, NEVER, Duration.ofMillis(20));
+        taskWriteBehind.put(task);
+        assertAll(
+                () -> assertDoesNotThrow(() -> taskWriteBehind.put(task.withStatus(COMPLETED)), "A queued task should be coalesced"),
+                () -> assertThrows(TransientDataAccessResourceException.class, () -> taskWriteBehind.put(task.withId("2")), "A new task should wait for room")
+        );
+    }
+
+    @Test
+    @DisplayName("flushes pending writes on close")
+    void flushesOnClose() throws InterruptedException {
+        when(mongoOperations.bulkOps(UNORDERED, Task.class)).thenReturn(bulkOperations);
+        taskWriteBehind = new TaskWriteBehind(mongoOperations, 10, 10, NEVER, NEVER);
+        taskWriteBehind.put(task);
+        taskWriteBehind.close();
+        assertAll(
+                () -> assertEquals(0, taskWriteBehind.pending(), "Nothing should be pending"),
+                () -> assertThrows(IllegalStateException.class, () -> taskWriteBehind.put(task), "Closed write-behind should refuse writes")
+        );
+        verify(bulkOperations).execute();
+    }
+
+    // Mongo rejecting the first write of the batch
+    static BulkOperationException rejected(int code, String message) {
+        return new BulkOperationException(message, new MongoBulkWriteException(BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()),
+                List.of(new BulkWriteError(code, message, new BsonDocument(), 0)), null, new ServerAddress(), Set.of()));
+    }
+}
@@ -0,0 +1,72 @@
+package com.chrisrobertsfl.journal.task.service;
+
+import com.chrisrobertsfl.journal.task.model.TaskInfo;
+import com.chrisrobertsfl.journal.task.model.TaskNotFoundException;
+import com.chrisrobertsfl.journal.task.model.TaskPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static com.chrisrobertsfl.journal.task.service.MeteredTaskService.EXCEPTIONS;
+import static com.chrisrobertsfl.journal.task.service.MeteredTaskService.RESULTS;
+import static com.chrisrobertsfl.journal.task.service.MeteredTaskService.TIMER;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Given Metered Task Service")
+class MeteredTaskServiceTest {
+    @Mock
+    TaskService taskService;
+    SimpleMeterRegistry meterRegistry;
+    MeteredTaskService meteredTaskService;
+
+    @BeforeEach
+    void createService() {
+        meterRegistry = new SimpleMeterRegistry();
+        meteredTaskService = new MeteredTaskService(taskService, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("times successful calls and records the result size")
+    void timesSuccessfulCalls() {
+        List<TaskInfo> tasks = List.of(TaskInfo.nullTaskInfo(), TaskInfo.nullTaskInfo());
+        when(taskService.findPage(null, 2, null)).thenReturn(new TaskPage(tasks, null));
+        assertEquals(tasks, meteredTaskService.findPage(null, 2, null).tasks(), "Incorrect tasks");
+        assertAll(
+                () -> assertEquals(1, meterRegistry.get(TIMER).tags("operation", "findPage", "outcome", "success").timer().count(), "Incorrect timer count"),
+                () -> assertEquals(2, meterRegistry.get(RESULTS).tag("operation", "findPage").summary().totalAmount(), "Incorrect result size")
+        );
+    }
+
+    @Test
+    @DisplayName("times failed calls and counts task exceptions by type")
+    void countsTaskExceptions() {
+        when(taskService.markComplete("1", null)).thenThrow(new TaskNotFoundException("Task with ID '1' not found"));
+        assertThatExceptionOfType(TaskNotFoundException.class)
+                .isThrownBy(() -> meteredTaskService.markComplete("1", null));
+        assertAll(
+                () -> assertEquals(1, meterRegistry.get(TIMER).tags("operation", "markComplete", "outcome", "error", "exception", "TaskNotFoundException").timer().count(), "Incorrect timer count"),
+                () -> assertEquals(1, meterRegistry.get(EXCEPTIONS).tags("operation", "markComplete", "exception", "TaskNotFoundException").counter().count(), "Incorrect exception count")
+        );
+    }
+
+    @Test
+    @DisplayName("does not count other exceptions as task exceptions")
+    void doesNotCountOtherExceptions() {
+        when(taskService.findAll()).thenThrow(new IllegalStateException("down"));
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> meteredTaskService.findAll());
+        assertAll(
+                () -> assertEquals(1, meterRegistry.get(TIMER).tags("operation", "findAll", "exception", "IllegalStateException").timer().count(), "Incorrect timer count"),
+                () -> assertNull(meterRegistry.find(EXCEPTIONS).counter(), "Only task exceptions should be counted")
+        );
+    }
+}
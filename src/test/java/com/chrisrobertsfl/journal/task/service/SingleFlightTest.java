@@ -0,0 +1,118 @@
+package com.chrisrobertsfl.journal.task.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Given Single Flight")
+class SingleFlightTest {
+    static final int CALLERS = 8;
+
+    AtomicLong ticker = new AtomicLong();
+    AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    @DisplayName("shares one load among concurrent callers for the same key")
+    void sharesInFlightLoad() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(Duration.ZERO);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.get("IN_PROGRESS", () -> {
+                loading.countDown();
+                await(release);
+                return "tasks " + loads.incrementAndGet();
+            }));
+            assertTrue(loading.await(5, SECONDS), "Leader should be loading");
+            List<Future<String>> followers = new ArrayList<>();
+            for (int caller = 1; caller < CALLERS; caller++) {
+                followers.add(executor.submit(() -> singleFlight.get("IN_PROGRESS", () -> "tasks " + loads.incrementAndGet())));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            assertEquals("tasks 1", leader.get(5, SECONDS), "Incorrect leader result");
+            for (Future<String> follower : followers) {
+                assertEquals("tasks 1", follower.get(5, SECONDS), "Follower should share the leader's result");
+            }
+            assertEquals(1, loads.get(), "Expected one load");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("loads again once the call completes when there is no window")
+    void loadsAgainWithoutWindow() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(Duration.ZERO);
+        singleFlight.get("1", loads::incrementAndGet);
+        assertEquals(2, singleFlight.get("1", loads::incrementAndGet), "Expected a second load");
+    }
+
+    @Test
+    @DisplayName("keeps a result for the window after it completes")
+    void keepsResultForWindow() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(true, Duration.ofMillis(50), ticker::get);
+        singleFlight.get("1", loads::incrementAndGet);
+        ticker.addAndGet(Duration.ofMillis(49).toNanos());
+        assertEquals(1, singleFlight.get("1", loads::incrementAndGet), "Result should be kept within the window");
+        ticker.addAndGet(Duration.ofMillis(1).toNanos());
+        assertEquals(2, singleFlight.get("1", loads::incrementAndGet), "Result should expire after the window");
+    }
+
+    @Test
+    @DisplayName("stops later callers sharing a result from before an invalidation")
+    void invalidates() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(true, Duration.ofMinutes(1), ticker::get);
+        singleFlight.get("1", loads::incrementAndGet);
+        singleFlight.invalidate();
+        assertEquals(2, singleFlight.get("1", loads::incrementAndGet), "Expected a fresh load");
+    }
+
+    @Test
+    @DisplayName("hands a failure to the caller and does not keep it")
+    void doesNotKeepFailures() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(true, Duration.ofMinutes(1), ticker::get);
+        IllegalStateException failure = new IllegalStateException("Mongo is down");
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> singleFlight.get("1", () -> {
+            throw failure;
+        }), "Expected the load to fail"), "Incorrect failure");
+        assertEquals(1, singleFlight.get("1", loads::incrementAndGet), "Expected a fresh load after the failure");
+    }
+
+    @Test
+    @DisplayName("keeps keys apart")
+    void keepsKeysApart() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(true, Duration.ofMinutes(1), ticker::get);
+        singleFlight.get("1", loads::incrementAndGet);
+        assertEquals(2, singleFlight.get("2", loads::incrementAndGet), "Expected a load for another key");
+    }
+
+    @Test
+    @DisplayName("calls straight through when disabled")
+    void disabled() {
+        SingleFlight<String, Integer> singleFlight = SingleFlight.disabled();
+        singleFlight.get("1", loads::incrementAndGet);
+        assertEquals(2, singleFlight.get("1", loads::incrementAndGet), "Expected every call to load");
+    }
+
+    static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,40 +1,55 @@
 package com.chrisrobertsfl.journal.task.service;
 
 import com.chrisrobertsfl.journal.task.model.*;
+import com.chrisrobertsfl.journal.task.repository.TaskResponseCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.stream.IntStream;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 
 import static com.chrisrobertsfl.journal.task.model.Priority.HIGH;
 import static com.chrisrobertsfl.journal.task.model.Priority.LOW;
 import static com.chrisrobertsfl.journal.task.model.Status.*;
 import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatExceptionOfType;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 @DisplayName("Given Task Service Implementation")
 public class TaskServiceImplTest {
-    @InjectMocks
     TaskServiceImpl taskService;
 
     @Mock
     TaskAggregateRoot taskAggregateRoot;
 
+    @BeforeEach
+    void createService() {
+        taskService = new TaskServiceImpl(taskAggregateRoot);
+    }
+
     @Nested
     @DisplayName("when finding all tasks")
     class FindAll {
@@ -67,6 +82,93 @@ public class TaskServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("when finding a page of tasks")
+    class FindPage {
+        List<Task> tasks = List.of(
+                new Task("1", "Task 1", "Description 1", Instant.now(), HIGH, PENDING, null, null),
+                new Task("2", "Task 2", "Description 2", Instant.now(), LOW, IN_PROGRESS, null, null),
+                new Task("3", "Task 3", "Description 3", Instant.now(), LOW, COMPLETED, null, null)
+        );
+
+        @Test
+        @DisplayName("should return a cursor to the next page when more tasks remain")
+        void returnsNextCursorWhenMoreTasksRemain() {
+            when(taskAggregateRoot.findPage(null, 3)).thenReturn(tasks);
+            TaskPage page = taskService.findPage(null, 2);
+            assertAll(
+                    () -> assertEquals(2, page.tasks().size(), "Incorrect number of tasks"),
+                    () -> assertEquals("2", page.tasks().get(1).id(), "Incorrect last task"),
+                    () -> assertEquals(TaskCursor.encode("2"), page.nextCursor(), "Incorrect next cursor")
+            );
+        }
+
+        @Test
+        @DisplayName("should not return a cursor on the last page")
+        void returnsNoCursorOnLastPage() {
+            when(taskAggregateRoot.findPage("1", 3)).thenReturn(tasks.subList(1, 3));
+            TaskPage page = taskService.findPage(TaskCursor.encode("1"), 2);
+            assertAll(
+                    () -> assertEquals(2, page.tasks().size(), "Incorrect number of tasks"),
+                    () -> assertNull(page.nextCursor(), "Last page should not have a next cursor")
+            );
+        }
+
+        @Test
+        @DisplayName("throws exception when cursor is invalid")
+        void throwsExceptionWhenCursorIsInvalid() {
+            assertThatExceptionOfType(InvalidCursorException.class)
+                    .isThrownBy(() -> taskService.findPage("not a cursor", 2))
+                    .withMessage("Invalid cursor: not a cursor");
+        }
+    }
+
+    @Nested
+    @DisplayName("when finding tasks with selected fields")
+    class FindProjected {
+        Set<String> fields = new LinkedHashSet<>(List.of("id", "name", "status", "priority"));
+        List<Task> tasks = List.of(
+                new Task("1", "Task 1", null, null, HIGH, PENDING, null, null),
+                new Task("2", "Task 2", null, null, LOW, PENDING, null, null)
+        );
+
+        @Test
+        @DisplayName("should push the fields down and leave unselected subtasks out")
+        void pushesFieldsDown() {
+            when(taskAggregateRoot.findPage(null, 3, fields)).thenReturn(tasks);
+            TaskPage page = taskService.findPage(null, 2, "id, name,status,priority");
+            assertAll(
+                    () -> assertEquals(2, page.tasks().size(), "Incorrect number of tasks"),
+                    () -> assertNull(page.tasks().get(0).subtasks(), "Unselected subtasks should be left out"),
+                    () -> assertNull(page.tasks().get(0).description(), "Unselected description should be left out"),
+                    () -> assertNull(page.nextCursor(), "Last page should not have a next cursor")
+            );
+        }
+
+        @Test
+        @DisplayName("should read whole tasks when no fields are given")
+        void readsWholeTasksWithoutFields() {
+            when(taskAggregateRoot.findByStatus(PENDING)).thenReturn(tasks);
+            assertEquals(2, taskService.findByStatus("PENDING", " ").size(), "Incorrect number of tasks");
+            verify(taskAggregateRoot, never()).findByStatus(PENDING, Set.of());
+        }
+
+        @Test
+        @DisplayName("should project tasks found by label")
+        void projectsByLabel() {
+            when(taskAggregateRoot.findByLabel(Set.of("label1"), Set.of("name"))).thenReturn(tasks.subList(0, 1));
+            assertEquals("Task 1", taskService.findByLabel(Set.of("label1"), "name").get(0).name(), "Incorrect task name");
+        }
+
+        @Test
+        @DisplayName("throws exception when a field is unknown")
+        void throwsExceptionWhenFieldIsUnknown() {
+            assertThatExceptionOfType(InvalidFieldsException.class)
+                    .isThrownBy(() -> taskService.findByStatus("PENDING", "name,secret,bogus"))
+                    .withMessage("Unknown field(s): [bogus, secret]");
+        }
+    }
+
     @Nested
     @DisplayName("when adding a task")
     class AddTask {
@@ -94,6 +196,76 @@ public class TaskServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("when adding tasks in bulk")
+    class AddTasks {
+        TaskInfo taskInfo(String name) {
+            return new TaskInfo(null, name, "Description", null, HIGH, PENDING, null, null);
+        }
+
+        @BeforeEach
+        void setUp() {
+            taskService = new TaskServiceImpl(taskAggregateRoot, 2);
+        }
+
+        @Test
+        @DisplayName("inserts the tasks in batches")
+        void insertsTasksInBatches() {
+            when(taskAggregateRoot.addTasks(any())).thenAnswer(invocation -> {
+                List<Task> batch = invocation.getArgument(0);
+                return IntStream.range(0, batch.size())
+                        .mapToObj(i -> BulkTaskResult.success(i, batch.get(i).name()))
+                        .toList();
+            });
+            BulkTaskResponse response = taskService.addTasks(List.of(taskInfo("a"), taskInfo("b"), taskInfo("c")).iterator());
+            assertAll(
+                    () -> assertEquals(3, response.inserted(), "Incorrect number inserted"),
+                    () -> assertEquals(0, response.failed(), "Incorrect number failed"),
+                    () -> assertEquals(List.of(0, 1, 2), response.results().stream().map(BulkTaskResult::index).toList(), "Incorrect indexes"),
+                    () -> assertEquals("c", response.results().get(2).id(), "Incorrect id for the last task")
+            );
+            verify(taskAggregateRoot, times(2)).addTasks(any());
+        }
+
+        @Test
+        @DisplayName("reports items that cannot be read without inserting them")
+        void reportsUnreadableItems() {
+            Iterator<TaskInfo> tasks = new Iterator<>() {
+                int next;
+
+                public boolean hasNext() {
+                    return next < 2;
+                }
+
+                public TaskInfo next() {
+                    if (next++ == 0) {
+                        throw new IllegalArgumentException("Cannot read task");
+                    }
+                    return taskInfo("b");
+                }
+            };
+            when(taskAggregateRoot.addTasks(any())).thenReturn(List.of(BulkTaskResult.success(0, "2")));
+            BulkTaskResponse response = taskService.addTasks(tasks);
+            assertAll(
+                    () -> assertEquals(1, response.inserted(), "Incorrect number inserted"),
+                    () -> assertEquals(BulkTaskResult.failure(0, "Cannot read task"), response.results().get(0), "Incorrect failure"),
+                    () -> assertEquals(BulkTaskResult.success(1, "2"), response.results().get(1), "Incorrect success")
+            );
+        }
+
+        @Test
+        @DisplayName("fails every item in a batch the repository rejects")
+        void failsRejectedBatch() {
+            when(taskAggregateRoot.addTasks(any())).thenThrow(new IllegalStateException("Mongo is unavailable"));
+            BulkTaskResponse response = taskService.addTasks(List.of(taskInfo("a"), taskInfo("b")).iterator());
+            assertAll(
+                    () -> assertEquals(0, response.inserted(), "Incorrect number inserted"),
+                    () -> assertEquals(2, response.failed(), "Incorrect number failed"),
+                    () -> assertEquals("Mongo is unavailable", response.results().get(1).error(), "Incorrect error")
+            );
+        }
+    }
+
     @Nested
     @DisplayName("when updating a task")
     class UpdateTask {
@@ -245,6 +417,86 @@ public class TaskServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("when sharing identical reads")
+    class SingleFlightReads {
+        Task task = new Task("1", "Task 1", "Description", null, HIGH, PENDING, Set.of("label1"), null);
+
+        TaskResponseCache taskResponseCache = TaskResponseCache.disabled();
+
+        @BeforeEach
+        void setUp() {
+            taskService = new TaskServiceImpl(taskAggregateRoot, 2, Duration.ofMinutes(1), taskResponseCache);
+        }
+
+        @Test
+        @DisplayName("should share a result by status, label or id within the window")
+        void sharesResults() {
+            when(taskAggregateRoot.findByStatus(PENDING)).thenReturn(List.of(task));
+            when(taskAggregateRoot.findByLabel(Set.of("label1", "label2"))).thenReturn(List.of(task));
+            when(taskAggregateRoot.findById("1")).thenReturn(Optional.of(task));
+            assertAll(
+                    () -> assertEquals(taskService.findByStatus("PENDING"), taskService.findByStatus("PENDING", ""), "Incorrect tasks by status"),
+                    () -> assertEquals(taskService.findByLabel(new LinkedHashSet<>(List.of("label1", "label2"))),
+                            taskService.findByLabel(new LinkedHashSet<>(List.of("label2", "label1"))), "Incorrect tasks by label"),
+                    () -> assertEquals(taskService.findById("1"), taskService.findById("1"), "Incorrect task by id")
+            );
+            verify(taskAggregateRoot).findByStatus(PENDING);
+            verify(taskAggregateRoot).findByLabel(Set.of("label1", "label2"));
+            verify(taskAggregateRoot).findById("1");
+        }
+
+        @Test
+        @DisplayName("should convert a shared read once for everyone sharing it")
+        void sharesConvertedResult() {
+            when(taskAggregateRoot.findByStatus(PENDING)).thenReturn(List.of(task));
+            assertSame(taskService.findByStatus("PENDING"), taskService.findByStatus("PENDING"), "Expected one converted list");
+        }
+
+        @Test
+        @DisplayName("should not share a projected read with a full one")
+        void keepsProjectionsApart() {
+            when(taskAggregateRoot.findByStatus(PENDING)).thenReturn(List.of(task));
+            when(taskAggregateRoot.findByStatus(PENDING, Set.of("name"))).thenReturn(List.of(task));
+            taskService.findByStatus("PENDING");
+            taskService.findByStatus("PENDING", "name");
+            verify(taskAggregateRoot).findByStatus(PENDING, Set.of("name"));
+        }
+
+        @Test
+        @DisplayName("should read again after a write")
+        void readsAgainAfterWrite() {
+            when(taskAggregateRoot.findByStatus(PENDING)).thenReturn(List.of(task), List.of());
+            taskService.findByStatus("PENDING");
+            taskResponseCache.replaced(task, task.withStatus(COMPLETED));
+            assertEquals(List.of(), taskService.findByStatus("PENDING"), "Expected the tasks after the write");
+            verify(taskAggregateRoot, times(2)).findByStatus(PENDING);
+        }
+
+        @Test
+        @DisplayName("should not join a read that started before a write")
+        void doesNotJoinReadFromBeforeWrite() throws Exception {
+            CountDownLatch reading = new CountDownLatch(1);
+            CountDownLatch written = new CountDownLatch(1);
+            when(taskAggregateRoot.findById("1"))
+                    .thenAnswer(invocation -> {
+                        reading.countDown();
+                        written.await(5, SECONDS);
+                        return Optional.of(task);
+                    })
+                    .thenReturn(Optional.of(task.withStatus(COMPLETED)));
+            CompletableFuture<Optional<TaskInfo>> before = CompletableFuture.supplyAsync(() -> taskService.findById("1"));
+            reading.await(5, SECONDS);
+            taskResponseCache.replaced(task, task.withStatus(COMPLETED));
+            Optional<TaskInfo> after = taskService.findById("1");
+            written.countDown();
+            assertAll(
+                    () -> assertEquals(COMPLETED, after.orElseThrow().status(), "Read after the write should see it"),
+                    () -> assertEquals(PENDING, before.get(5, SECONDS).orElseThrow().status(), "Read before the write keeps its result")
+            );
+        }
+    }
+
     @Nested
     @DisplayName("when marking a task in progress")
     class MarkInProgress {
@@ -300,4 +552,165 @@ public class TaskServiceImplTest {
         }
     }
 
+
+    @Nested
+    @DisplayName("when searching tasks")
+    class Search {
+        List<Task> tasks = List.of(
+                new Task("1", "Write report", "Quarterly report", null, HIGH, PENDING, Set.of("work"), null),
+                new Task("2", "Report bug", "Crash on start", null, LOW, PENDING, Set.of("work"), null),
+                new Task("3", "Read report", null, null, LOW, PENDING, Set.of("work"), null)
+        );
+
+        @Test
+        @DisplayName("should return a page of ranked results with a cursor to the next offset")
+        public void testSearch_firstPage() {
+            when(taskAggregateRoot.search("report", Set.of("work"), PENDING, 0, 3)).thenReturn(tasks);
+            TaskPage page = taskService.search("report", Set.of("work"), "PENDING", null, 2);
+            assertAll(
+                    () -> assertEquals(List.of(TaskInfo.fromTask(tasks.get(0)), TaskInfo.fromTask(tasks.get(1))), page.tasks(), "Incorrect tasks"),
+                    () -> assertEquals(TaskCursor.encode("2"), page.nextCursor(), "Incorrect next cursor")
+            );
+        }
+
+        @Test
+        @DisplayName("should continue from the offset in the cursor")
+        public void testSearch_nextPage() {
+            when(taskAggregateRoot.search("report", null, null, 2, 3)).thenReturn(tasks.subList(2, 3));
+            TaskPage page = taskService.search("report", null, null, TaskCursor.encode("2"), 2);
+            assertAll(
+                    () -> assertEquals(List.of(TaskInfo.fromTask(tasks.get(2))), page.tasks(), "Incorrect tasks"),
+                    () -> assertNull(page.nextCursor(), "Last page should have no cursor")
+            );
+        }
+
+        @Test
+        @DisplayName("should reject a search without text")
+        public void testSearch_blank() {
+            assertThatExceptionOfType(InvalidTaskQueryException.class)
+                    .isThrownBy(() -> taskService.search(" ", null, null, null, 10))
+                    .withMessage("Search text is required");
+            verify(taskAggregateRoot, never()).search(any(), any(), any(), any(Integer.class), any(Integer.class));
+        }
+
+        @Test
+        @DisplayName("should reject a cursor that is not an offset")
+        public void testSearch_invalidCursor() {
+            assertThatExceptionOfType(InvalidCursorException.class)
+                    .isThrownBy(() -> taskService.search("report", null, null, TaskCursor.encode("abc"), 10));
+        }
+    }
+
+    @Nested
+    @DisplayName("when listing subtasks")
+    class FindSubtasks {
+        List<Subtask> subtasks = List.of(
+                Subtask.of(new Task("1.1", "Subtask 1", null, null, HIGH, PENDING, null, null), "1", List.of("1"), "0000000001", 1, Instant.EPOCH),
+                Subtask.of(new Task("1.2", "Subtask 2", null, null, HIGH, PENDING, null, null), "1", List.of("1"), "0000000004", 4, Instant.EPOCH),
+                Subtask.of(new Task("1.3", "Subtask 3", null, null, HIGH, PENDING, null, null), "1", List.of("1"), "0000000005", 5, Instant.EPOCH)
+        );
+
+        @Test
+        @DisplayName("should return children without their subtasks and a cursor to the next position")
+        void returnsPage() {
+            when(taskAggregateRoot.findSubtasks("1", 0, 3)).thenReturn(subtasks);
+            TaskPage page = taskService.findSubtasks("1", null, 2);
+            assertAll(
+                    () -> assertEquals(List.of("1.1", "1.2"), page.tasks().stream().map(TaskInfo::id).toList(), "Incorrect subtasks"),
+                    () -> assertNull(page.tasks().get(0).subtasks(), "Subtasks should be left to load on demand"),
+                    () -> assertEquals(TaskCursor.encode("4"), page.nextCursor(), "Incorrect next cursor")
+            );
+        }
+
+        @Test
+        @DisplayName("should continue after the position in the cursor")
+        void continuesFromCursor() {
+            when(taskAggregateRoot.findSubtasks("1", 4, 3)).thenReturn(subtasks.subList(2, 3));
+            assertNull(taskService.findSubtasks("1", TaskCursor.encode("4"), 2).nextCursor(), "Last page should have no cursor");
+        }
+
+        @Test
+        @DisplayName("should reject a cursor that is not a position")
+        void rejectsInvalidCursor() {
+            assertThatExceptionOfType(InvalidCursorException.class)
+                    .isThrownBy(() -> taskService.findSubtasks("1", TaskCursor.encode("abc"), 10));
+        }
+    }
+
+    @Nested
+    @DisplayName("when changing statuses in bulk")
+    class ChangeStatuses {
+        @BeforeEach
+        void setUp() {
+            taskService = new TaskServiceImpl(taskAggregateRoot, 2);
+        }
+
+        @Test
+        @DisplayName("changes the given ids a batch at a time without repeats")
+        void changesIdsInBatches() {
+            when(taskAggregateRoot.changeStatuses(List.of("1", "2"), COMPLETED)).thenReturn(List.of(BulkStatusResult.updated("1"), BulkStatusResult.unchanged("2")));
+            when(taskAggregateRoot.changeStatuses(List.of("3"), COMPLETED)).thenReturn(List.of(BulkStatusResult.notFound("3")));
+            BulkStatusResponse response = taskService.markAllComplete(new BulkStatusRequest(List.of("1", "2", "1", "3"), null, null));
+            assertAll(
+                    () -> assertEquals(1, response.updated(), "Incorrect number updated"),
+                    () -> assertEquals(1, response.unchanged(), "Incorrect number unchanged"),
+                    () -> assertEquals(1, response.notFound(), "Incorrect number not found"),
+                    () -> assertEquals(List.of("1", "2", "3"), response.results().stream().map(BulkStatusResult::id).toList(), "Incorrect results")
+            );
+        }
+
+        @Test
+        @DisplayName("pages through the tasks matching the filter until a page comes back short")
+        void pagesThroughFilter() {
+            when(taskAggregateRoot.changeStatuses(Set.of("work"), PENDING, IN_PROGRESS, null, 2))
+                    .thenReturn(List.of(BulkStatusResult.updated("1"), BulkStatusResult.conflict("2")));
+            when(taskAggregateRoot.changeStatuses(Set.of("work"), PENDING, IN_PROGRESS, "2", 2))
+                    .thenReturn(List.of(BulkStatusResult.updated("5")));
+            BulkStatusResponse response = taskService.markAllInProgress(new BulkStatusRequest(null, Set.of("work"), "PENDING"));
+            assertAll(
+                    () -> assertEquals(2, response.updated(), "Incorrect number updated"),
+                    () -> assertEquals(1, response.conflicts(), "Incorrect number of conflicts")
+            );
+            verify(taskAggregateRoot, times(2)).changeStatuses(any(), any(), any(), any(), anyInt());
+        }
+
+        @Test
+        @DisplayName("should reject a request with both ids and a filter, or neither")
+        void rejectsAmbiguousRequest() {
+            assertAll(
+                    () -> assertThrows(InvalidTaskQueryException.class,
+                            () -> taskService.markAllComplete(new BulkStatusRequest(List.of("1"), Set.of("work"), null)), "Expected both to be rejected"),
+                    () -> assertThrows(InvalidTaskQueryException.class,
+                            () -> taskService.markAllComplete(new BulkStatusRequest(null, null, null)), "Expected neither to be rejected")
+            );
+        }
+
+        @Test
+        @DisplayName("should reject an unknown status in the filter")
+        void rejectsUnknownStatus() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> taskService.markAllComplete(new BulkStatusRequest(null, null, "DONE")), "Expected an unknown status");
+        }
+    }
+
+    @Nested
+    @DisplayName("when counting tasks")
+    class CountTasks {
+        @Test
+        @DisplayName("should delegate the range to the aggregate root")
+        void delegatesRange() {
+            Instant from = Instant.parse("2023-01-01T00:00:00Z");
+            TaskStatistics statistics = new TaskStatistics(0, Map.of(), Map.of(), Map.of());
+            when(taskAggregateRoot.countTasks(from, null)).thenReturn(statistics);
+            assertEquals(statistics, taskService.countTasks(from, null), "Incorrect statistics");
+        }
+
+        @Test
+        @DisplayName("throws exception when the range is inverted")
+        void throwsExceptionWhenRangeIsInverted() {
+            assertThatExceptionOfType(InvalidTaskQueryException.class)
+                    .isThrownBy(() -> taskService.countTasks(Instant.parse("2023-02-01T00:00:00Z"), Instant.parse("2023-01-01T00:00:00Z")))
+                    .withMessage("Range start 2023-02-01T00:00:00Z is after range end 2023-01-01T00:00:00Z");
+        }
+    }
 }